@@ -84,6 +84,7 @@ public class DXFBlock {
   public void setReferencePoint( Point p ) { this.referencePoint = p; }
 
   public void addDXFEntity( DXFEntity entity ) {
+    entity.setBlockEntity( true );
     entities.add( entity );
   }
 
@@ -7,6 +7,7 @@
 package org.kabeja.dxf;
 
 import org.kabeja.dxf.helpers.Point;
+import org.kabeja.math.AffineTransform3D;
 
 /**
  * @author <a href="mailto:simon.mieth@gmx.de>Simon Mieth </a>
@@ -203,25 +204,10 @@ public class DXFDimension extends DXFEntity {
     if ( this.doc.getDXFBlock( this.dimensionBlock ) != null ) {
       DXFBlock block = doc.getDXFBlock( this.getDimensionBlock() );
       Bounds b = block.getBounds();
-      Point refPoint = block.getReferencePoint();
 
       if ( b.isValid() ) {
-        // Translate to origin
-        bounds.setMaximumX( ( b.getMaximumX() - refPoint.getX() ) );
-        bounds.setMinimumX( ( b.getMinimumX() - refPoint.getX() ) );
-        bounds.setMaximumY( ( b.getMaximumY() - refPoint.getY() ) );
-        bounds.setMinimumY( ( b.getMinimumY() - refPoint.getY() ) );
-
-        // translate to the InsertPoint
-        bounds.setMaximumX( bounds.getMaximumX() +
-          this.insertPoint.getX() );
-        bounds.setMinimumX( bounds.getMinimumX() +
-          this.insertPoint.getX() );
-        bounds.setMaximumY( bounds.getMaximumY() +
-          this.insertPoint.getY() );
-        bounds.setMinimumY( bounds.getMinimumY() +
-          this.insertPoint.getY() );
-        ;
+        // translate from the block origin to the InsertPoint
+        this.getTransform( new AffineTransform3D() ).transform( b, bounds );
       }
     } else {
       bounds.setValid( false );
@@ -230,6 +216,26 @@ public class DXFDimension extends DXFEntity {
     return bounds;
   }
 
+  /**
+   * Concatenates the transformation from the dimension block coordinates
+   * to the world coordinates.
+   *
+   * @param t the transformation to concatenate with
+   * @return the transformation t
+   */
+  public AffineTransform3D getTransform( AffineTransform3D t ) {
+    t.translate( this.insertPoint.getX(), this.insertPoint.getY(), 0.0 );
+
+    DXFBlock block = this.doc.getDXFBlock( this.dimensionBlock );
+
+    if ( block != null ) {
+      Point refPoint = block.getReferencePoint();
+      t.translate( -refPoint.getX(), -refPoint.getY(), 0.0 );
+    }
+
+    return t;
+  }
+
   public String getDimensionBlock() { return dimensionBlock; }
 
   public void setDimensionBlock( String dimensionBlock ) { this.dimensionBlock = dimensionBlock; }
@@ -187,6 +187,11 @@ public class DXFDimensionStyle {
 
   public Iterator getPropertyIterator() { return properties.values().iterator(); }
 
+  /**
+   * @return iterator over the names (the group codes) of the properties
+   */
+  public Iterator getPropertyNameIterator() { return properties.keySet().iterator(); }
+
   public String getName() { return name; }
 
   public void setName( String name ) { this.name = name; }
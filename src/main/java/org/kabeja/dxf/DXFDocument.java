@@ -42,7 +42,7 @@ public class DXFDocument {
   private HashMap objects = new HashMap();
   private HashMap patterns = new HashMap();
   private List views = new ArrayList();
-  private DXFDictionary rootDictionary = new DXFDictionary();
+  private DXFDictionary rootDictionary;
 
   public DXFDocument() {
     // the defalut layer
@@ -55,8 +55,7 @@ public class DXFDocument {
     this.margin = DEFAULT_MARGIN;
 
     // setup the root Dictionary
-    this.rootDictionary = new DXFDictionary();
-    this.rootDictionary.setDXFDocument( this );
+    this.setRootDXFDictionary( new DXFDictionary() );
   }
 
   /**
@@ -131,11 +130,7 @@ public class DXFDocument {
   }
 
   public String getProperty( String key ) {
-    if ( properties.contains( key ) ) {
-      return ( String ) properties.get( key );
-    }
-
-    return null;
+    return ( String ) properties.get( key );
   }
 
   public boolean hasProperty( String key ) {
@@ -280,7 +275,23 @@ public class DXFDocument {
    */
   public DXFDictionary getRootDXFDictionary() { return this.rootDictionary; }
 
-  public void setRootDXFDictionary( DXFDictionary root ) { this.rootDictionary = root; }
+  /**
+   * Set the root dictionary, the IDs of the records of all reachable
+   * dictionaries are indexed.
+   *
+   * @param root
+   */
+  public void setRootDXFDictionary( DXFDictionary root ) {
+    this.rootDictionary = root;
+    this.rootDictionary.setDXFDocument( this );
+    this.rootDictionary.setOwnerIndex( new HashMap() );
+  }
+
+  /**
+   * @return iterator over the types of the objects, which are not bound to
+   * a dictionary
+   */
+  public Iterator getDXFObjectTypeIterator() { return this.objects.keySet().iterator(); }
 
   public List getDXFObjectsByType( String type ) {
     HashMap objecttypes = ( HashMap ) this.objects.get( type );
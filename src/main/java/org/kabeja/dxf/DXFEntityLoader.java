@@ -0,0 +1,44 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package org.kabeja.dxf;
+
+import java.util.List;
+
+/**
+ * Loads the entities of one type of a layer, which were only indexed
+ * while parsing. The layer calls load() on the first access to the
+ * entities of the type.
+ */
+public interface DXFEntityLoader {
+  /**
+   * @return the type of the entities
+   */
+  public String getType();
+
+  /**
+   * @param id
+   * @return true if one of the entities has the ID
+   */
+  public boolean containsID( String id );
+
+  /**
+   * Parse the entities.
+   *
+   * @return the entities in the order of the source
+   */
+  public List load();
+}
@@ -18,6 +18,7 @@ package org.kabeja.dxf;
 
 import org.kabeja.dxf.helpers.Point;
 import org.kabeja.dxf.helpers.Vector;
+import org.kabeja.math.AffineTransform3D;
 import org.kabeja.math.MathUtils;
 
 /**
@@ -92,6 +93,12 @@ public class DXFExtrusion {
     return MathUtils.getPointOfStraightLine( basePoint, this.n, elevation );
   }
 
+  /**
+   * @return the transformation from the object coordinate system to the
+   * world coordinate system
+   */
+  public AffineTransform3D getTransform() { return new AffineTransform3D().concatenate( this ); }
+
   /**
    * Return the normal direction of the plane.
    *
@@ -16,31 +16,45 @@
 
 package org.kabeja.dxf;
 
+import org.kabeja.dxf.helpers.Point;
 import java.util.Hashtable;
 import java.util.Iterator;
 
 /**
+ * The header variables of the document. The well-known variables, which
+ * are used while rendering, are kept as fields, so their values are read
+ * without a lookup in the table. The values are read on each call, changes
+ * of a variable are visible at once.
+ *
  * @author <a href="mailto:simon.mieth@gmx.de>Simon Mieth</a>
  */
 public class DXFHeader {
   private Hashtable variables = new Hashtable();
+  private DXFVariable fillMode;
+  private DXFVariable linetypeScale;
+  private DXFVariable pointDisplayMode;
+  private DXFVariable pointDisplaySize;
+  private DXFVariable insertionUnits;
+  private DXFVariable extentMinimum;
+  private DXFVariable extentMaximum;
 
   public DXFHeader() {
   }
 
+  /**
+   * Add the variable, a variable with the same name is replaced.
+   *
+   * @param v
+   */
   public void setVariable( DXFVariable v ) {
     variables.put( v.getName(), v );
+    updateVariable( v );
   }
 
   public Iterator getVarialbeIterator() { return variables.values().iterator(); }
 
   public boolean isFillMode() {
-    if ( hasVariable( "$FILLMODE" ) &&
-      ( getVariable( "$FILLMODE" ).getDoubleValue( "70" ) > 0 ) ) {
-      return true;
-    }
-
-    return false;
+    return ( fillMode != null ) && ( fillMode.getDoubleValue( 70, 0.0 ) > 0 );
   }
 
   public boolean hasVariable( String name ) {
@@ -57,12 +71,81 @@ public class DXFHeader {
    * @return the global scalefactor
    */
   public double getLinetypeScale() {
-    double gscale = 1.0;
+    return ( linetypeScale != null ) ? linetypeScale.getDoubleValue( 40, 1.0 ) : 1.0;
+  }
 
-    if ( hasVariable( "$LTSCALE" ) ) {
-      gscale = getVariable( "$LTSCALE" ).getDoubleValue( "40" );
-    }
+  /**
+   * @return the value of $PDMODE
+   */
+  public int getPointDisplayMode() {
+    return ( pointDisplayMode != null ) ? pointDisplayMode.getIntegerValue( 70, 0 ) : 0;
+  }
+
+  /**
+   * @return the value of $PDSIZE
+   */
+  public double getPointDisplaySize() {
+    return ( pointDisplaySize != null ) ? pointDisplaySize.getDoubleValue( 40, 0.0 ) : 0.0;
+  }
+
+  /**
+   * @return the value of $INSUNITS
+   */
+  public int getInsertionUnits() {
+    return ( insertionUnits != null ) ? insertionUnits.getIntegerValue( 70, 0 ) : 0;
+  }
 
-    return gscale;
+  /**
+   * @return the value of $EXTMIN or null
+   */
+  public Point getExtentMinimum() {
+    return ( extentMinimum != null ) ? extentMinimum.getPoint() : null;
+  }
+
+  /**
+   * @return the value of $EXTMAX or null
+   */
+  public Point getExtentMaximum() {
+    return ( extentMaximum != null ) ? extentMaximum.getPoint() : null;
+  }
+
+  /**
+   * Returns a numeric value of a variable.
+   *
+   * @param name         the name of the variable
+   * @param code         the group code of the value
+   * @param defaultValue the value for a missing variable or value
+   * @return the value
+   */
+  public double getDoubleValue( String name, int code, double defaultValue ) {
+    DXFVariable v = getVariable( name );
+
+    return ( v != null ) ? v.getDoubleValue( code, defaultValue ) : defaultValue;
+  }
+
+  public int getIntegerValue( String name, int code, int defaultValue ) {
+    DXFVariable v = getVariable( name );
+
+    return ( v != null ) ? v.getIntegerValue( code, defaultValue ) : defaultValue;
+  }
+
+  protected void updateVariable( DXFVariable v ) {
+    String name = v.getName();
+
+    if ( DXFConstants.HEADER_VARIABLE_LTSCALE.equals( name ) ) {
+      linetypeScale = v;
+    } else if ( DXFConstants.HEADER_VARIABLE_FILLMODE.equals( name ) ) {
+      fillMode = v;
+    } else if ( DXFConstants.HEADER_VARIABLE_PDMODE.equals( name ) ) {
+      pointDisplayMode = v;
+    } else if ( DXFConstants.HEADER_VARIABLE_PDSIZE.equals( name ) ) {
+      pointDisplaySize = v;
+    } else if ( DXFConstants.HEADER_VARIABLE_INSUNITS.equals( name ) ) {
+      insertionUnits = v;
+    } else if ( DXFConstants.HEADER_VARIABLE_EXTMIN.equals( name ) ) {
+      extentMinimum = v;
+    } else if ( DXFConstants.HEADER_VARIABLE_EXTMAX.equals( name ) ) {
+      extentMaximum = v;
+    }
   }
 }
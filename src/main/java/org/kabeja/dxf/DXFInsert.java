@@ -17,6 +17,7 @@
 package org.kabeja.dxf;
 
 import org.kabeja.dxf.helpers.Point;
+import org.kabeja.math.AffineTransform3D;
 
 /**
  * @author <a href="mailto:simon.mieth@gmx.de>Simon Mieth</a>
@@ -47,63 +48,43 @@ public class DXFInsert extends DXFEntity {
   public Bounds getBounds() {
     Bounds bounds = new Bounds();
 
-    // extrusion.calculateExtrusion();
     // get the Block bounds
     DXFBlock block = doc.getDXFBlock( getBlockID() );
-    Bounds b = block.getBounds();
 
-    if ( !b.isValid() ) {
+    if ( block == null ) {
       bounds.setValid( false );
 
       return bounds;
     }
 
-    Point blkPoint = block.getReferencePoint();
-
-    // Translate to origin and scale
-    bounds.setMaximumX( ( b.getMaximumX() - blkPoint.getX() ) * scale_x );
-    bounds.setMinimumX( ( b.getMinimumX() - blkPoint.getX() ) * scale_x );
-    bounds.setMaximumY( ( b.getMaximumY() - blkPoint.getY() ) * scale_y );
-    bounds.setMinimumY( ( b.getMinimumY() - blkPoint.getY() ) * scale_y );
-
-    // Rotate the Bounds
-    if ( rotate != 0 ) {
-      Point p1 = rotatePoint( bounds.getMaximumX(), bounds.getMaximumY() );
-      Point p2 = rotatePoint( bounds.getMaximumX(), bounds.getMinimumY() );
-      Point p3 = rotatePoint( bounds.getMinimumX(), bounds.getMaximumY() );
-      Point p4 = rotatePoint( bounds.getMinimumX(), bounds.getMinimumY() );
-
-      // we have now 4 Points
-      // and we have to check all if they are the new maximum/minimum
-      // start with a empty bounds
-      bounds = new Bounds();
-
-      bounds.addToBounds( p1 );
-      bounds.addToBounds( p2 );
-      bounds.addToBounds( p3 );
-      bounds.addToBounds( p4 );
-    }
+    Bounds b = block.getBounds();
+
+    if ( !b.isValid() ) {
+      bounds.setValid( false );
 
-    // translate to the InsertPoint
-    bounds.setMaximumX( bounds.getMaximumX() + insertPoint.getX() );
-    bounds.setMinimumX( bounds.getMinimumX() + insertPoint.getX() );
-    bounds.setMaximumY( bounds.getMaximumY() + insertPoint.getY() );
-    bounds.setMinimumY( bounds.getMinimumY() + insertPoint.getY() );
+      return bounds;
+    }
 
-    // add the space from columns and rows
-    double width = ( columns - 1 ) * column_spacing;
-    double height = ( rows - 1 ) * row_spacing;
+    // the instances of an array are only translated against each other,
+    // so the corner instances contain all other
+    int lastRow = Math.max( rows, 1 ) - 1;
+    int lastColumn = Math.max( columns, 1 ) - 1;
+    AffineTransform3D t = new AffineTransform3D();
+    getTransform( 0, 0, t ).transform( b, bounds );
 
-    if ( width >= 0 ) {
-      bounds.setMinimumX( bounds.getMinimumX() - width );
-    } else {
-      bounds.setMaximumX( bounds.getMaximumX() - width );
+    if ( lastRow > 0 ) {
+      t.setToIdentity();
+      getTransform( lastRow, 0, t ).transform( b, bounds );
     }
 
-    if ( height >= 0 ) {
-      bounds.setMinimumY( bounds.getMinimumY() - height );
-    } else {
-      bounds.setMaximumY( bounds.getMaximumY() - height );
+    if ( lastColumn > 0 ) {
+      t.setToIdentity();
+      getTransform( 0, lastColumn, t ).transform( b, bounds );
+
+      if ( lastRow > 0 ) {
+        t.setToIdentity();
+        getTransform( lastRow, lastColumn, t ).transform( b, bounds );
+      }
     }
 
     return bounds;
@@ -119,15 +100,42 @@ public class DXFInsert extends DXFEntity {
    */
   public void setBlockID( String blockID ) { this.blockID = blockID; }
 
-  private Point rotatePoint( double x, double y ) {
-    double phi = Math.toRadians( rotate );
-    Point point = new Point();
+  /**
+   * Concatenates the transformation from the block coordinates to the
+   * world coordinates of the first instance (row 0, column 0).
+   *
+   * @param t the transformation to concatenate with
+   * @return the transformation t
+   */
+  public AffineTransform3D getTransform( AffineTransform3D t ) {
+    return this.getTransform( 0, 0, t );
+  }
+
+  /**
+   * Concatenates the transformation from the block coordinates to the
+   * world coordinates of the given array instance. The row and column
+   * spacing is applied in the rotated insert coordinate system.
+   *
+   * @param row    the row of the instance
+   * @param column the column of the instance
+   * @param t      the transformation to concatenate with
+   * @return the transformation t
+   */
+  public AffineTransform3D getTransform( int row, int column, AffineTransform3D t ) {
+    t.concatenate( this.extrusion );
+    t.translate( insertPoint.getX(), insertPoint.getY(), insertPoint.getZ() );
+    t.rotateZ( Math.toRadians( rotate ) );
+    t.translate( column * column_spacing, row * row_spacing, 0.0 );
+    t.scale( scale_x, scale_y, scale_z );
 
-    // the rotation matrix
-    point.setX( ( x * Math.cos( phi ) ) - ( y * Math.sin( phi ) ) );
-    point.setY( ( x * Math.sin( phi ) ) + ( y * Math.cos( phi ) ) );
+    DXFBlock block = doc.getDXFBlock( getBlockID() );
+
+    if ( block != null ) {
+      Point base = block.getReferencePoint();
+      t.translate( -base.getX(), -base.getY(), -base.getZ() );
+    }
 
-    return point;
+    return t;
   }
 
   public String getType() { return DXFConstants.ENTITY_TYPE_INSERT; }
@@ -23,6 +23,7 @@ import java.util.*;
  */
 public class DXFLayer {
   private Hashtable entities = new Hashtable();
+  private Hashtable loaders = new Hashtable();
   private String name = "";
   private int color = 7;
   private DXFDocument doc;
@@ -57,7 +58,67 @@ public class DXFLayer {
     }
   }
 
+  /**
+   * Add entities, which are loaded on the first access to their type.
+   *
+   * @param loader
+   */
+  public synchronized void addDXFEntityLoader( DXFEntityLoader loader ) {
+    // an older loader of the type is loaded first
+    this.loadDXFEntities( loader.getType() );
+    this.loaders.put( loader.getType(), loader );
+  }
+
+  /**
+   * Load the entities of the type, if they are not loaded yet.
+   *
+   * @param type
+   */
+  protected void loadDXFEntities( String type ) {
+    if ( !this.loaders.isEmpty() ) {
+      synchronized ( this ) {
+        DXFEntityLoader loader = ( DXFEntityLoader ) this.loaders.get( type );
+
+        if ( loader != null ) {
+          List loaded = loader.load();
+          ArrayList list = new ArrayList( loaded );
+
+          for ( int i = 0; i < list.size(); i++ ) {
+            ( ( DXFEntity ) list.get( i ) ).setDXFDocument( this.doc );
+          }
+
+          if ( entities.containsKey( type ) ) {
+            list.addAll( ( ArrayList ) entities.get( type ) );
+          }
+
+          if ( !list.isEmpty() ) {
+            entities.put( type, list );
+          }
+
+          this.loaders.remove( type );
+        }
+      }
+    }
+  }
+
+  /**
+   * Load all entities, which are not loaded yet.
+   */
+  protected void loadDXFEntities() {
+    if ( !this.loaders.isEmpty() ) {
+      synchronized ( this ) {
+        Iterator i = new ArrayList( this.loaders.keySet() ).iterator();
+
+        while ( i.hasNext() ) {
+          this.loadDXFEntities( ( String ) i.next() );
+        }
+      }
+    }
+  }
+
   public void removeDXFEntity( DXFEntity entity ) {
+    this.loadDXFEntities( entity.getType() );
+
     if ( entities.containsKey( entity.getType() ) ) {
       ArrayList list = ( ArrayList ) entities.get( entity.getType() );
       list.remove( entity );
@@ -73,6 +134,8 @@ public class DXFLayer {
   public void setDXFDocument( DXFDocument doc ) { this.doc = doc; }
 
   public Bounds getBounds() {
+    this.loadDXFEntities();
+
     Bounds bounds = new Bounds();
     Enumeration e = entities.elements();
 
@@ -103,6 +166,8 @@ public class DXFLayer {
    * @return
    */
   public Bounds getBounds( boolean onModelspace ) {
+    this.loadDXFEntities();
+
     Bounds bounds = new Bounds();
 
     Enumeration e = entities.elements();
@@ -140,6 +205,8 @@ public class DXFLayer {
    * @return List or null
    */
   public List getDXFEntities( String type ) {
+    this.loadDXFEntities( type );
+
     if ( entities.containsKey( type ) ) {
       return ( ArrayList ) entities.get( type );
     }
@@ -148,13 +215,25 @@ public class DXFLayer {
   }
 
   public boolean hasDXFEntities( String type ) {
-    return entities.containsKey( type );
+    return entities.containsKey( type ) || loaders.containsKey( type );
   }
 
   /**
-   * @return a iterator over all entity types of this layer
+   * @return a iterator over all entity types of this layer, the entities
+   *         are not loaded
    */
-  public Iterator getDXFEntityTypeIterator() { return entities.keySet().iterator(); }
+  public Iterator getDXFEntityTypeIterator() {
+    if ( this.loaders.isEmpty() ) {
+      return entities.keySet().iterator();
+    }
+
+    synchronized ( this ) {
+      Set types = new HashSet( entities.keySet() );
+      types.addAll( loaders.keySet() );
+
+      return types.iterator();
+    }
+  }
 
   /**
    * Gets the
@@ -182,6 +261,22 @@ public class DXFLayer {
       }
     }
 
+    if ( !this.loaders.isEmpty() ) {
+      synchronized ( this ) {
+        Iterator loaderIterator = this.loaders.values().iterator();
+
+        while ( loaderIterator.hasNext() ) {
+          DXFEntityLoader loader = ( DXFEntityLoader ) loaderIterator.next();
+
+          if ( loader.containsID( id ) ) {
+            this.loadDXFEntities( loader.getType() );
+
+            return this.getDXFEntityByID( id );
+          }
+        }
+      }
+    }
+
     return entity;
   }
 
@@ -18,6 +18,7 @@ package org.kabeja.dxf;
 
 import org.kabeja.dxf.helpers.DXFTextParser;
 import org.kabeja.dxf.helpers.DXFUtils;
+import org.kabeja.dxf.helpers.MTextFormat;
 import org.kabeja.dxf.helpers.TextDocument;
 
 /**
@@ -36,6 +37,7 @@ public class DXFMText extends DXFText {
   private int attachmentpointLocation = 1;
   private double refwidth = 0.0;
   private double refheight = 0.0;
+  private MTextFormat format;
 
   /*
    * (non-Javadoc)
@@ -43,7 +45,10 @@ public class DXFMText extends DXFText {
    * @see de.miethxml.kabeja.dxf.DXFText#processText(java.lang.String,
    *      org.xml.sax.ContentHandler)
    */
-  public void setAttachmentPoint( int value ) { this.attachmentpointLocation = value; }
+  public void setAttachmentPoint( int value ) {
+    this.attachmentpointLocation = value;
+    this.textDoc = null;
+  }
 
   public double getReferenceWidth() { return this.refwidth; }
 
@@ -56,7 +61,8 @@ public class DXFMText extends DXFText {
    */
   public Bounds getBounds() {
     Bounds bounds = new Bounds();
-    int l = this.textDoc.getMaximumLineLength();
+    TextDocument textDoc = getTextDocument();
+    int l = textDoc.getMaximumLineLength();
 
     if ( l > 0 ) {
       double h = getHeight();
@@ -66,7 +72,7 @@ public class DXFMText extends DXFText {
       }
 
       double w = l * 0.7 * h;
-      h *= this.textDoc.getLineCount();
+      h *= textDoc.getLineCount();
 
       switch ( this.attachmentpointLocation ) {
         case ATTACHMENT_BOTTOM_CENTER:
@@ -138,7 +144,24 @@ public class DXFMText extends DXFText {
 
   public boolean isOmitLineType() { return true; }
 
-  public TextDocument getTextDocument() { return this.textDoc; }
+  /**
+   * The TextDocument is created from the compiled format on the first call
+   * and cached until the text, the height or the attachment point changes.
+   */
+  public TextDocument getTextDocument() {
+    TextDocument textDoc = this.textDoc;
+
+    if ( textDoc == null ) {
+      if ( this.format == null ) {
+        this.format = DXFTextParser.getMTextFormat( this.text );
+      }
+
+      textDoc = this.format.createTextDocument( this );
+      this.textDoc = textDoc;
+    }
+
+    return textDoc;
+  }
 
   public double getRotation() {
     if ( rotation != 0.0 ) {
@@ -160,7 +183,12 @@ public class DXFMText extends DXFText {
 
   public void setText( String text ) {
     this.text = text;
+    this.format = DXFTextParser.getMTextFormat( text );
+    this.textDoc = null;
+  }
 
-    this.textDoc = DXFTextParser.parseDXFMText( this );
+  public void setHeight( double height ) {
+    super.setHeight( height );
+    this.textDoc = null;
   }
 }
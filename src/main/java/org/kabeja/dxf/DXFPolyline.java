@@ -96,9 +96,6 @@ public class DXFPolyline extends DXFEntity {
         last = v;
       }
 
-      System.out.println( "For non-closed length: " + length );
-      System.out.println( "For closed length: " + ( length + this.getSegmentLength( last, first ) ) );
-
       if ( this.isClosed() ) {
         length += this.getSegmentLength( last, first );
       }
@@ -16,15 +16,29 @@
 
 package org.kabeja.dxf;
 
+import org.kabeja.dxf.helpers.Point;
+import java.util.ArrayList;
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.List;
 
 /**
+ * A header variable with its values by group code. The values are parsed
+ * once when set, numeric values are kept as double, so the typed getters
+ * do not parse text.
+ *
  * @author <a href="mailto:simon.mieth@gmx.de>Simon Mieth</a>
  */
 public class DXFVariable {
-  private Hashtable values = new Hashtable();
   private String name = "";
+  private int[] codes = new int[ 3 ];
+  private String[] values = new String[ 3 ];
+  private double[] numbers = new double[ 3 ];
+  private boolean[] numeric = new boolean[ 3 ];
+  private int count = 0;
+
+  // values with keys, which are not group codes
+  private Hashtable namedValues;
 
   public DXFVariable( String name ) {
     this.name = name;
@@ -35,23 +49,217 @@ public class DXFVariable {
   public void setName( String name ) { this.name = name; }
 
   public String getValue( String name ) {
-    return ( String ) values.get( name );
+    int code = parseCode( name );
+
+    if ( code == Integer.MIN_VALUE ) {
+      return ( namedValues != null ) ? ( String ) namedValues.get( name ) : null;
+    }
+
+    return getValue( code );
   }
 
   public int getIntegerValue( String name ) {
-    return Integer.parseInt( ( String ) values.get( name ) );
+    int code = parseCode( name );
+
+    if ( code == Integer.MIN_VALUE ) {
+      return Integer.parseInt( getValue( name ) );
+    }
+
+    return getIntegerValue( code );
   }
 
   public double getDoubleValue( String name ) {
-    return Double.parseDouble( ( String ) values.get( name ) );
+    int code = parseCode( name );
+
+    if ( code == Integer.MIN_VALUE ) {
+      return Double.parseDouble( getValue( name ) );
+    }
+
+    return getDoubleValue( code );
   }
 
   public void setValue( String name, String value ) {
-    values.put( name, value );
+    int code = parseCode( name );
+
+    if ( code == Integer.MIN_VALUE ) {
+      if ( namedValues == null ) {
+        namedValues = new Hashtable();
+      }
+
+      namedValues.put( name, value );
+    } else {
+      setValue( code, value );
+    }
+  }
+
+  /**
+   * Set the value of the group code, numeric values are parsed here.
+   *
+   * @param code  the group code
+   * @param value the value
+   */
+  public void setValue( int code, String value ) {
+    int i = indexOf( code );
+
+    if ( i < 0 ) {
+      if ( count == codes.length ) {
+        grow();
+      }
+
+      i = count;
+      codes[ i ] = code;
+      count++;
+    }
+
+    values[ i ] = value;
+    numeric[ i ] = false;
+
+    if ( isNumericCode( code ) ) {
+      try {
+        numbers[ i ] = Double.parseDouble( value );
+        numeric[ i ] = true;
+      } catch ( NumberFormatException e ) {
+        // keep as text
+      }
+    }
+  }
+
+  public boolean hasValue( int code ) { return indexOf( code ) >= 0; }
+
+  public String getValue( int code ) {
+    int i = indexOf( code );
+
+    return ( i >= 0 ) ? values[ i ] : null;
+  }
+
+  public double getDoubleValue( int code ) {
+    int i = indexOf( code );
+
+    if ( ( i >= 0 ) && numeric[ i ] ) {
+      return numbers[ i ];
+    }
+
+    // throws the NumberFormatException for missing or text values
+    return Double.parseDouble( String.valueOf( getValue( code ) ) );
+  }
+
+  /**
+   * @param code         the group code
+   * @param defaultValue the value if there is no numeric value
+   * @return the value of the group code or the default value
+   */
+  public double getDoubleValue( int code, double defaultValue ) {
+    int i = indexOf( code );
+
+    return ( ( i >= 0 ) && numeric[ i ] ) ? numbers[ i ] : defaultValue;
+  }
+
+  public int getIntegerValue( int code ) {
+    int i = indexOf( code );
+
+    if ( ( i >= 0 ) && numeric[ i ] && ( numbers[ i ] == ( int ) numbers[ i ] ) ) {
+      return ( int ) numbers[ i ];
+    }
+
+    // throws the NumberFormatException for missing or text values
+    return Integer.parseInt( String.valueOf( getValue( code ) ) );
+  }
+
+  public int getIntegerValue( int code, int defaultValue ) {
+    int i = indexOf( code );
+
+    if ( ( i >= 0 ) && numeric[ i ] && ( numbers[ i ] == ( int ) numbers[ i ] ) ) {
+      return ( int ) numbers[ i ];
+    }
+
+    return defaultValue;
+  }
+
+  /**
+   * Returns the point of the values 10, 20 and 30, a missing coordinate is
+   * 0.0.
+   *
+   * @return the point
+   */
+  public Point getPoint() {
+    return new Point( getDoubleValue( 10, 0.0 ), getDoubleValue( 20, 0.0 ),
+      getDoubleValue( 30, 0.0 ) );
   }
 
+  /**
+   * @return the count of group codes
+   */
+  public int getCodeCount() { return count; }
+
+  public int getCode( int index ) { return codes[ index ]; }
+
   /**
    * @return a iterator over all keys of this DXFValue
    */
-  public Iterator getValueKeyIterator() { return values.keySet().iterator(); }
+  public Iterator getValueKeyIterator() {
+    List keys = new ArrayList( count );
+
+    for ( int i = 0; i < count; i++ ) {
+      keys.add( Integer.toString( codes[ i ] ) );
+    }
+
+    if ( namedValues != null ) {
+      keys.addAll( namedValues.keySet() );
+    }
+
+    return keys.iterator();
+  }
+
+  protected int indexOf( int code ) {
+    for ( int i = 0; i < count; i++ ) {
+      if ( codes[ i ] == code ) {
+        return i;
+      }
+    }
+
+    return -1;
+  }
+
+  protected void grow() {
+    int size = codes.length * 2;
+    int[] c = new int[ size ];
+    System.arraycopy( codes, 0, c, 0, count );
+    codes = c;
+
+    String[] v = new String[ size ];
+    System.arraycopy( values, 0, v, 0, count );
+    values = v;
+
+    double[] n = new double[ size ];
+    System.arraycopy( numbers, 0, n, 0, count );
+    numbers = n;
+
+    boolean[] b = new boolean[ size ];
+    System.arraycopy( numeric, 0, b, 0, count );
+    numeric = b;
+  }
+
+  /**
+   * @return Integer.MIN_VALUE if the name is not a group code
+   */
+  protected static int parseCode( String name ) {
+    try {
+      return Integer.parseInt( name );
+    } catch ( NumberFormatException e ) {
+      return Integer.MIN_VALUE;
+    }
+  }
+
+  /**
+   * @return true for the group codes of numeric values
+   */
+  public static boolean isNumericCode( int code ) {
+    return ( ( code >= 10 ) && ( code <= 99 ) ) ||
+      ( ( code >= 140 ) && ( code <= 147 ) ) ||
+      ( ( code >= 170 ) && ( code <= 179 ) ) ||
+      ( ( code >= 270 ) && ( code <= 299 ) ) ||
+      ( ( code >= 370 ) && ( code <= 389 ) ) ||
+      ( ( code >= 400 ) && ( code <= 409 ) ) ||
+      ( ( code >= 1010 ) && ( code <= 1071 ) );
+  }
 }
@@ -0,0 +1,103 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package org.kabeja.dxf.helpers;
+
+import org.kabeja.dxf.DXFBlock;
+import org.kabeja.dxf.DXFDimension;
+import org.kabeja.dxf.DXFEntity;
+import org.kabeja.dxf.DXFInsert;
+import org.kabeja.math.PathBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The flattened geometry of all entities of a block in block coordinates.
+ * The geometry is created once and shared by all references of the block,
+ * so it must not be modified. Inserts and dimensions of the block are kept
+ * as references, their geometry is in the block geometry of the referenced
+ * block.
+ */
+public class BlockGeometry {
+  private DXFBlock block;
+  private DXFEntity[] entities;
+  private PathBuffer[] geometries;
+  private DXFEntity[] references;
+
+  public BlockGeometry( DXFBlock block, double tolerance ) {
+    this.block = block;
+
+    List e = new ArrayList();
+    List g = new ArrayList();
+    List r = new ArrayList();
+    Iterator i = block.getDXFEntitiesIterator();
+
+    while ( i.hasNext() ) {
+      DXFEntity entity = ( DXFEntity ) i.next();
+
+      if ( ( entity instanceof DXFInsert ) || ( entity instanceof DXFDimension ) ) {
+        r.add( entity );
+      } else {
+        PathBuffer buffer = new PathBuffer();
+
+        if ( DXFGeometryConverter.toPath( entity, tolerance, buffer ) ) {
+          buffer.trimToSize();
+          e.add( entity );
+          g.add( buffer );
+        }
+      }
+    }
+
+    this.entities = ( DXFEntity[] ) e.toArray( new DXFEntity[ e.size() ] );
+    this.geometries = ( PathBuffer[] ) g.toArray( new PathBuffer[ g.size() ] );
+    this.references = ( DXFEntity[] ) r.toArray( new DXFEntity[ r.size() ] );
+  }
+
+  public DXFBlock getDXFBlock() { return this.block; }
+
+  /**
+   * @return the count of the converted entities
+   */
+  public int getEntityCount() { return this.entities.length; }
+
+  public DXFEntity getEntity( int index ) { return this.entities[ index ]; }
+
+  /**
+   * @return the shared geometry of the entity in block coordinates
+   */
+  public PathBuffer getGeometry( int index ) { return this.geometries[ index ]; }
+
+  /**
+   * @return the count of nested block references (inserts and dimensions)
+   */
+  public int getReferenceCount() { return this.references.length; }
+
+  public DXFEntity getReference( int index ) { return this.references[ index ]; }
+
+  /**
+   * @return the count of points of all converted entities
+   */
+  public int getPointCount() {
+    int count = 0;
+
+    for ( int i = 0; i < this.geometries.length; i++ ) {
+      count += this.geometries[ i ].getPointCount();
+    }
+
+    return count;
+  }
+}
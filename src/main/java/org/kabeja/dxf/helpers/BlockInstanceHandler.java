@@ -0,0 +1,41 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package org.kabeja.dxf.helpers;
+
+import org.kabeja.dxf.DXFEntity;
+import org.kabeja.dxf.DXFInsert;
+import org.kabeja.math.AffineTransform3D;
+import org.kabeja.math.PathBuffer;
+
+/**
+ * Receives the entities of exploded inserts.
+ */
+public interface BlockInstanceHandler {
+  /**
+   * Called for each entity of each block instance.
+   *
+   * @param entity    the entity of the block
+   * @param geometry  the shared geometry of the entity in block coordinates,
+   *                  must not be modified
+   * @param transform the transformation from block to world coordinates,
+   *                  only valid during the call
+   * @param insert    the insert which references the block of the entity or
+   *                  null for dimension blocks
+   */
+  public void instance( DXFEntity entity, PathBuffer geometry,
+                        AffineTransform3D transform, DXFInsert insert );
+}
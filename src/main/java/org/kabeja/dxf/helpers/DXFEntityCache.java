@@ -0,0 +1,189 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package org.kabeja.dxf.helpers;
+
+import org.kabeja.dxf.DXFDocument;
+import org.kabeja.dxf.DXFEntity;
+import org.kabeja.dxf.DXFLayer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A thread-safe cache of values derived from the entities of a document.
+ * A value is created on the first access of an entity or for all layers in
+ * parallel with build(). Each build task has its own worker, which holds
+ * the buffers reused for the entities of the task.
+ */
+public abstract class DXFEntityCache {
+  protected final static int CHUNK_SIZE = 2048;
+
+  // marks entities without a value
+  private final static Object NONE = new Object();
+  private DXFDocument doc;
+  private int threads;
+  private String name;
+  private ConcurrentMap values = new ConcurrentHashMap();
+
+  /**
+   * @param doc     the document
+   * @param threads the count of threads for build()
+   * @param name    the name of the values in error messages
+   */
+  protected DXFEntityCache( DXFDocument doc, int threads, String name ) {
+    this.doc = doc;
+    this.threads = Math.max( threads, 1 );
+    this.name = name;
+  }
+
+  public void invalidate( DXFEntity entity ) {
+    this.values.remove( entity );
+  }
+
+  public void clear() {
+    this.values.clear();
+  }
+
+  /**
+   * Creates the values of all entities of all layers in parallel.
+   */
+  public void build() {
+    List tasks = new ArrayList();
+    Iterator i = this.doc.getDXFLayerIterator();
+
+    while ( i.hasNext() ) {
+      DXFLayer layer = ( DXFLayer ) i.next();
+      List entities = new ArrayList();
+      Iterator types = layer.getDXFEntityTypeIterator();
+
+      while ( types.hasNext() ) {
+        List list = layer.getDXFEntities( ( String ) types.next() );
+
+        if ( !list.isEmpty() && this.isSupported( ( DXFEntity ) list.get( 0 ) ) ) {
+          entities.addAll( list );
+        }
+      }
+
+      for ( int x = 0; x < entities.size(); x += CHUNK_SIZE ) {
+        tasks.add( new BuildTask( entities.subList( x,
+              Math.min( x + CHUNK_SIZE, entities.size() ) ) ) );
+      }
+    }
+
+    if ( ( this.threads == 1 ) || ( tasks.size() < 2 ) ) {
+      for ( int x = 0; x < tasks.size(); x++ ) {
+        ( ( BuildTask ) tasks.get( x ) ).call();
+      }
+
+      return;
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool( Math.min(
+      this.threads, tasks.size() ) );
+
+    try {
+      List futures = executor.invokeAll( tasks );
+
+      for ( int x = 0; x < futures.size(); x++ ) {
+        ( ( Future ) futures.get( x ) ).get();
+      }
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException( this.name + " interrupted", e );
+    } catch ( ExecutionException e ) {
+      throw new RuntimeException( this.name + " failed", e.getCause() );
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Returns the value of the entity, it is created on the first call.
+   *
+   * @param entity the entity
+   * @return the value or null if the entity has none
+   */
+  protected Object getValue( DXFEntity entity ) {
+    Object value = this.values.get( entity );
+
+    if ( value == null ) {
+      value = this.create( entity, this.createWorker() );
+
+      Object present = this.values.putIfAbsent( entity,
+          ( value != null ) ? value : NONE );
+
+      if ( present != null ) {
+        value = present;
+      }
+    }
+
+    return ( value == NONE ) ? null : value;
+  }
+
+  /**
+   * @return true if build() creates the values of the entities of the same
+   *         type as the entity
+   */
+  protected boolean isSupported( DXFEntity entity ) {
+    return true;
+  }
+
+  /**
+   * @return the buffers of one thread or null
+   */
+  protected abstract Object createWorker();
+
+  /**
+   * @param entity the entity
+   * @param worker the buffers of the calling thread
+   * @return the value or null if the entity has none
+   */
+  protected abstract Object create( DXFEntity entity, Object worker );
+
+  /**
+   * Creates the values of a list of entities with its own worker.
+   */
+  protected class BuildTask implements Callable {
+    private List entities;
+    private Object worker = createWorker();
+
+    public BuildTask( List entities ) {
+      this.entities = entities;
+    }
+
+    public Object call() {
+      for ( int i = 0; i < this.entities.size(); i++ ) {
+        DXFEntity entity = ( DXFEntity ) this.entities.get( i );
+
+        if ( !values.containsKey( entity ) ) {
+          Object value = create( entity, this.worker );
+          values.putIfAbsent( entity, ( value != null ) ? value : NONE );
+        }
+      }
+
+      return null;
+    }
+  }
+}
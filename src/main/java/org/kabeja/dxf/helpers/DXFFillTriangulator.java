@@ -0,0 +1,162 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package org.kabeja.dxf.helpers;
+
+import org.kabeja.dxf.DXFDocument;
+import org.kabeja.dxf.DXFEntity;
+import org.kabeja.dxf.DXFHatch;
+import org.kabeja.dxf.DXFSolid;
+import org.kabeja.math.PathBuffer;
+import org.kabeja.math.PolygonTriangulator;
+import org.kabeja.math.Triangulation;
+import java.util.Iterator;
+
+/**
+ * The triangulated fill areas of hatches, solids and traces. The boundary
+ * loops of a hatch are flattened and triangulated in the object coordinate
+ * system with the even-odd rule, the triangles are transformed to world
+ * coordinates. The triangles are cached per entity.
+ * <p>
+ * The fills are triangulated on the first access of an entity or for all
+ * layers in parallel with build().
+ * </p>
+ *
+ * @see PolygonTriangulator for the triangulation
+ */
+public class DXFFillTriangulator extends DXFEntityCache {
+  private double tolerance;
+
+  public DXFFillTriangulator( DXFDocument doc ) {
+    this( doc, DXFGeometryConverter.DEFAULT_TOLERANCE,
+      Runtime.getRuntime().availableProcessors() );
+  }
+
+  /**
+   * @param doc       the document
+   * @param tolerance the maximal distance between the curved boundary
+   *                  edges and the segments
+   * @param threads   the count of threads for build()
+   */
+  public DXFFillTriangulator( DXFDocument doc, double tolerance, int threads ) {
+    super( doc, threads, "Triangulation" );
+    this.tolerance = tolerance;
+  }
+
+  public double getTolerance() { return this.tolerance; }
+
+  /**
+   * Returns the triangles of the entity, they are triangulated on the first
+   * call.
+   *
+   * @param entity a hatch, solid or trace
+   * @return the triangles in world coordinates or null
+   */
+  public Triangulation getTriangulation( DXFEntity entity ) {
+    return ( Triangulation ) this.getValue( entity );
+  }
+
+  /**
+   * @return the filled area of the entity or 0.0
+   */
+  public double getArea( DXFEntity entity ) {
+    Triangulation t = this.getTriangulation( entity );
+
+    return ( t == null ) ? 0.0 : t.getArea();
+  }
+
+  /**
+   * @return true for hatches, solids and traces
+   */
+  public static boolean isFilled( DXFEntity entity ) {
+    return entity instanceof DXFHatch || entity instanceof DXFSolid;
+  }
+
+  protected boolean isSupported( DXFEntity entity ) {
+    return isFilled( entity );
+  }
+
+  protected Object createWorker() {
+    return new Worker();
+  }
+
+  protected Object create( DXFEntity entity, Object worker ) {
+    Worker w = ( Worker ) worker;
+
+    return this.createTriangulation( entity, w.triangulator, w.edge );
+  }
+
+  /**
+   * @return the triangles or null if the entity has no fill
+   */
+  protected Triangulation createTriangulation( DXFEntity entity,
+                                               PolygonTriangulator triangulator,
+                                               PathBuffer edge ) {
+    PathBuffer points = new PathBuffer();
+
+    if ( entity instanceof DXFHatch ) {
+      Iterator i = ( ( DXFHatch ) entity ).getBoundaryLoops();
+
+      while ( i.hasNext() ) {
+        DXFGeometryConverter.addBoundaryLoop( ( HatchBoundaryLoop ) i.next(),
+          this.tolerance, points, edge );
+      }
+    } else if ( entity instanceof DXFSolid ) {
+      // the points 3 and 4 are swapped
+      DXFSolid solid = ( DXFSolid ) entity;
+      Point[] corners = new Point[] {
+          solid.getPoint1(), solid.getPoint2(), solid.getPoint4(),
+          solid.getPoint3()
+        };
+
+      for ( int x = 0; x < corners.length; x++ ) {
+        points.lineTo( corners[ x ].getX(), corners[ x ].getY(),
+          corners[ x ].getZ() );
+      }
+
+      points.closePart();
+    }
+
+    if ( points.isEmpty() ) {
+      return null;
+    }
+
+    points.trimToSize();
+
+    Triangulation t = new Triangulation( points );
+    triangulator.triangulate( points, t );
+
+    if ( t.getTriangleCount() == 0 ) {
+      return null;
+    }
+
+    t.trimToSize();
+
+    // the OCS is planar, the triangles stay valid in world coordinates
+    DXFGeometryConverter.transformOCS( entity, points, 0 );
+
+    return t;
+  }
+
+  /**
+   * The triangulator and the edge buffer of one thread.
+   */
+  protected static class Worker {
+    PolygonTriangulator triangulator = new PolygonTriangulator();
+    PathBuffer edge = new PathBuffer();
+  }
+}
@@ -0,0 +1,535 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package org.kabeja.dxf.helpers;
+
+import org.kabeja.dxf.DXF3DFace;
+import org.kabeja.dxf.DXFArc;
+import org.kabeja.dxf.DXFCircle;
+import org.kabeja.dxf.DXFEllipse;
+import org.kabeja.dxf.DXFEntity;
+import org.kabeja.dxf.DXFHatch;
+import org.kabeja.dxf.DXFLWPolyline;
+import org.kabeja.dxf.DXFLine;
+import org.kabeja.dxf.DXFPoint;
+import org.kabeja.dxf.DXFPolyline;
+import org.kabeja.dxf.DXFSolid;
+import org.kabeja.dxf.DXFSpline;
+import org.kabeja.dxf.DXFText;
+import org.kabeja.dxf.DXFVertex;
+import org.kabeja.math.AffineTransform3D;
+import org.kabeja.math.PathBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Converts entities to flattened geometry in world coordinates. Curves are
+ * approximated with line segments, the tolerance is the maximal distance
+ * between the curve and the segments. Text is converted to the insert point.
+ * Inserts are not converted, use the DXFInsertExploder for them.
+ */
+public class DXFGeometryConverter {
+  public final static double DEFAULT_TOLERANCE = 0.01;
+  public final static int MAX_ARC_SEGMENTS = 1024;
+
+  /**
+   * Append the flattened geometry of the entity to the buffer.
+   *
+   * @param entity    the entity
+   * @param tolerance the maximal distance between curve and segments
+   * @param buffer    the buffer to append to
+   * @return true if the entity type is supported
+   */
+  public static boolean toPath( DXFEntity entity, double tolerance, PathBuffer buffer ) {
+    if ( entity instanceof DXFLine ) {
+      DXFLine line = ( DXFLine ) entity;
+      Point s = line.getStartPoint();
+      Point e = line.getEndPoint();
+      buffer.moveTo( s.getX(), s.getY(), s.getZ() );
+      buffer.lineTo( e.getX(), e.getY(), e.getZ() );
+    } else if ( entity instanceof DXFArc ) {
+      DXFArc arc = ( DXFArc ) entity;
+      double start = Math.toRadians( arc.getStartAngle() );
+      double sweep = Math.toRadians( arc.getTotalAngle() );
+      int first = buffer.getPointCount();
+      addArc( arc.getCenterPoint(), arc.getRadius(), start, sweep, tolerance,
+        buffer, true );
+      transformOCS( entity, buffer, first );
+    } else if ( entity instanceof DXFCircle ) {
+      DXFCircle circle = ( DXFCircle ) entity;
+      int first = buffer.getPointCount();
+      addArc( circle.getCenterPoint(), circle.getRadius(), 0.0, Math.PI * 2,
+        tolerance, buffer, true );
+      buffer.closePart();
+      transformOCS( entity, buffer, first );
+    } else if ( entity instanceof DXFEllipse ) {
+      addEllipse( ( DXFEllipse ) entity, tolerance, buffer );
+    } else if ( entity instanceof DXFPolyline ) {
+      addPolyline( ( DXFPolyline ) entity, tolerance, buffer );
+    } else if ( entity instanceof DXFSpline ) {
+      DXFPolyline pline = DXFSplineConverter.toDXFPolyline( ( DXFSpline ) entity );
+
+      if ( pline.getVertexCount() > 0 ) {
+        addVertices( pline, pline.getVertexIterator(), 0.0, tolerance, buffer );
+      }
+    } else if ( entity instanceof DXF3DFace ) {
+      DXF3DFace face = ( DXF3DFace ) entity;
+      addQuad( face.getPoint1(), face.getPoint2(), face.getPoint3(),
+        face.getPoint4(), buffer );
+    } else if ( entity instanceof DXFSolid ) {
+      // the points 3 and 4 are swapped
+      DXFSolid solid = ( DXFSolid ) entity;
+      int first = buffer.getPointCount();
+      addQuad( solid.getPoint1(), solid.getPoint2(), solid.getPoint4(),
+        solid.getPoint3(), buffer );
+      transformOCS( entity, buffer, first );
+    } else if ( entity instanceof DXFPoint ) {
+      Point p = ( ( DXFPoint ) entity ).getPoint();
+      buffer.moveTo( p.getX(), p.getY(), p.getZ() );
+    } else if ( entity instanceof DXFText ) {
+      Point p = ( ( DXFText ) entity ).getInsertPoint();
+      buffer.moveTo( p.getX(), p.getY(), p.getZ() );
+    } else if ( entity instanceof DXFHatch ) {
+      addHatch( ( DXFHatch ) entity, tolerance, buffer );
+    } else {
+      return false;
+    }
+
+    return true;
+  }
+
+  /**
+   * Calculates the count of segments for an arc.
+   *
+   * @param radius    the radius
+   * @param sweep     the angle of the arc in radian
+   * @param tolerance the maximal distance between arc and segments
+   * @return the count of segments
+   */
+  public static int getSegmentCount( double radius, double sweep, double tolerance ) {
+    sweep = Math.abs( sweep );
+
+    if ( ( radius <= tolerance ) || ( tolerance <= 0.0 ) ) {
+      return Math.max( 1, ( int ) Math.ceil( sweep / ( Math.PI / 2 ) ) );
+    }
+
+    double step = 2 * Math.acos( 1 - ( tolerance / radius ) );
+    int n = ( int ) Math.ceil( sweep / step );
+
+    return Math.min( Math.max( n, 1 ), MAX_ARC_SEGMENTS );
+  }
+
+  protected static void addArc( Point center, double radius, double start,
+                                double sweep, double tolerance, PathBuffer buffer, boolean newPart ) {
+    int n = getSegmentCount( radius, sweep, tolerance );
+    double step = sweep / n;
+    double cx = center.getX();
+    double cy = center.getY();
+    double z = center.getZ();
+
+    // a full circle is closed without the repeated start point
+    int last = ( Math.abs( sweep ) >= ( Math.PI * 2 ) ) ? ( n - 1 ) : n;
+
+    for ( int i = 0; i <= last; i++ ) {
+      double a = start + ( step * i );
+      double x = cx + ( radius * Math.cos( a ) );
+      double y = cy + ( radius * Math.sin( a ) );
+
+      if ( ( i == 0 ) && newPart ) {
+        buffer.moveTo( x, y, z );
+      } else {
+        buffer.lineTo( x, y, z );
+      }
+    }
+  }
+
+  protected static void addEllipse( DXFEllipse ellipse, double tolerance,
+                                    PathBuffer buffer ) {
+    Point c = ellipse.getCenterPoint();
+    Vector major = ellipse.getMajorAxisDirection();
+    Vector n = ellipse.getExtrusion().getNormal();
+    double ratio = ellipse.getRatio();
+
+    // the minor axis is N x major scaled with the ratio
+    double mx = ( ( n.getY() * major.getZ() ) - ( n.getZ() * major.getY() ) ) * ratio;
+    double my = ( ( n.getZ() * major.getX() ) - ( n.getX() * major.getZ() ) ) * ratio;
+    double mz = ( ( n.getX() * major.getY() ) - ( n.getY() * major.getX() ) ) * ratio;
+
+    double start = ellipse.getStartParameter();
+    double end = ellipse.getEndParameter();
+
+    if ( end <= start ) {
+      end += ( Math.PI * 2 );
+    }
+
+    double sweep = end - start;
+    boolean closed = sweep >= ( Math.PI * 2 );
+    int segments = getSegmentCount( ellipse.getHalfMajorAxisLength(), sweep,
+      tolerance );
+    double step = sweep / segments;
+    int last = closed ? ( segments - 1 ) : segments;
+
+    for ( int i = 0; i <= last; i++ ) {
+      double t = start + ( step * i );
+      double cos = Math.cos( t );
+      double sin = Math.sin( t );
+      double x = c.getX() + ( major.getX() * cos ) + ( mx * sin );
+      double y = c.getY() + ( major.getY() * cos ) + ( my * sin );
+      double z = c.getZ() + ( major.getZ() * cos ) + ( mz * sin );
+
+      if ( i == 0 ) {
+        buffer.moveTo( x, y, z );
+      } else {
+        buffer.lineTo( x, y, z );
+      }
+    }
+
+    if ( closed ) {
+      buffer.closePart();
+    }
+  }
+
+  protected static void addQuad( Point p1, Point p2, Point p3, Point p4,
+                                 PathBuffer buffer ) {
+    buffer.moveTo( p1.getX(), p1.getY(), p1.getZ() );
+    buffer.lineTo( p2.getX(), p2.getY(), p2.getZ() );
+    buffer.lineTo( p3.getX(), p3.getY(), p3.getZ() );
+
+    if ( !p4.equals( p3 ) ) {
+      buffer.lineTo( p4.getX(), p4.getY(), p4.getZ() );
+    }
+
+    buffer.closePart();
+  }
+
+  protected static void addPolyline( DXFPolyline pline, double tolerance,
+                                     PathBuffer buffer ) {
+    if ( pline.getVertexCount() == 0 ) {
+      return;
+    }
+
+    if ( pline.isPolyfaceMesh() ) {
+      addPolyfaceMesh( pline, buffer );
+    } else if ( pline.is3DPolygonMesh() ) {
+      addPolygonMesh( pline, buffer );
+    } else {
+      double elevation = 0.0;
+
+      if ( pline instanceof DXFLWPolyline ) {
+        elevation = ( ( DXFLWPolyline ) pline ).getElevation();
+      }
+
+      int first = buffer.getPointCount();
+      Iterator i = pline.getVertexIterator();
+
+      if ( pline.isCubicSpline() || pline.isQuadSpline() ) {
+        // use only the spline approximation
+        List approximation = new ArrayList();
+
+        while ( i.hasNext() ) {
+          DXFVertex v = ( DXFVertex ) i.next();
+
+          if ( v.is2DSplineApproximationVertex() ) {
+            approximation.add( v );
+          }
+        }
+
+        i = approximation.iterator();
+      }
+
+      addVertices( pline, i, elevation, tolerance, buffer );
+
+      if ( !pline.is3DPolygon() ) {
+        transformOCS( pline, buffer, first );
+      }
+    }
+  }
+
+  protected static void addVertices( DXFPolyline pline, Iterator i,
+                                     double elevation, double tolerance, PathBuffer buffer ) {
+    if ( !i.hasNext() ) {
+      return;
+    }
+
+    DXFVertex first = ( DXFVertex ) i.next();
+    DXFVertex last = first;
+    buffer.moveTo( first.getX(), first.getY(), first.getZ() + elevation );
+
+    while ( i.hasNext() ) {
+      DXFVertex v = ( DXFVertex ) i.next();
+      addSegment( last, v, elevation, tolerance, buffer );
+      last = v;
+    }
+
+    if ( pline.isClosed() ) {
+      if ( last.getBulge() != 0.0 ) {
+        addSegment( last, first, elevation, tolerance, buffer );
+
+        // remove the repeated start point
+        buffer.closePart();
+        buffer.removeLastPoint();
+      } else {
+        buffer.closePart();
+      }
+    }
+  }
+
+  /**
+   * Adds the segment without the start point.
+   */
+  protected static void addSegment( DXFVertex start, DXFVertex end,
+                                    double elevation, double tolerance, PathBuffer buffer ) {
+    double bulge = start.getBulge();
+
+    if ( bulge != 0.0 ) {
+      double x1 = start.getX();
+      double y1 = start.getY();
+      double dx = end.getX() - x1;
+      double dy = end.getY() - y1;
+      double chord = Math.sqrt( ( dx * dx ) + ( dy * dy ) );
+
+      if ( chord > 0.0 ) {
+        double sweep = 4 * Math.atan( bulge );
+        double radius = chord / ( 2 * Math.abs( Math.sin( sweep / 2 ) ) );
+
+        // the center is on the left normal of the chord
+        double offset = ( 1 - ( bulge * bulge ) ) / ( 4 * bulge );
+        double cx = ( x1 + ( dx / 2 ) ) - ( dy * offset );
+        double cy = ( y1 + ( dy / 2 ) ) + ( dx * offset );
+        double a = Math.atan2( y1 - cy, x1 - cx );
+        double z1 = start.getZ() + elevation;
+        double dz = end.getZ() - start.getZ();
+        int n = getSegmentCount( radius, sweep, tolerance );
+        double step = sweep / n;
+
+        for ( int i = 1; i < n; i++ ) {
+          double angle = a + ( step * i );
+          buffer.lineTo( cx + ( radius * Math.cos( angle ) ),
+            cy + ( radius * Math.sin( angle ) ), z1 + ( ( dz * i ) / n ) );
+        }
+      }
+    }
+
+    buffer.lineTo( end.getX(), end.getY(), end.getZ() + elevation );
+  }
+
+  protected static void addPolyfaceMesh( DXFPolyline pline, PathBuffer buffer ) {
+    Iterator i = pline.getVertexIterator();
+
+    while ( i.hasNext() ) {
+      DXFVertex v = ( DXFVertex ) i.next();
+
+      if ( v.isFaceRecord() ) {
+        int[] indices = new int[] {
+          v.getPolyFaceMeshVertex0(), v.getPolyFaceMeshVertex1(),
+          v.getPolyFaceMeshVertex2(), v.getPolyFaceMeshVertex3()
+        };
+        boolean started = false;
+
+        for ( int x = 0; x < indices.length; x++ ) {
+          if ( indices[ x ] != 0 ) {
+            DXFVertex p = pline.getPolyFaceMeshVertex( indices[ x ] );
+
+            if ( p != null ) {
+              if ( started ) {
+                buffer.lineTo( p.getX(), p.getY(), p.getZ() );
+              } else {
+                buffer.moveTo( p.getX(), p.getY(), p.getZ() );
+                started = true;
+              }
+            }
+          }
+        }
+
+        if ( started ) {
+          buffer.closePart();
+        }
+      }
+    }
+  }
+
+  protected static void addPolygonMesh( DXFPolyline pline, PathBuffer buffer ) {
+    int rows = pline.getRows();
+    int columns = pline.getColumns();
+
+    if ( !pline.isSimpleMesh() ) {
+      rows = pline.getSurefaceDensityRows();
+      columns = pline.getSurefaceDensityColumns();
+    }
+
+    DXFVertex[] points = new DXFVertex[ rows * columns ];
+    Iterator it = pline.getVertexIterator();
+    int count = 0;
+
+    while ( it.hasNext() && ( count < points.length ) ) {
+      DXFVertex v = ( DXFVertex ) it.next();
+
+      if ( pline.isSimpleMesh() || v.isMeshApproximationVertex() ) {
+        points[ count++ ] = v;
+      }
+    }
+
+    if ( count < points.length ) {
+      return;
+    }
+
+    // a line for each row and each column
+    for ( int r = 0; r < rows; r++ ) {
+      for ( int c = 0; c < columns; c++ ) {
+        DXFVertex v = points[ ( r * columns ) + c ];
+
+        if ( c == 0 ) {
+          buffer.moveTo( v.getX(), v.getY(), v.getZ() );
+        } else {
+          buffer.lineTo( v.getX(), v.getY(), v.getZ() );
+        }
+      }
+
+      if ( pline.isClosedMeshNDirection() ) {
+        buffer.closePart();
+      }
+    }
+
+    for ( int c = 0; c < columns; c++ ) {
+      for ( int r = 0; r < rows; r++ ) {
+        DXFVertex v = points[ ( r * columns ) + c ];
+
+        if ( r == 0 ) {
+          buffer.moveTo( v.getX(), v.getY(), v.getZ() );
+        } else {
+          buffer.lineTo( v.getX(), v.getY(), v.getZ() );
+        }
+      }
+
+      if ( pline.isClosedMeshMDirection() ) {
+        buffer.closePart();
+      }
+    }
+  }
+
+  /**
+   * Every boundary loop of the hatch is added as closed part. The edges of
+   * a loop are connected in their order, an edge is reversed if its end
+   * point meets the end of the loop.
+   */
+  protected static void addHatch( DXFHatch hatch, double tolerance,
+                                  PathBuffer buffer ) {
+    Iterator i = hatch.getBoundaryLoops();
+    PathBuffer edge = new PathBuffer();
+    int first = buffer.getPointCount();
+
+    while ( i.hasNext() ) {
+      HatchBoundaryLoop loop = ( HatchBoundaryLoop ) i.next();
+      addBoundaryLoop( loop, tolerance, buffer, edge );
+    }
+
+    transformOCS( hatch, buffer, first );
+  }
+
+  /**
+   * Append the boundary loop as a closed part.
+   *
+   * @param loop      the loop
+   * @param tolerance the maximal distance between curve and segments
+   * @param buffer    the buffer to append to
+   * @param edge      a buffer for the edges, which is cleared
+   */
+  public static void addBoundaryLoop( HatchBoundaryLoop loop, double tolerance,
+                                      PathBuffer buffer, PathBuffer edge ) {
+    Iterator edges = loop.getBoundaryEdgesIterator();
+    boolean started = false;
+    double lastX = 0.0;
+    double lastY = 0.0;
+
+    while ( edges.hasNext() ) {
+      DXFEntity entity = ( DXFEntity ) edges.next();
+      edge.clear();
+
+      if ( !toPath( entity, tolerance, edge ) || edge.isEmpty() ) {
+        continue;
+      }
+
+      int count = edge.getPointCount();
+      boolean reverse = false;
+
+      if ( started ) {
+        double ds = distanceSq( lastX, lastY, edge.getX( 0 ), edge.getY( 0 ) );
+        double de = distanceSq( lastX, lastY, edge.getX( count - 1 ),
+          edge.getY( count - 1 ) );
+        reverse = de < ds;
+      }
+
+      for ( int x = 0; x < count; x++ ) {
+        int index = reverse ? ( count - 1 - x ) : x;
+        double px = edge.getX( index );
+        double py = edge.getY( index );
+
+        if ( !started ) {
+          buffer.moveTo( px, py, edge.getZ( index ) );
+          started = true;
+        } else if ( ( x > 0 ) ||
+          ( distanceSq( lastX, lastY, px, py ) > ( tolerance * tolerance * 1.0E-4 ) ) ) {
+          buffer.lineTo( px, py, edge.getZ( index ) );
+        }
+
+        lastX = px;
+        lastY = py;
+      }
+
+      // a closed edge (polyline boundary or circle) is a loop itself
+      if ( edge.isClosed( 0 ) ) {
+        int first = edge.getPartStart( 0 );
+        buffer.lineTo( edge.getX( first ), edge.getY( first ), edge.getZ( first ) );
+      }
+    }
+
+    if ( started ) {
+      buffer.closePart();
+
+      int start = buffer.getPartStart( buffer.getPartCount() - 1 );
+
+      if ( ( buffer.getPointCount() - start ) > 1 ) {
+        int end = buffer.getPointCount() - 1;
+
+        if ( distanceSq( buffer.getX( start ), buffer.getY( start ),
+          buffer.getX( end ), buffer.getY( end ) ) < ( tolerance * tolerance * 1.0E-4 ) ) {
+          buffer.removeLastPoint();
+        }
+      }
+    }
+  }
+
+  protected static double distanceSq( double x1, double y1, double x2, double y2 ) {
+    double dx = x2 - x1;
+    double dy = y2 - y1;
+
+    return ( dx * dx ) + ( dy * dy );
+  }
+
+  /**
+   * Transform the points from the given index from the object coordinate
+   * system of the entity to the world coordinate system.
+   */
+  public static void transformOCS( DXFEntity entity, PathBuffer buffer, int first ) {
+    AffineTransform3D t = new AffineTransform3D().concatenate( entity.getExtrusion() );
+
+    if ( !t.isIdentity() ) {
+      t.transform( buffer.getCoordinates(), first * 3, buffer.getCoordinates(),
+        first * 3, buffer.getPointCount() - first );
+    }
+  }
+}
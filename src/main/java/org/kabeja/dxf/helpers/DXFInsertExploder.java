@@ -0,0 +1,220 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package org.kabeja.dxf.helpers;
+
+import org.kabeja.dxf.DXFBlock;
+import org.kabeja.dxf.DXFConstants;
+import org.kabeja.dxf.DXFDimension;
+import org.kabeja.dxf.DXFDocument;
+import org.kabeja.dxf.DXFEntity;
+import org.kabeja.dxf.DXFInsert;
+import org.kabeja.dxf.DXFLayer;
+import org.kabeja.math.AffineTransform3D;
+import org.kabeja.math.TransformStack;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Explodes inserts to the entities of the referenced blocks. Nested inserts,
+ * dimension blocks and the rows and columns of MINSERTs are followed
+ * recursively. The geometry of each block is flattened only once and
+ * delivered with the transformation of each instance to the
+ * BlockInstanceHandler.
+ */
+public class DXFInsertExploder {
+  private DXFDocument doc;
+  private double tolerance;
+  private Map blockGeometries = new HashMap();
+  private TransformStack stack = new TransformStack();
+  private Set activeBlocks = new HashSet();
+
+  public DXFInsertExploder( DXFDocument doc ) {
+    this( doc, DXFGeometryConverter.DEFAULT_TOLERANCE );
+  }
+
+  /**
+   * @param doc       the document
+   * @param tolerance the maximal distance between curves and segments of
+   *                  the block geometry
+   */
+  public DXFInsertExploder( DXFDocument doc, double tolerance ) {
+    this.doc = doc;
+    this.tolerance = tolerance;
+  }
+
+  /**
+   * Returns the cached geometry of the block.
+   *
+   * @param name the name of the block
+   * @return the geometry or null if there is no such block
+   */
+  public synchronized BlockGeometry getBlockGeometry( String name ) {
+    BlockGeometry geometry = ( BlockGeometry ) this.blockGeometries.get( name );
+
+    if ( geometry == null ) {
+      DXFBlock block = this.doc.getDXFBlock( name );
+
+      if ( block != null ) {
+        geometry = new BlockGeometry( block, this.tolerance );
+        this.blockGeometries.put( name, geometry );
+      }
+    }
+
+    return geometry;
+  }
+
+  /**
+   * Explode all inserts of the document, which are not on frozen layers.
+   *
+   * @param handler
+   */
+  public void explode( BlockInstanceHandler handler ) {
+    Iterator i = this.doc.getDXFLayerIterator();
+
+    while ( i.hasNext() ) {
+      DXFLayer layer = ( DXFLayer ) i.next();
+
+      if ( !layer.isFrozen() ) {
+        this.explode( layer, handler );
+      }
+    }
+  }
+
+  /**
+   * Explode all inserts of the layer.
+   *
+   * @param layer
+   * @param handler
+   */
+  public void explode( DXFLayer layer, BlockInstanceHandler handler ) {
+    List inserts = layer.getDXFEntities( DXFConstants.ENTITY_TYPE_INSERT );
+
+    if ( inserts != null ) {
+      Iterator i = inserts.iterator();
+
+      while ( i.hasNext() ) {
+        this.explode( ( DXFInsert ) i.next(), handler );
+      }
+    }
+  }
+
+  /**
+   * Explode the insert with all rows and columns.
+   *
+   * @param insert
+   * @param handler
+   */
+  public void explode( DXFInsert insert, BlockInstanceHandler handler ) {
+    this.stack.clear();
+    this.explodeInsert( insert, handler );
+  }
+
+  /**
+   * Explode the insert with all rows and columns with an additional outer
+   * transformation.
+   *
+   * @param insert
+   * @param transform the transformation applied after the insert transformation
+   * @param handler
+   */
+  public void explode( DXFInsert insert, AffineTransform3D transform,
+                       BlockInstanceHandler handler ) {
+    this.stack.clear();
+    this.stack.push( transform );
+    this.explodeInsert( insert, handler );
+    this.stack.clear();
+  }
+
+  /**
+   * Explode the block of the dimension.
+   *
+   * @param dimension
+   * @param handler
+   */
+  public void explode( DXFDimension dimension, BlockInstanceHandler handler ) {
+    this.stack.clear();
+    this.explodeDimension( dimension, handler );
+  }
+
+  protected void explodeInsert( DXFInsert insert, BlockInstanceHandler handler ) {
+    BlockGeometry geometry = this.getBlockGeometry( insert.getBlockID() );
+
+    if ( ( geometry == null ) || !this.activeBlocks.add( insert.getBlockID() ) ) {
+      // unknown block or a recursive reference
+      return;
+    }
+
+    int rows = Math.max( insert.getRows(), 1 );
+    int columns = Math.max( insert.getColumns(), 1 );
+
+    for ( int r = 0; r < rows; r++ ) {
+      for ( int c = 0; c < columns; c++ ) {
+        insert.getTransform( r, c, this.stack.push() );
+        this.explodeBlock( geometry, insert, handler );
+        this.stack.pop();
+      }
+    }
+
+    this.activeBlocks.remove( insert.getBlockID() );
+  }
+
+  protected void explodeDimension( DXFDimension dimension,
+                                   BlockInstanceHandler handler ) {
+    BlockGeometry geometry = this.getBlockGeometry( dimension.getDimensionBlock() );
+
+    if ( ( geometry == null ) ||
+      !this.activeBlocks.add( dimension.getDimensionBlock() ) ) {
+      return;
+    }
+
+    dimension.getTransform( this.stack.push() );
+    this.explodeBlock( geometry, null, handler );
+    this.stack.pop();
+    this.activeBlocks.remove( dimension.getDimensionBlock() );
+  }
+
+  protected void explodeBlock( BlockGeometry geometry, DXFInsert insert,
+                               BlockInstanceHandler handler ) {
+    AffineTransform3D t = this.stack.peek();
+
+    for ( int i = 0; i < geometry.getEntityCount(); i++ ) {
+      handler.instance( geometry.getEntity( i ), geometry.getGeometry( i ), t,
+        insert );
+    }
+
+    for ( int i = 0; i < geometry.getReferenceCount(); i++ ) {
+      DXFEntity entity = geometry.getReference( i );
+
+      if ( entity instanceof DXFInsert ) {
+        this.explodeInsert( ( DXFInsert ) entity, handler );
+      } else {
+        this.explodeDimension( ( DXFDimension ) entity, handler );
+      }
+    }
+  }
+
+  /**
+   * Removes all cached block geometries.
+   */
+  public synchronized void clearCache() {
+    this.blockGeometries.clear();
+  }
+}
@@ -0,0 +1,108 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package org.kabeja.dxf.helpers;
+
+import org.kabeja.dxf.DXFDocument;
+import org.kabeja.dxf.DXFEntity;
+import org.kabeja.math.LODPath;
+import org.kabeja.math.PathBuffer;
+import org.kabeja.math.PathSimplifier;
+
+/**
+ * The levels of detail of the entities of a document. Each entity is
+ * flattened once with the tolerance of the converter and simplified to a
+ * pyramid of coarser levels, so a renderer of an overview only walks as
+ * many points as the pixels can show. Entities, which are smaller than a
+ * pixel, are collapsed to a point.
+ * <p>
+ * The levels are built on the first access of an entity or for all layers
+ * in parallel with build(). Inserts are not converted, explode them with the
+ * DXFInsertExploder.
+ * </p>
+ *
+ * @see LODPath for the levels
+ */
+public class DXFLevelOfDetail extends DXFEntityCache {
+  private double tolerance;
+
+  public DXFLevelOfDetail( DXFDocument doc ) {
+    this( doc, DXFGeometryConverter.DEFAULT_TOLERANCE,
+      Runtime.getRuntime().availableProcessors() );
+  }
+
+  /**
+   * @param doc       the document
+   * @param tolerance the tolerance of the flattened curves and of the first
+   *                  simplified level
+   * @param threads   the count of threads for build()
+   */
+  public DXFLevelOfDetail( DXFDocument doc, double tolerance, int threads ) {
+    super( doc, threads, "Level of detail" );
+    this.tolerance = tolerance;
+  }
+
+  public double getTolerance() { return this.tolerance; }
+
+  /**
+   * Returns the levels of the entity, they are built on the first call.
+   *
+   * @param entity the entity
+   * @return the levels or null if the entity has no geometry
+   */
+  public LODPath getLODPath( DXFEntity entity ) {
+    return ( LODPath ) this.getValue( entity );
+  }
+
+  /**
+   * Returns the geometry of the entity for the size of a pixel, the
+   * deviation is at most half a pixel.
+   *
+   * @param entity    the entity
+   * @param pixelSize the size of a pixel in world coordinates
+   * @return the geometry, which must not be changed, or null
+   */
+  public PathBuffer getGeometry( DXFEntity entity, double pixelSize ) {
+    LODPath path = this.getLODPath( entity );
+
+    return ( path == null ) ? null : path.getGeometry( pixelSize / 2 );
+  }
+
+  protected Object createWorker() {
+    return new PathSimplifier();
+  }
+
+  protected Object create( DXFEntity entity, Object worker ) {
+    return this.createLODPath( entity, ( PathSimplifier ) worker );
+  }
+
+  /**
+   * @return the levels or null if the entity has no geometry
+   */
+  protected LODPath createLODPath( DXFEntity entity, PathSimplifier simplifier ) {
+    PathBuffer buffer = new PathBuffer();
+
+    if ( !DXFGeometryConverter.toPath( entity, this.tolerance, buffer ) ||
+      buffer.isEmpty() ) {
+      return null;
+    }
+
+    buffer.trimToSize();
+
+    return new LODPath( buffer, this.tolerance, simplifier );
+  }
+}
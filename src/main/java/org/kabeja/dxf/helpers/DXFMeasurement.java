@@ -0,0 +1,110 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package org.kabeja.dxf.helpers;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The result of the DXFMeasurementService: the lengths and areas of a
+ * document summed up per layer, per linetype and per block.
+ */
+public class DXFMeasurement {
+  private Measurement total = new Measurement();
+  private Map layers = new HashMap();
+  private Map lineTypes = new HashMap();
+  private ConcurrentMap blocks = new ConcurrentHashMap();
+
+  /**
+   * @return the measurement of all entities of the document
+   */
+  public Measurement getTotal() { return total; }
+
+  public Measurement getLayerMeasurement( String layer ) {
+    return ( Measurement ) this.layers.get( layer );
+  }
+
+  public Iterator getLayerNames() { return this.layers.keySet().iterator(); }
+
+  /**
+   * @param lineType the name of the linetype, the linetype BYLAYER is
+   *                 resolved to the linetype of the layer
+   * @return the measurement or null
+   */
+  public Measurement getLineTypeMeasurement( String lineType ) {
+    return ( Measurement ) this.lineTypes.get( lineType );
+  }
+
+  public Iterator getLineTypeNames() { return this.lineTypes.keySet().iterator(); }
+
+  /**
+   * Returns the measurement of a single instance of the block without any
+   * scale. Only blocks, which are referenced from the measured entities,
+   * are contained.
+   *
+   * @param block the name of the block
+   * @return the measurement or null
+   */
+  public Measurement getBlockMeasurement( String block ) {
+    return ( Measurement ) this.blocks.get( block );
+  }
+
+  public Iterator getBlockNames() { return this.blocks.keySet().iterator(); }
+
+  protected void add( String layer, String lineType, Measurement m ) {
+    this.total.add( m );
+    add( this.layers, layer, m );
+    add( this.lineTypes, lineType, m );
+  }
+
+  /**
+   * Add the layer and linetype results of the given measurement.
+   */
+  protected void merge( DXFMeasurement m ) {
+    this.total.add( m.total );
+
+    Iterator i = m.layers.entrySet().iterator();
+
+    while ( i.hasNext() ) {
+      Map.Entry entry = ( Map.Entry ) i.next();
+      add( this.layers, ( String ) entry.getKey(), ( Measurement ) entry.getValue() );
+    }
+
+    i = m.lineTypes.entrySet().iterator();
+
+    while ( i.hasNext() ) {
+      Map.Entry entry = ( Map.Entry ) i.next();
+      add( this.lineTypes, ( String ) entry.getKey(), ( Measurement ) entry.getValue() );
+    }
+  }
+
+  protected ConcurrentMap getBlocks() { return this.blocks; }
+
+  private static void add( Map map, String key, Measurement m ) {
+    Measurement sum = ( Measurement ) map.get( key );
+
+    if ( sum == null ) {
+      sum = new Measurement();
+      map.put( key, sum );
+    }
+
+    sum.add( m );
+  }
+}
@@ -0,0 +1,463 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package org.kabeja.dxf.helpers;
+
+import org.kabeja.dxf.DXFArc;
+import org.kabeja.dxf.DXFBlock;
+import org.kabeja.dxf.DXFCircle;
+import org.kabeja.dxf.DXFDocument;
+import org.kabeja.dxf.DXFEllipse;
+import org.kabeja.dxf.DXFEntity;
+import org.kabeja.dxf.DXFHatch;
+import org.kabeja.dxf.DXFInsert;
+import org.kabeja.dxf.DXFLayer;
+import org.kabeja.dxf.DXFLine;
+import org.kabeja.dxf.DXFPolyline;
+import org.kabeja.dxf.DXFSpline;
+import org.kabeja.dxf.DXFVertex;
+import org.kabeja.math.AffineTransform3D;
+import org.kabeja.math.CoordinateUtils;
+import org.kabeja.math.PathBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Measures the length and the area of all entities of a document in one
+ * pass. The area is calculated for closed polylines, circles, full
+ * ellipses and hatches. The layers are measured in parallel and the result
+ * of each block is calculated only once and reused for all inserts of the
+ * block.
+ * <p>
+ * An insert with a uniform scale reuses the block result directly. For a
+ * non-uniform scale the area is scaled with the determinant, while the
+ * length is measured on the exploded and flattened geometry of the
+ * entities, which have a length by the same rules.
+ * </p>
+ */
+public class DXFMeasurementService {
+  public final static String DEFAULT_LINETYPE = "CONTINUOUS";
+  public final static String LINETYPE_BYLAYER = "BYLAYER";
+  protected final static int CHUNK_SIZE = 2048;
+  private double tolerance;
+  private int threads;
+
+  public DXFMeasurementService() {
+    this( DXFGeometryConverter.DEFAULT_TOLERANCE,
+      Runtime.getRuntime().availableProcessors() );
+  }
+
+  /**
+   * @param tolerance the maximal distance between curves and segments for
+   *                  flattened geometry
+   * @param threads   the count of threads, 1 measures in the calling thread
+   */
+  public DXFMeasurementService( double tolerance, int threads ) {
+    this.tolerance = tolerance;
+    this.threads = Math.max( threads, 1 );
+  }
+
+  /**
+   * Measures all entities of the document.
+   *
+   * @param doc the document
+   * @return the measurement per layer, linetype and block
+   */
+  public DXFMeasurement measure( DXFDocument doc ) {
+    DXFMeasurement result = new DXFMeasurement();
+    List tasks = new ArrayList();
+    Iterator i = doc.getDXFLayerIterator();
+
+    while ( i.hasNext() ) {
+      DXFLayer layer = ( DXFLayer ) i.next();
+      List entities = new ArrayList();
+      Iterator types = layer.getDXFEntityTypeIterator();
+
+      while ( types.hasNext() ) {
+        entities.addAll( layer.getDXFEntities( ( String ) types.next() ) );
+      }
+
+      for ( int x = 0; x < entities.size(); x += CHUNK_SIZE ) {
+        tasks.add( new MeasureTask( doc, layer,
+          entities.subList( x, Math.min( x + CHUNK_SIZE, entities.size() ) ),
+          result.getBlocks() ) );
+      }
+    }
+
+    if ( ( this.threads == 1 ) || ( tasks.size() < 2 ) ) {
+      for ( int x = 0; x < tasks.size(); x++ ) {
+        result.merge( ( DXFMeasurement ) ( ( MeasureTask ) tasks.get( x ) ).call() );
+      }
+
+      return result;
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool( Math.min(
+      this.threads, tasks.size() ) );
+
+    try {
+      List futures = executor.invokeAll( tasks );
+
+      for ( int x = 0; x < futures.size(); x++ ) {
+        result.merge( ( DXFMeasurement ) ( ( Future ) futures.get( x ) ).get() );
+      }
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException( "Measurement interrupted", e );
+    } catch ( ExecutionException e ) {
+      throw new RuntimeException( "Measurement failed", e.getCause() );
+    } finally {
+      executor.shutdownNow();
+    }
+
+    return result;
+  }
+
+  /**
+   * Measures a single entity, inserts are measured with all instances.
+   *
+   * @param entity the entity
+   * @return the measurement
+   */
+  public Measurement measure( DXFEntity entity ) {
+    MeasureTask task = new MeasureTask( entity.getDXFDocument(), null, null,
+      new DXFMeasurement().getBlocks() );
+
+    return task.measure( entity );
+  }
+
+  /**
+   * Calculates the area of a closed polyline with bulges. The area of a
+   * bulge is the circle segment between chord and arc.
+   *
+   * @param pline the polyline
+   * @return the area
+   */
+  public static double getPolylineArea( DXFPolyline pline ) {
+    if ( pline.getVertexCount() < 2 ) {
+      return 0.0;
+    }
+
+    Iterator i = pline.getVertexIterator();
+    DXFVertex first = ( DXFVertex ) i.next();
+    DXFVertex last = first;
+    double area = 0.0;
+
+    while ( i.hasNext() ) {
+      DXFVertex v = ( DXFVertex ) i.next();
+      area += getSegmentArea( first, last, v );
+      last = v;
+    }
+
+    area += getSegmentArea( first, last, first );
+
+    return Math.abs( area );
+  }
+
+  /**
+   * The signed area of the segment relative to the origin point.
+   */
+  protected static double getSegmentArea( DXFVertex origin, DXFVertex start,
+                                          DXFVertex end ) {
+    double x1 = start.getX() - origin.getX();
+    double y1 = start.getY() - origin.getY();
+    double x2 = end.getX() - origin.getX();
+    double y2 = end.getY() - origin.getY();
+    double area = ( ( x1 * y2 ) - ( x2 * y1 ) ) / 2;
+    double bulge = start.getBulge();
+
+    if ( bulge != 0.0 ) {
+      double chord = Math.sqrt( ( ( x2 - x1 ) * ( x2 - x1 ) ) +
+        ( ( y2 - y1 ) * ( y2 - y1 ) ) );
+      double angle = 4 * Math.atan( Math.abs( bulge ) );
+      double radius = chord / ( 2 * Math.sin( angle / 2 ) );
+      double segment = ( radius * radius * ( angle - Math.sin( angle ) ) ) / 2;
+      area += ( ( bulge > 0 ) ? segment : ( -segment ) );
+    }
+
+    return area;
+  }
+
+  /**
+   * Measures a list of entities of one layer. Each task has its own
+   * buffers, only the block results are shared.
+   */
+  protected class MeasureTask implements Callable {
+    private DXFDocument doc;
+    private DXFLayer layer;
+    private List entities;
+    private ConcurrentMap blocks;
+    private PathBuffer path = new PathBuffer();
+    private PathBuffer edges = new PathBuffer();
+    private DXFInsertExploder exploder;
+    private Map lengthEntities = new HashMap();
+
+    public MeasureTask( DXFDocument doc, DXFLayer layer, List entities,
+                        ConcurrentMap blocks ) {
+      this.doc = doc;
+      this.layer = layer;
+      this.entities = entities;
+      this.blocks = blocks;
+    }
+
+    public Object call() {
+      DXFMeasurement result = new DXFMeasurement();
+      String layerLineType = this.layer.getLineType();
+
+      if ( layerLineType == null ) {
+        layerLineType = DEFAULT_LINETYPE;
+      }
+
+      for ( int i = 0; i < this.entities.size(); i++ ) {
+        DXFEntity entity = ( DXFEntity ) this.entities.get( i );
+        String lineType = entity.getLineType();
+
+        if ( ( lineType == null ) || ( lineType.length() == 0 ) ||
+          LINETYPE_BYLAYER.equalsIgnoreCase( lineType ) ) {
+          lineType = layerLineType;
+        }
+
+        result.add( this.layer.getName(), lineType, this.measure( entity ) );
+      }
+
+      return result;
+    }
+
+    public Measurement measure( DXFEntity entity ) {
+      return this.measure( entity, new HashSet() );
+    }
+
+    protected Measurement measure( DXFEntity entity, Set activeBlocks ) {
+      if ( entity instanceof DXFLine || entity instanceof DXFArc ) {
+        return new Measurement( entity.getLength(), 0.0 );
+      } else if ( entity instanceof DXFCircle ) {
+        double r = ( ( DXFCircle ) entity ).getRadius();
+
+        return new Measurement( entity.getLength(), Math.PI * r * r );
+      } else if ( entity instanceof DXFEllipse ) {
+        return this.measureEllipse( ( DXFEllipse ) entity );
+      } else if ( entity instanceof DXFPolyline ) {
+        return this.measurePolyline( ( DXFPolyline ) entity );
+      } else if ( entity instanceof DXFSpline ) {
+        this.path.clear();
+        DXFGeometryConverter.toPath( entity, tolerance, this.path );
+
+        return new Measurement( this.path.getLength(), 0.0 );
+      } else if ( entity instanceof DXFHatch ) {
+        return new Measurement( 0.0, this.getHatchArea( ( DXFHatch ) entity ) );
+      } else if ( entity instanceof DXFInsert ) {
+        return this.measureInsert( ( DXFInsert ) entity, activeBlocks );
+      }
+
+      return new Measurement( entity.getLength(), 0.0 );
+    }
+
+    protected Measurement measureEllipse( DXFEllipse ellipse ) {
+      double sweep = Math.abs( ellipse.getEndParameter() -
+          ellipse.getStartParameter() );
+      double area = 0.0;
+
+      if ( Math.abs( sweep - ( 2 * Math.PI ) ) < 1.0E-9 ) {
+        double a = ellipse.getHalfMajorAxisLength();
+        area = Math.PI * a * a * ellipse.getRatio();
+      }
+
+      return new Measurement( ellipse.getLength(), area );
+    }
+
+    protected Measurement measurePolyline( DXFPolyline pline ) {
+      boolean plain = !( pline.isCubicSpline() || pline.isQuadSpline() ||
+        pline.isPolyfaceMesh() || pline.is3DPolygonMesh() ||
+        pline.isBezierSurefaceMesh() || pline.isCubicSurefaceMesh() );
+
+      if ( plain ) {
+        if ( pline.getVertexCount() == 0 ) {
+          return new Measurement( 0.0, 0.0 );
+        }
+
+        double area = pline.isClosed() ? getPolylineArea( pline ) : 0.0;
+
+        return new Measurement( pline.getLength(), area );
+      }
+
+      // spline approximation and meshes
+      this.path.clear();
+      DXFGeometryConverter.toPath( pline, tolerance, this.path );
+
+      double area = 0.0;
+
+      if ( pline.isClosed() && !pline.isPolyfaceMesh() &&
+        !pline.is3DPolygonMesh() ) {
+        area = CoordinateUtils.getArea( this.path.getCoordinates(), 0,
+          this.path.getPointCount() );
+      }
+
+      return new Measurement( this.path.getLength(), area );
+    }
+
+    /**
+     * The area of the hatch with the even-odd rule: a loop inside of an
+     * odd count of other loops is a hole.
+     */
+    protected double getHatchArea( DXFHatch hatch ) {
+      // the loops in the object coordinate system
+      this.path.clear();
+
+      Iterator i = hatch.getBoundaryLoops();
+
+      while ( i.hasNext() ) {
+        DXFGeometryConverter.addBoundaryLoop( ( HatchBoundaryLoop ) i.next(),
+          tolerance, this.path, this.edges );
+      }
+
+      double[] c = this.path.getCoordinates();
+      double area = 0.0;
+
+      for ( int p = 0; p < this.path.getPartCount(); p++ ) {
+        int start = this.path.getPartStart( p );
+        int count = this.path.getPartPointCount( p );
+        double loopArea = Math.abs( CoordinateUtils.getSignedAreaXY( c, start,
+          count ) );
+        int depth = 0;
+
+        for ( int x = 0; x < this.path.getPartCount(); x++ ) {
+          if ( ( x != p ) &&
+            CoordinateUtils.containsXY( c, this.path.getPartStart( x ),
+              this.path.getPartPointCount( x ), c[ start * 3 ],
+              c[ ( start * 3 ) + 1 ] ) ) {
+            depth++;
+          }
+        }
+
+        area += ( ( ( depth % 2 ) == 0 ) ? loopArea : ( -loopArea ) );
+      }
+
+      return Math.max( area, 0.0 );
+    }
+
+    protected Measurement measureInsert( DXFInsert insert, Set activeBlocks ) {
+      Measurement block = this.getBlockMeasurement( insert.getBlockID(),
+        activeBlocks );
+      Measurement result = new Measurement();
+
+      if ( block == null ) {
+        return result;
+      }
+
+      int instances = Math.max( insert.getRows(), 1 ) * Math.max( insert.getColumns(),
+          1 );
+      double sx = Math.abs( insert.getScaleX() );
+      double sy = Math.abs( insert.getScaleY() );
+      double sz = Math.abs( insert.getScaleZ() );
+      double areaFactor = sx * sy;
+
+      if ( isEqual( sx, sy ) && isEqual( sx, sz ) ) {
+        result.add( block, sx, areaFactor, instances );
+      } else {
+        // the length is not a multiple of the block length
+        result.add( block, 0.0, areaFactor, instances );
+
+        if ( this.exploder == null ) {
+          this.exploder = new DXFInsertExploder( this.doc, tolerance );
+        }
+
+        final double[] length = new double[ 1 ];
+        this.exploder.explode( insert,
+          new BlockInstanceHandler() {
+            public void instance( DXFEntity entity, PathBuffer geometry,
+                                  AffineTransform3D transform, DXFInsert insert ) {
+              // the entities of dimension blocks have no length as well
+              if ( ( insert != null ) && hasLength( entity ) ) {
+                geometry.transform( transform, path );
+                length[ 0 ] += path.getLength();
+              }
+            }
+          } );
+        result.add( new Measurement( length[ 0 ], 0.0, 0 ) );
+      }
+
+      return result;
+    }
+
+    /**
+     * @return true if the entity has a length by the rules of measure(),
+     *         hatches, texts and dimensions have none
+     */
+    protected boolean hasLength( DXFEntity entity ) {
+      if ( entity instanceof DXFHatch ) {
+        return false;
+      } else if ( entity instanceof DXFLine || entity instanceof DXFArc ||
+        entity instanceof DXFCircle || entity instanceof DXFEllipse ||
+        entity instanceof DXFPolyline || entity instanceof DXFSpline ) {
+        return true;
+      }
+
+      Boolean b = ( Boolean ) this.lengthEntities.get( entity );
+
+      if ( b == null ) {
+        b = Boolean.valueOf( entity.getLength() != 0.0 );
+        this.lengthEntities.put( entity, b );
+      }
+
+      return b.booleanValue();
+    }
+
+    protected Measurement getBlockMeasurement( String name, Set activeBlocks ) {
+      Measurement m = ( Measurement ) this.blocks.get( name );
+
+      if ( m != null ) {
+        return m;
+      }
+
+      DXFBlock block = this.doc.getDXFBlock( name );
+
+      if ( ( block == null ) || !activeBlocks.add( name ) ) {
+        // unknown or recursive block
+        return null;
+      }
+
+      m = new Measurement();
+
+      Iterator i = block.getDXFEntitiesIterator();
+
+      while ( i.hasNext() ) {
+        m.add( this.measure( ( DXFEntity ) i.next(), activeBlocks ) );
+      }
+
+      activeBlocks.remove( name );
+
+      // another thread can have measured the block meanwhile
+      Measurement previous = ( Measurement ) this.blocks.putIfAbsent( name, m );
+
+      return ( previous != null ) ? previous : m;
+    }
+  }
+
+  protected static boolean isEqual( double a, double b ) {
+    return Math.abs( a - b ) <= ( 1.0E-12 * Math.max( Math.abs( a ), Math.abs( b ) ) );
+  }
+}
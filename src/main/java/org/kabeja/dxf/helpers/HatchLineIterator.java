@@ -34,6 +34,7 @@ public class HatchLineIterator implements Iterator {
   protected double length;
   protected Vector v;
   protected Vector r;
+  protected Vector direction;
   protected List bounderyEdges;
   protected ParametricLine patternLine;
   protected double tmin = Double.POSITIVE_INFINITY;
@@ -133,6 +134,9 @@ public class HatchLineIterator implements Iterator {
       this.v.setY( 0 );
     }
 
+    // the normalized direction is the same for all segments
+    this.direction = MathUtils.normalize( this.v );
+
     // we will now find the next raster point near the center point
     double[] para = this.getRasterValues( center.getX(), center.getY() );
     center = this.getPoint( Math.round( para[ 0 ] ), Math.round( para[ 1 ] ) );
@@ -253,7 +257,7 @@ public class HatchLineIterator implements Iterator {
       l = Math.abs( endT - startT ) * this.length;
     }
 
-    line.setDirectionVector( MathUtils.normalize( this.v ) );
+    line.setDirectionVector( this.direction );
 
     HatchLineSegment segment = new HatchLineSegment( line, l, startL,
       this.pattern.getPattern() );
@@ -0,0 +1,424 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package org.kabeja.dxf.helpers;
+
+import org.kabeja.dxf.DXFMText;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringTokenizer;
+
+/**
+ * The compiled formatting of a MTEXT string. The string is parsed once to
+ * a sequence of operations with the text parts and the parsed setting
+ * values. The operations do not depend on the entity, so a MTextFormat can
+ * be shared by all entities with the same text and replayed for each entity
+ * to create its TextDocument.
+ */
+public class MTextFormat {
+  protected final static int OP_SETTING = 0;
+  protected final static int OP_BEGIN_GROUP = 1;
+  protected final static int OP_END_GROUP = 2;
+  protected final static int OP_STYLE = 3;
+  protected final static int OP_PARAGRAPH = 4;
+  protected final static int OP_TEXT = 5;
+  private Op[] ops;
+
+  protected MTextFormat( Op[] ops ) {
+    this.ops = ops;
+  }
+
+  /**
+   * Parse the MTEXT string.
+   *
+   * @param text the raw MTEXT string with symbols and formatting codes
+   * @return the compiled format
+   */
+  public static MTextFormat compile( String text ) {
+    String str = DXFTextParser.parseSymbols( text );
+    List ops = new ArrayList();
+    StringBuffer buf = new StringBuffer();
+    StringBuffer value = new StringBuffer();
+    boolean formatting = false;
+    boolean keyfollow = false;
+    boolean complete = true;
+    char key = ' ';
+
+    for ( int i = 0; i < str.length(); i++ ) {
+      char c = str.charAt( i );
+
+      switch ( c ) {
+        case '\\':
+
+          if ( formatting ) {
+            if ( !complete ) {
+              addSetting( ops, key, value.toString() );
+              value.setLength( 0 );
+              formatting = true;
+              keyfollow = true;
+            } else {
+              buf.append( c );
+              formatting = false;
+            }
+          } else {
+            formatting = true;
+            keyfollow = true;
+            complete = false;
+          }
+
+          break;
+
+        case '~':
+
+          if ( formatting ) {
+            buf.append( c );
+            formatting = false;
+            keyfollow = false;
+          }
+
+          break;
+
+        case ';':
+
+          if ( formatting ) {
+            addSetting( ops, key, value.toString() );
+            value.setLength( 0 );
+            formatting = false;
+            complete = true;
+            keyfollow = false;
+          } else {
+            buf.append( c );
+          }
+
+          break;
+
+        case '}':
+        case '{':
+
+          if ( formatting && keyfollow ) {
+            buf.append( c );
+            formatting = false;
+            keyfollow = false;
+          } else if ( formatting ) {
+            value.append( c );
+          } else if ( c == '}' ) {
+            // format change end
+            ops.add( new Op( OP_END_GROUP, c, null ) );
+          } else if ( i != 0 ) {
+            // start format change
+            ops.add( new Op( OP_BEGIN_GROUP, c, null ) );
+          }
+
+          break;
+
+        case 'O':
+        case 'o':
+        case 'u':
+        case 'L':
+        case 'l':
+        case 'P':
+
+          if ( formatting && keyfollow ) {
+            ops.add( new Op( ( c == 'P' ) ? OP_PARAGRAPH : OP_STYLE, c,
+              buf.toString() ) );
+            buf.setLength( 0 );
+            formatting = false;
+            keyfollow = false;
+          } else if ( formatting ) {
+            value.append( c );
+          } else {
+            buf.append( c );
+          }
+
+          break;
+
+        default:
+
+          if ( formatting ) {
+            if ( keyfollow ) {
+              key = c;
+              keyfollow = false;
+            } else {
+              value.append( c );
+            }
+          } else {
+            buf.append( c );
+          }
+
+          break;
+      }
+    }
+
+    if ( formatting ) {
+      addSetting( ops, key, value.toString() );
+    }
+
+    if ( buf.length() > 0 ) {
+      ops.add( new Op( OP_TEXT, ' ', buf.toString() ) );
+    }
+
+    return new MTextFormat( ( Op[] ) ops.toArray( new Op[ ops.size() ] ) );
+  }
+
+  /**
+   * Parse the value of a paragraph setting. Settings without an effect on
+   * the paragraph are omitted.
+   */
+  protected static void addSetting( List ops, char key, String value ) {
+    Op op = new Op( OP_SETTING, key, value );
+
+    switch ( key ) {
+      case 'A':
+        op.number = Integer.parseInt( value );
+
+        break;
+
+      case 'H':
+
+        if ( value.endsWith( "x" ) ) {
+          op.relative = true;
+          op.number = Double.parseDouble( value.substring( 0, value.length() - 1 ) );
+        } else {
+          op.number = Double.parseDouble( value );
+        }
+
+        break;
+
+      case 'Q':
+      case 'W':
+      case 'T':
+        op.number = Double.parseDouble( value );
+
+        break;
+
+      case 'f':
+
+        StringTokenizer st = new StringTokenizer( value.trim(), "|" );
+        op.text = st.nextToken();
+
+        while ( st.hasMoreTokens() ) {
+          String option = st.nextToken();
+          char code = option.charAt( 0 );
+          int i = Integer.parseInt( option.substring( 1 ) );
+
+          if ( code == 'b' ) {
+            op.bold = ( i == 1 ) ? 1 : 0;
+          } else if ( code == 'i' ) {
+            op.italic = ( i == 1 ) ? 1 : 0;
+          }
+        }
+
+        break;
+
+      case 'F':
+        op.text = value.trim();
+
+        break;
+
+      default:
+        return;
+    }
+
+    ops.add( op );
+  }
+
+  /**
+   * Create the TextDocument for the entity.
+   *
+   * @param text the entity, which gives the height, insert point and the
+   *             alignment
+   * @return the new TextDocument
+   */
+  public TextDocument createTextDocument( DXFMText text ) {
+    TextDocument doc = new TextDocument();
+    StyledTextParagraph p = new StyledTextParagraph();
+    p.setFontHeight( text.getHeight() );
+    p.setInsertPoint( text.getInsertPoint() );
+    p.setValign( getVerticalAlignment( text.getAlignment() ) );
+
+    List paras = null;
+    int linecount = 0;
+
+    for ( int i = 0; i < this.ops.length; i++ ) {
+      Op op = this.ops[ i ];
+
+      switch ( op.type ) {
+        case OP_SETTING:
+          op.apply( p );
+
+          break;
+
+        case OP_BEGIN_GROUP:
+
+          if ( paras == null ) {
+            paras = new ArrayList();
+          }
+
+          paras.add( p );
+          p = new StyledTextParagraph();
+
+          break;
+
+        case OP_END_GROUP:
+          doc.addStyledParagraph( p );
+          p = DXFTextParser.createParagraphFromParent( p );
+
+          if ( ( paras != null ) && ( paras.size() > 0 ) ) {
+            p = ( StyledTextParagraph ) paras.remove( paras.size() - 1 );
+          }
+
+          break;
+
+        case OP_STYLE:
+          p.setText( op.text );
+          doc.addStyledParagraph( p );
+          p = DXFTextParser.createParagraphFromParent( p );
+
+          switch ( op.key ) {
+            case 'O':
+              p.setOverline( true );
+
+              break;
+
+            case 'o':
+              p.setOverline( false );
+
+              break;
+
+            case 'L':
+              p.setUnderline( true );
+
+              break;
+
+            default:
+              p.setUnderline( false );
+
+              break;
+          }
+
+          break;
+
+        case OP_PARAGRAPH:
+          linecount++;
+          p.setText( op.text );
+          doc.addStyledParagraph( p );
+          p = DXFTextParser.createParagraphFromParent( p );
+          p.setLineIndex( linecount );
+          p.setNewline( true );
+
+          break;
+
+        case OP_TEXT:
+          p.setText( op.text );
+          doc.addStyledParagraph( p );
+
+          break;
+      }
+    }
+
+    if ( doc.getParagraphCount() == 0 ) {
+      doc.addStyledParagraph( p );
+    }
+
+    return doc;
+  }
+
+  /**
+   * @return the vertical alignment of the paragraphs for the attachment point
+   */
+  public static int getVerticalAlignment( int attachment ) {
+    switch ( attachment ) {
+      case DXFMText.ATTACHMENT_TOP_LEFT:
+      case DXFMText.ATTACHMENT_TOP_CENTER:
+      case DXFMText.ATTACHMENT_TOP_RIGHT:
+        return StyledTextParagraph.VERTICAL_ALIGNMENT_TOP;
+
+      case DXFMText.ATTACHMENT_MIDDLE_LEFT:
+      case DXFMText.ATTACHMENT_MIDDLE_CENTER:
+      case DXFMText.ATTACHMENT_MIDDLE_RIGHT:
+        return StyledTextParagraph.VERTICAL_ALIGNMENT_CENTER;
+
+      default:
+        return StyledTextParagraph.VERTICAL_ALIGNMENT_BASELINE;
+    }
+  }
+
+  /**
+   * A single operation with the text part or the parsed setting.
+   */
+  protected static class Op {
+    int type;
+    char key;
+    String text;
+    double number = 0.0;
+    boolean relative = false;
+    int bold = -1;
+    int italic = -1;
+
+    Op( int type, char key, String text ) {
+      this.type = type;
+      this.key = key;
+      this.text = text;
+    }
+
+    void apply( StyledTextParagraph para ) {
+      switch ( key ) {
+        case 'A':
+          para.setValign( ( int ) number );
+
+          break;
+
+        case 'H':
+          para.setFontHeight( relative ? ( para.getFontHeight() * number ) : number );
+
+          break;
+
+        case 'Q':
+          para.setObliquiAngle( number );
+
+          break;
+
+        case 'W':
+          para.setWidth( number );
+
+          break;
+
+        case 'T':
+          para.setCharacterspace( number );
+
+          break;
+
+        case 'f':
+          para.setFont( text );
+
+          if ( bold >= 0 ) {
+            para.setBold( bold == 1 );
+          }
+
+          if ( italic >= 0 ) {
+            para.setItalic( italic == 1 );
+          }
+
+          break;
+
+        case 'F':
+          para.setFontFile( text );
+
+          break;
+      }
+    }
+  }
+}
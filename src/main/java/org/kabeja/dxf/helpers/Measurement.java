@@ -0,0 +1,74 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package org.kabeja.dxf.helpers;
+
+/**
+ * The summed length and area of a set of entities.
+ */
+public class Measurement {
+  private double length = 0.0;
+  private double area = 0.0;
+  private int entityCount = 0;
+
+  public Measurement() {
+  }
+
+  public Measurement( double length, double area ) {
+    this( length, area, 1 );
+  }
+
+  public Measurement( double length, double area, int entityCount ) {
+    this.length = length;
+    this.area = area;
+    this.entityCount = entityCount;
+  }
+
+  public double getLength() { return length; }
+
+  public double getArea() { return area; }
+
+  /**
+   * @return the count of measured entities, the entities of blocks are
+   * counted for each instance
+   */
+  public int getEntityCount() { return entityCount; }
+
+  public void add( Measurement m ) {
+    this.length += m.length;
+    this.area += m.area;
+    this.entityCount += m.entityCount;
+  }
+
+  /**
+   * Add a scaled measurement for multiple instances.
+   *
+   * @param m            the measurement
+   * @param lengthFactor the factor for the length
+   * @param areaFactor   the factor for the area
+   * @param instances    the count of instances
+   */
+  public void add( Measurement m, double lengthFactor, double areaFactor,
+                   int instances ) {
+    this.length += ( m.length * lengthFactor * instances );
+    this.area += ( m.area * areaFactor * instances );
+    this.entityCount += ( m.entityCount * instances );
+  }
+
+  public String toString() {
+    return "length=" + length + " area=" + area + " entities=" + entityCount;
+  }
+}
@@ -58,6 +58,36 @@ public class Point {
 
   public void setZ( double z ) { this.z = z; }
 
+  /**
+   * Set all coordinates at once.
+   *
+   * @param x
+   * @param y
+   * @param z
+   * @return this point
+   */
+  public Point set( double x, double y, double z ) {
+    this.x = x;
+    this.y = y;
+    this.z = z;
+
+    return this;
+  }
+
+  /**
+   * Copy the coordinates of the given point into this point.
+   *
+   * @param p
+   * @return this point
+   */
+  public Point set( Point p ) {
+    this.x = p.x;
+    this.y = p.y;
+    this.z = p.z;
+
+    return this;
+  }
+
   public String toString() {
     return String.format( Locale.US, "[%4.2f, %4.2f, %4.2f]", this.x, this.y, this.z );
   }
@@ -63,7 +63,7 @@ public class PolylineSegment {
    */
   protected double getRadius( double bulge, double length ) {
     double h = ( bulge * length ) / 2;
-    double value = ( h / 2 ) + ( Math.pow( length, 2 ) / ( 8 * h ) );
+    double value = ( h / 2 ) + ( ( length * length ) / ( 8 * h ) );
 
     return value;
   }
@@ -78,13 +78,12 @@ public class PolylineSegment {
     // middle point of chord
     double s = length / 2;
     Vector edgeDirection = MathUtils.getVector( start.getPoint(), end.getPoint() );
-    edgeDirection = MathUtils.normalize( edgeDirection );
+    edgeDirection.normalize();
 
     Point mp = MathUtils.getPointOfStraightLine( start.getPoint(), edgeDirection, s );
 
-    Vector d = p.getExtrusion().getNormal();
-    d = MathUtils.crossProduct( d, edgeDirection );
-    d = MathUtils.normalize( d );
+    Vector d = MathUtils.crossProduct( p.getExtrusion().getNormal(), edgeDirection, edgeDirection );
+    d.normalize();
 
     double h = Math.abs( start.getBulge() * length ) / 2;
     double r = p.getRadius( start.getBulge(), length );
@@ -92,12 +91,12 @@ public class PolylineSegment {
 
     if ( start.getBulge() > 0.0 ) {
       double t = h - r;
-      mp = MathUtils.getPointOfStraightLine( mp, d, t );
+      MathUtils.getPointOfStraightLine( mp, d, t, mp );
     } else {
       right = true;
 
       double t = r - h;
-      mp = MathUtils.getPointOfStraightLine( mp, d, t );
+      MathUtils.getPointOfStraightLine( mp, d, t, mp );
     }
 
     double c = 0.0;
@@ -113,8 +112,7 @@ public class PolylineSegment {
     }
 
     // direction vector from start to center point
-    d = MathUtils.getVector( start.getPoint(), mp );
-    d = MathUtils.normalize( d );
+    MathUtils.getVector( start.getPoint(), mp, d ).normalize();
     point1 = MathUtils.getPointOfStraightLine( start.getPoint(), d, c );
     point2 = MathUtils.getPointOfStraightLine( start.getPoint(), d, ( c * ( -1 ) ) );
 
@@ -128,8 +126,7 @@ public class PolylineSegment {
       c = -1 * c;
     }
 
-    d = MathUtils.getVector( end.getPoint(), mp );
-    d = MathUtils.normalize( d );
+    MathUtils.getVector( end.getPoint(), mp, d ).normalize();
     point3 = MathUtils.getPointOfStraightLine( end.getPoint(), d, ( c * ( -1 ) ) );
     point4 = MathUtils.getPointOfStraightLine( end.getPoint(), d, c );
   }
@@ -144,14 +141,11 @@ public class PolylineSegment {
       c = this.p.getStartWidth() / 2;
     }
 
-    Vector v = this.p.getExtrusion().getNormal();
-
     // Vector v = DXFConstants.DEFAULT_Z_AXIS_VECTOR;
-    Vector x = MathUtils.getVector( start.getPoint(), end.getPoint() );
+    Vector v = MathUtils.getVector( start.getPoint(), end.getPoint() );
 
     // calculate the y vector
-    v = MathUtils.crossProduct( v, x );
-    v = MathUtils.normalize( v );
+    MathUtils.crossProduct( this.p.getExtrusion().getNormal(), v, v ).normalize();
     point1 = MathUtils.getPointOfStraightLine( start.getPoint(), v, c );
     point2 = MathUtils.getPointOfStraightLine( start.getPoint(), v, ( -1.0 * c ) );
 
@@ -201,8 +195,8 @@ public class PolylineSegment {
 
       next.setPoint1( p );
 
-      d1 = MathUtils.getVector( point2, point3 );
-      d2 = MathUtils.getVector( next.getPoint3(), next.getPoint2() );
+      MathUtils.getVector( point2, point3, d1 );
+      MathUtils.getVector( next.getPoint3(), next.getPoint2(), d2 );
       p = MathUtils.getIntersection( point2, d1, next.getPoint3(), d2 );
       setPoint3( p );
       next.setPoint2( p );
@@ -32,13 +32,55 @@ public class Vector extends Point {
     super( x, y, z );
   }
 
-  public double getLength() { return Math.sqrt( Math.pow( x, 2 ) + Math.pow( y, 2 ) + Math.pow( z, 2 ) ); }
+  public double getLength() { return Math.sqrt( ( x * x ) + ( y * y ) + ( z * z ) ); }
 
   public void normalize() {
-    double r = Math.sqrt( Math.pow( x, 2 ) + Math.pow( y, 2 ) + Math.pow( z, 2 ) );
-    x = x / r;
-    y = y / r;
-    z = z / r;
+    double r = 1.0 / Math.sqrt( ( x * x ) + ( y * y ) + ( z * z ) );
+    x = x * r;
+    y = y * r;
+    z = z * r;
+  }
+
+  /**
+   * Scale this vector in place.
+   *
+   * @param scale
+   * @return this vector
+   */
+  public Vector scale( double scale ) {
+    x = x * scale;
+    y = y * scale;
+    z = z * scale;
+
+    return this;
+  }
+
+  /**
+   * Add the given vector to this vector in place.
+   *
+   * @param v
+   * @return this vector
+   */
+  public Vector add( Vector v ) {
+    x = x + v.x;
+    y = y + v.y;
+    z = z + v.z;
+
+    return this;
+  }
+
+  /**
+   * Subtract the given vector from this vector in place.
+   *
+   * @param v
+   * @return this vector
+   */
+  public Vector subtract( Vector v ) {
+    x = x - v.x;
+    y = y - v.y;
+    z = z - v.z;
+
+    return this;
   }
 
 }
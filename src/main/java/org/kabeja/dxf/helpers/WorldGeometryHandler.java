@@ -0,0 +1,46 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package org.kabeja.dxf.helpers;
+
+import org.kabeja.dxf.DXFEntity;
+import org.kabeja.dxf.DXFInsert;
+import org.kabeja.math.AffineTransform3D;
+import org.kabeja.math.PathBuffer;
+
+/**
+ * A BlockInstanceHandler which transforms the shared block geometry to world
+ * coordinates. The world geometry is written into one reused buffer.
+ */
+public abstract class WorldGeometryHandler implements BlockInstanceHandler {
+  private PathBuffer world = new PathBuffer( 256 );
+
+  public void instance( DXFEntity entity, PathBuffer geometry,
+                        AffineTransform3D transform, DXFInsert insert ) {
+    geometry.transform( transform, this.world );
+    this.geometry( entity, this.world, insert );
+  }
+
+  /**
+   * @param entity   the entity of the block
+   * @param geometry the geometry in world coordinates, only valid during the
+   *                 call
+   * @param insert   the insert which references the block of the entity or
+   *                 null for dimension blocks
+   */
+  public abstract void geometry( DXFEntity entity, PathBuffer geometry,
+                                 DXFInsert insert );
+}
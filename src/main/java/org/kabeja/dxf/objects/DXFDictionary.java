@@ -18,12 +18,22 @@ package org.kabeja.dxf.objects;
 
 import org.kabeja.dxf.DXFConstants;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.HashMap;
 import java.util.Iterator;
-import java.util.Set;
+import java.util.Map;
 
+/**
+ * A dictionary of named object references. The records are indexed by name
+ * and by ID. The dictionaries reachable from the root dictionary of a
+ * document share an owner index, which maps the IDs of all records to
+ * their dictionary.
+ */
 public class DXFDictionary extends DXFObject {
   protected ArrayList records = new ArrayList();
+  protected Map nameIndex = new HashMap();
+  protected Map idIndex = new HashMap();
+  protected Map ownerIndex;
+  protected DXFDictionary parent;
 
   public String getObjectType() { return DXFConstants.OBJECT_TYPE_DICTIONARY; }
 
@@ -32,15 +42,7 @@ public class DXFDictionary extends DXFObject {
   }
 
   protected DXFDictionaryRecord findByID( String id ) {
-    for ( int i = 0; i < this.records.size(); i++ ) {
-      DXFDictionaryRecord record = ( DXFDictionaryRecord ) records.get( i );
-
-      if ( record.getID().equals( id ) ) {
-        return record;
-      }
-    }
-
-    return null;
+    return ( DXFDictionaryRecord ) this.idIndex.get( id );
   }
 
   public String getNameForDXFObjectID( String id ) {
@@ -80,29 +82,81 @@ public class DXFDictionary extends DXFObject {
   }
 
   protected DXFDictionaryRecord findByName( String name ) {
-    for ( int i = 0; i < this.records.size(); i++ ) {
-      DXFDictionaryRecord record = ( DXFDictionaryRecord ) records.get( i );
-
-      if ( record.getName().equals( name ) ) {
-        return record;
-      }
-    }
-
-    return null;
+    return ( DXFDictionaryRecord ) this.nameIndex.get( name );
   }
 
   public void putDXFObject( DXFObject obj ) {
     findByID( obj.getID() ).setDXFObject( obj );
+
+    if ( obj instanceof DXFDictionary ) {
+      DXFDictionary dic = ( DXFDictionary ) obj;
+
+      if ( ( this.ownerIndex != null ) && ( dic.ownerIndex != this.ownerIndex ) ) {
+        dic.parent = this;
+        dic.setOwnerIndex( this.ownerIndex );
+      } else if ( dic.parent == null ) {
+        dic.parent = this;
+      }
+    }
   }
 
   public void putDXFObjectRelation( String name, String id ) {
     DXFDictionaryRecord record = null;
 
     if ( ( record = findByName( name ) ) != null ) {
+      this.removeID( record );
       record.setID( id );
     } else {
       record = new DXFDictionaryRecord( name, id );
       this.records.add( record );
+      this.nameIndex.put( name, record );
+    }
+
+    this.addID( record );
+  }
+
+  protected void addID( DXFDictionaryRecord record ) {
+    if ( !this.idIndex.containsKey( record.getID() ) ) {
+      this.idIndex.put( record.getID(), record );
+    }
+
+    if ( ( this.ownerIndex != null ) &&
+      !this.ownerIndex.containsKey( record.getID() ) ) {
+      this.ownerIndex.put( record.getID(), this );
+    }
+  }
+
+  protected void removeID( DXFDictionaryRecord record ) {
+    if ( this.idIndex.get( record.getID() ) == record ) {
+      this.idIndex.remove( record.getID() );
+    }
+
+    if ( ( this.ownerIndex != null ) &&
+      ( this.ownerIndex.get( record.getID() ) == this ) ) {
+      this.ownerIndex.remove( record.getID() );
+    }
+  }
+
+  /**
+   * Set the owner index of the document and add the records of this and
+   * all child dictionaries. Called for the root dictionary by the document.
+   *
+   * @param ownerIndex the map of IDs to dictionaries
+   */
+  public void setOwnerIndex( Map ownerIndex ) {
+    this.ownerIndex = ownerIndex;
+
+    for ( int i = 0; i < this.records.size(); i++ ) {
+      DXFDictionaryRecord record = ( DXFDictionaryRecord ) records.get( i );
+      this.addID( record );
+
+      DXFObject obj = record.getDXFObject();
+
+      if ( ( obj instanceof DXFDictionary ) &&
+        ( ( ( DXFDictionary ) obj ).ownerIndex != ownerIndex ) ) {
+        ( ( DXFDictionary ) obj ).parent = this;
+        ( ( DXFDictionary ) obj ).setOwnerIndex( ownerIndex );
+      }
     }
   }
 
@@ -113,29 +167,32 @@ public class DXFDictionary extends DXFObject {
    * @return the dictionary or null
    */
   public DXFDictionary getDXFDictionaryForID( String id ) {
-    Set dictionaries = new HashSet();
-    DXFObject obj = null;
+    if ( this.idIndex.containsKey( id ) ) {
+      return this;
+    }
 
-    for ( int i = 0; i < this.records.size(); i++ ) {
-      DXFDictionaryRecord record = ( DXFDictionaryRecord ) records.get( i );
+    if ( this.ownerIndex != null ) {
+      DXFDictionary d = ( DXFDictionary ) this.ownerIndex.get( id );
 
-      if ( record.getID().equals( id ) ) {
-        return this;
-      } else if ( ( ( obj = record.getDXFObject() ) != null ) &&
-        obj.getObjectType()
-          .equals( DXFConstants.OBJECT_TYPE_DICTIONARY ) ) {
-        dictionaries.add( obj );
+      // the dictionary has to be a child
+      for ( DXFDictionary p = d; p != null; p = p.parent ) {
+        if ( p == this ) {
+          return d;
+        }
       }
+
+      return null;
     }
 
-    Iterator ie = dictionaries.iterator();
+    for ( int i = 0; i < this.records.size(); i++ ) {
+      DXFObject obj = ( ( DXFDictionaryRecord ) records.get( i ) ).getDXFObject();
 
-    while ( ie.hasNext() ) {
-      DXFDictionary dic = ( DXFDictionary ) ie.next();
-      DXFDictionary d = dic.getDXFDictionaryForID( id );
+      if ( ( obj instanceof DXFDictionary ) && ( obj != this ) ) {
+        DXFDictionary d = ( ( DXFDictionary ) obj ).getDXFDictionaryForID( id );
 
-      if ( d != null ) {
-        return d;
+        if ( d != null ) {
+          return d;
+        }
       }
     }
 
@@ -158,7 +215,9 @@ public class DXFDictionary extends DXFObject {
       }
 
       public void remove() {
-        records.remove( count - 1 );
+        DXFDictionaryRecord record = ( DXFDictionaryRecord ) records.remove( --count );
+        nameIndex.remove( record.getName() );
+        removeID( record );
       }
     };
 
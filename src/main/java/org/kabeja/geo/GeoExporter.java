@@ -0,0 +1,286 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+
+package org.kabeja.geo;
+
+import org.kabeja.dxf.DXFEntity;
+import org.kabeja.dxf.helpers.DXFGeometryConverter;
+import org.kabeja.parser.DXFEntityListener;
+import org.kabeja.parser.DXFParser;
+import org.kabeja.parser.ParseException;
+import org.kabeja.parser.Parser;
+import org.kabeja.parser.ParserBuilder;
+import java.io.BufferedOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Streams the model space entities of a DXF file as features, for example
+ * as GeoJSON or as PostGIS COPY rows, while the file is parsed. The
+ * entities are collected in batches, which are converted and encoded by a
+ * pool of threads and written in the order of the source. Only the tables,
+ * the blocks and a bounded count of batches are held in memory.
+ * <pre>
+ * GeoExporter exporter = new GeoExporter( new GeoJSONEncoder() );
+ * exporter.export( "plan.dxf", "plan.geojson" );
+ * </pre>
+ */
+public class GeoExporter implements DXFEntityListener {
+  public final static int DEFAULT_BATCH_SIZE = 1024;
+
+  // the maximal count of pending batches per thread
+  private final static int PENDING_BATCHES = 2;
+  private final static int BUFFER_SIZE = 65536;
+  protected GeoFeatureEncoder encoder;
+  protected GeoFeatureConverter converter;
+  protected int threads;
+  protected int batchSize = DEFAULT_BATCH_SIZE;
+  protected boolean modelSpaceOnly = true;
+
+  // the state while exporting
+  protected OutputStream out;
+  protected ExecutorService executor;
+  protected LinkedList pending = new LinkedList();
+  protected List batch;
+  protected boolean written;
+  protected int featureCount;
+
+  public GeoExporter( GeoFeatureEncoder encoder ) {
+    this( encoder, DXFGeometryConverter.DEFAULT_TOLERANCE,
+      Runtime.getRuntime().availableProcessors() );
+  }
+
+  /**
+   * @param encoder   the encoder of the features
+   * @param tolerance the maximal distance between curves and segments
+   * @param threads   the count of threads, 1 encodes in the parsing thread
+   */
+  public GeoExporter( GeoFeatureEncoder encoder, double tolerance, int threads ) {
+    this.encoder = encoder;
+    this.converter = new GeoFeatureConverter( tolerance );
+    this.threads = Math.max( threads, 1 );
+  }
+
+  /**
+   * @param batchSize the count of entities encoded by one task
+   */
+  public void setBatchSize( int batchSize ) { this.batchSize = Math.max( batchSize, 1 ); }
+
+  /**
+   * @param modelSpaceOnly false to export the paper space entities too
+   */
+  public void setModelSpaceOnly( boolean modelSpaceOnly ) {
+    this.modelSpaceOnly = modelSpaceOnly;
+  }
+
+  /**
+   * @return the count of features written by the last export
+   */
+  public int getFeatureCount() { return this.featureCount; }
+
+  public void export( String file, String target ) throws IOException, ParseException {
+    OutputStream out = new BufferedOutputStream( new FileOutputStream( target ),
+        BUFFER_SIZE );
+
+    try {
+      this.export( file, out );
+    } finally {
+      out.close();
+    }
+  }
+
+  public void export( String file, OutputStream out ) throws IOException, ParseException {
+    InputStream in = new FileInputStream( file );
+
+    try {
+      this.export( in, DXFParser.DEFAULT_ENCODING, out );
+    } finally {
+      in.close();
+    }
+  }
+
+  /**
+   * Parses the stream and writes the features, the output stream is
+   * flushed but not closed.
+   *
+   * @param in       the DXF stream
+   * @param encoding the encoding or "" to detect it
+   * @param out      the output
+   */
+  public synchronized void export( InputStream in, String encoding, OutputStream out )
+    throws IOException, ParseException {
+    this.out = out;
+    this.batch = new ArrayList( this.batchSize );
+    this.pending.clear();
+    this.written = false;
+    this.featureCount = 0;
+
+    if ( this.threads > 1 ) {
+      this.executor = Executors.newFixedThreadPool( this.threads );
+    }
+
+    try {
+      out.write( this.encoder.getHeader() );
+
+      Parser parser = ParserBuilder.createStreamingParser( this );
+      parser.parse( in, encoding );
+      this.submit();
+
+      while ( !this.pending.isEmpty() ) {
+        this.writeNext();
+      }
+
+      out.write( this.encoder.getFooter() );
+      out.flush();
+    } catch ( WriteException e ) {
+      throw e.getIOException();
+    } finally {
+      if ( this.executor != null ) {
+        this.executor.shutdownNow();
+        this.executor = null;
+      }
+
+      this.pending.clear();
+      this.batch = null;
+      this.out = null;
+    }
+  }
+
+  public void entityParsed( DXFEntity entity ) {
+    if ( this.modelSpaceOnly && !entity.isModelSpace() ) {
+      return;
+    }
+
+    this.batch.add( entity );
+
+    if ( this.batch.size() >= this.batchSize ) {
+      try {
+        this.submit();
+
+        while ( this.pending.size() > ( this.threads * PENDING_BATCHES ) ) {
+          this.writeNext();
+        }
+      } catch ( IOException e ) {
+        throw new WriteException( e );
+      }
+    }
+  }
+
+  protected void submit() throws IOException {
+    if ( this.batch.isEmpty() ) {
+      return;
+    }
+
+    EncodeTask task = new EncodeTask( this.batch );
+    this.batch = new ArrayList( this.batchSize );
+
+    if ( this.executor == null ) {
+      task.call();
+      this.write( task );
+    } else {
+      this.pending.add( this.executor.submit( task ) );
+    }
+  }
+
+  /**
+   * Waits for the oldest batch and writes it.
+   */
+  protected void writeNext() throws IOException {
+    Future future = ( Future ) this.pending.removeFirst();
+
+    try {
+      this.write( ( EncodeTask ) future.get() );
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new IOException( "Export interrupted", e );
+    } catch ( ExecutionException e ) {
+      throw new IOException( "Encoding failed", e.getCause() );
+    }
+  }
+
+  protected void write( EncodeTask task ) throws IOException {
+    if ( task.count > 0 ) {
+      if ( this.written ) {
+        this.out.write( this.encoder.getSeparator() );
+      }
+
+      task.buffer.writeTo( this.out );
+      this.written = true;
+      this.featureCount += task.count;
+    }
+  }
+
+  /**
+   * Converts and encodes the entities of a batch, the features are
+   * separated in the buffer.
+   */
+  protected class EncodeTask implements Callable {
+    protected List entities;
+    protected GeoOutputBuffer buffer;
+    protected int count;
+
+    public EncodeTask( List entities ) {
+      this.entities = entities;
+    }
+
+    public Object call() {
+      this.buffer = new GeoOutputBuffer( this.entities.size() * 128 );
+
+      for ( int i = 0; i < this.entities.size(); i++ ) {
+        GeoFeature feature = converter.toFeature( ( DXFEntity ) this.entities.get( i ) );
+
+        if ( feature != null ) {
+          if ( this.count > 0 ) {
+            this.buffer.write( encoder.getSeparator() );
+          }
+
+          encoder.encode( feature, this.buffer );
+          this.count++;
+        }
+      }
+
+      this.entities = null;
+
+      return this;
+    }
+  }
+
+  /**
+   * Passes a write error through the parser.
+   */
+  protected static class WriteException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public WriteException( IOException cause ) {
+      super( cause );
+    }
+
+    public IOException getIOException() { return ( IOException ) this.getCause(); }
+  }
+}
@@ -0,0 +1,75 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+
+package org.kabeja.geo;
+
+/**
+ * The geometry and the attributes of an exported entity.
+ */
+public class GeoFeature {
+  private String type;
+  private String handle;
+  private String layer;
+  private String color;
+  private String label;
+  private double rotation;
+  private GeoGeometry geometry;
+
+  /**
+   * @return the entity type
+   */
+  public String getType() { return this.type; }
+
+  public void setType( String type ) { this.type = type; }
+
+  /**
+   * @return the handle of the entity or null
+   */
+  public String getHandle() { return this.handle; }
+
+  public void setHandle( String handle ) { this.handle = handle; }
+
+  public String getLayer() { return this.layer; }
+
+  public void setLayer( String layer ) { this.layer = layer; }
+
+  /**
+   * @return the resolved color as #rrggbb
+   */
+  public String getColor() { return this.color; }
+
+  public void setColor( String color ) { this.color = color; }
+
+  /**
+   * @return the content of a text, the block name of an insert or null
+   */
+  public String getLabel() { return this.label; }
+
+  public void setLabel( String label ) { this.label = label; }
+
+  /**
+   * @return the rotation of a text or insert in degrees
+   */
+  public double getRotation() { return this.rotation; }
+
+  public void setRotation( double rotation ) { this.rotation = rotation; }
+
+  public GeoGeometry getGeometry() { return this.geometry; }
+
+  public void setGeometry( GeoGeometry geometry ) { this.geometry = geometry; }
+}
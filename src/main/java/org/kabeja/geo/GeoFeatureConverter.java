@@ -0,0 +1,389 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+
+package org.kabeja.geo;
+
+import org.kabeja.dxf.DXFColor;
+import org.kabeja.dxf.DXFDimension;
+import org.kabeja.dxf.DXFDocument;
+import org.kabeja.dxf.DXFEntity;
+import org.kabeja.dxf.DXFHatch;
+import org.kabeja.dxf.DXFInsert;
+import org.kabeja.dxf.DXFLayer;
+import org.kabeja.dxf.DXFPoint;
+import org.kabeja.dxf.DXFText;
+import org.kabeja.dxf.helpers.DXFGeometryConverter;
+import org.kabeja.dxf.helpers.HatchBoundaryLoop;
+import org.kabeja.dxf.helpers.Point;
+import org.kabeja.math.PathBuffer;
+import java.util.Iterator;
+import java.util.StringTokenizer;
+
+/**
+ * Converts entities to features. Points, texts and inserts are points,
+ * hatches are polygons and all other entities supported by the
+ * DXFGeometryConverter are (multi) line strings with curves flattened to
+ * the tolerance. Inserts are not exploded, the point is the insertion
+ * point and the label the block name.
+ * <p>
+ * The boundary loops of a hatch are nested by containment. A loop inside
+ * an even count of loops is a shell of a polygon, a loop inside an odd
+ * count is a hole of the smallest loop containing it.
+ * </p>
+ * <p>
+ * The converter has no state and can be used by several threads.
+ * </p>
+ */
+public class GeoFeatureConverter {
+  private final static int COLOR_BYBLOCK = 0;
+  private final static int COLOR_BYLAYER = 256;
+  private final static int DEFAULT_COLOR = 7;
+  private final static String[] COLORS = new String[ 257 ];
+
+  static {
+    for ( int i = 0; i < COLORS.length; i++ ) {
+      StringTokenizer st = new StringTokenizer( DXFColor.getRGBString( i ), "," );
+      COLORS[ i ] = toHex( Integer.parseInt( st.nextToken().trim() ),
+          Integer.parseInt( st.nextToken().trim() ),
+          Integer.parseInt( st.nextToken().trim() ) );
+    }
+  }
+
+  private double tolerance;
+
+  public GeoFeatureConverter() {
+    this( DXFGeometryConverter.DEFAULT_TOLERANCE );
+  }
+
+  /**
+   * @param tolerance the maximal distance between curves and segments
+   */
+  public GeoFeatureConverter( double tolerance ) {
+    this.tolerance = tolerance;
+  }
+
+  public double getTolerance() { return this.tolerance; }
+
+  /**
+   * @param entity the entity
+   * @return the feature or null if the entity has no supported geometry
+   */
+  public GeoFeature toFeature( DXFEntity entity ) {
+    GeoGeometry geometry = this.toGeometry( entity );
+
+    if ( geometry == null ) {
+      return null;
+    }
+
+    GeoFeature feature = new GeoFeature();
+    feature.setType( entity.getType() );
+    feature.setHandle( ( ( entity.getID() != null ) && ( entity.getID().length() > 0 ) )
+      ? entity.getID() : null );
+    feature.setLayer( entity.getLayerName() );
+    feature.setColor( getColor( entity ) );
+    feature.setGeometry( geometry );
+
+    if ( entity instanceof DXFText ) {
+      DXFText text = ( DXFText ) entity;
+      feature.setLabel( ( text.getTextDocument() != null )
+        ? text.getTextDocument().getText() : text.getText() );
+      feature.setRotation( text.getRotation() );
+    } else if ( entity instanceof DXFInsert ) {
+      DXFInsert insert = ( DXFInsert ) entity;
+      feature.setLabel( insert.getBlockID() );
+      feature.setRotation( insert.getRotate() );
+    }
+
+    return feature;
+  }
+
+  public GeoGeometry toGeometry( DXFEntity entity ) {
+    PathBuffer buffer = new PathBuffer();
+
+    if ( entity instanceof DXFInsert ) {
+      Point p = ( ( DXFInsert ) entity ).getPoint();
+      buffer.moveTo( p.getX(), p.getY(), p.getZ() );
+      DXFGeometryConverter.transformOCS( entity, buffer, 0 );
+
+      return new GeoGeometry( GeoGeometry.TYPE_POINT, buffer, null );
+    } else if ( entity instanceof DXFHatch ) {
+      return this.toPolygons( ( DXFHatch ) entity );
+    } else if ( entity instanceof DXFDimension ) {
+      return null;
+    } else if ( !DXFGeometryConverter.toPath( entity, this.tolerance, buffer ) ||
+      buffer.isEmpty() ) {
+      return null;
+    } else if ( ( entity instanceof DXFPoint ) || ( entity instanceof DXFText ) ) {
+      return new GeoGeometry( GeoGeometry.TYPE_POINT, buffer, null );
+    }
+
+    return toLineStrings( buffer );
+  }
+
+  /**
+   * Converts the parts of the flattened geometry to (multi) line strings.
+   * Parts with a single point are omitted, closed parts are closed with
+   * the first point.
+   *
+   * @param buffer the geometry
+   * @return the line strings or null if no part has two points
+   */
+  public static GeoGeometry toLineStrings( PathBuffer buffer ) {
+    PathBuffer lines = new PathBuffer( buffer.getPointCount() + buffer.getPartCount() );
+
+    for ( int part = 0; part < buffer.getPartCount(); part++ ) {
+      if ( buffer.getPartPointCount( part ) > 1 ) {
+        appendPart( buffer, part, buffer.isClosed( part ), lines );
+      }
+    }
+
+    if ( lines.getPartCount() == 0 ) {
+      return null;
+    }
+
+    return new GeoGeometry( ( lines.getPartCount() == 1 ) ? GeoGeometry.TYPE_LINESTRING
+                                                          : GeoGeometry.TYPE_MULTILINESTRING,
+      lines, null );
+  }
+
+  /**
+   * Converts the boundary loops of the hatch to (multi) polygons. Exterior
+   * rings are counterclockwise and holes clockwise (RFC 7946 3.1.6).
+   */
+  public GeoGeometry toPolygons( DXFHatch hatch ) {
+    PathBuffer loops = new PathBuffer();
+    PathBuffer edge = new PathBuffer();
+    Iterator i = hatch.getBoundaryLoops();
+
+    while ( i.hasNext() ) {
+      HatchBoundaryLoop loop = ( HatchBoundaryLoop ) i.next();
+      DXFGeometryConverter.addBoundaryLoop( loop, this.tolerance, loops, edge );
+    }
+
+    DXFGeometryConverter.transformOCS( hatch, loops, 0 );
+
+    int count = loops.getPartCount();
+    boolean[] valid = new boolean[ count ];
+    double[] signedAreas = new double[ count ];
+    double[] areas = new double[ count ];
+
+    for ( int x = 0; x < count; x++ ) {
+      signedAreas[ x ] = getArea( loops, x );
+      areas[ x ] = Math.abs( signedAreas[ x ] );
+      valid[ x ] = ( loops.getPartPointCount( x ) > 2 ) && ( areas[ x ] > 0.0 );
+    }
+
+    // the count of the loops containing each loop and the smallest of them
+    int[] depths = new int[ count ];
+    int[] parents = new int[ count ];
+
+    for ( int x = 0; x < count; x++ ) {
+      parents[ x ] = -1;
+
+      if ( !valid[ x ] ) {
+        continue;
+      }
+
+      int first = loops.getPartStart( x );
+      double px = loops.getX( first );
+      double py = loops.getY( first );
+
+      for ( int y = 0; y < count; y++ ) {
+        if ( ( y != x ) && valid[ y ] && contains( loops, y, px, py ) ) {
+          depths[ x ]++;
+
+          if ( ( parents[ x ] < 0 ) || ( areas[ y ] < areas[ parents[ x ] ] ) ) {
+            parents[ x ] = y;
+          }
+        }
+      }
+    }
+
+    // the shell of each hole or -1 for shells
+    int[] shells = new int[ count ];
+    int shellCount = 0;
+
+    for ( int x = 0; x < count; x++ ) {
+      shells[ x ] = -1;
+
+      if ( ( ( depths[ x ] % 2 ) == 1 ) && ( ( depths[ parents[ x ] ] % 2 ) == 0 ) ) {
+        shells[ x ] = parents[ x ];
+      } else if ( valid[ x ] ) {
+        shellCount++;
+      }
+    }
+
+    if ( shellCount == 0 ) {
+      return null;
+    }
+
+    PathBuffer rings = new PathBuffer( loops.getPointCount() + count );
+    int[] ringStarts = new int[ shellCount + 1 ];
+    int polygon = 0;
+
+    for ( int x = 0; x < count; x++ ) {
+      if ( valid[ x ] && ( shells[ x ] < 0 ) ) {
+        ringStarts[ polygon++ ] = rings.getPartCount();
+        appendRing( loops, x, signedAreas[ x ] < 0.0, rings );
+
+        for ( int y = 0; y < count; y++ ) {
+          if ( valid[ y ] && ( shells[ y ] == x ) ) {
+            appendRing( loops, y, signedAreas[ y ] > 0.0, rings );
+          }
+        }
+      }
+    }
+
+    ringStarts[ shellCount ] = rings.getPartCount();
+
+    return new GeoGeometry( ( shellCount == 1 ) ? GeoGeometry.TYPE_POLYGON
+                                                : GeoGeometry.TYPE_MULTIPOLYGON,
+      rings, ringStarts );
+  }
+
+  /**
+   * @return the resolved color of the entity as #rrggbb
+   */
+  public static String getColor( DXFEntity entity ) {
+    byte[] rgb = entity.getColorRGB();
+
+    if ( rgb != null ) {
+      return toHex( rgb[ 0 ] & 0xff, rgb[ 1 ] & 0xff, rgb[ 2 ] & 0xff );
+    }
+
+    int color = entity.getColor();
+
+    // entities without a color have the color 0, which is BYBLOCK only
+    // within an insert, on its own it is BYLAYER
+    if ( ( color == COLOR_BYBLOCK ) || ( color == COLOR_BYLAYER ) ) {
+      DXFDocument doc = entity.getDXFDocument();
+      DXFLayer layer = ( doc != null ) ? doc.getDXFLayer( entity.getLayerName() ) : null;
+      color = ( layer != null ) ? Math.abs( layer.getColor() ) : DEFAULT_COLOR;
+    }
+
+    if ( ( color <= COLOR_BYBLOCK ) || ( color >= COLOR_BYLAYER ) ) {
+      color = DEFAULT_COLOR;
+    }
+
+    return COLORS[ color ];
+  }
+
+  protected static String toHex( int r, int g, int b ) {
+    String hex = Integer.toHexString( ( 1 << 24 ) | ( r << 16 ) | ( g << 8 ) | b );
+
+    return "#" + hex.substring( 1 );
+  }
+
+  /**
+   * Appends the part to the buffer, a closed part is closed with the first
+   * point.
+   */
+  protected static void appendPart( PathBuffer source, int part, boolean close,
+                                    PathBuffer target ) {
+    int start = source.getPartStart( part );
+    int end = source.getPartEnd( part );
+    target.moveTo( source.getX( start ), source.getY( start ), source.getZ( start ) );
+
+    for ( int i = start + 1; i < end; i++ ) {
+      target.lineTo( source.getX( i ), source.getY( i ), source.getZ( i ) );
+    }
+
+    int last = end - 1;
+
+    if ( close &&
+      ( ( source.getX( last ) != source.getX( start ) ) ||
+      ( source.getY( last ) != source.getY( start ) ) ) ) {
+      target.lineTo( source.getX( start ), source.getY( start ), source.getZ( start ) );
+    }
+
+    if ( close ) {
+      target.closePart();
+    }
+  }
+
+  /**
+   * Appends the part as closed ring to the buffer.
+   *
+   * @param reverse true to append the points in reverse order
+   */
+  protected static void appendRing( PathBuffer source, int part, boolean reverse,
+                                    PathBuffer target ) {
+    if ( !reverse ) {
+      appendPart( source, part, true, target );
+
+      return;
+    }
+
+    int start = source.getPartStart( part );
+    int end = source.getPartEnd( part );
+    int last = end - 1;
+
+    // a ring closed with its first point starts with the same point
+    if ( ( last > start ) && ( source.getX( last ) == source.getX( start ) ) &&
+      ( source.getY( last ) == source.getY( start ) ) ) {
+      last--;
+    }
+
+    target.moveTo( source.getX( start ), source.getY( start ), source.getZ( start ) );
+
+    for ( int i = last; i > start; i-- ) {
+      target.lineTo( source.getX( i ), source.getY( i ), source.getZ( i ) );
+    }
+
+    target.lineTo( source.getX( start ), source.getY( start ), source.getZ( start ) );
+    target.closePart();
+  }
+
+  /**
+   * @return the signed area of the part, positive if it is counterclockwise
+   */
+  protected static double getArea( PathBuffer buffer, int part ) {
+    int start = buffer.getPartStart( part );
+    int end = buffer.getPartEnd( part );
+    double area = 0.0;
+
+    for ( int i = start, j = end - 1; i < end; j = i++ ) {
+      area += ( ( buffer.getX( j ) * buffer.getY( i ) ) -
+      ( buffer.getX( i ) * buffer.getY( j ) ) );
+    }
+
+    return area / 2;
+  }
+
+  /**
+   * @return true if the point lies inside the ring of the part (even-odd)
+   */
+  protected static boolean contains( PathBuffer buffer, int part, double x, double y ) {
+    int start = buffer.getPartStart( part );
+    int end = buffer.getPartEnd( part );
+    boolean inside = false;
+
+    for ( int i = start, j = end - 1; i < end; j = i++ ) {
+      double yi = buffer.getY( i );
+      double yj = buffer.getY( j );
+
+      if ( ( ( yi > y ) != ( yj > y ) ) &&
+        ( x < ( ( ( ( buffer.getX( j ) - buffer.getX( i ) ) * ( y - yi ) ) / ( yj - yi ) ) +
+        buffer.getX( i ) ) ) ) {
+        inside = !inside;
+      }
+    }
+
+    return inside;
+  }
+}
@@ -0,0 +1,46 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+
+package org.kabeja.geo;
+
+/**
+ * Encodes features to a text or binary format. The encoder is used by
+ * several threads at once and must not keep a state while encoding.
+ */
+public interface GeoFeatureEncoder {
+  /**
+   * @return the bytes before the first feature
+   */
+  public byte[] getHeader();
+
+  /**
+   * @return the bytes between two features
+   */
+  public byte[] getSeparator();
+
+  /**
+   * @return the bytes after the last feature
+   */
+  public byte[] getFooter();
+
+  /**
+   * @param feature the feature
+   * @param out     the buffer of the current thread
+   */
+  public void encode( GeoFeature feature, GeoOutputBuffer out );
+}
@@ -0,0 +1,83 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+
+package org.kabeja.geo;
+
+import org.kabeja.math.PathBuffer;
+
+/**
+ * A simple feature geometry. The coordinates are the parts of a path
+ * buffer: a point has one part with one point, a (multi) line string one
+ * part per line string and a (multi) polygon one part per ring. The rings
+ * are closed, the first point is repeated at the end. The rings of the
+ * polygons are given by ringStarts: polygon i has the parts from
+ * ringStarts[i] to ringStarts[i + 1] - 1, the first is the shell.
+ * <p>
+ * The type constants are the WKB geometry types.
+ * </p>
+ */
+public class GeoGeometry {
+  public final static int TYPE_POINT = 1;
+  public final static int TYPE_LINESTRING = 2;
+  public final static int TYPE_POLYGON = 3;
+  public final static int TYPE_MULTILINESTRING = 5;
+  public final static int TYPE_MULTIPOLYGON = 6;
+  private int type;
+  private PathBuffer coordinates;
+  private int[] ringStarts;
+
+  public GeoGeometry( int type, PathBuffer coordinates, int[] ringStarts ) {
+    this.type = type;
+    this.coordinates = coordinates;
+    this.ringStarts = ringStarts;
+  }
+
+  public int getType() { return this.type; }
+
+  public PathBuffer getCoordinates() { return this.coordinates; }
+
+  /**
+   * @return the count of polygons of a (multi) polygon
+   */
+  public int getPolygonCount() {
+    return ( this.ringStarts != null ) ? ( this.ringStarts.length - 1 ) : 0;
+  }
+
+  public int getRingStart( int polygon ) { return this.ringStarts[ polygon ]; }
+
+  public int getRingEnd( int polygon ) { return this.ringStarts[ polygon + 1 ]; }
+
+  public String getTypeName() {
+    switch ( this.type ) {
+      case TYPE_POINT:
+        return "Point";
+
+      case TYPE_LINESTRING:
+        return "LineString";
+
+      case TYPE_POLYGON:
+        return "Polygon";
+
+      case TYPE_MULTILINESTRING:
+        return "MultiLineString";
+
+      default:
+        return "MultiPolygon";
+    }
+  }
+}
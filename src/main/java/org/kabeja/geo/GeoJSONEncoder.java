@@ -0,0 +1,229 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+
+package org.kabeja.geo;
+
+import org.kabeja.math.PathBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes the features as GeoJSON feature collection (RFC 7946) with one
+ * feature per line. The properties are handle, type, layer and color,
+ * texts and inserts have label and rotation too.
+ * <p>
+ * The coordinates are written in the units of the drawing, a conversion
+ * to WGS 84 is not done.
+ * </p>
+ */
+public class GeoJSONEncoder implements GeoFeatureEncoder {
+  public final static int DEFAULT_PRECISION = 6;
+  private final static byte[] HEADER = "{\"type\":\"FeatureCollection\",\"features\":[\n".getBytes( StandardCharsets.US_ASCII );
+  private final static byte[] SEPARATOR = ",\n".getBytes( StandardCharsets.US_ASCII );
+  private final static byte[] FOOTER = "\n]}\n".getBytes( StandardCharsets.US_ASCII );
+  private int precision = DEFAULT_PRECISION;
+  private boolean threeDimensional = false;
+
+  /**
+   * @param precision the count of fraction digits of the coordinates
+   */
+  public void setPrecision( int precision ) {
+    this.precision = Math.max( 0, Math.min( precision, 9 ) );
+  }
+
+  /**
+   * @param threeDimensional true to write the z coordinates
+   */
+  public void setThreeDimensional( boolean threeDimensional ) {
+    this.threeDimensional = threeDimensional;
+  }
+
+  public byte[] getHeader() { return HEADER; }
+
+  public byte[] getSeparator() { return SEPARATOR; }
+
+  public byte[] getFooter() { return FOOTER; }
+
+  public void encode( GeoFeature feature, GeoOutputBuffer out ) {
+    out.writeASCII( "{\"type\":\"Feature\",\"geometry\":" );
+    this.encodeGeometry( feature.getGeometry(), out );
+    out.writeASCII( ",\"properties\":{\"handle\":" );
+    writeString( feature.getHandle(), out );
+    out.writeASCII( ",\"type\":" );
+    writeString( feature.getType(), out );
+    out.writeASCII( ",\"layer\":" );
+    writeString( feature.getLayer(), out );
+    out.writeASCII( ",\"color\":" );
+    writeString( feature.getColor(), out );
+
+    if ( feature.getLabel() != null ) {
+      out.writeASCII( ",\"label\":" );
+      writeString( feature.getLabel(), out );
+      out.writeASCII( ",\"rotation\":" );
+      out.writeNumber( feature.getRotation(), this.precision );
+    }
+
+    out.writeASCII( "}}" );
+  }
+
+  protected void encodeGeometry( GeoGeometry geometry, GeoOutputBuffer out ) {
+    PathBuffer coordinates = geometry.getCoordinates();
+    out.writeASCII( "{\"type\":\"" );
+    out.writeASCII( geometry.getTypeName() );
+    out.writeASCII( "\",\"coordinates\":" );
+
+    switch ( geometry.getType() ) {
+      case GeoGeometry.TYPE_POINT:
+        this.writePosition( coordinates, 0, out );
+
+        break;
+
+      case GeoGeometry.TYPE_LINESTRING:
+        this.writePart( coordinates, 0, out );
+
+        break;
+
+      case GeoGeometry.TYPE_MULTILINESTRING:
+        this.writeParts( coordinates, 0, coordinates.getPartCount(), out );
+
+        break;
+
+      case GeoGeometry.TYPE_POLYGON:
+        this.writeParts( coordinates, geometry.getRingStart( 0 ), geometry.getRingEnd( 0 ), out );
+
+        break;
+
+      default:
+        out.write( '[' );
+
+        for ( int i = 0; i < geometry.getPolygonCount(); i++ ) {
+          if ( i > 0 ) {
+            out.write( ',' );
+          }
+
+          this.writeParts( coordinates, geometry.getRingStart( i ),
+            geometry.getRingEnd( i ), out );
+        }
+
+        out.write( ']' );
+    }
+
+    out.write( '}' );
+  }
+
+  protected void writeParts( PathBuffer coordinates, int start, int end,
+                             GeoOutputBuffer out ) {
+    out.write( '[' );
+
+    for ( int part = start; part < end; part++ ) {
+      if ( part > start ) {
+        out.write( ',' );
+      }
+
+      this.writePart( coordinates, part, out );
+    }
+
+    out.write( ']' );
+  }
+
+  protected void writePart( PathBuffer coordinates, int part, GeoOutputBuffer out ) {
+    int end = coordinates.getPartEnd( part );
+    out.write( '[' );
+
+    for ( int i = coordinates.getPartStart( part ); i < end; i++ ) {
+      if ( i > coordinates.getPartStart( part ) ) {
+        out.write( ',' );
+      }
+
+      this.writePosition( coordinates, i, out );
+    }
+
+    out.write( ']' );
+  }
+
+  protected void writePosition( PathBuffer coordinates, int point, GeoOutputBuffer out ) {
+    out.write( '[' );
+    out.writeNumber( coordinates.getX( point ), this.precision );
+    out.write( ',' );
+    out.writeNumber( coordinates.getY( point ), this.precision );
+
+    if ( this.threeDimensional ) {
+      out.write( ',' );
+      out.writeNumber( coordinates.getZ( point ), this.precision );
+    }
+
+    out.write( ']' );
+  }
+
+  /**
+   * Writes the string as JSON string or null.
+   */
+  protected static void writeString( String s, GeoOutputBuffer out ) {
+    if ( s == null ) {
+      out.writeASCII( "null" );
+
+      return;
+    }
+
+    StringBuilder buf = new StringBuilder( s.length() + 2 );
+    buf.append( '"' );
+
+    for ( int i = 0; i < s.length(); i++ ) {
+      char c = s.charAt( i );
+
+      switch ( c ) {
+        case '"':
+          buf.append( "\\\"" );
+
+          break;
+
+        case '\\':
+          buf.append( "\\\\" );
+
+          break;
+
+        case '\n':
+          buf.append( "\\n" );
+
+          break;
+
+        case '\r':
+          buf.append( "\\r" );
+
+          break;
+
+        case '\t':
+          buf.append( "\\t" );
+
+          break;
+
+        default:
+
+          if ( c < 0x20 ) {
+            buf.append( "\\u00" );
+            buf.append( Character.forDigit( c >> 4, 16 ) );
+            buf.append( Character.forDigit( c & 0xf, 16 ) );
+          } else {
+            buf.append( c );
+          }
+      }
+    }
+
+    buf.append( '"' );
+    out.writeUTF8( buf.toString() );
+  }
+}
@@ -0,0 +1,94 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+
+package org.kabeja.geo;
+
+import org.kabeja.tools.DoubleFormatter;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A growing byte buffer for the encoded features of a batch with helpers
+ * for text, numbers and hex. Each encoding thread has its own buffer.
+ */
+public class GeoOutputBuffer extends ByteArrayOutputStream {
+  private final static byte[] HEX = "0123456789ABCDEF".getBytes( StandardCharsets.US_ASCII );
+  private final static double[] POW10 = new double[ 10 ];
+
+  static {
+    POW10[ 0 ] = 1.0;
+
+    for ( int i = 1; i < POW10.length; i++ ) {
+      POW10[ i ] = POW10[ i - 1 ] * 10.0;
+    }
+  }
+
+  private byte[] number = new byte[ DoubleFormatter.MAX_LENGTH ];
+
+  public GeoOutputBuffer( int size ) {
+    super( size );
+  }
+
+  public void write( byte[] b ) {
+    this.write( b, 0, b.length );
+  }
+
+  /**
+   * Writes the characters of an ASCII string.
+   */
+  public void writeASCII( String s ) {
+    int length = s.length();
+
+    for ( int i = 0; i < length; i++ ) {
+      this.write( s.charAt( i ) );
+    }
+  }
+
+  public void writeUTF8( String s ) {
+    this.write( s.getBytes( StandardCharsets.UTF_8 ) );
+  }
+
+  /**
+   * Writes the value rounded to the count of fraction digits, trailing
+   * zeros are omitted.
+   */
+  public void writeNumber( double value, int fractionDigits ) {
+    int length;
+
+    if ( Double.isNaN( value ) || Double.isInfinite( value ) ) {
+      length = DoubleFormatter.formatLong( 0, this.number, 0 );
+    } else if ( Math.abs( value * POW10[ fractionDigits ] ) < Long.MAX_VALUE ) {
+      length = DoubleFormatter.formatScaled( Math.round( value * POW10[ fractionDigits ] ),
+          fractionDigits, this.number, 0 );
+    } else {
+      length = DoubleFormatter.format( value, this.number, 0 );
+    }
+
+    this.write( this.number, 0, length );
+  }
+
+  /**
+   * Writes the bytes as upper case hex text.
+   */
+  public void writeHex( byte[] b ) {
+    for ( int i = 0; i < b.length; i++ ) {
+      this.write( HEX[ ( b[ i ] >> 4 ) & 0xf ] );
+      this.write( HEX[ b[ i ] & 0xf ] );
+    }
+  }
+}
@@ -0,0 +1,237 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+
+package org.kabeja.geo;
+
+import org.kabeja.math.PathBuffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Encodes the features as rows of the PostgreSQL COPY text format with the
+ * geometry as hex EWKB, which PostGIS reads directly:
+ * <pre>
+ * COPY plan (handle, type, layer, color, label, geom) FROM STDIN;
+ * </pre>
+ * The label is the text of texts and the block name of inserts, otherwise
+ * NULL. The static toWKB() creates the binary (E)WKB for other clients.
+ */
+public class WKBEncoder implements GeoFeatureEncoder {
+  private final static byte[] EMPTY = new byte[ 0 ];
+  private final static int EWKB_Z = 0x80000000;
+  private final static int EWKB_SRID = 0x20000000;
+  private int srid = 0;
+  private boolean threeDimensional = false;
+
+  /**
+   * @param srid the spatial reference ID of the geometries, 0 for none
+   */
+  public void setSRID( int srid ) { this.srid = srid; }
+
+  /**
+   * @param threeDimensional true to write the z coordinates
+   */
+  public void setThreeDimensional( boolean threeDimensional ) {
+    this.threeDimensional = threeDimensional;
+  }
+
+  public byte[] getHeader() { return EMPTY; }
+
+  public byte[] getSeparator() { return EMPTY; }
+
+  public byte[] getFooter() { return EMPTY; }
+
+  public void encode( GeoFeature feature, GeoOutputBuffer out ) {
+    writeCopyText( feature.getHandle(), out );
+    out.write( '\t' );
+    writeCopyText( feature.getType(), out );
+    out.write( '\t' );
+    writeCopyText( feature.getLayer(), out );
+    out.write( '\t' );
+    writeCopyText( feature.getColor(), out );
+    out.write( '\t' );
+    writeCopyText( feature.getLabel(), out );
+    out.write( '\t' );
+    out.writeHex( toWKB( feature.getGeometry(), this.srid, this.threeDimensional ) );
+    out.write( '\n' );
+  }
+
+  /**
+   * Creates the little endian WKB of the geometry, with a SRID or z
+   * coordinates the PostGIS EWKB.
+   *
+   * @param geometry         the geometry
+   * @param srid             the spatial reference ID or 0
+   * @param threeDimensional true to write the z coordinates
+   * @return the bytes
+   */
+  public static byte[] toWKB( GeoGeometry geometry, int srid, boolean threeDimensional ) {
+    PathBuffer coordinates = geometry.getCoordinates();
+    int dimension = threeDimensional ? 3 : 2;
+    int size = getSize( geometry, dimension ) + ( ( srid != 0 ) ? 4 : 0 );
+    ByteBuffer buffer = ByteBuffer.allocate( size ).order( ByteOrder.LITTLE_ENDIAN );
+    int flags = threeDimensional ? EWKB_Z : 0;
+    putHeader( buffer, geometry.getType(), flags | ( ( srid != 0 ) ? EWKB_SRID : 0 ) );
+
+    if ( srid != 0 ) {
+      buffer.putInt( srid );
+    }
+
+    switch ( geometry.getType() ) {
+      case GeoGeometry.TYPE_POINT:
+        putPoint( buffer, coordinates, 0, dimension );
+
+        break;
+
+      case GeoGeometry.TYPE_LINESTRING:
+        putPart( buffer, coordinates, 0, dimension );
+
+        break;
+
+      case GeoGeometry.TYPE_MULTILINESTRING:
+        buffer.putInt( coordinates.getPartCount() );
+
+        for ( int part = 0; part < coordinates.getPartCount(); part++ ) {
+          putHeader( buffer, GeoGeometry.TYPE_LINESTRING, flags );
+          putPart( buffer, coordinates, part, dimension );
+        }
+
+        break;
+
+      case GeoGeometry.TYPE_POLYGON:
+        putRings( buffer, geometry, 0, dimension );
+
+        break;
+
+      default:
+        buffer.putInt( geometry.getPolygonCount() );
+
+        for ( int i = 0; i < geometry.getPolygonCount(); i++ ) {
+          putHeader( buffer, GeoGeometry.TYPE_POLYGON, flags );
+          putRings( buffer, geometry, i, dimension );
+        }
+    }
+
+    return buffer.array();
+  }
+
+  protected static int getSize( GeoGeometry geometry, int dimension ) {
+    PathBuffer coordinates = geometry.getCoordinates();
+    int header = 5;
+
+    switch ( geometry.getType() ) {
+      case GeoGeometry.TYPE_POINT:
+        return header + ( dimension * 8 );
+
+      case GeoGeometry.TYPE_LINESTRING:
+      case GeoGeometry.TYPE_POLYGON:
+        return header + 4 + ( coordinates.getPartCount() * 4 ) +
+        ( coordinates.getPointCount() * dimension * 8 ) -
+        ( ( geometry.getType() == GeoGeometry.TYPE_LINESTRING ) ? 4 : 0 );
+
+      case GeoGeometry.TYPE_MULTILINESTRING:
+        return header + 4 + ( coordinates.getPartCount() * ( header + 4 ) ) +
+        ( coordinates.getPointCount() * dimension * 8 );
+
+      default:
+        return header + 4 + ( geometry.getPolygonCount() * ( header + 4 ) ) +
+        ( coordinates.getPartCount() * 4 ) + ( coordinates.getPointCount() * dimension * 8 );
+    }
+  }
+
+  protected static void putHeader( ByteBuffer buffer, int type, int flags ) {
+    // little endian
+    buffer.put( ( byte ) 1 );
+    buffer.putInt( type | flags );
+  }
+
+  protected static void putRings( ByteBuffer buffer, GeoGeometry geometry, int polygon,
+                                  int dimension ) {
+    int start = geometry.getRingStart( polygon );
+    int end = geometry.getRingEnd( polygon );
+    buffer.putInt( end - start );
+
+    for ( int part = start; part < end; part++ ) {
+      putPart( buffer, geometry.getCoordinates(), part, dimension );
+    }
+  }
+
+  protected static void putPart( ByteBuffer buffer, PathBuffer coordinates, int part,
+                                 int dimension ) {
+    int end = coordinates.getPartEnd( part );
+    buffer.putInt( end - coordinates.getPartStart( part ) );
+
+    for ( int i = coordinates.getPartStart( part ); i < end; i++ ) {
+      putPoint( buffer, coordinates, i, dimension );
+    }
+  }
+
+  protected static void putPoint( ByteBuffer buffer, PathBuffer coordinates, int point,
+                                  int dimension ) {
+    buffer.putDouble( coordinates.getX( point ) );
+    buffer.putDouble( coordinates.getY( point ) );
+
+    if ( dimension == 3 ) {
+      buffer.putDouble( coordinates.getZ( point ) );
+    }
+  }
+
+  /**
+   * Writes the text escaped for the COPY text format or \N for null.
+   */
+  protected static void writeCopyText( String s, GeoOutputBuffer out ) {
+    if ( s == null ) {
+      out.writeASCII( "\\N" );
+
+      return;
+    }
+
+    StringBuilder buf = new StringBuilder( s.length() );
+
+    for ( int i = 0; i < s.length(); i++ ) {
+      char c = s.charAt( i );
+
+      switch ( c ) {
+        case '\\':
+          buf.append( "\\\\" );
+
+          break;
+
+        case '\t':
+          buf.append( "\\t" );
+
+          break;
+
+        case '\n':
+          buf.append( "\\n" );
+
+          break;
+
+        case '\r':
+          buf.append( "\\r" );
+
+          break;
+
+        default:
+          buf.append( c );
+      }
+    }
+
+    out.writeUTF8( buf.toString() );
+  }
+}
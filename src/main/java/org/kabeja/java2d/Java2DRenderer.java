@@ -0,0 +1,731 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package org.kabeja.java2d;
+
+import org.kabeja.dxf.DXFBlock;
+import org.kabeja.dxf.DXFColor;
+import org.kabeja.dxf.DXFConstants;
+import org.kabeja.dxf.DXFDimension;
+import org.kabeja.dxf.DXFDocument;
+import org.kabeja.dxf.DXFEntity;
+import org.kabeja.dxf.DXFHatch;
+import org.kabeja.dxf.DXFInsert;
+import org.kabeja.dxf.DXFLayer;
+import org.kabeja.math.AffineTransform3D;
+import org.kabeja.math.LODPath;
+import org.kabeja.math.PathBuffer;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringTokenizer;
+
+/**
+ * Renders the model space of a document with Java2D. The entities are
+ * converted once to shapes in world coordinates, inserts are expanded with
+ * the shapes of their blocks. The shapes are indexed in a grid, so a
+ * window or tile only draws the shapes, which intersect it.
+ * <p>
+ * With the level of detail a shape with many points is simplified to the
+ * pixel size of the window and a shape smaller than a pixel is drawn as a
+ * dot, so an overview costs about the count of pixels and not the count of
+ * points. The levels of a shape are built on its first coarse rendering.
+ * </p>
+ * <p>
+ * After the construction the renderer is only read, so windows and tiles
+ * can be rendered from several threads. It runs headless.
+ * </p>
+ */
+public class Java2DRenderer {
+  public final static int DEFAULT_TILE_SIZE = 256;
+  private final static int GRID_SIZE = 256;
+
+  // items covering more cells are tested for every window
+  private final static int MAX_ITEM_CELLS = 64;
+
+  // shapes with fewer points are always drawn exact
+  private final static int MIN_LOD_POINTS = 32;
+  private final static int COLOR_BYBLOCK = 0;
+  private final static int COLOR_BYLAYER = 256;
+  private final static Color DEFAULT_COLOR = Color.BLACK;
+  protected DXFDocument doc;
+  protected Java2DShapeConverter converter;
+  protected Color background;
+  protected float lineWidth = 1.0f;
+  protected boolean levelOfDetail = true;
+  protected Color[] colors = new Color[ 257 ];
+  protected Map blocks = new HashMap();
+  protected Set activeBlocks = new HashSet();
+  protected List itemList = new ArrayList();
+  protected RenderItem[] items;
+  protected Rectangle2D extent;
+
+  // the grid index: the items of cell i are cellItems[cellStarts[i]] to
+  // cellItems[cellStarts[i + 1] - 1]
+  protected int[] cellStarts;
+  protected int[] cellItems;
+  protected int[] largeItems;
+  protected double cellWidth;
+  protected double cellHeight;
+
+  public Java2DRenderer( DXFDocument doc ) {
+    this( doc, new Java2DShapeConverter() );
+  }
+
+  public Java2DRenderer( DXFDocument doc, Java2DShapeConverter converter ) {
+    this.doc = doc;
+    this.converter = converter;
+    this.prepare();
+  }
+
+  /**
+   * @param background the background color or null for transparent images
+   */
+  public void setBackground( Color background ) { this.background = background; }
+
+  /**
+   * @param lineWidth the width of the lines in pixel
+   */
+  public void setLineWidth( float lineWidth ) { this.lineWidth = lineWidth; }
+
+  /**
+   * @param levelOfDetail false to draw all shapes exact at every scale
+   */
+  public void setLevelOfDetail( boolean levelOfDetail ) {
+    this.levelOfDetail = levelOfDetail;
+  }
+
+  /**
+   * @return the bounds of all shapes
+   */
+  public Rectangle2D getExtent() { return ( Rectangle2D ) this.extent.clone(); }
+
+  public int getItemCount() { return this.items.length; }
+
+  protected void prepare() {
+    List names = new ArrayList();
+    Iterator i = this.doc.getDXFLayerIterator();
+
+    while ( i.hasNext() ) {
+      DXFLayer layer = ( DXFLayer ) i.next();
+
+      if ( isShown( layer ) ) {
+        names.add( layer.getName() );
+      }
+    }
+
+    Collections.sort( names );
+
+    for ( int n = 0; n < names.size(); n++ ) {
+      DXFLayer layer = this.doc.getDXFLayer( ( String ) names.get( n ) );
+      List types = new ArrayList();
+      Iterator t = layer.getDXFEntityTypeIterator();
+
+      while ( t.hasNext() ) {
+        types.add( t.next() );
+      }
+
+      Collections.sort( types );
+
+      for ( int x = 0; x < types.size(); x++ ) {
+        List entities = layer.getDXFEntities( ( String ) types.get( x ) );
+
+        for ( int e = 0; e < entities.size(); e++ ) {
+          DXFEntity entity = ( DXFEntity ) entities.get( e );
+
+          if ( entity.isModelSpace() && entity.isVisibile() ) {
+            this.addEntity( entity, null, null );
+          }
+        }
+      }
+    }
+
+    this.items = ( RenderItem[] ) this.itemList.toArray( new RenderItem[ this.itemList.size() ] );
+    this.itemList = null;
+    this.blocks = null;
+    this.buildIndex();
+  }
+
+  /**
+   * Adds the items of the entity.
+   *
+   * @param entity    the entity
+   * @param transform the transformation of the block instance or null
+   * @param byBlock   the color of the insert for BYBLOCK colors
+   */
+  protected void addEntity( DXFEntity entity, AffineTransform transform,
+                            Color byBlock ) {
+    if ( entity instanceof DXFInsert ) {
+      DXFInsert insert = ( DXFInsert ) entity;
+      Color color = this.getColor( entity, byBlock );
+      int rows = Math.max( insert.getRows(), 1 );
+      int columns = Math.max( insert.getColumns(), 1 );
+
+      for ( int r = 0; r < rows; r++ ) {
+        for ( int c = 0; c < columns; c++ ) {
+          this.addBlock( insert.getBlockID(),
+            insert.getTransform( r, c, new AffineTransform3D() ), transform, color );
+        }
+      }
+    } else if ( entity instanceof DXFDimension ) {
+      DXFDimension dimension = ( DXFDimension ) entity;
+      this.addBlock( dimension.getDimensionBlock(),
+        dimension.getTransform( new AffineTransform3D() ), transform,
+        this.getColor( entity, byBlock ) );
+    } else {
+      RenderItem item = this.createItem( entity, byBlock );
+
+      if ( item != null ) {
+        if ( item.color == null ) {
+          item.color = DEFAULT_COLOR;
+        }
+
+        this.itemList.add( item );
+      }
+    }
+  }
+
+  protected void addBlock( String name, AffineTransform3D blockTransform,
+                           AffineTransform transform, Color color ) {
+    BlockItems block = this.getBlockItems( name );
+
+    if ( ( block == null ) || !this.activeBlocks.add( name ) ) {
+      // unknown block or a recursive reference
+      return;
+    }
+
+    AffineTransform t = Java2DShapeCache.toAffineTransform( blockTransform );
+
+    if ( transform != null ) {
+      t.preConcatenate( transform );
+    }
+
+    for ( int i = 0; i < block.items.size(); i++ ) {
+      RenderItem item = ( ( RenderItem ) block.items.get( i ) ).copy();
+      item.transform( t );
+
+      if ( item.color == null ) {
+        item.color = ( color != null ) ? color : DEFAULT_COLOR;
+      }
+
+      this.itemList.add( item );
+    }
+
+    for ( int i = 0; i < block.references.size(); i++ ) {
+      this.addEntity( ( DXFEntity ) block.references.get( i ), t, color );
+    }
+
+    this.activeBlocks.remove( name );
+  }
+
+  /**
+   * @return the items of the block in block coordinates, which are
+   *         converted once for all inserts
+   */
+  protected BlockItems getBlockItems( String name ) {
+    BlockItems items = ( BlockItems ) this.blocks.get( name );
+    DXFBlock block = this.doc.getDXFBlock( name );
+
+    if ( ( items == null ) && ( block != null ) ) {
+      items = new BlockItems();
+
+      Iterator i = block.getDXFEntitiesIterator();
+
+      while ( i.hasNext() ) {
+        DXFEntity entity = ( DXFEntity ) i.next();
+
+        // entities on layer 0 are shown with the layer of the insert
+        if ( !entity.isVisibile() ||
+          ( !DXFConstants.DEFAULT_LAYER.equals( entity.getLayerName() ) &&
+          !isShown( this.doc.getDXFLayer( entity.getLayerName() ) ) ) ) {
+          continue;
+        } else if ( ( entity instanceof DXFInsert ) ||
+          ( entity instanceof DXFDimension ) ) {
+          items.references.add( entity );
+        } else {
+          RenderItem item = this.createItem( entity, null );
+
+          if ( item != null ) {
+            items.items.add( item );
+          }
+        }
+      }
+
+      this.blocks.put( name, items );
+    }
+
+    return items;
+  }
+
+  /**
+   * @return false if the layer is off or frozen
+   */
+  protected static boolean isShown( DXFLayer layer ) {
+    return layer.isVisible() && !layer.isFrozen();
+  }
+
+  protected RenderItem createItem( DXFEntity entity, Color byBlock ) {
+    Shape shape = this.converter.toShape( entity );
+
+    if ( shape == null ) {
+      return null;
+    }
+
+    RenderItem item = new RenderItem();
+    item.shape = shape;
+    item.color = this.getColor( entity, byBlock );
+    item.filled = this.converter.isFilled( entity );
+
+    if ( entity instanceof DXFHatch ) {
+      DXFHatch hatch = ( DXFHatch ) entity;
+      Shape lines = this.converter.toHatchLines( hatch,
+          this.doc.getDXFHatchPattern( hatch.getDXFHatchPatternID() ) );
+
+      if ( lines != null ) {
+        item.clip = shape;
+        item.shape = lines;
+      }
+    }
+
+    return item;
+  }
+
+  /**
+   * The color 0 is BYBLOCK inside a block, but it is also the color of
+   * entities without a color, so outside of a block it is BYLAYER.
+   *
+   * @return the color of the entity, BYLAYER and BYBLOCK resolved, null
+   *         if the color is inherited from an unknown insert
+   */
+  protected Color getColor( DXFEntity entity, Color byBlock ) {
+    byte[] rgb = entity.getColorRGB();
+
+    if ( rgb != null ) {
+      return new Color( rgb[ 0 ] & 0xff, rgb[ 1 ] & 0xff, rgb[ 2 ] & 0xff );
+    }
+
+    int color = entity.getColor();
+
+    if ( entity.isBlockEntity() &&
+      ( ( color == COLOR_BYBLOCK ) ||
+      ( ( color == COLOR_BYLAYER ) &&
+      DXFConstants.DEFAULT_LAYER.equals( entity.getLayerName() ) ) ) ) {
+      // entities on layer 0 of a block take the color of the insert
+      return byBlock;
+    } else if ( ( color == COLOR_BYBLOCK ) || ( color == COLOR_BYLAYER ) ) {
+      color = Math.abs( this.doc.getDXFLayer( entity.getLayerName() ).getColor() );
+    }
+
+    return this.getColor( color );
+  }
+
+  /**
+   * @return the color of the color index
+   */
+  public Color getColor( int color ) {
+    if ( ( color <= 0 ) || ( color >= this.colors.length ) ) {
+      return DEFAULT_COLOR;
+    }
+
+    if ( this.colors[ color ] == null ) {
+      StringTokenizer st = new StringTokenizer( DXFColor.getRGBString( color ), "," );
+      this.colors[ color ] = new Color( Integer.parseInt( st.nextToken() ),
+          Integer.parseInt( st.nextToken() ), Integer.parseInt( st.nextToken() ) );
+    }
+
+    return this.colors[ color ];
+  }
+
+  protected void buildIndex() {
+    this.extent = null;
+
+    for ( int i = 0; i < this.items.length; i++ ) {
+      Rectangle2D b = this.items[ i ].getBounds();
+
+      if ( this.extent == null ) {
+        this.extent = ( Rectangle2D ) b.clone();
+      } else {
+        this.extent.add( b );
+      }
+    }
+
+    if ( this.extent == null ) {
+      this.extent = new Rectangle2D.Double( 0.0, 0.0, 1.0, 1.0 );
+    }
+
+    this.cellWidth = Math.max( this.extent.getWidth() / GRID_SIZE, Double.MIN_VALUE );
+    this.cellHeight = Math.max( this.extent.getHeight() / GRID_SIZE, Double.MIN_VALUE );
+
+    // count the items per cell, then fill the cells
+    int[] counts = new int[ ( GRID_SIZE * GRID_SIZE ) + 1 ];
+    int[] range = new int[ 4 ];
+    int large = 0;
+
+    for ( int i = 0; i < this.items.length; i++ ) {
+      if ( this.getCellRange( this.items[ i ].getBounds(), range ) ) {
+        for ( int y = range[ 1 ]; y <= range[ 3 ]; y++ ) {
+          for ( int x = range[ 0 ]; x <= range[ 2 ]; x++ ) {
+            counts[ ( y * GRID_SIZE ) + x + 1 ]++;
+          }
+        }
+      } else {
+        large++;
+      }
+    }
+
+    for ( int i = 1; i < counts.length; i++ ) {
+      counts[ i ] += counts[ i - 1 ];
+    }
+
+    this.cellStarts = counts;
+    this.cellItems = new int[ counts[ counts.length - 1 ] ];
+    this.largeItems = new int[ large ];
+
+    int[] fill = new int[ GRID_SIZE * GRID_SIZE ];
+    large = 0;
+
+    for ( int i = 0; i < this.items.length; i++ ) {
+      if ( this.getCellRange( this.items[ i ].getBounds(), range ) ) {
+        for ( int y = range[ 1 ]; y <= range[ 3 ]; y++ ) {
+          for ( int x = range[ 0 ]; x <= range[ 2 ]; x++ ) {
+            int cell = ( y * GRID_SIZE ) + x;
+            this.cellItems[ this.cellStarts[ cell ] + fill[ cell ]++ ] = i;
+          }
+        }
+      } else {
+        this.largeItems[ large++ ] = i;
+      }
+    }
+  }
+
+  /**
+   * Calculates the cells (minX, minY, maxX, maxY) covered by the bounds.
+   *
+   * @return false if the bounds covers too many cells
+   */
+  protected boolean getCellRange( Rectangle2D b, int[] range ) {
+    range[ 0 ] = this.getCell( b.getMinX() - this.extent.getMinX(), this.cellWidth );
+    range[ 1 ] = this.getCell( b.getMinY() - this.extent.getMinY(), this.cellHeight );
+    range[ 2 ] = this.getCell( b.getMaxX() - this.extent.getMinX(), this.cellWidth );
+    range[ 3 ] = this.getCell( b.getMaxY() - this.extent.getMinY(), this.cellHeight );
+
+    return ( ( ( range[ 2 ] - range[ 0 ] ) + 1 ) * ( ( range[ 3 ] - range[ 1 ] ) + 1 ) ) <= MAX_ITEM_CELLS;
+  }
+
+  protected int getCell( double offset, double size ) {
+    return Math.max( 0, Math.min( ( int ) ( offset / size ), GRID_SIZE - 1 ) );
+  }
+
+  /**
+   * @return the indices of the items, which can intersect the window
+   */
+  protected BitSet query( Rectangle2D window ) {
+    BitSet result = new BitSet( this.items.length );
+
+    if ( window.intersects( this.extent ) ) {
+      int[] range = new int[ 4 ];
+      this.getCellRange( window, range );
+
+      for ( int y = range[ 1 ]; y <= range[ 3 ]; y++ ) {
+        for ( int x = range[ 0 ]; x <= range[ 2 ]; x++ ) {
+          int cell = ( y * GRID_SIZE ) + x;
+
+          for ( int i = this.cellStarts[ cell ]; i < this.cellStarts[ cell + 1 ]; i++ ) {
+            result.set( this.cellItems[ i ] );
+          }
+        }
+      }
+
+      for ( int i = 0; i < this.largeItems.length; i++ ) {
+        result.set( this.largeItems[ i ] );
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Renders the window of the world coordinates into a new image.
+   *
+   * @param window the window in world coordinates
+   * @param width  the width of the image
+   * @param height the height of the image
+   * @return the image
+   */
+  public BufferedImage render( Rectangle2D window, int width, int height ) {
+    BufferedImage image = new BufferedImage( width, height,
+        BufferedImage.TYPE_INT_ARGB );
+    Graphics2D g = image.createGraphics();
+
+    try {
+      this.render( g, window, width, height );
+    } finally {
+      g.dispose();
+    }
+
+    return image;
+  }
+
+  /**
+   * Renders the window of the world coordinates into the area (0,0,width,
+   * height) of the graphics.
+   */
+  public void render( Graphics2D g, Rectangle2D window, int width, int height ) {
+    if ( this.background != null ) {
+      g.setColor( this.background );
+      g.fillRect( 0, 0, width, height );
+    }
+
+    double sx = width / window.getWidth();
+    double sy = height / window.getHeight();
+    AffineTransform t = new AffineTransform( sx, 0.0, 0.0, -sy,
+        -window.getMinX() * sx, window.getMaxY() * sy );
+    g.setRenderingHint( RenderingHints.KEY_ANTIALIASING,
+      RenderingHints.VALUE_ANTIALIAS_ON );
+    g.setRenderingHint( RenderingHints.KEY_STROKE_CONTROL,
+      RenderingHints.VALUE_STROKE_PURE );
+    g.transform( t );
+    g.setStroke( new BasicStroke( ( float ) ( this.lineWidth / Math.min( sx, sy ) ) ) );
+
+    Shape clip = g.getClip();
+    BitSet candidates = this.query( window );
+    double pixel = 1.0 / Math.min( sx, sy );
+    double dot = pixel * Math.max( this.lineWidth, 1.0f );
+
+    for ( int i = candidates.nextSetBit( 0 ); i >= 0;
+      i = candidates.nextSetBit( i + 1 ) ) {
+      RenderItem item = this.items[ i ];
+
+      if ( !item.getBounds().intersects( window ) ) {
+        continue;
+      }
+
+      g.setColor( item.color );
+
+      Shape shape = item.shape;
+
+      if ( this.levelOfDetail ) {
+        Rectangle2D b = item.getBounds();
+
+        if ( Math.max( b.getWidth(), b.getHeight() ) <= pixel ) {
+          g.fill( new Rectangle2D.Double( b.getCenterX() - ( dot / 2 ),
+              b.getCenterY() - ( dot / 2 ), dot, dot ) );
+
+          continue;
+        }
+
+        shape = item.getShape( pixel / 2, this.converter.getTolerance() );
+      }
+
+      if ( item.clip != null ) {
+        g.clip( item.clip );
+        g.draw( shape );
+        g.setClip( clip );
+      } else if ( item.filled ) {
+        g.fill( shape );
+      } else {
+        g.draw( shape );
+      }
+    }
+  }
+
+  /**
+   * @return the size of the square, which is the tile of zoom level 0
+   */
+  public double getTileExtent() {
+    return Math.max( this.extent.getWidth(), this.extent.getHeight() );
+  }
+
+  /**
+   * Calculates the window of an XYZ tile. The tile 0/0/0 is the square
+   * over the extent with the upper left corner at the upper left corner of
+   * the extent, y counts downwards.
+   *
+   * @return the window in world coordinates
+   */
+  public Rectangle2D getTileWindow( int z, int x, int y ) {
+    double size = this.getTileExtent() / ( 1L << z );
+
+    return new Rectangle2D.Double( this.extent.getMinX() + ( x * size ),
+      this.extent.getMaxY() - ( ( y + 1 ) * size ), size, size );
+  }
+
+  public BufferedImage renderTile( int z, int x, int y, int tileSize ) {
+    return this.render( this.getTileWindow( z, x, y ), tileSize, tileSize );
+  }
+
+  /**
+   * The converted entities of a block and the inserts and dimensions in the
+   * block.
+   */
+  protected static class BlockItems {
+    protected List items = new ArrayList();
+    protected List references = new ArrayList();
+  }
+
+  /**
+   * A shape with its color, hatch patterns are clipped with the boundary.
+   */
+  protected static class RenderItem {
+    protected Shape shape;
+    protected Shape clip;
+    protected Color color;
+    protected boolean filled;
+    private Rectangle2D bounds;
+
+    // the levels of detail, built on demand by any rendering thread
+    private volatile LevelShapes levels;
+
+    protected RenderItem copy() {
+      RenderItem item = new RenderItem();
+      item.shape = this.shape;
+      item.clip = this.clip;
+      item.color = this.color;
+      item.filled = this.filled;
+
+      return item;
+    }
+
+    protected void transform( AffineTransform t ) {
+      this.shape = t.createTransformedShape( this.shape );
+
+      if ( this.clip != null ) {
+        this.clip = t.createTransformedShape( this.clip );
+      }
+    }
+
+    /**
+     * Returns the shape for the tolerance, the coarsest level with a
+     * tolerance not larger than the given tolerance.
+     *
+     * @param tolerance    the allowed deviation in world coordinates
+     * @param minTolerance the tolerance of the first level
+     */
+    protected Shape getShape( double tolerance, double minTolerance ) {
+      if ( tolerance < minTolerance ) {
+        return this.shape;
+      }
+
+      LevelShapes l = this.levels;
+
+      if ( l == null ) {
+        l = new LevelShapes( this.shape, minTolerance );
+        this.levels = l;
+      }
+
+      return ( l.path == null ) ? this.shape
+                                : l.shapes[ l.path.getLevelIndex( tolerance ) ];
+    }
+
+    protected Rectangle2D getBounds() {
+      if ( this.bounds == null ) {
+        this.bounds = ( this.clip != null ) ? this.clip.getBounds2D()
+                                            : this.shape.getBounds2D();
+      }
+
+      return this.bounds;
+    }
+  }
+
+  /**
+   * The simplified shapes of a shape, level 0 is the shape itself. A shape
+   * with few points has no levels.
+   */
+  protected static class LevelShapes {
+    protected LODPath path;
+    protected Shape[] shapes;
+
+    protected LevelShapes( Shape shape, double minTolerance ) {
+      PathBuffer buffer = new PathBuffer();
+      PathIterator i = shape.getPathIterator( null, minTolerance );
+      double[] c = new double[ 6 ];
+      double moveX = 0.0;
+      double moveY = 0.0;
+      boolean closed = false;
+
+      while ( !i.isDone() ) {
+        switch ( i.currentSegment( c ) ) {
+          case PathIterator.SEG_MOVETO:
+            buffer.moveTo( c[ 0 ], c[ 1 ], 0.0 );
+            moveX = c[ 0 ];
+            moveY = c[ 1 ];
+            closed = false;
+
+            break;
+
+          case PathIterator.SEG_LINETO:
+
+            // a line after a close starts at the last move
+            if ( closed ) {
+              buffer.moveTo( moveX, moveY, 0.0 );
+              closed = false;
+            }
+
+            buffer.lineTo( c[ 0 ], c[ 1 ], 0.0 );
+
+            break;
+
+          case PathIterator.SEG_CLOSE:
+            buffer.closePart();
+            closed = true;
+
+            break;
+        }
+
+        i.next();
+      }
+
+      if ( buffer.getPointCount() < MIN_LOD_POINTS ) {
+        return;
+      }
+
+      this.path = new LODPath( buffer, minTolerance );
+      this.shapes = new Shape[ this.path.getLevelCount() ];
+      this.shapes[ 0 ] = shape;
+
+      int rule = i.getWindingRule();
+
+      for ( int level = 1; level < this.shapes.length; level++ ) {
+        PathBuffer geometry = this.path.getLevel( level );
+
+        if ( geometry == this.path.getLevel( level - 1 ) ) {
+          this.shapes[ level ] = this.shapes[ level - 1 ];
+        } else {
+          Path2D p = Java2DShapeConverter.toShape( geometry );
+          p.setWindingRule( rule );
+          this.shapes[ level ] = p;
+        }
+      }
+    }
+  }
+}
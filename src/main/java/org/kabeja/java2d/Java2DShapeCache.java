@@ -0,0 +1,543 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+
+package org.kabeja.java2d;
+
+import org.kabeja.dxf.DXFBlock;
+import org.kabeja.dxf.DXFDimension;
+import org.kabeja.dxf.DXFDocument;
+import org.kabeja.dxf.DXFEntity;
+import org.kabeja.dxf.DXFInsert;
+import org.kabeja.math.AffineTransform3D;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.FlatteningPathIterator;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Caches the shapes of entities as compact Path2D.Float in world
+ * coordinates, so a viewer converts the geometry of an entity once and
+ * not on every repaint. The shapes of a block are merged to one path,
+ * which is shared by all inserts and dimensions of the block. An insert is
+ * only the block shape and the transformations of the instances, the
+ * geometry is not copied. Such a shape is drawn best with draw() and
+ * fill(), which transform the graphics for each instance.
+ * <p>
+ * The entities are weakly referenced. A modified entity has to be removed
+ * with invalidate(), a modified block with invalidateBlock(). The cache
+ * is thread-safe.
+ * </p>
+ */
+public class Java2DShapeCache {
+  private DXFDocument doc;
+  private Java2DShapeConverter converter;
+  private Map shapes = Collections.synchronizedMap( new WeakHashMap() );
+  private Map blockShapes = Collections.synchronizedMap( new HashMap() );
+
+  // an empty shape marks entities without geometry
+  private final static Path2D.Float EMPTY = new Path2D.Float();
+
+  public Java2DShapeCache( DXFDocument doc ) {
+    this( doc, new Java2DShapeConverter() );
+  }
+
+  /**
+   * @param doc       the document of the entities
+   * @param tolerance the maximal distance between curves and segments for
+   *                  flattened geometry like splines
+   */
+  public Java2DShapeCache( DXFDocument doc, double tolerance ) {
+    this( doc, new Java2DShapeConverter( tolerance ) );
+  }
+
+  public Java2DShapeCache( DXFDocument doc, Java2DShapeConverter converter ) {
+    this.doc = doc;
+    this.converter = converter;
+  }
+
+  public double getTolerance() { return this.converter.getTolerance(); }
+
+  /**
+   * Sets the tolerance for flattened geometry and clears the cache.
+   */
+  public void setTolerance( double tolerance ) {
+    this.converter = new Java2DShapeConverter( tolerance );
+    this.clear();
+  }
+
+  /**
+   * Returns the cached shape of the entity. Inserts and dimensions are the
+   * shapes of their blocks transformed to the instances.
+   *
+   * @param entity the entity
+   * @return the shape or null if the entity has no geometry
+   */
+  public Shape toShape( DXFEntity entity ) {
+    Shape shape = ( Shape ) this.shapes.get( entity );
+
+    if ( shape == null ) {
+      shape = this.createShape( entity, new HashSet() );
+      this.shapes.put( entity, shape );
+    }
+
+    return ( shape != EMPTY ) ? shape : null;
+  }
+
+  /**
+   * @return the merged shapes of the entities of the block in block
+   *         coordinates or null if the block is unknown or empty
+   */
+  public Shape getBlockShape( String name ) {
+    Shape shape = this.getBlockShape( name, new HashSet() );
+
+    return ( shape != EMPTY ) ? shape : null;
+  }
+
+  public void invalidate( DXFEntity entity ) {
+    this.shapes.remove( entity );
+  }
+
+  /**
+   * Removes the shapes of the blocks and of all references to blocks, as
+   * the shapes of other blocks can reference the block.
+   */
+  public void invalidateBlock( String name ) {
+    this.blockShapes.clear();
+
+    synchronized ( this.shapes ) {
+      Iterator i = this.shapes.keySet().iterator();
+
+      while ( i.hasNext() ) {
+        Object entity = i.next();
+
+        if ( ( entity instanceof DXFInsert ) || ( entity instanceof DXFDimension ) ) {
+          i.remove();
+        }
+      }
+    }
+  }
+
+  public void clear() {
+    this.shapes.clear();
+    this.blockShapes.clear();
+  }
+
+  /**
+   * Draws the shape, the instances of an insert are drawn with the
+   * transformation set on the graphics, so the stroke is transformed as
+   * well. A stroke with the width 0 draws thin lines at every scale.
+   *
+   * @param g     the graphics
+   * @param shape a shape of the cache
+   */
+  public static void draw( Graphics2D g, Shape shape ) {
+    if ( shape instanceof CompositeShape ) {
+      ( ( CompositeShape ) shape ).paint( g, false );
+    } else {
+      g.draw( shape );
+    }
+  }
+
+  /**
+   * Fills the shape, the instances of an insert are filled with the
+   * transformation set on the graphics.
+   *
+   * @param g     the graphics
+   * @param shape a shape of the cache
+   */
+  public static void fill( Graphics2D g, Shape shape ) {
+    if ( shape instanceof CompositeShape ) {
+      ( ( CompositeShape ) shape ).paint( g, true );
+    } else {
+      g.fill( shape );
+    }
+  }
+
+  protected Shape createShape( DXFEntity entity, Set activeBlocks ) {
+    if ( entity instanceof DXFInsert ) {
+      DXFInsert insert = ( DXFInsert ) entity;
+      Shape block = this.getBlockShape( insert.getBlockID(), activeBlocks );
+
+      if ( block == EMPTY ) {
+        return EMPTY;
+      }
+
+      int rows = Math.max( insert.getRows(), 1 );
+      int columns = Math.max( insert.getColumns(), 1 );
+      AffineTransform[] transforms = new AffineTransform[ rows * columns ];
+
+      for ( int r = 0; r < rows; r++ ) {
+        for ( int c = 0; c < columns; c++ ) {
+          transforms[ ( r * columns ) + c ] = toAffineTransform( insert.getTransform( r,
+                c, new AffineTransform3D() ) );
+        }
+      }
+
+      return new InsertShape( ( BlockShape ) block, transforms );
+    } else if ( entity instanceof DXFDimension ) {
+      DXFDimension dimension = ( DXFDimension ) entity;
+      Shape block = this.getBlockShape( dimension.getDimensionBlock(), activeBlocks );
+
+      if ( block == EMPTY ) {
+        return EMPTY;
+      }
+
+      return new InsertShape( ( BlockShape ) block,
+        new AffineTransform[] {
+          toAffineTransform( dimension.getTransform( new AffineTransform3D() ) )
+        } );
+    }
+
+    Shape shape = this.converter.toShape( entity );
+
+    if ( shape == null ) {
+      return EMPTY;
+    }
+
+    Path2D.Float path = new Path2D.Float( shape );
+    path.trimToSize();
+
+    return path;
+  }
+
+  protected Shape getBlockShape( String name, Set activeBlocks ) {
+    Shape shape = ( Shape ) this.blockShapes.get( name );
+
+    if ( shape != null ) {
+      return shape;
+    }
+
+    DXFBlock block = this.doc.getDXFBlock( name );
+
+    if ( ( block == null ) || !activeBlocks.add( name ) ) {
+      // unknown block or a recursive reference
+      return EMPTY;
+    }
+
+    Path2D.Float path = new Path2D.Float( Path2D.WIND_EVEN_ODD );
+    List references = new ArrayList();
+    Iterator i = block.getDXFEntitiesIterator();
+
+    while ( i.hasNext() ) {
+      DXFEntity entity = ( DXFEntity ) i.next();
+
+      if ( entity.isVisibile() ) {
+        Shape s = this.createShape( entity, activeBlocks );
+
+        if ( s instanceof InsertShape ) {
+          // nested blocks are referenced and not merged
+          references.add( s );
+        } else if ( s != EMPTY ) {
+          path.append( s, false );
+        }
+      }
+    }
+
+    activeBlocks.remove( name );
+    path.trimToSize();
+
+    if ( ( path.getCurrentPoint() == null ) && references.isEmpty() ) {
+      shape = EMPTY;
+    } else {
+      shape = new BlockShape( ( path.getCurrentPoint() != null ) ? path : null,
+          ( InsertShape[] ) references.toArray( new InsertShape[ references.size() ] ) );
+    }
+
+    this.blockShapes.put( name, shape );
+
+    return shape;
+  }
+
+  /**
+   * @return the x-y part of the transformation
+   */
+  public static AffineTransform toAffineTransform( AffineTransform3D t ) {
+    double[] m = t.getMatrix( new double[ 12 ] );
+
+    return new AffineTransform( m[ 0 ], m[ 4 ], m[ 1 ], m[ 5 ], m[ 3 ], m[ 7 ] );
+  }
+
+  /**
+   * A shape of several parts, which are iterated without building one
+   * path. The shapes are immutable, so the bounds are computed once.
+   */
+  protected abstract static class CompositeShape implements Shape {
+    private Rectangle2D bounds;
+
+    /**
+     * @return the count of the parts
+     */
+    protected abstract int getPartCount();
+
+    /**
+     * @return the path of the part or null if the part is empty
+     */
+    protected abstract PathIterator getPart( int index, AffineTransform at );
+
+    protected abstract Rectangle2D computeBounds();
+
+    protected abstract void paint( Graphics2D g, boolean fill );
+
+    public Rectangle getBounds() { return this.getBounds2D().getBounds(); }
+
+    public synchronized Rectangle2D getBounds2D() {
+      if ( this.bounds == null ) {
+        this.bounds = this.computeBounds();
+      }
+
+      return ( Rectangle2D ) this.bounds.clone();
+    }
+
+    public boolean contains( double x, double y ) {
+      return this.getBounds2D().contains( x, y ) &&
+      Path2D.contains( this.getPathIterator( null ), x, y );
+    }
+
+    public boolean contains( Point2D p ) { return this.contains( p.getX(), p.getY() ); }
+
+    public boolean intersects( double x, double y, double w, double h ) {
+      return this.getBounds2D().intersects( x, y, w, h ) &&
+      Path2D.intersects( this.getPathIterator( null ), x, y, w, h );
+    }
+
+    public boolean intersects( Rectangle2D r ) {
+      return this.intersects( r.getX(), r.getY(), r.getWidth(), r.getHeight() );
+    }
+
+    public boolean contains( double x, double y, double w, double h ) {
+      return this.getBounds2D().contains( x, y, w, h ) &&
+      Path2D.contains( this.getPathIterator( null ), x, y, w, h );
+    }
+
+    public boolean contains( Rectangle2D r ) {
+      return this.contains( r.getX(), r.getY(), r.getWidth(), r.getHeight() );
+    }
+
+    public PathIterator getPathIterator( AffineTransform at ) {
+      return new CompositePathIterator( this, at );
+    }
+
+    public PathIterator getPathIterator( AffineTransform at, double flatness ) {
+      return new FlatteningPathIterator( this.getPathIterator( at ), flatness );
+    }
+  }
+
+  /**
+   * The merged shapes of the entities of a block and the references to
+   * nested blocks.
+   */
+  public static class BlockShape extends CompositeShape {
+    private Shape geometry;
+    private InsertShape[] references;
+
+    BlockShape( Shape geometry, InsertShape[] references ) {
+      this.geometry = geometry;
+      this.references = references;
+    }
+
+    /**
+     * @return the merged shapes of the entities without the nested blocks
+     *         or null
+     */
+    public Shape getGeometry() { return this.geometry; }
+
+    /**
+     * @return the inserts of nested blocks
+     */
+    public InsertShape[] getReferences() { return this.references.clone(); }
+
+    protected int getPartCount() { return this.references.length + 1; }
+
+    protected PathIterator getPart( int index, AffineTransform at ) {
+      if ( index == 0 ) {
+        return ( this.geometry != null ) ? this.geometry.getPathIterator( at ) : null;
+      }
+
+      return this.references[ index - 1 ].getPathIterator( at );
+    }
+
+    protected Rectangle2D computeBounds() {
+      Rectangle2D r = ( this.geometry != null ) ? this.geometry.getBounds2D() : null;
+
+      for ( int i = 0; i < this.references.length; i++ ) {
+        Rectangle2D b = this.references[ i ].getBounds2D();
+
+        if ( r == null ) {
+          r = b;
+        } else {
+          r.add( b );
+        }
+      }
+
+      return r;
+    }
+
+    protected void paint( Graphics2D g, boolean fill ) {
+      if ( this.geometry != null ) {
+        if ( fill ) {
+          g.fill( this.geometry );
+        } else {
+          g.draw( this.geometry );
+        }
+      }
+
+      for ( int i = 0; i < this.references.length; i++ ) {
+        this.references[ i ].paint( g, fill );
+      }
+    }
+  }
+
+  /**
+   * The shape of a block placed with one or more transformations, like
+   * the cells of an insert array.
+   */
+  public static class InsertShape extends CompositeShape {
+    private BlockShape block;
+    private AffineTransform[] transforms;
+
+    InsertShape( BlockShape block, AffineTransform[] transforms ) {
+      this.block = block;
+      this.transforms = transforms;
+    }
+
+    /**
+     * @return the shared shape of the block in block coordinates
+     */
+    public BlockShape getBlockShape() { return this.block; }
+
+    /**
+     * @return the transformations from block to world coordinates
+     */
+    public AffineTransform[] getTransforms() {
+      AffineTransform[] t = new AffineTransform[ this.transforms.length ];
+
+      for ( int i = 0; i < t.length; i++ ) {
+        t[ i ] = new AffineTransform( this.transforms[ i ] );
+      }
+
+      return t;
+    }
+
+    protected int getPartCount() { return this.transforms.length; }
+
+    protected PathIterator getPart( int index, AffineTransform at ) {
+      AffineTransform t = this.transforms[ index ];
+
+      if ( at != null ) {
+        t = new AffineTransform( at );
+        t.concatenate( this.transforms[ index ] );
+      }
+
+      return this.block.getPathIterator( t );
+    }
+
+    protected Rectangle2D computeBounds() {
+      Rectangle2D b = this.block.getBounds2D();
+      Rectangle2D r = null;
+
+      for ( int i = 0; i < this.transforms.length; i++ ) {
+        Rectangle2D t = this.transforms[ i ].createTransformedShape( b ).getBounds2D();
+
+        if ( r == null ) {
+          r = t;
+        } else {
+          r.add( t );
+        }
+      }
+
+      return r;
+    }
+
+    protected void paint( Graphics2D g, boolean fill ) {
+      AffineTransform old = g.getTransform();
+
+      for ( int i = 0; i < this.transforms.length; i++ ) {
+        g.transform( this.transforms[ i ] );
+
+        try {
+          this.block.paint( g, fill );
+        } finally {
+          g.setTransform( old );
+        }
+      }
+    }
+  }
+
+  /**
+   * Iterates the parts of a composite shape one after the other.
+   */
+  protected static class CompositePathIterator implements PathIterator {
+    private CompositeShape shape;
+    private AffineTransform at;
+    private PathIterator current;
+    private int index = -1;
+
+    CompositePathIterator( CompositeShape shape, AffineTransform at ) {
+      this.shape = shape;
+      this.at = at;
+      this.nextPart();
+    }
+
+    protected void nextPart() {
+      this.current = null;
+
+      while ( ( this.current == null ) &&
+        ( ++this.index < this.shape.getPartCount() ) ) {
+        PathIterator pi = this.shape.getPart( this.index, this.at );
+
+        if ( ( pi != null ) && !pi.isDone() ) {
+          this.current = pi;
+        }
+      }
+    }
+
+    public int getWindingRule() { return PathIterator.WIND_EVEN_ODD; }
+
+    public boolean isDone() { return this.current == null; }
+
+    public void next() {
+      this.current.next();
+
+      if ( this.current.isDone() ) {
+        this.nextPart();
+      }
+    }
+
+    public int currentSegment( float[] coords ) {
+      return this.current.currentSegment( coords );
+    }
+
+    public int currentSegment( double[] coords ) {
+      return this.current.currentSegment( coords );
+    }
+  }
+}
@@ -0,0 +1,450 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package org.kabeja.java2d;
+
+import org.kabeja.dxf.Bounds;
+import org.kabeja.dxf.DXFArc;
+import org.kabeja.dxf.DXFCircle;
+import org.kabeja.dxf.DXFEllipse;
+import org.kabeja.dxf.DXFEntity;
+import org.kabeja.dxf.DXFExtrusion;
+import org.kabeja.dxf.DXFHatch;
+import org.kabeja.dxf.DXFHatchPattern;
+import org.kabeja.dxf.DXFLine;
+import org.kabeja.dxf.DXFPolyline;
+import org.kabeja.dxf.DXFSolid;
+import org.kabeja.dxf.DXFText;
+import org.kabeja.dxf.DXFVertex;
+import org.kabeja.dxf.helpers.DXFGeometryConverter;
+import org.kabeja.dxf.helpers.HatchLineFamily;
+import org.kabeja.dxf.helpers.Point;
+import org.kabeja.math.PathBuffer;
+import java.awt.Font;
+import java.awt.Shape;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Arc2D;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.util.Iterator;
+import java.util.StringTokenizer;
+
+/**
+ * Converts entities to java.awt.geom shapes in world coordinates (y up).
+ * Lines, arcs, circles, ellipses and 2D polylines with bulges are
+ * converted exactly, text to the outlines of the glyphs and all other
+ * entities to the flattened geometry of the DXFGeometryConverter. Inserts
+ * and dimensions are not converted, they reference blocks.
+ * <p>
+ * The converter needs no display, the glyphs are created with the font of
+ * the headless toolkit.
+ * </p>
+ */
+public class Java2DShapeConverter {
+  public final static String DEFAULT_FONT = Font.SANS_SERIF;
+
+  // the glyphs are created at this size and scaled to the text height
+  private final static float FONT_SIZE = 100.0f;
+  private final static double LINE_HEIGHT = 1.5;
+  private final static double EPSILON = 1.0E-10;
+
+  // more lines are not drawn, the boundary is drawn instead
+  private final static int MAX_HATCH_LINES = 20000;
+  private double tolerance;
+  private Font font = new Font( DEFAULT_FONT, Font.PLAIN, ( int ) FONT_SIZE );
+  private FontRenderContext fontContext = new FontRenderContext( null, true, true );
+
+  public Java2DShapeConverter() {
+    this( DXFGeometryConverter.DEFAULT_TOLERANCE );
+  }
+
+  /**
+   * @param tolerance the maximal distance between curves and segments for
+   *                  flattened geometry
+   */
+  public Java2DShapeConverter( double tolerance ) {
+    this.tolerance = tolerance;
+  }
+
+  public double getTolerance() { return this.tolerance; }
+
+  /**
+   * @return true if the shape of the entity is filled and not stroked
+   */
+  public boolean isFilled( DXFEntity entity ) {
+    return ( entity instanceof DXFSolid ) ||
+      ( ( entity instanceof DXFHatch ) && ( ( DXFHatch ) entity ).isSolid() ) ||
+      ( entity instanceof DXFText );
+  }
+
+  /**
+   * Converts the entity, for hatches the boundary is returned.
+   *
+   * @param entity the entity
+   * @return the shape or null if the entity has no geometry or is not
+   *         supported
+   */
+  public Shape toShape( DXFEntity entity ) {
+    if ( entity instanceof DXFText ) {
+      return this.toTextShape( ( DXFText ) entity );
+    } else if ( !isPlanar( entity ) ) {
+      return this.toFlattenedShape( entity );
+    } else if ( entity instanceof DXFLine ) {
+      DXFLine line = ( DXFLine ) entity;
+
+      return new Line2D.Double( line.getStartPoint().getX(),
+        line.getStartPoint().getY(), line.getEndPoint().getX(),
+        line.getEndPoint().getY() );
+    } else if ( entity instanceof DXFArc ) {
+      DXFArc arc = ( DXFArc ) entity;
+      Point c = arc.getCenterPoint();
+      double r = arc.getRadius();
+
+      // the angles of Arc2D turn clockwise in y up coordinates
+      return new Arc2D.Double( c.getX() - r, c.getY() - r, 2 * r, 2 * r,
+        -arc.getStartAngle(), -arc.getTotalAngle(), Arc2D.OPEN );
+    } else if ( entity instanceof DXFCircle ) {
+      DXFCircle circle = ( DXFCircle ) entity;
+      Point c = circle.getCenterPoint();
+      double r = circle.getRadius();
+
+      return new Ellipse2D.Double( c.getX() - r, c.getY() - r, 2 * r, 2 * r );
+    } else if ( entity instanceof DXFEllipse ) {
+      return this.toEllipseShape( ( DXFEllipse ) entity );
+    } else if ( ( entity instanceof DXFPolyline ) &&
+      isSimplePolyline( ( DXFPolyline ) entity ) ) {
+      return this.toPolylineShape( ( DXFPolyline ) entity );
+    }
+
+    return this.toFlattenedShape( entity );
+  }
+
+  /**
+   * Converts the ellipse to an arc of the unit circle, which is scaled to
+   * the axes and rotated to the major axis. The parameters of the ellipse
+   * are the angles on the unit circle.
+   */
+  public Shape toEllipseShape( DXFEllipse ellipse ) {
+    Point c = ellipse.getCenterPoint();
+    double a = ellipse.getHalfMajorAxisLength();
+    double extent = ellipse.getEndParameter() - ellipse.getStartParameter();
+
+    if ( a < EPSILON ) {
+      return null;
+    }
+
+    if ( extent <= 0.0 ) {
+      extent += ( 2 * Math.PI );
+    }
+
+    Arc2D arc = new Arc2D.Double( -1.0, -1.0, 2.0, 2.0,
+        -Math.toDegrees( ellipse.getStartParameter() ), -Math.toDegrees( extent ),
+        Arc2D.OPEN );
+    AffineTransform t = AffineTransform.getTranslateInstance( c.getX(), c.getY() );
+    t.rotate( ellipse.getMajorAxisDirection().getX(),
+      ellipse.getMajorAxisDirection().getY() );
+    t.scale( a, a * ellipse.getRatio() );
+
+    return t.createTransformedShape( arc );
+  }
+
+  /**
+   * Converts a 2D polyline, a bulge is appended as arc.
+   */
+  public Shape toPolylineShape( DXFPolyline pline ) {
+    int count = pline.getVertexCount();
+    Path2D.Double path = new Path2D.Double( Path2D.WIND_EVEN_ODD, count + 1 );
+    DXFVertex first = pline.getVertex( 0 );
+    DXFVertex v = first;
+    path.moveTo( v.getX(), v.getY() );
+
+    int segments = pline.isClosed() ? count : ( count - 1 );
+
+    for ( int i = 1; i <= segments; i++ ) {
+      DXFVertex next = ( i < count ) ? pline.getVertex( i ) : first;
+      double bulge = v.getBulge();
+
+      if ( Math.abs( bulge ) < EPSILON ) {
+        path.lineTo( next.getX(), next.getY() );
+      } else {
+        appendBulge( path, v.getX(), v.getY(), next.getX(), next.getY(), bulge );
+      }
+
+      v = next;
+    }
+
+    if ( pline.isClosed() ) {
+      path.closePath();
+    }
+
+    return path;
+  }
+
+  /**
+   * Appends the arc of a bulge from (x1,y1) to (x2,y2).
+   */
+  public static void appendBulge( Path2D path, double x1, double y1, double x2,
+                                  double y2, double bulge ) {
+    double dx = x2 - x1;
+    double dy = y2 - y1;
+    double chord = Math.sqrt( ( dx * dx ) + ( dy * dy ) );
+
+    if ( chord < EPSILON ) {
+      return;
+    }
+
+    double sweep = 4 * Math.atan( bulge );
+    double r = chord / ( 2 * Math.sin( Math.abs( sweep ) / 2 ) );
+
+    // the distance of the center from the middle of the chord
+    double h = ( ( 1 - ( bulge * bulge ) ) * chord ) / ( 4 * bulge );
+    double cx = ( ( x1 + x2 ) / 2 ) - ( ( dy / chord ) * h );
+    double cy = ( ( y1 + y2 ) / 2 ) + ( ( dx / chord ) * h );
+    double start = Math.toDegrees( Math.atan2( y1 - cy, x1 - cx ) );
+    Arc2D arc = new Arc2D.Double( cx - r, cy - r, 2 * r, 2 * r, -start,
+        -Math.toDegrees( sweep ), Arc2D.OPEN );
+    path.append( arc, true );
+    path.lineTo( x2, y2 );
+  }
+
+  /**
+   * Converts the text to the outlines of the glyphs. Multiline text is
+   * split into lines below the first line.
+   */
+  public Shape toTextShape( DXFText text ) {
+    String content = ( text.getTextDocument() != null )
+      ? text.getTextDocument().getText() : text.getText();
+    double height = text.getHeight();
+
+    if ( ( content == null ) || ( content.trim().length() == 0 ) ||
+      ( height <= 0.0 ) ) {
+      return null;
+    }
+
+    Point p = text.calculateAlignmentPoint();
+    AffineTransform t = AffineTransform.getTranslateInstance( p.getX(), p.getY() );
+    t.rotate( Math.toRadians( text.getRotation() ) );
+    t.scale( height / FONT_SIZE, -height / FONT_SIZE );
+
+    Path2D.Double path = new Path2D.Double( Path2D.WIND_NON_ZERO );
+    StringTokenizer st = new StringTokenizer( content, "\n" );
+    double y = 0.0;
+
+    while ( st.hasMoreTokens() ) {
+      GlyphVector glyphs = this.font.createGlyphVector( this.fontContext,
+          st.nextToken() );
+      double x = 0.0;
+
+      switch ( text.getAlign() ) {
+        case DXFText.ALIGN_CENTER:
+        case DXFText.ALIGN_MIDDLE:
+          x = -glyphs.getLogicalBounds().getWidth() / 2;
+
+          break;
+
+        case DXFText.ALIGN_RIGHT:
+          x = -glyphs.getLogicalBounds().getWidth();
+
+          break;
+      }
+
+      path.append( glyphs.getOutline( ( float ) x, ( float ) y ), false );
+      y += ( FONT_SIZE * LINE_HEIGHT );
+    }
+
+    return path.createTransformedShape( t );
+  }
+
+  /**
+   * Creates the lines of the pattern of a hatch, the lines have to be
+   * clipped with the boundary. Each line family is repeated with its
+   * offset over the bounds of the hatch, dashes start at the base point.
+   *
+   * @param hatch   the hatch
+   * @param pattern the pattern of the hatch
+   * @return the lines or null for a solid hatch or a too dense pattern
+   */
+  public Shape toHatchLines( DXFHatch hatch, DXFHatchPattern pattern ) {
+    Bounds b = hatch.getBounds();
+
+    if ( hatch.isSolid() || ( pattern == null ) || !b.isValid() ) {
+      return null;
+    }
+
+    double[] corners = new double[] {
+        b.getMinimumX(), b.getMinimumY(), b.getMaximumX(), b.getMinimumY(),
+        b.getMaximumX(), b.getMaximumY(), b.getMinimumX(), b.getMaximumY()
+      };
+    Path2D.Double path = new Path2D.Double();
+    int lineCount = 0;
+    Iterator families = pattern.getLineFamilyIterator();
+
+    while ( families.hasNext() ) {
+      HatchLineFamily family = ( HatchLineFamily ) families.next();
+      double angle = Math.toRadians( family.getRotationAngle() );
+      double dx = Math.cos( angle );
+      double dy = Math.sin( angle );
+
+      // the distance of the lines and the shift along the lines
+      double spacing = ( family.getOffsetY() * dx ) - ( family.getOffsetX() * dy );
+      double shift = ( family.getOffsetX() * dx ) + ( family.getOffsetY() * dy );
+
+      if ( Math.abs( spacing ) < EPSILON ) {
+        continue;
+      }
+
+      double min = Double.POSITIVE_INFINITY;
+      double max = Double.NEGATIVE_INFINITY;
+
+      for ( int i = 0; i < corners.length; i += 2 ) {
+        double t = ( ( ( corners[ i + 1 ] - family.getBaseY() ) * dx ) -
+          ( ( corners[ i ] - family.getBaseX() ) * dy ) ) / spacing;
+        min = Math.min( min, t );
+        max = Math.max( max, t );
+      }
+
+      long first = ( long ) Math.ceil( min );
+      long last = ( long ) Math.floor( max );
+      lineCount += ( ( last - first ) + 1 );
+
+      if ( lineCount > MAX_HATCH_LINES ) {
+        return null;
+      }
+
+      for ( long k = first; k <= last; k++ ) {
+        double x = family.getBaseX() + ( k * family.getOffsetX() );
+        double y = family.getBaseY() + ( k * family.getOffsetY() );
+        double umin = Double.POSITIVE_INFINITY;
+        double umax = Double.NEGATIVE_INFINITY;
+
+        for ( int i = 0; i < corners.length; i += 2 ) {
+          double u = ( ( corners[ i ] - x ) * dx ) + ( ( corners[ i + 1 ] - y ) * dy );
+          umin = Math.min( umin, u );
+          umax = Math.max( umax, u );
+        }
+
+        appendHatchLine( path, x, y, dx, dy, umin, umax, family.getPattern(),
+          k * shift );
+      }
+    }
+
+    return path;
+  }
+
+  /**
+   * Appends the dashes of a pattern line between the parameters umin and
+   * umax of the line (x,y) + u * (dx,dy).
+   */
+  protected static void appendHatchLine( Path2D path, double x, double y,
+                                         double dx, double dy, double umin, double umax,
+                                         double[] dashes, double phase ) {
+    double period = 0.0;
+
+    for ( int i = 0; ( dashes != null ) && ( i < dashes.length ); i++ ) {
+      period += Math.abs( dashes[ i ] );
+    }
+
+    if ( period < EPSILON ) {
+      path.moveTo( x + ( umin * dx ), y + ( umin * dy ) );
+      path.lineTo( x + ( umax * dx ), y + ( umax * dy ) );
+
+      return;
+    }
+
+    // the pattern starts at the base point, shifted with the offset
+    double u = phase + ( Math.floor( ( umin - phase ) / period ) * period );
+
+    while ( u < umax ) {
+      for ( int i = 0; ( i < dashes.length ) && ( u < umax ); i++ ) {
+        double dash = dashes[ i ];
+
+        if ( dash >= 0.0 ) {
+          double s = Math.max( u, umin );
+          double e = Math.min( u + Math.max( dash, EPSILON ), umax );
+
+          if ( s <= e ) {
+            path.moveTo( x + ( s * dx ), y + ( s * dy ) );
+            path.lineTo( x + ( e * dx ), y + ( e * dy ) );
+          }
+        }
+
+        u += Math.abs( dash );
+      }
+    }
+  }
+
+  public Shape toFlattenedShape( DXFEntity entity ) {
+    PathBuffer buffer = new PathBuffer();
+
+    if ( !DXFGeometryConverter.toPath( entity, this.tolerance, buffer ) ||
+      buffer.isEmpty() ) {
+      return null;
+    }
+
+    return toShape( buffer );
+  }
+
+  /**
+   * Converts the x,y coordinates of the flattened geometry to a path.
+   */
+  public static Path2D toShape( PathBuffer buffer ) {
+    Path2D.Double path = new Path2D.Double( Path2D.WIND_EVEN_ODD,
+        buffer.getPointCount() );
+
+    for ( int part = 0; part < buffer.getPartCount(); part++ ) {
+      int start = buffer.getPartStart( part );
+      int end = buffer.getPartEnd( part );
+      path.moveTo( buffer.getX( start ), buffer.getY( start ) );
+
+      if ( ( end - start ) == 1 ) {
+        // a point
+        path.lineTo( buffer.getX( start ), buffer.getY( start ) );
+      }
+
+      for ( int i = start + 1; i < end; i++ ) {
+        path.lineTo( buffer.getX( i ), buffer.getY( i ) );
+      }
+
+      if ( buffer.isClosed( part ) ) {
+        path.closePath();
+      }
+    }
+
+    return path;
+  }
+
+  /**
+   * @return true if the entity lies in the x-y plane of the world
+   *         coordinate system
+   */
+  public static boolean isPlanar( DXFEntity entity ) {
+    DXFExtrusion e = entity.getExtrusion();
+
+    return ( e == null ) ||
+      ( ( Math.abs( e.getX() ) < EPSILON ) && ( Math.abs( e.getY() ) < EPSILON ) &&
+      ( e.getZ() > 0.0 ) );
+  }
+
+  public static boolean isSimplePolyline( DXFPolyline pline ) {
+    return ( pline.getVertexCount() > 0 ) && !pline.isSplineFitVerticesAdded() &&
+      !pline.isCurveFitVerticesAdded() && !pline.is3DPolygon() &&
+      !pline.is3DPolygonMesh() && !pline.isPolyfaceMesh();
+  }
+}
@@ -0,0 +1,208 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package org.kabeja.java2d;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import javax.imageio.ImageIO;
+
+/**
+ * An XYZ pyramid of PNG tiles in a directory (z/x/y.png). Missing tiles
+ * are rendered on demand by getTile(), a tile requested by several threads
+ * is rendered once. Whole levels are rendered in parallel on a thread pool.
+ *
+ * @see Java2DRenderer#getTileWindow(int, int, int) for the tile grid
+ */
+public class TilePyramid {
+  public final static String TILE_FORMAT = "png";
+  protected Java2DRenderer renderer;
+  protected File directory;
+  protected int tileSize;
+  protected ExecutorService executor;
+  protected ConcurrentMap rendering = new ConcurrentHashMap();
+
+  public TilePyramid( Java2DRenderer renderer, File directory ) {
+    this( renderer, directory, Java2DRenderer.DEFAULT_TILE_SIZE,
+      Runtime.getRuntime().availableProcessors() );
+  }
+
+  /**
+   * @param renderer  the renderer of the document
+   * @param directory the directory of the tiles
+   * @param tileSize  the size of the tiles in pixel
+   * @param threads   the count of threads for rendering levels
+   */
+  public TilePyramid( Java2DRenderer renderer, File directory, int tileSize,
+                      int threads ) {
+    this.renderer = renderer;
+    this.directory = directory;
+    this.tileSize = tileSize;
+    this.executor = Executors.newFixedThreadPool( Math.max( threads, 1 ) );
+  }
+
+  public int getTileSize() { return this.tileSize; }
+
+  /**
+   * @return the file of the tile, which may not exist
+   */
+  public File getTileFile( int z, int x, int y ) {
+    return new File( this.directory, z + File.separator + x + File.separator +
+      y + "." + TILE_FORMAT );
+  }
+
+  /**
+   * Returns the file of the tile, a missing tile is rendered first.
+   *
+   * @return the file of the tile
+   * @throws IOException if the tile could not be written
+   */
+  public File getTile( final int z, final int x, final int y )
+    throws IOException {
+    int count = 1 << z;
+
+    if ( ( z < 0 ) || ( x < 0 ) || ( y < 0 ) || ( x >= count ) || ( y >= count ) ) {
+      throw new IllegalArgumentException( "No tile " + z + "/" + x + "/" + y );
+    }
+
+    final File file = this.getTileFile( z, x, y );
+
+    if ( file.exists() ) {
+      return file;
+    }
+
+    FutureTask task = new FutureTask( new Callable() {
+          public Object call() throws IOException {
+            writeTile( renderer.renderTile( z, x, y, tileSize ), file );
+
+            return file;
+          }
+        } );
+    FutureTask running = ( FutureTask ) this.rendering.putIfAbsent( file, task );
+
+    if ( running == null ) {
+      try {
+        task.run();
+      } finally {
+        this.rendering.remove( file );
+      }
+
+      running = task;
+    }
+
+    try {
+      return ( File ) running.get();
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new IOException( "Interrupted while rendering " + file );
+    } catch ( ExecutionException e ) {
+      if ( e.getCause() instanceof IOException ) {
+        throw ( IOException ) e.getCause();
+      }
+
+      throw new RuntimeException( "Could not render " + file, e.getCause() );
+    }
+  }
+
+  /**
+   * Renders the missing tiles of the zoom levels in parallel.
+   */
+  public void renderLevels( int minZoom, int maxZoom ) throws IOException {
+    List futures = new ArrayList();
+
+    for ( int z = minZoom; z <= maxZoom; z++ ) {
+      int count = 1 << z;
+
+      for ( int x = 0; x < count; x++ ) {
+        for ( int y = 0; y < count; y++ ) {
+          final int tz = z;
+          final int tx = x;
+          final int ty = y;
+          futures.add( this.executor.submit( new Callable() {
+                public Object call() throws IOException {
+                  return getTile( tz, tx, ty );
+                }
+              } ) );
+        }
+      }
+    }
+
+    try {
+      for ( int i = 0; i < futures.size(); i++ ) {
+        ( ( Future ) futures.get( i ) ).get();
+      }
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new IOException( "Interrupted while rendering the tiles" );
+    } catch ( ExecutionException e ) {
+      if ( e.getCause() instanceof IOException ) {
+        throw ( IOException ) e.getCause();
+      }
+
+      throw new RuntimeException( "Could not render the tiles", e.getCause() );
+    } finally {
+      for ( int i = 0; i < futures.size(); i++ ) {
+        ( ( Future ) futures.get( i ) ).cancel( false );
+      }
+    }
+  }
+
+  /**
+   * Writes the image to a temporary file, which is renamed, so other
+   * readers never see a partial tile.
+   */
+  protected void writeTile( BufferedImage image, File file )
+    throws IOException {
+    File dir = file.getParentFile();
+
+    if ( !dir.isDirectory() && !dir.mkdirs() && !dir.isDirectory() ) {
+      throw new IOException( "Could not create " + dir );
+    }
+
+    File tmp = File.createTempFile( "tile", ".tmp", dir );
+
+    try {
+      if ( !ImageIO.write( image, TILE_FORMAT, tmp ) ) {
+        throw new IOException( "No writer for " + TILE_FORMAT );
+      }
+
+      if ( !tmp.renameTo( file ) && !file.exists() ) {
+        throw new IOException( "Could not write " + file );
+      }
+    } finally {
+      tmp.delete();
+    }
+  }
+
+  /**
+   * Stops the threads of the pyramid.
+   */
+  public void shutdown() {
+    this.executor.shutdownNow();
+  }
+}
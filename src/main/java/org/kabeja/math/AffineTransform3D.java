@@ -0,0 +1,417 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package org.kabeja.math;
+
+import org.kabeja.dxf.Bounds;
+import org.kabeja.dxf.DXFExtrusion;
+import org.kabeja.dxf.helpers.Point;
+
+/**
+ * An affine transformation stored as a flat 3x4 matrix in row order:
+ * <pre>
+ * [ m[0] m[1]  m[2]  m[3]  ]
+ * [ m[4] m[5]  m[6]  m[7]  ]
+ * [ m[8] m[9]  m[10] m[11] ]
+ * </pre>
+ * All operations are concatenated on the right side, so the last added
+ * operation is applied first to the points (like java.awt.geom.AffineTransform).
+ * If the transformation only rotates, scales and translates in the X-Y plane
+ * x and y are calculated without z and z is only scaled and translated.
+ */
+public class AffineTransform3D {
+  protected double[] m = new double[ 12 ];
+  protected boolean planar = true;
+  protected boolean identity = true;
+
+  public AffineTransform3D() {
+    this.setToIdentity();
+  }
+
+  public AffineTransform3D( AffineTransform3D t ) {
+    this.set( t );
+  }
+
+  public AffineTransform3D setToIdentity() {
+    m[ 0 ] = 1.0;
+    m[ 1 ] = 0.0;
+    m[ 2 ] = 0.0;
+    m[ 3 ] = 0.0;
+    m[ 4 ] = 0.0;
+    m[ 5 ] = 1.0;
+    m[ 6 ] = 0.0;
+    m[ 7 ] = 0.0;
+    m[ 8 ] = 0.0;
+    m[ 9 ] = 0.0;
+    m[ 10 ] = 1.0;
+    m[ 11 ] = 0.0;
+    this.planar = true;
+    this.identity = true;
+
+    return this;
+  }
+
+  public AffineTransform3D set( AffineTransform3D t ) {
+    System.arraycopy( t.m, 0, this.m, 0, 12 );
+    this.planar = t.planar;
+    this.identity = t.identity;
+
+    return this;
+  }
+
+  /**
+   * Set the matrix from a flat 3x4 row ordered array.
+   *
+   * @param matrix
+   */
+  public AffineTransform3D setMatrix( double[] matrix ) {
+    System.arraycopy( matrix, 0, this.m, 0, 12 );
+    this.updateState();
+
+    return this;
+  }
+
+  /**
+   * Copy the flat 3x4 row ordered matrix into the given array.
+   *
+   * @param matrix an array with at least 12 elements
+   * @return the matrix array
+   */
+  public double[] getMatrix( double[] matrix ) {
+    System.arraycopy( this.m, 0, matrix, 0, 12 );
+
+    return matrix;
+  }
+
+  /**
+   * @return true if x,y do not depend on z and z does not depend on x,y
+   */
+  public boolean isPlanar() { return this.planar; }
+
+  public boolean isIdentity() { return this.identity; }
+
+  /**
+   * @return the determinant of the linear part
+   */
+  public double getDeterminant() {
+    return ( m[ 0 ] * ( ( m[ 5 ] * m[ 10 ] ) - ( m[ 6 ] * m[ 9 ] ) ) ) -
+      ( m[ 1 ] * ( ( m[ 4 ] * m[ 10 ] ) - ( m[ 6 ] * m[ 8 ] ) ) ) +
+      ( m[ 2 ] * ( ( m[ 4 ] * m[ 9 ] ) - ( m[ 5 ] * m[ 8 ] ) ) );
+  }
+
+  public AffineTransform3D translate( double tx, double ty, double tz ) {
+    m[ 3 ] += ( m[ 0 ] * tx ) + ( m[ 1 ] * ty ) + ( m[ 2 ] * tz );
+    m[ 7 ] += ( m[ 4 ] * tx ) + ( m[ 5 ] * ty ) + ( m[ 6 ] * tz );
+    m[ 11 ] += ( m[ 8 ] * tx ) + ( m[ 9 ] * ty ) + ( m[ 10 ] * tz );
+    this.updateState();
+
+    return this;
+  }
+
+  public AffineTransform3D scale( double sx, double sy, double sz ) {
+    m[ 0 ] *= sx;
+    m[ 4 ] *= sx;
+    m[ 8 ] *= sx;
+    m[ 1 ] *= sy;
+    m[ 5 ] *= sy;
+    m[ 9 ] *= sy;
+    m[ 2 ] *= sz;
+    m[ 6 ] *= sz;
+    m[ 10 ] *= sz;
+    this.updateState();
+
+    return this;
+  }
+
+  /**
+   * Rotate around the z-axis.
+   *
+   * @param angle in radian
+   */
+  public AffineTransform3D rotateZ( double angle ) {
+    if ( angle == 0.0 ) {
+      return this;
+    }
+
+    double cos = Math.cos( angle );
+    double sin = Math.sin( angle );
+
+    for ( int i = 0; i < 12; i += 4 ) {
+      double a = m[ i ];
+      double b = m[ i + 1 ];
+      m[ i ] = ( a * cos ) + ( b * sin );
+      m[ i + 1 ] = ( b * cos ) - ( a * sin );
+    }
+
+    this.updateState();
+
+    return this;
+  }
+
+  /**
+   * Concatenate the given transformation, the result is this*t.
+   *
+   * @param t
+   */
+  public AffineTransform3D concatenate( AffineTransform3D t ) {
+    if ( t.identity ) {
+      return this;
+    }
+
+    multiply( this.m, t.m, this.m );
+    this.updateState();
+
+    return this;
+  }
+
+  /**
+   * Concatenate the given transformation on the left side, the result is
+   * t*this.
+   *
+   * @param t
+   */
+  public AffineTransform3D preConcatenate( AffineTransform3D t ) {
+    if ( t.identity ) {
+      return this;
+    }
+
+    multiply( t.m, this.m, this.m );
+    this.updateState();
+
+    return this;
+  }
+
+  /**
+   * Concatenate the transformation from the object coordinate system of
+   * the extrusion to the world coordinate system (arbitrary axis
+   * algorithm).
+   *
+   * @param extrusion
+   */
+  public AffineTransform3D concatenate( DXFExtrusion extrusion ) {
+    double nx = extrusion.getX();
+    double ny = extrusion.getY();
+    double nz = extrusion.getZ();
+
+    if ( ( nx == 0.0 ) && ( ny == 0.0 ) && ( nz == 1.0 ) ) {
+      return this;
+    }
+
+    double[] e = new double[ 12 ];
+    double l = Math.sqrt( ( nx * nx ) + ( ny * ny ) + ( nz * nz ) );
+    nx /= l;
+    ny /= l;
+    nz /= l;
+
+    double ax;
+    double ay;
+    double az;
+
+    if ( ( Math.abs( nx ) < ( 1.0 / 64.0 ) ) && ( Math.abs( ny ) < ( 1.0 / 64.0 ) ) ) {
+      // Wy x N
+      ax = nz;
+      ay = 0.0;
+      az = -nx;
+    } else {
+      // Wz x N
+      ax = -ny;
+      ay = nx;
+      az = 0.0;
+    }
+
+    l = Math.sqrt( ( ax * ax ) + ( ay * ay ) + ( az * az ) );
+    ax /= l;
+    ay /= l;
+    az /= l;
+
+    // N x Ax
+    double bx = ( ny * az ) - ( nz * ay );
+    double by = ( nz * ax ) - ( nx * az );
+    double bz = ( nx * ay ) - ( ny * ax );
+
+    e[ 0 ] = ax;
+    e[ 1 ] = bx;
+    e[ 2 ] = nx;
+    e[ 4 ] = ay;
+    e[ 5 ] = by;
+    e[ 6 ] = ny;
+    e[ 8 ] = az;
+    e[ 9 ] = bz;
+    e[ 10 ] = nz;
+    multiply( this.m, e, this.m );
+    this.updateState();
+
+    return this;
+  }
+
+  /**
+   * Transform the point and store it in the result.
+   *
+   * @param p
+   * @param result the point for the result, can be p
+   * @return the result point
+   */
+  public Point transform( Point p, Point result ) {
+    double x = p.getX();
+    double y = p.getY();
+    double z = p.getZ();
+
+    if ( this.planar ) {
+      result.set( ( m[ 0 ] * x ) + ( m[ 1 ] * y ) + m[ 3 ],
+        ( m[ 4 ] * x ) + ( m[ 5 ] * y ) + m[ 7 ], ( m[ 10 ] * z ) + m[ 11 ] );
+    } else {
+      result.set( ( m[ 0 ] * x ) + ( m[ 1 ] * y ) + ( m[ 2 ] * z ) + m[ 3 ],
+        ( m[ 4 ] * x ) + ( m[ 5 ] * y ) + ( m[ 6 ] * z ) + m[ 7 ],
+        ( m[ 8 ] * x ) + ( m[ 9 ] * y ) + ( m[ 10 ] * z ) + m[ 11 ] );
+    }
+
+    return result;
+  }
+
+  /**
+   * Transform packed x,y,z coordinates.
+   *
+   * @param src   the source coordinates
+   * @param dst   the destination coordinates, can be src
+   * @param count the count of points
+   */
+  public void transform( double[] src, double[] dst, int count ) {
+    this.transform( src, 0, dst, 0, count );
+  }
+
+  /**
+   * Transform packed x,y,z coordinates.
+   *
+   * @param src    the source coordinates
+   * @param srcOff the array offset of the first source point
+   * @param dst    the destination coordinates, can be src
+   * @param dstOff the array offset of the first destination point
+   * @param count  the count of points
+   */
+  public void transform( double[] src, int srcOff, double[] dst, int dstOff,
+                         int count ) {
+    if ( this.identity ) {
+      if ( ( src != dst ) || ( srcOff != dstOff ) ) {
+        System.arraycopy( src, srcOff, dst, dstOff, count * 3 );
+      }
+
+      return;
+    }
+
+    double m00 = m[ 0 ];
+    double m01 = m[ 1 ];
+    double m03 = m[ 3 ];
+    double m10 = m[ 4 ];
+    double m11 = m[ 5 ];
+    double m13 = m[ 7 ];
+    double m22 = m[ 10 ];
+    double m23 = m[ 11 ];
+    int end = srcOff + ( count * 3 );
+
+    if ( this.planar ) {
+      for ( int i = srcOff, j = dstOff; i < end; i += 3, j += 3 ) {
+        double x = src[ i ];
+        double y = src[ i + 1 ];
+        dst[ j ] = ( m00 * x ) + ( m01 * y ) + m03;
+        dst[ j + 1 ] = ( m10 * x ) + ( m11 * y ) + m13;
+        dst[ j + 2 ] = ( m22 * src[ i + 2 ] ) + m23;
+      }
+    } else {
+      double m02 = m[ 2 ];
+      double m12 = m[ 6 ];
+      double m20 = m[ 8 ];
+      double m21 = m[ 9 ];
+
+      for ( int i = srcOff, j = dstOff; i < end; i += 3, j += 3 ) {
+        double x = src[ i ];
+        double y = src[ i + 1 ];
+        double z = src[ i + 2 ];
+        dst[ j ] = ( m00 * x ) + ( m01 * y ) + ( m02 * z ) + m03;
+        dst[ j + 1 ] = ( m10 * x ) + ( m11 * y ) + ( m12 * z ) + m13;
+        dst[ j + 2 ] = ( m20 * x ) + ( m21 * y ) + ( m22 * z ) + m23;
+      }
+    }
+  }
+
+  /**
+   * Transform the bounding box and add the corners to the result bounds.
+   * Unset z values of the source bounds are treated as 0.
+   *
+   * @param b      the source bounds
+   * @param result the bounds to enlarge
+   * @return the result bounds
+   */
+  public Bounds transform( Bounds b, Bounds result ) {
+    double minZ = b.getMinimumZ();
+    double maxZ = b.getMaximumZ();
+
+    if ( Double.isInfinite( minZ ) || Double.isInfinite( maxZ ) ) {
+      minZ = 0.0;
+      maxZ = 0.0;
+    }
+
+    double[] c = new double[] {
+      b.getMinimumX(), b.getMinimumY(), minZ, b.getMaximumX(),
+      b.getMinimumY(), minZ, b.getMaximumX(), b.getMaximumY(), minZ,
+      b.getMinimumX(), b.getMaximumY(), minZ, b.getMinimumX(),
+      b.getMinimumY(), maxZ, b.getMaximumX(), b.getMinimumY(), maxZ,
+      b.getMaximumX(), b.getMaximumY(), maxZ, b.getMinimumX(),
+      b.getMaximumY(), maxZ
+    };
+    int count = ( this.planar && ( minZ == maxZ ) ) ? 4 : 8;
+    this.transform( c, c, count );
+    CoordinateUtils.addToBounds( c, 0, count, result );
+
+    return result;
+  }
+
+  protected void updateState() {
+    this.planar = ( m[ 2 ] == 0.0 ) && ( m[ 6 ] == 0.0 ) && ( m[ 8 ] == 0.0 ) &&
+      ( m[ 9 ] == 0.0 );
+    this.identity = this.planar && ( m[ 0 ] == 1.0 ) && ( m[ 1 ] == 0.0 ) &&
+      ( m[ 3 ] == 0.0 ) && ( m[ 4 ] == 0.0 ) && ( m[ 5 ] == 1.0 ) &&
+      ( m[ 7 ] == 0.0 ) && ( m[ 10 ] == 1.0 ) && ( m[ 11 ] == 0.0 );
+  }
+
+  /**
+   * Multiply two flat 3x4 matrices, the result can be a or b.
+   */
+  protected static void multiply( double[] a, double[] b, double[] result ) {
+    double b00 = b[ 0 ];
+    double b01 = b[ 1 ];
+    double b02 = b[ 2 ];
+    double b03 = b[ 3 ];
+    double b10 = b[ 4 ];
+    double b11 = b[ 5 ];
+    double b12 = b[ 6 ];
+    double b13 = b[ 7 ];
+    double b20 = b[ 8 ];
+    double b21 = b[ 9 ];
+    double b22 = b[ 10 ];
+    double b23 = b[ 11 ];
+
+    for ( int i = 0; i < 12; i += 4 ) {
+      double a0 = a[ i ];
+      double a1 = a[ i + 1 ];
+      double a2 = a[ i + 2 ];
+      double a3 = a[ i + 3 ];
+      result[ i ] = ( a0 * b00 ) + ( a1 * b10 ) + ( a2 * b20 );
+      result[ i + 1 ] = ( a0 * b01 ) + ( a1 * b11 ) + ( a2 * b21 );
+      result[ i + 2 ] = ( a0 * b02 ) + ( a1 * b12 ) + ( a2 * b22 );
+      result[ i + 3 ] = ( a0 * b03 ) + ( a1 * b13 ) + ( a2 * b23 ) + a3;
+    }
+  }
+}
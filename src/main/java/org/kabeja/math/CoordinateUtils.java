@@ -0,0 +1,295 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package org.kabeja.math;
+
+import org.kabeja.dxf.Bounds;
+import org.kabeja.dxf.helpers.Point;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Batch operations on packed coordinate arrays. The points are stored
+ * interleaved as x0,y0,z0,x1,y1,z1,... and all methods work in place or
+ * into a given destination array, so no objects are created in the loops.
+ */
+public class CoordinateUtils {
+  public final static int STRIDE = 3;
+
+  /**
+   * Creates a packed coordinate array from a list of points.
+   *
+   * @param points the list of Point
+   * @return the coordinates as x,y,z triples
+   */
+  public static double[] toArray( List points ) {
+    double[] c = new double[ points.size() * STRIDE ];
+    Iterator i = points.iterator();
+    int index = 0;
+
+    while ( i.hasNext() ) {
+      Point p = ( Point ) i.next();
+      c[ index++ ] = p.getX();
+      c[ index++ ] = p.getY();
+      c[ index++ ] = p.getZ();
+    }
+
+    return c;
+  }
+
+  /**
+   * Copy the coordinates of the point into the array.
+   *
+   * @param p
+   * @param c     the coordinate array
+   * @param index the index of the point (not the array offset)
+   */
+  public static void setPoint( Point p, double[] c, int index ) {
+    int o = index * STRIDE;
+    c[ o ] = p.getX();
+    c[ o + 1 ] = p.getY();
+    c[ o + 2 ] = p.getZ();
+  }
+
+  /**
+   * Copy the coordinates of the array into the point.
+   *
+   * @param c      the coordinate array
+   * @param index  the index of the point (not the array offset)
+   * @param result the point to store the coordinates in
+   * @return the result point
+   */
+  public static Point getPoint( double[] c, int index, Point result ) {
+    int o = index * STRIDE;
+    result.set( c[ o ], c[ o + 1 ], c[ o + 2 ] );
+
+    return result;
+  }
+
+  public static void translate( double[] c, int start, int count, double dx,
+                                double dy, double dz ) {
+    int end = ( start + count ) * STRIDE;
+
+    for ( int i = start * STRIDE; i < end; i += STRIDE ) {
+      c[ i ] += dx;
+      c[ i + 1 ] += dy;
+      c[ i + 2 ] += dz;
+    }
+  }
+
+  public static void scale( double[] c, int start, int count, double sx,
+                            double sy, double sz ) {
+    int end = ( start + count ) * STRIDE;
+
+    for ( int i = start * STRIDE; i < end; i += STRIDE ) {
+      c[ i ] *= sx;
+      c[ i + 1 ] *= sy;
+      c[ i + 2 ] *= sz;
+    }
+  }
+
+  /**
+   * Rotate the points around the origin in the X-Y plane.
+   *
+   * @param c     the coordinate array
+   * @param start the first point
+   * @param count the count of points
+   * @param cos   the cosine of the rotation angle
+   * @param sin   the sine of the rotation angle
+   */
+  public static void rotateXY( double[] c, int start, int count, double cos,
+                               double sin ) {
+    int end = ( start + count ) * STRIDE;
+
+    for ( int i = start * STRIDE; i < end; i += STRIDE ) {
+      double x = c[ i ];
+      double y = c[ i + 1 ];
+      c[ i ] = ( x * cos ) - ( y * sin );
+      c[ i + 1 ] = ( x * sin ) + ( y * cos );
+    }
+  }
+
+  /**
+   * Multiply all points with the homogeneous 4x4 matrix.
+   *
+   * @param m     the matrix
+   * @param src   the source coordinates
+   * @param dst   the destination coordinates, can be src
+   * @param count the count of points
+   */
+  public static void multiplyMatrix( double[][] m, double[] src, double[] dst,
+                                     int count ) {
+    double[] r0 = m[ 0 ];
+    double[] r1 = m[ 1 ];
+    double[] r2 = m[ 2 ];
+    int end = count * STRIDE;
+
+    for ( int i = 0; i < end; i += STRIDE ) {
+      double x = src[ i ];
+      double y = src[ i + 1 ];
+      double z = src[ i + 2 ];
+      dst[ i ] = ( r0[ 0 ] * x ) + ( r0[ 1 ] * y ) + ( r0[ 2 ] * z ) + r0[ 3 ];
+      dst[ i + 1 ] = ( r1[ 0 ] * x ) + ( r1[ 1 ] * y ) + ( r1[ 2 ] * z ) + r1[ 3 ];
+      dst[ i + 2 ] = ( r2[ 0 ] * x ) + ( r2[ 1 ] * y ) + ( r2[ 2 ] * z ) + r2[ 3 ];
+    }
+  }
+
+  /**
+   * Enlarge the bounds with the given points.
+   *
+   * @param c      the coordinate array
+   * @param start  the first point
+   * @param count  the count of points
+   * @param bounds the bounds to enlarge
+   */
+  public static void addToBounds( double[] c, int start, int count,
+                                  Bounds bounds ) {
+    int end = ( start + count ) * STRIDE;
+
+    for ( int i = start * STRIDE; i < end; i += STRIDE ) {
+      bounds.addToBounds( c[ i ], c[ i + 1 ], c[ i + 2 ] );
+    }
+  }
+
+  /**
+   * Calculate the length of the polyline through the points.
+   *
+   * @param c      the coordinate array
+   * @param start  the first point
+   * @param count  the count of points
+   * @param closed if true the last point is connected with the first
+   * @return the length
+   */
+  public static double getLength( double[] c, int start, int count,
+                                  boolean closed ) {
+    if ( count < 2 ) {
+      return 0.0;
+    }
+
+    int begin = start * STRIDE;
+    int end = ( start + count ) * STRIDE;
+    double length = 0.0;
+
+    for ( int i = begin + STRIDE; i < end; i += STRIDE ) {
+      length += MathUtils.distance( c[ i - STRIDE ], c[ i - 2 ], c[ i - 1 ],
+        c[ i ], c[ i + 1 ], c[ i + 2 ] );
+    }
+
+    if ( closed ) {
+      length += MathUtils.distance( c[ end - STRIDE ], c[ end - 2 ],
+        c[ end - 1 ], c[ begin ], c[ begin + 1 ], c[ begin + 2 ] );
+    }
+
+    return length;
+  }
+
+  /**
+   * Calculate the signed area of the closed polygon through the points,
+   * projected to the x-y plane. The area is positive if the points are
+   * counterclockwise.
+   *
+   * @param c     the coordinate array
+   * @param start the first point
+   * @param count the count of points
+   * @return the signed area
+   */
+  public static double getSignedAreaXY( double[] c, int start, int count ) {
+    if ( count < 3 ) {
+      return 0.0;
+    }
+
+    int begin = start * STRIDE;
+    int end = ( start + count ) * STRIDE;
+    double x0 = c[ begin ];
+    double y0 = c[ begin + 1 ];
+    double area = 0.0;
+
+    // relative to the first point to keep the precision for large coordinates
+    for ( int i = begin + STRIDE; i < ( end - STRIDE ); i += STRIDE ) {
+      area += ( ( ( c[ i ] - x0 ) * ( c[ i + STRIDE + 1 ] - y0 ) ) -
+        ( ( c[ i + STRIDE ] - x0 ) * ( c[ i + 1 ] - y0 ) ) );
+    }
+
+    return area / 2;
+  }
+
+  /**
+   * Calculate the area of the planar closed polygon through the points in
+   * any orientation.
+   *
+   * @param c     the coordinate array
+   * @param start the first point
+   * @param count the count of points
+   * @return the area
+   */
+  public static double getArea( double[] c, int start, int count ) {
+    if ( count < 3 ) {
+      return 0.0;
+    }
+
+    // the length of the Newell normal is the double area
+    int begin = start * STRIDE;
+    int end = ( start + count ) * STRIDE;
+    double nx = 0.0;
+    double ny = 0.0;
+    double nz = 0.0;
+
+    for ( int i = begin; i < end; i += STRIDE ) {
+      int j = ( ( i + STRIDE ) < end ) ? ( i + STRIDE ) : begin;
+      double x1 = c[ i ] - c[ begin ];
+      double y1 = c[ i + 1 ] - c[ begin + 1 ];
+      double z1 = c[ i + 2 ] - c[ begin + 2 ];
+      double x2 = c[ j ] - c[ begin ];
+      double y2 = c[ j + 1 ] - c[ begin + 1 ];
+      double z2 = c[ j + 2 ] - c[ begin + 2 ];
+      nx += ( ( y1 - y2 ) * ( z1 + z2 ) );
+      ny += ( ( z1 - z2 ) * ( x1 + x2 ) );
+      nz += ( ( x1 - x2 ) * ( y1 + y2 ) );
+    }
+
+    return Math.sqrt( ( nx * nx ) + ( ny * ny ) + ( nz * nz ) ) / 2;
+  }
+
+  /**
+   * Tests whether the point is inside the closed polygon projected to the
+   * x-y plane (even-odd rule).
+   *
+   * @param c     the coordinate array
+   * @param start the first point
+   * @param count the count of points
+   * @param x     the x coordinate of the point
+   * @param y     the y coordinate of the point
+   * @return true if the point is inside
+   */
+  public static boolean containsXY( double[] c, int start, int count,
+                                    double x, double y ) {
+    boolean inside = false;
+    int begin = start * STRIDE;
+    int end = ( start + count ) * STRIDE;
+
+    for ( int i = begin, j = end - STRIDE; i < end; j = i, i += STRIDE ) {
+      double yi = c[ i + 1 ];
+      double yj = c[ j + 1 ];
+
+      if ( ( ( yi > y ) != ( yj > y ) ) &&
+        ( x < ( ( ( ( c[ j ] - c[ i ] ) * ( y - yi ) ) / ( yj - yi ) ) + c[ i ] ) ) ) {
+        inside = !inside;
+      }
+    }
+
+    return inside;
+  }
+}
@@ -0,0 +1,151 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package org.kabeja.math;
+
+import org.kabeja.dxf.Bounds;
+
+/**
+ * The levels of detail of a flattened geometry. Level 0 is the geometry
+ * itself, level k has the tolerance minTolerance * 4^(k - 1). Each level is
+ * simplified from the previous one with 3/4 of its tolerance, so the
+ * accumulated deviation of a level stays below its tolerance. Levels are
+ * added until the tolerance reaches the size of the geometry or all parts
+ * are reduced to two points.
+ * <p>
+ * A geometry, which is smaller than the requested tolerance, is collapsed
+ * to the center of its bounds.
+ * </p>
+ */
+public class LODPath {
+  public final static double LEVEL_FACTOR = 4.0;
+  public final static int MAX_LEVELS = 16;
+  private PathBuffer[] levels;
+  private double[] tolerances;
+  private int levelCount;
+  private double size;
+  private double centerX;
+  private double centerY;
+  private double centerZ;
+
+  /**
+   * @param geometry     the flattened geometry, which is used as level 0
+   * @param minTolerance the tolerance of level 1
+   */
+  public LODPath( PathBuffer geometry, double minTolerance ) {
+    this( geometry, minTolerance, new PathSimplifier() );
+  }
+
+  public LODPath( PathBuffer geometry, double minTolerance,
+                  PathSimplifier simplifier ) {
+    this.levels = new PathBuffer[ MAX_LEVELS ];
+    this.tolerances = new double[ MAX_LEVELS ];
+    this.levels[ 0 ] = geometry;
+    this.levelCount = 1;
+
+    Bounds b = geometry.getBounds();
+
+    if ( b.isValid() ) {
+      this.size = Math.max( b.getWidth(), b.getHeight() );
+      this.centerX = ( b.getMinimumX() + b.getMaximumX() ) / 2;
+      this.centerY = ( b.getMinimumY() + b.getMaximumY() ) / 2;
+      this.centerZ = ( b.getMinimumZ() + b.getMaximumZ() ) / 2;
+    }
+
+    double tolerance = minTolerance;
+    PathBuffer last = geometry;
+
+    while ( ( minTolerance > 0.0 ) && ( this.levelCount < MAX_LEVELS ) &&
+      ( tolerance < this.size ) &&
+      ( last.getPointCount() > ( last.getPartCount() * 2 ) ) ) {
+      PathBuffer level = simplifier.simplify( last, tolerance * 0.75,
+          new PathBuffer( last.getPointCount() ) );
+
+      // a level without removed points shares the previous geometry
+      if ( level.getPointCount() < last.getPointCount() ) {
+        level.trimToSize();
+        last = level;
+      }
+
+      this.levels[ this.levelCount ] = last;
+      this.tolerances[ this.levelCount ] = tolerance;
+      this.levelCount++;
+      tolerance *= LEVEL_FACTOR;
+    }
+  }
+
+  public int getLevelCount() { return this.levelCount; }
+
+  public PathBuffer getLevel( int level ) { return this.levels[ level ]; }
+
+  /**
+   * @return the maximal deviation of the level from level 0
+   */
+  public double getTolerance( int level ) { return this.tolerances[ level ]; }
+
+  /**
+   * @return the larger side of the bounds
+   */
+  public double getSize() { return this.size; }
+
+  public double getCenterX() { return this.centerX; }
+
+  public double getCenterY() { return this.centerY; }
+
+  public double getCenterZ() { return this.centerZ; }
+
+  /**
+   * @return true if the geometry is smaller than the tolerance
+   */
+  public boolean isCollapsed( double tolerance ) {
+    return this.size <= tolerance;
+  }
+
+  /**
+   * @return the coarsest level with a tolerance not larger than the given
+   * tolerance
+   */
+  public int getLevelIndex( double tolerance ) {
+    int level = 0;
+
+    while ( ( ( level + 1 ) < this.levelCount ) &&
+      ( this.tolerances[ level + 1 ] <= tolerance ) ) {
+      level++;
+    }
+
+    return level;
+  }
+
+  /**
+   * Returns the geometry for the tolerance, a collapsed geometry is a
+   * single point at the center.
+   *
+   * @param tolerance the allowed deviation, for rendering about half the
+   *                  size of a pixel
+   * @return the geometry, which must not be changed
+   */
+  public PathBuffer getGeometry( double tolerance ) {
+    if ( this.isCollapsed( tolerance ) ) {
+      PathBuffer point = new PathBuffer( 1 );
+      point.moveTo( this.centerX, this.centerY, this.centerZ );
+
+      return point;
+    }
+
+    return this.levels[ this.getLevelIndex( tolerance ) ];
+  }
+}
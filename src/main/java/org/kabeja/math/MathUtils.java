@@ -26,23 +26,43 @@ public class MathUtils {
   public final static double DISTANCE_DELTA = 0.00001;
 
   public static Point getIntersection( Point a, Vector u, Point b, Vector v ) {
+    return getIntersection( a, u, b, v, new Point() );
+  }
+
+  /**
+   * Calculate the intersection of the straight lines a+s*u and b+t*v and
+   * store it in the given result point.
+   *
+   * @param a      the startpoint of the first line
+   * @param u      the direction of the first line
+   * @param b      the startpoint of the second line
+   * @param v      the direction of the second line
+   * @param result the point to store the intersection in, can be a or b
+   * @return the result point
+   */
+  public static Point getIntersection( Point a, Vector u, Point b, Vector v, Point result ) {
     //u = normalize(u);
     //v = normalize(v);
-    Vector n = crossProduct( u, v );
-    Vector m = crossProduct( getVector( a, b ), v );
+    // n = u x v
+    double nx = ( u.getY() * v.getZ() ) - ( u.getZ() * v.getY() );
+    double ny = ( u.getZ() * v.getX() ) - ( u.getX() * v.getZ() );
+    double nz = ( u.getX() * v.getY() ) - ( u.getY() * v.getX() );
+
+    // m = (b-a) x v
+    double wx = b.getX() - a.getX();
+    double wy = b.getY() - a.getY();
+    double wz = b.getZ() - a.getZ();
     double s = 0;
 
-    if ( n.getZ() != 0.0 ) {
-      s = m.getZ() / n.getZ();
-    } else if ( n.getY() != 0.0 ) {
-      s = m.getY() / n.getY();
-    } else if ( n.getX() != 0.0 ) {
-      s = m.getX() / n.getX();
+    if ( nz != 0.0 ) {
+      s = ( ( wx * v.getY() ) - ( wy * v.getX() ) ) / nz;
+    } else if ( ny != 0.0 ) {
+      s = ( ( wz * v.getX() ) - ( wx * v.getZ() ) ) / ny;
+    } else if ( nx != 0.0 ) {
+      s = ( ( wy * v.getZ() ) - ( wz * v.getY() ) ) / nx;
     }
 
-    Point p = getPointOfStraightLine( a, u, s );
-
-    return p;
+    return getPointOfStraightLine( a, u, s, result );
   }
 
   /**
@@ -53,12 +73,24 @@ public class MathUtils {
    * @return a new vector as result of the cross product of a and b
    */
   public static Vector crossProduct( Vector a, Vector b ) {
-    Vector r = new Vector();
-    r.setX( ( a.getY() * b.getZ() ) - ( a.getZ() * b.getY() ) );
-    r.setY( ( a.getZ() * b.getX() ) - ( a.getX() * b.getZ() ) );
-    r.setZ( ( a.getX() * b.getY() ) - ( a.getY() * b.getX() ) );
+    return crossProduct( a, b, new Vector() );
+  }
+
+  /**
+   * Calculate the cross product of 2 vectors and store it in the result.
+   *
+   * @param a
+   * @param b
+   * @param result the vector to store the cross product in, can be a or b
+   * @return the result vector
+   */
+  public static Vector crossProduct( Vector a, Vector b, Vector result ) {
+    double x = ( a.getY() * b.getZ() ) - ( a.getZ() * b.getY() );
+    double y = ( a.getZ() * b.getX() ) - ( a.getX() * b.getZ() );
+    double z = ( a.getX() * b.getY() ) - ( a.getY() * b.getX() );
+    result.set( x, y, z );
 
-    return r;
+    return result;
   }
 
   /**
@@ -69,13 +101,21 @@ public class MathUtils {
    * @return the vector from a to b
    */
   public static Vector getVector( Point a, Point b ) {
-    Vector v = new Vector();
+    return getVector( a, b, new Vector() );
+  }
 
-    v.setX( b.getX() - a.getX() );
-    v.setY( b.getY() - a.getY() );
-    v.setZ( b.getZ() - a.getZ() );
+  /**
+   * Calculate the vector from point a to point b and store it in the result.
+   *
+   * @param a
+   * @param b
+   * @param result the vector to store the direction in
+   * @return the result vector
+   */
+  public static Vector getVector( Point a, Point b, Vector result ) {
+    result.set( b.getX() - a.getX(), b.getY() - a.getY(), b.getZ() - a.getZ() );
 
-    return v;
+    return result;
   }
 
   /**
@@ -90,15 +130,28 @@ public class MathUtils {
     Point a,
     Vector direction,
     double parameter ) {
-    // p = a + v*scale
-    Point p = new Point();
-    Vector v = scaleVector( direction, parameter );
+    return getPointOfStraightLine( a, direction, parameter, new Point() );
+  }
 
-    p.setX( a.getX() + v.getX() );
-    p.setY( a.getY() + v.getY() );
-    p.setZ( a.getZ() + v.getZ() );
+  /**
+   * Calculate a point of a straigt line and store it in the result.
+   *
+   * @param a         the startpoint of the straight line
+   * @param direction the direction vector of the straight line
+   * @param parameter the parameter
+   * @param result    the point to store the coordinates in, can be a
+   * @return the result point
+   */
+  public static Point getPointOfStraightLine(
+    Point a,
+    Vector direction,
+    double parameter,
+    Point result ) {
+    // p = a + v*scale
+    result.set( a.getX() + ( direction.getX() * parameter ),
+      a.getY() + ( direction.getY() * parameter ), a.getZ() + ( direction.getZ() * parameter ) );
 
-    return p;
+    return result;
   }
 
   /**
@@ -109,21 +162,34 @@ public class MathUtils {
    * @return a new vector scaled with the given
    */
   public static Vector scaleVector( Vector a, double scale ) {
-    Vector v = new Vector();
+    return scaleVector( a, scale, new Vector() );
+  }
 
-    v.setX( a.getX() * scale );
-    v.setY( a.getY() * scale );
-    v.setZ( a.getZ() * scale );
+  /**
+   * Scale a vector with the given value and store it in the result.
+   *
+   * @param a      the vector
+   * @param scale  the value to scale
+   * @param result the vector to store the scaled vector in, can be a
+   * @return the result vector
+   */
+  public static Vector scaleVector( Vector a, double scale, Vector result ) {
+    result.set( a.getX() * scale, a.getY() * scale, a.getZ() * scale );
 
-    return v;
+    return result;
   }
 
   public static double distance( Point start, Point end ) {
-    double length = Math.sqrt( Math.pow( ( end.getX() - start.getX() ), 2 ) +
-      Math.pow( ( end.getY() - start.getY() ), 2 ) +
-      Math.pow( ( end.getZ() - start.getZ() ), 2 ) );
+    return distance( start.getX(), start.getY(), start.getZ(), end.getX(), end.getY(), end.getZ() );
+  }
+
+  public static double distance( double x1, double y1, double z1, double x2,
+                                 double y2, double z2 ) {
+    double dx = x2 - x1;
+    double dy = y2 - y1;
+    double dz = z2 - z1;
 
-    return length;
+    return Math.sqrt( ( dx * dx ) + ( dy * dy ) + ( dz * dz ) );
   }
 
   /**
@@ -147,10 +213,7 @@ public class MathUtils {
    * @return the result of the scalar product
    */
   public static double scalarProduct( Vector a, Vector b ) {
-    double r = ( a.getX() * b.getX() ) + ( a.getY() * b.getY() ) +
-      ( a.getZ() * b.getZ() );
-
-    return r;
+    return ( a.getX() * b.getX() ) + ( a.getY() * b.getY() ) + ( a.getZ() * b.getZ() );
   }
 
   /**
@@ -160,10 +223,7 @@ public class MathUtils {
    * @return
    */
   public static double absoluteValue( Vector v ) {
-    double r = Math.sqrt( Math.pow( v.getX(), 2 ) + Math.pow( v.getY(), 2 ) +
-      Math.pow( v.getZ(), 2 ) );
-
-    return r;
+    return Math.sqrt( ( v.getX() * v.getX() ) + ( v.getY() * v.getY() ) + ( v.getZ() * v.getZ() ) );
   }
 
   /**
@@ -176,20 +236,43 @@ public class MathUtils {
    * @return the rotated point
    */
   public static Point rotatePointXY( Point p, Point center, double angle ) {
-    Point r = new Point();
-    r.setX( ( center.getX() + ( Math.cos( angle ) * ( p.getX() - center.getX() ) ) ) -
-      ( ( p.getY() - center.getY() ) * Math.sin( angle ) ) );
-    r.setY( ( center.getY() + ( Math.cos( angle ) * ( p.getY() - center.getY() ) ) ) -
-      ( ( p.getX() - center.getX() ) * Math.sin( angle ) ) );
-    r.setZ( p.getZ() );
-
-    return r;
+    return rotatePointXY( p, center, angle, new Point() );
+  }
+
+  /**
+   * Rotate the given point around centerpoint with the given angle in X-Y
+   * plane and store it in the result.
+   *
+   * @param p      the point to rotate
+   * @param center the centerpoint
+   * @param angle  in radian
+   * @param result the point to store the rotated point in, can be p
+   * @return the result point
+   */
+  public static Point rotatePointXY( Point p, Point center, double angle, Point result ) {
+    double cos = Math.cos( angle );
+    double sin = Math.sin( angle );
+    double dx = p.getX() - center.getX();
+    double dy = p.getY() - center.getY();
+    result.set( ( center.getX() + ( cos * dx ) ) - ( dy * sin ),
+      ( center.getY() + ( cos * dy ) ) - ( dx * sin ), p.getZ() );
+
+    return result;
   }
 
   public static Vector normalize( Vector v ) {
-    double l = absoluteValue( v );
+    return normalize( v, new Vector() );
+  }
 
-    return scaleVector( v, ( 1 / l ) );
+  /**
+   * Normalize the vector and store it in the result.
+   *
+   * @param v
+   * @param result the vector to store the normalized vector in, can be v
+   * @return the result vector
+   */
+  public static Vector normalize( Vector v, Vector result ) {
+    return scaleVector( v, ( 1 / absoluteValue( v ) ), result );
   }
 
   /**
@@ -294,15 +377,36 @@ public class MathUtils {
         "Cannot multiply a with v, columns of a != rows of v. " );
     }
 
-    double[] r = new double[ a.length ];
+    return multiplyMatrixByVector( a, v, new double[ a.length ] );
+  }
+
+  /**
+   * Multiply the matrix with the vector and store it in the result array.
+   *
+   * @param a      the matrix
+   * @param v      the vector
+   * @param result the array to store the product in, must not be v
+   * @return the result array
+   */
+  public static double[] multiplyMatrixByVector( double[][] a, double[] v, double[] result )
+    throws IllegalArgumentException {
+    if ( a[ 0 ].length != v.length ) {
+      throw new IllegalArgumentException(
+        "Cannot multiply a with v, columns of a != rows of v. " );
+    }
 
     for ( int i = 0; i < a.length; i++ ) {
+      double[] row = a[ i ];
+      double r = 0.0;
+
       for ( int x = 0; x < v.length; x++ ) {
-        r[ i ] += ( a[ i ][ x ] * v[ x ] );
+        r += ( row[ x ] * v[ x ] );
       }
+
+      result[ i ] = r;
     }
 
-    return r;
+    return result;
   }
 
   /**
@@ -313,19 +417,37 @@ public class MathUtils {
    * @return the difference as vector
    */
   public static Vector subtractVectorByVector( Vector a, Vector b ) {
-    Vector result = new Vector();
-    result.setX( a.getX() - b.getX() );
-    result.setY( a.getY() - b.getY() );
-    result.setZ( a.getZ() - b.getZ() );
+    return subtractVectorByVector( a, b, new Vector() );
+  }
+
+  /**
+   * Substracts a vector from other vector and store it in the result.
+   *
+   * @param a      the minuend
+   * @param b      the subtrahend
+   * @param result the vector to store the difference in, can be a or b
+   * @return the result vector
+   */
+  public static Vector subtractVectorByVector( Vector a, Vector b, Vector result ) {
+    result.set( a.getX() - b.getX(), a.getY() - b.getY(), a.getZ() - b.getZ() );
 
     return result;
   }
 
   public static Vector addVectorToVector( Vector a, Vector b ) {
-    Vector result = new Vector();
-    result.setX( a.getX() + b.getX() );
-    result.setY( a.getY() + b.getY() );
-    result.setZ( a.getZ() + b.getZ() );
+    return addVectorToVector( a, b, new Vector() );
+  }
+
+  /**
+   * Adds two vectors and store the sum in the result.
+   *
+   * @param a
+   * @param b
+   * @param result the vector to store the sum in, can be a or b
+   * @return the result vector
+   */
+  public static Vector addVectorToVector( Vector a, Vector b, Vector result ) {
+    result.set( a.getX() + b.getX(), a.getY() + b.getY(), a.getZ() + b.getZ() );
 
     return result;
   }
@@ -0,0 +1,297 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package org.kabeja.math;
+
+import org.kabeja.dxf.Bounds;
+
+/**
+ * A growable buffer of flattened geometry. The points of all parts are
+ * stored packed as x,y,z triples in one array, a part is a sequence of
+ * connected points (a polyline), which can be closed. A part with a single
+ * point is a point geometry.
+ */
+public class PathBuffer {
+  protected double[] coordinates;
+  protected int[] partStarts;
+  protected boolean[] closed;
+  protected int pointCount = 0;
+  protected int partCount = 0;
+
+  public PathBuffer() {
+    this( 16 );
+  }
+
+  /**
+   * @param capacity the initial count of points
+   */
+  public PathBuffer( int capacity ) {
+    this.coordinates = new double[ Math.max( capacity, 1 ) * 3 ];
+    this.partStarts = new int[ 4 ];
+    this.closed = new boolean[ 4 ];
+  }
+
+  /**
+   * Creates a copy of the given buffer with the exact size.
+   *
+   * @param buffer
+   */
+  public PathBuffer( PathBuffer buffer ) {
+    this.coordinates = new double[ Math.max( buffer.pointCount, 1 ) * 3 ];
+    this.partStarts = new int[ Math.max( buffer.partCount, 1 ) ];
+    this.closed = new boolean[ Math.max( buffer.partCount, 1 ) ];
+    this.set( buffer );
+  }
+
+  /**
+   * Replace the content with the content of the given buffer.
+   *
+   * @param buffer
+   */
+  public void set( PathBuffer buffer ) {
+    this.clear();
+    this.ensurePoints( buffer.pointCount );
+    this.ensureParts( buffer.partCount );
+    System.arraycopy( buffer.coordinates, 0, this.coordinates, 0, buffer.pointCount * 3 );
+    System.arraycopy( buffer.partStarts, 0, this.partStarts, 0, buffer.partCount );
+    System.arraycopy( buffer.closed, 0, this.closed, 0, buffer.partCount );
+    this.pointCount = buffer.pointCount;
+    this.partCount = buffer.partCount;
+  }
+
+  /**
+   * Append all parts of the given buffer.
+   *
+   * @param buffer
+   */
+  public void append( PathBuffer buffer ) {
+    this.ensurePoints( this.pointCount + buffer.pointCount );
+    this.ensureParts( this.partCount + buffer.partCount );
+    System.arraycopy( buffer.coordinates, 0, this.coordinates,
+      this.pointCount * 3, buffer.pointCount * 3 );
+
+    for ( int i = 0; i < buffer.partCount; i++ ) {
+      this.partStarts[ this.partCount + i ] = buffer.partStarts[ i ] + this.pointCount;
+      this.closed[ this.partCount + i ] = buffer.closed[ i ];
+    }
+
+    this.pointCount += buffer.pointCount;
+    this.partCount += buffer.partCount;
+  }
+
+  public void clear() {
+    this.pointCount = 0;
+    this.partCount = 0;
+  }
+
+  public boolean isEmpty() { return this.pointCount == 0; }
+
+  /**
+   * Start a new part with the given point.
+   */
+  public void moveTo( double x, double y, double z ) {
+    this.ensureParts( this.partCount + 1 );
+    this.partStarts[ this.partCount ] = this.pointCount;
+    this.closed[ this.partCount ] = false;
+    this.partCount++;
+    this.addPoint( x, y, z );
+  }
+
+  /**
+   * Add a point to the current part.
+   */
+  public void lineTo( double x, double y, double z ) {
+    if ( this.partCount == 0 ) {
+      this.moveTo( x, y, z );
+    } else {
+      this.addPoint( x, y, z );
+    }
+  }
+
+  /**
+   * Mark the current part as closed, the first point is not repeated.
+   */
+  public void closePart() {
+    if ( this.partCount > 0 ) {
+      this.closed[ this.partCount - 1 ] = true;
+    }
+  }
+
+  /**
+   * Remove the last point, a part without points is removed too.
+   */
+  public void removeLastPoint() {
+    if ( this.pointCount > 0 ) {
+      this.pointCount--;
+
+      if ( ( this.partCount > 0 ) &&
+        ( this.partStarts[ this.partCount - 1 ] == this.pointCount ) ) {
+        this.partCount--;
+      }
+    }
+  }
+
+  protected void addPoint( double x, double y, double z ) {
+    this.ensurePoints( this.pointCount + 1 );
+
+    int i = this.pointCount * 3;
+    this.coordinates[ i ] = x;
+    this.coordinates[ i + 1 ] = y;
+    this.coordinates[ i + 2 ] = z;
+    this.pointCount++;
+  }
+
+  public int getPointCount() { return this.pointCount; }
+
+  public int getPartCount() { return this.partCount; }
+
+  /**
+   * @return the index of the first point of the part
+   */
+  public int getPartStart( int part ) { return this.partStarts[ part ]; }
+
+  /**
+   * @return the index after the last point of the part
+   */
+  public int getPartEnd( int part ) {
+    if ( ( part + 1 ) < this.partCount ) {
+      return this.partStarts[ part + 1 ];
+    }
+
+    return this.pointCount;
+  }
+
+  public int getPartPointCount( int part ) {
+    return this.getPartEnd( part ) - this.partStarts[ part ];
+  }
+
+  public boolean isClosed( int part ) { return this.closed[ part ]; }
+
+  /**
+   * Returns the internal coordinate array, which can be larger than the
+   * count of points. The array is replaced if the buffer grows.
+   *
+   * @return the packed x,y,z coordinates
+   */
+  public double[] getCoordinates() { return this.coordinates; }
+
+  public double getX( int point ) { return this.coordinates[ point * 3 ]; }
+
+  public double getY( int point ) { return this.coordinates[ ( point * 3 ) + 1 ]; }
+
+  public double getZ( int point ) { return this.coordinates[ ( point * 3 ) + 2 ]; }
+
+  /**
+   * Transform all points in place.
+   *
+   * @param t
+   */
+  public void transform( AffineTransform3D t ) {
+    t.transform( this.coordinates, this.coordinates, this.pointCount );
+  }
+
+  /**
+   * Transform all points into the result buffer, the structure of the parts
+   * is copied.
+   *
+   * @param t
+   * @param result
+   * @return the result buffer
+   */
+  public PathBuffer transform( AffineTransform3D t, PathBuffer result ) {
+    if ( result != this ) {
+      result.clear();
+      result.ensurePoints( this.pointCount );
+      result.ensureParts( this.partCount );
+      System.arraycopy( this.partStarts, 0, result.partStarts, 0, this.partCount );
+      System.arraycopy( this.closed, 0, result.closed, 0, this.partCount );
+      result.pointCount = this.pointCount;
+      result.partCount = this.partCount;
+    }
+
+    t.transform( this.coordinates, result.coordinates, this.pointCount );
+
+    return result;
+  }
+
+  /**
+   * @return the length of all parts
+   */
+  public double getLength() {
+    double length = 0.0;
+
+    for ( int i = 0; i < this.partCount; i++ ) {
+      length += CoordinateUtils.getLength( this.coordinates, this.partStarts[ i ],
+        this.getPartPointCount( i ), this.closed[ i ] );
+    }
+
+    return length;
+  }
+
+  public Bounds getBounds() {
+    Bounds bounds = new Bounds();
+
+    if ( this.pointCount == 0 ) {
+      bounds.setValid( false );
+    } else {
+      CoordinateUtils.addToBounds( this.coordinates, 0, this.pointCount, bounds );
+    }
+
+    return bounds;
+  }
+
+  /**
+   * Reduce the internal arrays to the used size.
+   */
+  public void trimToSize() {
+    if ( this.coordinates.length > ( this.pointCount * 3 ) ) {
+      double[] c = new double[ this.pointCount * 3 ];
+      System.arraycopy( this.coordinates, 0, c, 0, c.length );
+      this.coordinates = c;
+    }
+
+    if ( this.partStarts.length > this.partCount ) {
+      int[] p = new int[ this.partCount ];
+      System.arraycopy( this.partStarts, 0, p, 0, p.length );
+      this.partStarts = p;
+
+      boolean[] b = new boolean[ this.partCount ];
+      System.arraycopy( this.closed, 0, b, 0, b.length );
+      this.closed = b;
+    }
+  }
+
+  protected void ensurePoints( int count ) {
+    if ( ( count * 3 ) > this.coordinates.length ) {
+      double[] c = new double[ Math.max( count * 3, this.coordinates.length * 2 ) ];
+      System.arraycopy( this.coordinates, 0, c, 0, this.pointCount * 3 );
+      this.coordinates = c;
+    }
+  }
+
+  protected void ensureParts( int count ) {
+    if ( count > this.partStarts.length ) {
+      int size = Math.max( count, this.partStarts.length * 2 );
+      int[] p = new int[ size ];
+      System.arraycopy( this.partStarts, 0, p, 0, this.partCount );
+      this.partStarts = p;
+
+      boolean[] b = new boolean[ size ];
+      System.arraycopy( this.closed, 0, b, 0, this.partCount );
+      this.closed = b;
+    }
+  }
+}
@@ -0,0 +1,192 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package org.kabeja.math;
+
+/**
+ * Simplifies the parts of a PathBuffer with the Douglas-Peucker algorithm.
+ * The distance is measured in the x-y plane, the z coordinates of the kept
+ * points are copied. The first and the last point of an open part are kept,
+ * a closed part is split at the first point and at the point farthest from
+ * it, so at least two points remain.
+ * <p>
+ * A simplifier reuses its buffers and is not thread-safe, use one instance
+ * per thread.
+ * </p>
+ */
+public class PathSimplifier {
+  private boolean[] keep = new boolean[ 256 ];
+  private int[] stack = new int[ 512 ];
+
+  /**
+   * Simplifies all parts of the source into the result buffer, which is
+   * cleared first.
+   *
+   * @param source    the geometry
+   * @param tolerance the maximal distance between the source and the result
+   * @param result    the buffer for the simplified geometry
+   * @return the result buffer
+   */
+  public PathBuffer simplify( PathBuffer source, double tolerance,
+                              PathBuffer result ) {
+    result.clear();
+
+    double[] c = source.getCoordinates();
+
+    for ( int part = 0; part < source.getPartCount(); part++ ) {
+      int start = source.getPartStart( part );
+      int n = source.getPartPointCount( part );
+
+      if ( ( n < 3 ) || ( tolerance <= 0.0 ) ) {
+        this.copy( c, start, n, null, result );
+      } else if ( source.isClosed( part ) ) {
+        int far = start;
+        double max = -1.0;
+
+        for ( int i = start + 1; i < ( start + n ); i++ ) {
+          double dx = c[ i * 3 ] - c[ start * 3 ];
+          double dy = c[ ( i * 3 ) + 1 ] - c[ ( start * 3 ) + 1 ];
+          double d = ( dx * dx ) + ( dy * dy );
+
+          if ( d > max ) {
+            max = d;
+            far = i;
+          }
+        }
+
+        this.ensure( n + 1 );
+        this.mark( c, start, n + 1, far - start, tolerance * tolerance );
+        this.copy( c, start, n, this.keep, result );
+      } else {
+        this.ensure( n );
+        this.mark( c, start, n, -1, tolerance * tolerance );
+        this.copy( c, start, n, this.keep, result );
+      }
+
+      if ( source.isClosed( part ) ) {
+        result.closePart();
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Marks the points to keep. The index n - 1 of a closed part is the first
+   * point again.
+   *
+   * @param split a point, which is kept and splits the part or -1
+   */
+  protected void mark( double[] c, int start, int n, int split,
+                       double toleranceSq ) {
+    for ( int i = 0; i < n; i++ ) {
+      this.keep[ i ] = false;
+    }
+
+    this.keep[ 0 ] = true;
+    this.keep[ n - 1 ] = true;
+
+    int top = 0;
+
+    if ( split > 0 ) {
+      this.keep[ split ] = true;
+      this.stack[ top++ ] = 0;
+      this.stack[ top++ ] = split;
+      this.stack[ top++ ] = split;
+      this.stack[ top++ ] = n - 1;
+    } else {
+      this.stack[ top++ ] = 0;
+      this.stack[ top++ ] = n - 1;
+    }
+
+    int count = n - 1;
+
+    while ( top > 0 ) {
+      int b = this.stack[ --top ];
+      int a = this.stack[ --top ];
+      int ia = ( start + ( a % count ) ) * 3;
+      int ib = ( start + ( b % count ) ) * 3;
+      double max = toleranceSq;
+      int index = -1;
+
+      for ( int i = a + 1; i < b; i++ ) {
+        int ip = ( start + i ) * 3;
+        double d = distanceSq( c[ ip ], c[ ip + 1 ], c[ ia ], c[ ia + 1 ],
+            c[ ib ], c[ ib + 1 ] );
+
+        if ( d > max ) {
+          max = d;
+          index = i;
+        }
+      }
+
+      if ( index > 0 ) {
+        this.keep[ index ] = true;
+        this.stack[ top++ ] = a;
+        this.stack[ top++ ] = index;
+        this.stack[ top++ ] = index;
+        this.stack[ top++ ] = b;
+      }
+    }
+  }
+
+  protected void copy( double[] c, int start, int n, boolean[] keep,
+                       PathBuffer result ) {
+    boolean first = true;
+
+    for ( int i = 0; i < n; i++ ) {
+      if ( ( keep == null ) || keep[ i ] ) {
+        int p = ( start + i ) * 3;
+
+        if ( first ) {
+          result.moveTo( c[ p ], c[ p + 1 ], c[ p + 2 ] );
+          first = false;
+        } else {
+          result.lineTo( c[ p ], c[ p + 1 ], c[ p + 2 ] );
+        }
+      }
+    }
+  }
+
+  protected void ensure( int n ) {
+    if ( this.keep.length < n ) {
+      this.keep = new boolean[ n * 2 ];
+      this.stack = new int[ n * 4 ];
+    }
+  }
+
+  /**
+   * @return the squared distance of the point to the segment
+   */
+  public static double distanceSq( double px, double py, double ax,
+                                   double ay, double bx, double by ) {
+    double dx = bx - ax;
+    double dy = by - ay;
+    double length = ( dx * dx ) + ( dy * dy );
+    double t = 0.0;
+
+    if ( length > 0.0 ) {
+      t = ( ( ( px - ax ) * dx ) + ( ( py - ay ) * dy ) ) / length;
+      t = Math.max( 0.0, Math.min( 1.0, t ) );
+    }
+
+    double x = ax + ( t * dx ) - px;
+    double y = ay + ( t * dy ) - py;
+
+    return ( x * x ) + ( y * y );
+  }
+}
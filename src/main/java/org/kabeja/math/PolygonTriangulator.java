@@ -0,0 +1,700 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package org.kabeja.math;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Triangulates the closed parts of a PathBuffer in the x-y plane with ear
+ * clipping. The parts are nested by the even-odd rule: a part inside an
+ * odd count of other parts is a hole of the smallest part around it. Each
+ * hole is bridged into its outer part, so every outer part becomes one
+ * polygon, which is clipped in counter-clockwise order.
+ * <p>
+ * Duplicate and collinear points are removed, if no ear is found. Small
+ * self-intersections are cut off and a polygon, which still has no ear, is
+ * split at a valid diagonal, so the input of hatches with touching or
+ * crossing loops is triangulated as far as possible.
+ * </p>
+ * <p>
+ * The triangles reference the points of the buffer and are oriented
+ * counter-clockwise. A triangulator reuses its buffers and is not
+ * thread-safe, use one instance per thread.
+ * </p>
+ */
+public class PolygonTriangulator {
+  private final static int PASS_FILTER = 1;
+  private final static int PASS_CURE = 2;
+  private final static int PASS_SPLIT = 3;
+
+  // the nodes of the linked polygon
+  private double[] x = new double[ 256 ];
+  private double[] y = new double[ 256 ];
+  private int[] index = new int[ 256 ];
+  private int[] prev = new int[ 256 ];
+  private int[] next = new int[ 256 ];
+  private int nodeCount;
+
+  // the pending polygons and passes
+  private int[] stack = new int[ 32 ];
+  private int stackSize;
+  private Triangulation result;
+
+  /**
+   * Triangulates the closed parts of the buffer, open parts and parts with
+   * less than 3 points are ignored.
+   *
+   * @param rings the parts
+   * @return the triangles over the points of the buffer
+   */
+  public Triangulation triangulate( PathBuffer rings ) {
+    Triangulation t = new Triangulation( rings );
+    this.triangulate( rings, t );
+
+    return t;
+  }
+
+  public void triangulate( PathBuffer rings, Triangulation result ) {
+    this.result = result;
+
+    double[] c = rings.getCoordinates();
+    int parts = rings.getPartCount();
+    int[] depth = new int[ parts ];
+    int[] parent = new int[ parts ];
+    double[] area = new double[ parts ];
+
+    for ( int p = 0; p < parts; p++ ) {
+      parent[ p ] = -1;
+      area[ p ] = isRing( rings, p )
+        ? Math.abs( CoordinateUtils.getSignedAreaXY( c,
+            rings.getPartStart( p ), rings.getPartPointCount( p ) ) ) : 0.0;
+    }
+
+    // the nesting of the rings by containment of the first point
+    for ( int p = 0; p < parts; p++ ) {
+      if ( area[ p ] == 0.0 ) {
+        continue;
+      }
+
+      int start = rings.getPartStart( p );
+
+      for ( int o = 0; o < parts; o++ ) {
+        if ( ( o != p ) && ( area[ o ] > 0.0 ) &&
+          CoordinateUtils.containsXY( c, rings.getPartStart( o ),
+            rings.getPartPointCount( o ), c[ start * 3 ], c[ ( start * 3 ) + 1 ] ) ) {
+          depth[ p ]++;
+
+          if ( ( parent[ p ] < 0 ) || ( area[ o ] < area[ parent[ p ] ] ) ) {
+            parent[ p ] = o;
+          }
+        }
+      }
+    }
+
+    for ( int p = 0; p < parts; p++ ) {
+      if ( ( area[ p ] > 0.0 ) && ( ( depth[ p ] % 2 ) == 0 ) ) {
+        this.nodeCount = 0;
+
+        int outer = this.linkedList( rings, p, true );
+
+        if ( ( outer < 0 ) || ( this.next[ outer ] == this.prev[ outer ] ) ) {
+          continue;
+        }
+
+        int holeCount = 0;
+        int[] holes = new int[ 4 ];
+
+        for ( int h = 0; h < parts; h++ ) {
+          if ( ( area[ h ] > 0.0 ) && ( parent[ h ] == p ) &&
+            ( ( depth[ h ] % 2 ) == 1 ) ) {
+            int list = this.linkedList( rings, h, false );
+
+            if ( ( list >= 0 ) && ( this.next[ list ] != list ) ) {
+              if ( holeCount == holes.length ) {
+                holes = grow( holes );
+              }
+
+              holes[ holeCount++ ] = this.getLeftmost( list );
+            }
+          }
+        }
+
+        if ( holeCount > 0 ) {
+          outer = this.eliminateHoles( holes, holeCount, outer );
+        }
+
+        this.earcut( outer );
+      }
+    }
+
+    this.result = null;
+  }
+
+  protected static boolean isRing( PathBuffer rings, int part ) {
+    return rings.isClosed( part ) && ( rings.getPartPointCount( part ) > 2 );
+  }
+
+  /**
+   * Clips the ears of the polygon and of all polygons split from it.
+   */
+  protected void earcut( int start ) {
+    this.stackSize = 0;
+    this.push( start, 0 );
+
+    while ( this.stackSize > 0 ) {
+      int pass = this.stack[ --this.stackSize ];
+      int ear = this.stack[ --this.stackSize ];
+
+      if ( ear < 0 ) {
+        continue;
+      }
+
+      int stop = ear;
+      boolean clipped = true;
+
+      while ( this.prev[ ear ] != this.next[ ear ] ) {
+        int p = this.prev[ ear ];
+        int n = this.next[ ear ];
+
+        if ( this.isEar( ear ) ) {
+          this.result.addTriangle( this.index[ p ], this.index[ ear ],
+            this.index[ n ] );
+          this.removeNode( ear );
+
+          // skipping the next vertex leads to less sliver triangles
+          ear = this.next[ n ];
+          stop = ear;
+
+          continue;
+        }
+
+        ear = n;
+
+        if ( ear == stop ) {
+          clipped = false;
+
+          break;
+        }
+      }
+
+      if ( clipped ) {
+        continue;
+      }
+
+      if ( pass == 0 ) {
+        this.push( this.filterPoints( ear, -1 ), PASS_FILTER );
+      } else if ( pass == PASS_FILTER ) {
+        this.push( this.cureLocalIntersections( this.filterPoints( ear, -1 ) ),
+          PASS_CURE );
+      } else if ( pass == PASS_CURE ) {
+        this.splitEarcut( ear );
+      }
+    }
+  }
+
+  protected boolean isEar( int ear ) {
+    int a = this.prev[ ear ];
+    int c = this.next[ ear ];
+
+    if ( this.area( a, ear, c ) >= 0 ) {
+      // reflex
+      return false;
+    }
+
+    double ax = this.x[ a ];
+    double ay = this.y[ a ];
+    double bx = this.x[ ear ];
+    double by = this.y[ ear ];
+    double cx = this.x[ c ];
+    double cy = this.y[ c ];
+    double minX = Math.min( ax, Math.min( bx, cx ) );
+    double minY = Math.min( ay, Math.min( by, cy ) );
+    double maxX = Math.max( ax, Math.max( bx, cx ) );
+    double maxY = Math.max( ay, Math.max( by, cy ) );
+
+    // no other point may lie in the ear
+    for ( int p = this.next[ c ]; p != a; p = this.next[ p ] ) {
+      double px = this.x[ p ];
+      double py = this.y[ p ];
+
+      if ( ( px >= minX ) && ( px <= maxX ) && ( py >= minY ) && ( py <= maxY ) &&
+        !( ( px == ax ) && ( py == ay ) ) &&
+        pointInTriangle( ax, ay, bx, by, cx, cy, px, py ) &&
+        ( this.area( this.prev[ p ], p, this.next[ p ] ) >= 0 ) ) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Removes small self-intersections by clipping the triangle around them.
+   */
+  protected int cureLocalIntersections( int start ) {
+    if ( start < 0 ) {
+      return start;
+    }
+
+    int p = start;
+
+    do {
+      int a = this.prev[ p ];
+      int b = this.next[ this.next[ p ] ];
+
+      if ( !this.equals( a, b ) && this.intersects( a, p, this.next[ p ], b ) &&
+        this.locallyInside( a, b ) && this.locallyInside( b, a ) ) {
+        this.result.addTriangle( this.index[ a ], this.index[ p ], this.index[ b ] );
+
+        int n = this.next[ p ];
+        this.removeNode( p );
+        this.removeNode( n );
+        p = b;
+        start = b;
+      }
+
+      p = this.next[ p ];
+    } while ( p != start );
+
+    return this.filterPoints( p, -1 );
+  }
+
+  /**
+   * Splits the polygon at a valid diagonal into two polygons, which are
+   * clipped separately.
+   */
+  protected void splitEarcut( int start ) {
+    int a = start;
+
+    do {
+      int b = this.next[ this.next[ a ] ];
+
+      while ( b != this.prev[ a ] ) {
+        if ( ( this.index[ a ] != this.index[ b ] ) &&
+          this.isValidDiagonal( a, b ) ) {
+          int c = this.splitPolygon( a, b );
+          this.push( this.filterPoints( a, this.next[ a ] ), 0 );
+          this.push( this.filterPoints( c, this.next[ c ] ), 0 );
+
+          return;
+        }
+
+        b = this.next[ b ];
+      }
+
+      a = this.next[ a ];
+    } while ( a != start );
+  }
+
+  /**
+   * Links the holes into the outer polygon from left to right.
+   */
+  protected int eliminateHoles( int[] holes, int holeCount, int outer ) {
+    Integer[] queue = new Integer[ holeCount ];
+
+    for ( int i = 0; i < holeCount; i++ ) {
+      queue[ i ] = Integer.valueOf( holes[ i ] );
+    }
+
+    Arrays.sort( queue,
+      new Comparator() {
+        public int compare( Object o1, Object o2 ) {
+          int a = ( ( Integer ) o1 ).intValue();
+          int b = ( ( Integer ) o2 ).intValue();
+          int result = Double.compare( x[ a ], x[ b ] );
+
+          return ( result != 0 ) ? result : Double.compare( y[ a ], y[ b ] );
+        }
+      } );
+
+    for ( int i = 0; i < queue.length; i++ ) {
+      outer = this.eliminateHole( queue[ i ].intValue(), outer );
+    }
+
+    return outer;
+  }
+
+  protected int eliminateHole( int hole, int outer ) {
+    int bridge = this.findHoleBridge( hole, outer );
+
+    if ( bridge < 0 ) {
+      return outer;
+    }
+
+    int bridgeReverse = this.splitPolygon( bridge, hole );
+    this.filterPoints( bridgeReverse, this.next[ bridgeReverse ] );
+
+    return this.filterPoints( bridge, this.next[ bridge ] );
+  }
+
+  /**
+   * Finds a point of the outer polygon, which is visible from the leftmost
+   * point of the hole.
+   */
+  protected int findHoleBridge( int hole, int outer ) {
+    double hx = this.x[ hole ];
+    double hy = this.y[ hole ];
+    double qx = Double.NEGATIVE_INFINITY;
+    int m = -1;
+    int p = outer;
+
+    // the nearest segment left of the hole point on a horizontal ray
+    do {
+      int n = this.next[ p ];
+
+      if ( ( hy <= this.y[ p ] ) && ( hy >= this.y[ n ] ) && ( this.y[ n ] != this.y[ p ] ) ) {
+        double sx = this.x[ p ] +
+          ( ( ( hy - this.y[ p ] ) * ( this.x[ n ] - this.x[ p ] ) ) / ( this.y[ n ] - this.y[ p ] ) );
+
+        if ( ( sx <= hx ) && ( sx > qx ) ) {
+          qx = sx;
+          m = ( this.x[ p ] < this.x[ n ] ) ? p : n;
+
+          if ( sx == hx ) {
+            // the hole touches the outer segment
+            return m;
+          }
+        }
+      }
+
+      p = n;
+    } while ( p != outer );
+
+    if ( m < 0 ) {
+      return -1;
+    }
+
+    // a reflex point in the triangle of hole point, segment point and m is
+    // nearer, use the one with the smallest angle to the ray
+    int stop = m;
+    double mx = this.x[ m ];
+    double my = this.y[ m ];
+    double tanMin = Double.POSITIVE_INFINITY;
+    p = m;
+
+    do {
+      double px = this.x[ p ];
+      double py = this.y[ p ];
+
+      if ( ( hx >= px ) && ( px >= mx ) && ( hx != px ) &&
+        pointInTriangle( ( hy < my ) ? hx : qx, hy, mx, my, ( hy < my ) ? qx : hx,
+          hy, px, py ) ) {
+        double tan = Math.abs( hy - py ) / ( hx - px );
+
+        if ( this.locallyInside( p, hole ) &&
+          ( ( tan < tanMin ) ||
+          ( ( tan == tanMin ) &&
+          ( ( px > this.x[ m ] ) ||
+          ( ( px == this.x[ m ] ) && this.sectorContainsSector( m, p ) ) ) ) ) ) {
+          m = p;
+          tanMin = tan;
+        }
+      }
+
+      p = this.next[ p ];
+    } while ( p != stop );
+
+    return m;
+  }
+
+  protected boolean sectorContainsSector( int m, int p ) {
+    return ( this.area( this.prev[ m ], m, this.prev[ p ] ) < 0 ) &&
+    ( this.area( this.next[ p ], m, this.next[ m ] ) < 0 );
+  }
+
+  protected boolean isValidDiagonal( int a, int b ) {
+    if ( ( this.index[ this.next[ a ] ] == this.index[ b ] ) ||
+      ( this.index[ this.prev[ a ] ] == this.index[ b ] ) ||
+      this.intersectsPolygon( a, b ) ) {
+      return false;
+    }
+
+    if ( this.locallyInside( a, b ) && this.locallyInside( b, a ) &&
+      this.middleInside( a, b ) ) {
+      // no sectors facing each other
+      return ( this.area( this.prev[ a ], a, this.prev[ b ] ) != 0 ) ||
+      ( this.area( a, this.prev[ b ], b ) != 0 );
+    }
+
+    // a zero length diagonal between two convex points
+    return this.equals( a, b ) &&
+    ( this.area( this.prev[ a ], a, this.next[ a ] ) > 0 ) &&
+    ( this.area( this.prev[ b ], b, this.next[ b ] ) > 0 );
+  }
+
+  protected boolean intersectsPolygon( int a, int b ) {
+    int p = a;
+
+    do {
+      int n = this.next[ p ];
+
+      if ( ( this.index[ p ] != this.index[ a ] ) && ( this.index[ n ] != this.index[ a ] ) &&
+        ( this.index[ p ] != this.index[ b ] ) && ( this.index[ n ] != this.index[ b ] ) &&
+        this.intersects( p, n, a, b ) ) {
+        return true;
+      }
+
+      p = n;
+    } while ( p != a );
+
+    return false;
+  }
+
+  protected boolean locallyInside( int a, int b ) {
+    if ( this.area( this.prev[ a ], a, this.next[ a ] ) < 0 ) {
+      return ( this.area( a, b, this.next[ a ] ) >= 0 ) &&
+      ( this.area( a, this.prev[ a ], b ) >= 0 );
+    }
+
+    return ( this.area( a, b, this.prev[ a ] ) < 0 ) ||
+    ( this.area( a, this.next[ a ], b ) < 0 );
+  }
+
+  protected boolean middleInside( int a, int b ) {
+    double px = ( this.x[ a ] + this.x[ b ] ) / 2;
+    double py = ( this.y[ a ] + this.y[ b ] ) / 2;
+    boolean inside = false;
+    int p = a;
+
+    do {
+      int n = this.next[ p ];
+
+      if ( ( ( this.y[ p ] > py ) != ( this.y[ n ] > py ) ) && ( this.y[ n ] != this.y[ p ] ) &&
+        ( px < ( ( ( ( this.x[ n ] - this.x[ p ] ) * ( py - this.y[ p ] ) ) / ( this.y[ n ] - this.y[ p ] ) ) +
+        this.x[ p ] ) ) ) {
+        inside = !inside;
+      }
+
+      p = n;
+    } while ( p != a );
+
+    return inside;
+  }
+
+  protected boolean intersects( int p1, int q1, int p2, int q2 ) {
+    int o1 = sign( this.area( p1, q1, p2 ) );
+    int o2 = sign( this.area( p1, q1, q2 ) );
+    int o3 = sign( this.area( p2, q2, p1 ) );
+    int o4 = sign( this.area( p2, q2, q1 ) );
+
+    if ( ( o1 != o2 ) && ( o3 != o4 ) ) {
+      return true;
+    }
+
+    // collinear points on the other segment
+    return ( ( o1 == 0 ) && this.onSegment( p1, p2, q1 ) ) ||
+    ( ( o2 == 0 ) && this.onSegment( p1, q2, q1 ) ) ||
+    ( ( o3 == 0 ) && this.onSegment( p2, p1, q2 ) ) ||
+    ( ( o4 == 0 ) && this.onSegment( p2, q1, q2 ) );
+  }
+
+  protected boolean onSegment( int p, int q, int r ) {
+    return ( this.x[ q ] <= Math.max( this.x[ p ], this.x[ r ] ) ) &&
+    ( this.x[ q ] >= Math.min( this.x[ p ], this.x[ r ] ) ) &&
+    ( this.y[ q ] <= Math.max( this.y[ p ], this.y[ r ] ) ) &&
+    ( this.y[ q ] >= Math.min( this.y[ p ], this.y[ r ] ) );
+  }
+
+  /**
+   * The negative cross product, less than 0 for a left turn.
+   */
+  protected double area( int p, int q, int r ) {
+    return ( ( this.y[ q ] - this.y[ p ] ) * ( this.x[ r ] - this.x[ q ] ) ) -
+    ( ( this.x[ q ] - this.x[ p ] ) * ( this.y[ r ] - this.y[ q ] ) );
+  }
+
+  protected boolean equals( int a, int b ) {
+    return ( this.x[ a ] == this.x[ b ] ) && ( this.y[ a ] == this.y[ b ] );
+  }
+
+  /**
+   * Removes duplicate and collinear points.
+   *
+   * @param end the node to stop at or -1 for the start
+   */
+  protected int filterPoints( int start, int end ) {
+    if ( start < 0 ) {
+      return start;
+    }
+
+    if ( end < 0 ) {
+      end = start;
+    }
+
+    int p = start;
+    boolean again;
+
+    do {
+      again = false;
+
+      if ( this.equals( p, this.next[ p ] ) ||
+        ( this.area( this.prev[ p ], p, this.next[ p ] ) == 0 ) ) {
+        this.removeNode( p );
+        p = this.prev[ p ];
+        end = p;
+
+        if ( p == this.next[ p ] ) {
+          break;
+        }
+
+        again = true;
+      } else {
+        p = this.next[ p ];
+      }
+    } while ( again || ( p != end ) );
+
+    return end;
+  }
+
+  /**
+   * Links the points of the part in the given orientation, a closing point
+   * equal to the first one is dropped.
+   *
+   * @return the last node or -1
+   */
+  protected int linkedList( PathBuffer rings, int part, boolean ccw ) {
+    double[] c = rings.getCoordinates();
+    int start = rings.getPartStart( part );
+    int end = rings.getPartEnd( part );
+    boolean forward = ccw == ( CoordinateUtils.getSignedAreaXY( c, start,
+        end - start ) > 0 );
+    int last = -1;
+
+    for ( int i = start; i < end; i++ ) {
+      int point = forward ? i : ( ( end - 1 ) - ( i - start ) );
+      last = this.insertNode( point, c[ point * 3 ], c[ ( point * 3 ) + 1 ], last );
+    }
+
+    if ( ( last >= 0 ) && this.equals( last, this.next[ last ] ) ) {
+      this.removeNode( last );
+      last = this.next[ last ];
+    }
+
+    return last;
+  }
+
+  protected int getLeftmost( int start ) {
+    int p = start;
+    int leftmost = start;
+
+    do {
+      if ( ( this.x[ p ] < this.x[ leftmost ] ) ||
+        ( ( this.x[ p ] == this.x[ leftmost ] ) && ( this.y[ p ] < this.y[ leftmost ] ) ) ) {
+        leftmost = p;
+      }
+
+      p = this.next[ p ];
+    } while ( p != start );
+
+    return leftmost;
+  }
+
+  /**
+   * Connects a and b with a bridge. The polygon is split in two, if a and b
+   * are in the same polygon, or a hole is joined to the outer polygon.
+   *
+   * @return the copy of b in the second polygon
+   */
+  protected int splitPolygon( int a, int b ) {
+    int a2 = this.createNode( this.index[ a ], this.x[ a ], this.y[ a ] );
+    int b2 = this.createNode( this.index[ b ], this.x[ b ], this.y[ b ] );
+    int an = this.next[ a ];
+    int bp = this.prev[ b ];
+    this.next[ a ] = b;
+    this.prev[ b ] = a;
+    this.next[ a2 ] = an;
+    this.prev[ an ] = a2;
+    this.next[ b2 ] = a2;
+    this.prev[ a2 ] = b2;
+    this.next[ bp ] = b2;
+    this.prev[ b2 ] = bp;
+
+    return b2;
+  }
+
+  protected int insertNode( int point, double px, double py, int last ) {
+    int p = this.createNode( point, px, py );
+
+    if ( last < 0 ) {
+      this.prev[ p ] = p;
+      this.next[ p ] = p;
+    } else {
+      this.next[ p ] = this.next[ last ];
+      this.prev[ p ] = last;
+      this.prev[ this.next[ last ] ] = p;
+      this.next[ last ] = p;
+    }
+
+    return p;
+  }
+
+  protected int createNode( int point, double px, double py ) {
+    if ( this.nodeCount == this.x.length ) {
+      int size = this.x.length * 2;
+      double[] dx = new double[ size ];
+      double[] dy = new double[ size ];
+      System.arraycopy( this.x, 0, dx, 0, this.nodeCount );
+      System.arraycopy( this.y, 0, dy, 0, this.nodeCount );
+      this.x = dx;
+      this.y = dy;
+      this.index = grow( this.index );
+      this.prev = grow( this.prev );
+      this.next = grow( this.next );
+    }
+
+    int p = this.nodeCount++;
+    this.x[ p ] = px;
+    this.y[ p ] = py;
+    this.index[ p ] = point;
+
+    return p;
+  }
+
+  protected void removeNode( int p ) {
+    this.next[ this.prev[ p ] ] = this.next[ p ];
+    this.prev[ this.next[ p ] ] = this.prev[ p ];
+  }
+
+  protected void push( int node, int pass ) {
+    if ( ( this.stackSize + 2 ) > this.stack.length ) {
+      this.stack = grow( this.stack );
+    }
+
+    this.stack[ this.stackSize++ ] = node;
+    this.stack[ this.stackSize++ ] = pass;
+  }
+
+  protected static boolean pointInTriangle( double ax, double ay, double bx,
+                                            double by, double cx, double cy, double px, double py ) {
+    return ( ( ( cx - px ) * ( ay - py ) ) >= ( ( ax - px ) * ( cy - py ) ) ) &&
+    ( ( ( ax - px ) * ( by - py ) ) >= ( ( bx - px ) * ( ay - py ) ) ) &&
+    ( ( ( bx - px ) * ( cy - py ) ) >= ( ( cx - px ) * ( by - py ) ) );
+  }
+
+  protected static int sign( double v ) {
+    return ( v > 0 ) ? 1 : ( ( v < 0 ) ? ( -1 ) : 0 );
+  }
+
+  protected static int[] grow( int[] a ) {
+    int[] b = new int[ a.length * 2 ];
+    System.arraycopy( a, 0, b, 0, a.length );
+
+    return b;
+  }
+}
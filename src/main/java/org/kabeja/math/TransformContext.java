@@ -20,7 +20,7 @@ import org.kabeja.dxf.helpers.Point;
 import org.kabeja.dxf.helpers.Vector;
 
 public class TransformContext {
-  private double[][] transformMatrix;
+  private AffineTransform3D transform = new AffineTransform3D();
   private double rotationAngle = 0.0;
   private double scaleX = 1.0;
   private double scaleY = 1.0;
@@ -28,9 +28,6 @@ public class TransformContext {
   private Vector translation = new Vector( 1.0, 1.0, 1.0 );
 
   public TransformContext() {
-    transformMatrix =
-      new double[][] { { 1.0, 0.0, 0.0, 0.0 }, { 0.0, 1.0, 0.0, 0.0 }, { 0.0, 0.0, 1.0, 0.0 }, { 0.0, 0.0, 0.0, 1.0 }
-      };
   }
 
   public TransformContext( double[][] transformMatrix )
@@ -40,7 +37,11 @@ public class TransformContext {
         "Not a valid tranformation matrix." );
     }
 
-    this.transformMatrix = transformMatrix;
+    this.setTransformMatrix( transformMatrix );
+  }
+
+  public TransformContext( AffineTransform3D transform ) {
+    this.transform.set( transform );
   }
 
   public double getRotationZAxis() { return rotationAngle; }
@@ -55,11 +56,7 @@ public class TransformContext {
     this.scaleX = x;
     this.scaleY = y;
     this.scaleZ = z;
-
-    double[][] m =
-      new double[][] { { x, 0.0, 0.0, 0.0 }, { 0.0, y, 0.0, 0.0 }, { 0.0, 0.0, z, 0.0 }, { 0.0, 0.0, 0.0, 1.0 }
-      };
-    this.transformMatrix = MathUtils.multiplyMatrixByMatrix( this.transformMatrix, m );
+    this.transform.scale( x, y, z );
   }
 
   public double getScaleX() { return scaleX; }
@@ -80,27 +77,66 @@ public class TransformContext {
     this.setScale( 1.0, 1.0, scaleZ );
   }
 
-  public double[][] getTransformMatrix() { return transformMatrix; }
+  /**
+   * @return a copy of the transformation as homogeneous 4x4 matrix
+   */
+  public double[][] getTransformMatrix() {
+    double[] m = this.transform.getMatrix( new double[ 12 ] );
+
+    return new double[][] { { m[ 0 ], m[ 1 ], m[ 2 ], m[ 3 ] }, { m[ 4 ], m[ 5 ], m[ 6 ], m[ 7 ] }, { m[ 8 ], m[ 9 ], m[ 10 ], m[ 11 ] }, { 0.0, 0.0, 0.0, 1.0 }
+    };
+  }
+
+  /**
+   * Set the transformation from a homogeneous 4x4 matrix, the last row is
+   * ignored.
+   *
+   * @param transformMatrix
+   */
+  public void setTransformMatrix( double[][] transformMatrix ) {
+    double[] m = new double[ 12 ];
+
+    for ( int i = 0; i < 3; i++ ) {
+      System.arraycopy( transformMatrix[ i ], 0, m, i * 4, 4 );
+    }
+
+    this.transform.setMatrix( m );
+  }
 
-  public void setTransformMatrix( double[][] transformMatrix ) { this.transformMatrix = transformMatrix; }
+  /**
+   * @return the underlying transformation
+   */
+  public AffineTransform3D getAffineTransform() { return this.transform; }
 
   public Vector getTranslation() { return translation; }
 
   public void setTranslation( Vector translation ) {
     this.translation = translation;
-
-    double[][] m = new double[][] { { 1.0, 0.0, 0.0, translation.getX() }, { 0.0, 1.0, 0.0, translation
-      .getY() }, { 0.0, 0.0, 1.0, translation.getZ() }, { 0.0, 0.0, 0.0, 1.0 }
-    };
-    this.transformMatrix = MathUtils.multiplyMatrixByMatrix( this.transformMatrix, m );
+    this.transform.translate( translation.getX(), translation.getY(),
+      translation.getZ() );
   }
 
   public Point transform( Point a ) {
-    double[] v = new double[] { a.getX(), a.getY(), a.getZ(), 1.0 };
-    v = MathUtils.multiplyMatrixByVector( this.transformMatrix, v );
+    return this.transform.transform( a, new Point() );
+  }
 
-    Point p = new Point( v[ 0 ], v[ 1 ], v[ 2 ] );
+  /**
+   * Transform the point and store it in the result.
+   *
+   * @param a
+   * @param result the point for the result, can be a
+   * @return the result point
+   */
+  public Point transform( Point a, Point result ) {
+    return this.transform.transform( a, result );
+  }
 
-    return p;
+  /**
+   * Transform packed x,y,z coordinates.
+   *
+   * @see AffineTransform3D#transform(double[], double[], int)
+   */
+  public void transform( double[] src, double[] dst, int count ) {
+    this.transform.transform( src, dst, count );
   }
 }
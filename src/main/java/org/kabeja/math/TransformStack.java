@@ -0,0 +1,99 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package org.kabeja.math;
+
+/**
+ * A stack of concatenated transformations for nested block references. The
+ * transformations of the stack are reused, so push and pop do not create
+ * new objects once the maximal depth was reached.
+ */
+public class TransformStack {
+  private AffineTransform3D[] stack;
+  private int depth = 0;
+
+  public TransformStack() {
+    this( new AffineTransform3D() );
+  }
+
+  /**
+   * @param base the transformation at the bottom of the stack
+   */
+  public TransformStack( AffineTransform3D base ) {
+    this.stack = new AffineTransform3D[ 8 ];
+    this.stack[ 0 ] = new AffineTransform3D( base );
+  }
+
+  /**
+   * Push the current transformation concatenated with the given.
+   *
+   * @param t the transformation of the nested level
+   * @return the new current transformation
+   */
+  public AffineTransform3D push( AffineTransform3D t ) {
+    return this.push().concatenate( t );
+  }
+
+  /**
+   * Push a copy of the current transformation, which can be modified.
+   *
+   * @return the new current transformation
+   */
+  public AffineTransform3D push() {
+    if ( ( depth + 1 ) == stack.length ) {
+      AffineTransform3D[] s = new AffineTransform3D[ stack.length * 2 ];
+      System.arraycopy( stack, 0, s, 0, stack.length );
+      this.stack = s;
+    }
+
+    AffineTransform3D current = stack[ depth ];
+    depth++;
+
+    if ( stack[ depth ] == null ) {
+      stack[ depth ] = new AffineTransform3D( current );
+    } else {
+      stack[ depth ].set( current );
+    }
+
+    return stack[ depth ];
+  }
+
+  /**
+   * Remove the current transformation.
+   *
+   * @return the transformation of the outer level
+   */
+  public AffineTransform3D pop() {
+    if ( depth == 0 ) {
+      throw new IllegalStateException( "Cannot pop the base transformation." );
+    }
+
+    depth--;
+
+    return stack[ depth ];
+  }
+
+  public AffineTransform3D peek() { return stack[ depth ]; }
+
+  /**
+   * @return the count of pushed transformations
+   */
+  public int getDepth() { return depth; }
+
+  public void clear() {
+    depth = 0;
+  }
+}
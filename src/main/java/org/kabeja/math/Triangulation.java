@@ -0,0 +1,100 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package org.kabeja.math;
+
+/**
+ * Triangles over the points of a PathBuffer. The triangles are stored as
+ * triples of point indices.
+ */
+public class Triangulation {
+  protected PathBuffer points;
+  protected int[] indices = new int[ 48 ];
+  protected int indexCount = 0;
+  private double area = -1.0;
+
+  /**
+   * @param points the points referenced by the triangles
+   */
+  public Triangulation( PathBuffer points ) {
+    this.points = points;
+  }
+
+  public PathBuffer getPoints() { return this.points; }
+
+  public int getTriangleCount() { return this.indexCount / 3; }
+
+  /**
+   * @return the internal indices, the array can be larger than
+   * 3 * getTriangleCount()
+   */
+  public int[] getIndices() { return this.indices; }
+
+  public void addTriangle( int a, int b, int c ) {
+    if ( this.indices.length < ( this.indexCount + 3 ) ) {
+      int[] i = new int[ this.indices.length * 2 ];
+      System.arraycopy( this.indices, 0, i, 0, this.indexCount );
+      this.indices = i;
+    }
+
+    this.indices[ this.indexCount++ ] = a;
+    this.indices[ this.indexCount++ ] = b;
+    this.indices[ this.indexCount++ ] = c;
+    this.area = -1.0;
+  }
+
+  /**
+   * @return the sum of the areas of the triangles in 3D
+   */
+  public double getArea() {
+    if ( this.area < 0.0 ) {
+      double[] c = this.points.getCoordinates();
+      double sum = 0.0;
+
+      for ( int i = 0; i < this.indexCount; i += 3 ) {
+        int a = this.indices[ i ] * 3;
+        int b = this.indices[ i + 1 ] * 3;
+        int d = this.indices[ i + 2 ] * 3;
+        double ux = c[ b ] - c[ a ];
+        double uy = c[ b + 1 ] - c[ a + 1 ];
+        double uz = c[ b + 2 ] - c[ a + 2 ];
+        double vx = c[ d ] - c[ a ];
+        double vy = c[ d + 1 ] - c[ a + 1 ];
+        double vz = c[ d + 2 ] - c[ a + 2 ];
+        double nx = ( uy * vz ) - ( uz * vy );
+        double ny = ( uz * vx ) - ( ux * vz );
+        double nz = ( ux * vy ) - ( uy * vx );
+        sum += ( Math.sqrt( ( nx * nx ) + ( ny * ny ) + ( nz * nz ) ) / 2 );
+      }
+
+      this.area = sum;
+    }
+
+    return this.area;
+  }
+
+  /**
+   * Reduces the index array to the used size.
+   */
+  public void trimToSize() {
+    if ( this.indices.length > this.indexCount ) {
+      int[] i = new int[ this.indexCount ];
+      System.arraycopy( this.indices, 0, i, 0, i.length );
+      this.indices = i;
+    }
+  }
+}
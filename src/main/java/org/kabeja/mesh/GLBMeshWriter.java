@@ -0,0 +1,239 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package org.kabeja.mesh;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Writes binary glTF 2.0 (GLB) with one node and one mesh per
+ * TriangleMesh. The positions and the indices are copied to the binary
+ * chunk without conversion, the origin of a mesh is the translation of its
+ * node. A root node turns the Z-up world coordinates of DXF into the Y-up
+ * coordinates of glTF. The colors of the meshes become materials.
+ */
+public class GLBMeshWriter implements MeshWriter {
+  private final static int MAGIC = 0x46546C67;
+  private final static int VERSION = 2;
+  private final static int CHUNK_JSON = 0x4E4F534A;
+  private final static int CHUNK_BIN = 0x004E4942;
+  private final static int TARGET_ARRAY_BUFFER = 34962;
+  private final static int TARGET_ELEMENT_ARRAY_BUFFER = 34963;
+  private final static int COMPONENT_FLOAT = 5126;
+  private final static int COMPONENT_UNSIGNED_INT = 5125;
+  private final static int BUFFER_SIZE = 65536;
+
+  public void write( List meshes, OutputStream out ) throws IOException {
+    long binLength = 0;
+
+    for ( int m = 0; m < meshes.size(); m++ ) {
+      TriangleMesh mesh = ( TriangleMesh ) meshes.get( m );
+      binLength += ( mesh.getVertexCount() * 12L ) +
+      ( mesh.getTriangleCount() * 12L );
+    }
+
+    byte[] json = this.createJSON( meshes, binLength ).getBytes( StandardCharsets.UTF_8 );
+    int jsonLength = ( json.length + 3 ) & ~3;
+    long total = 12 + 8 + jsonLength + ( ( binLength > 0 ) ? ( 8 + binLength ) : 0 );
+
+    if ( total > 0xffffffffL ) {
+      throw new IOException( "Too large for GLB: " + total + " bytes" );
+    }
+
+    ByteBuffer b = ByteBuffer.allocate( BUFFER_SIZE );
+    b.order( ByteOrder.LITTLE_ENDIAN );
+    b.putInt( MAGIC );
+    b.putInt( VERSION );
+    b.putInt( ( int ) total );
+    b.putInt( jsonLength );
+    b.putInt( CHUNK_JSON );
+    out.write( b.array(), 0, b.position() );
+    out.write( json );
+
+    // the JSON chunk is padded with spaces
+    for ( int i = json.length; i < jsonLength; i++ ) {
+      out.write( ' ' );
+    }
+
+    if ( binLength == 0 ) {
+      return;
+    }
+
+    b.clear();
+    b.putInt( ( int ) binLength );
+    b.putInt( CHUNK_BIN );
+
+    for ( int m = 0; m < meshes.size(); m++ ) {
+      TriangleMesh mesh = ( TriangleMesh ) meshes.get( m );
+      float[] p = mesh.getPositions();
+
+      for ( int i = 0; i < ( mesh.getVertexCount() * 3 ); i++ ) {
+        if ( b.remaining() < 4 ) {
+          out.write( b.array(), 0, b.position() );
+          b.clear();
+        }
+
+        b.putFloat( p[ i ] );
+      }
+
+      int[] indices = mesh.getIndices();
+
+      for ( int i = 0; i < ( mesh.getTriangleCount() * 3 ); i++ ) {
+        if ( b.remaining() < 4 ) {
+          out.write( b.array(), 0, b.position() );
+          b.clear();
+        }
+
+        b.putInt( indices[ i ] );
+      }
+    }
+
+    out.write( b.array(), 0, b.position() );
+  }
+
+  /**
+   * Creates the JSON chunk, the buffer views of mesh i are 2i for the
+   * positions and 2i + 1 for the indices.
+   */
+  protected String createJSON( List meshes, long binLength ) {
+    StringBuffer nodes = new StringBuffer();
+    StringBuffer meshList = new StringBuffer();
+    StringBuffer materials = new StringBuffer();
+    StringBuffer accessors = new StringBuffer();
+    StringBuffer views = new StringBuffer();
+    StringBuffer children = new StringBuffer();
+    long offset = 0;
+    int materialCount = 0;
+
+    for ( int m = 0; m < meshes.size(); m++ ) {
+      TriangleMesh mesh = ( TriangleMesh ) meshes.get( m );
+      String separator = ( m > 0 ) ? "," : "";
+      long positionLength = mesh.getVertexCount() * 12L;
+      long indexLength = mesh.getTriangleCount() * 12L;
+      float[] bounds = mesh.getBounds();
+
+      children.append( separator ).append( m + 1 );
+      nodes.append( ",{\"name\":" ).append( toJSONString( mesh.getName() ) )
+           .append( ",\"mesh\":" ).append( m ).append( ",\"translation\":[" )
+           .append( mesh.getOriginX() ).append( ',' ).append( mesh.getOriginY() )
+           .append( ',' ).append( mesh.getOriginZ() ).append( "]}" );
+
+      meshList.append( separator ).append( "{\"name\":" )
+              .append( toJSONString( mesh.getName() ) )
+              .append( ",\"primitives\":[{\"attributes\":{\"POSITION\":" )
+              .append( 2 * m ).append( "},\"indices\":" ).append( ( 2 * m ) + 1 )
+              .append( ",\"mode\":4" );
+
+      if ( mesh.getColor() != TriangleMesh.NO_COLOR ) {
+        meshList.append( ",\"material\":" ).append( materialCount );
+        materials.append( ( materialCount > 0 ) ? "," : "" )
+                 .append( "{\"name\":" ).append( toJSONString( mesh.getName() ) )
+                 .append( ",\"doubleSided\":true,\"pbrMetallicRoughness\":{\"baseColorFactor\":[" )
+                 .append( toLinear( ( mesh.getColor() >> 16 ) & 0xff ) ).append( ',' )
+                 .append( toLinear( ( mesh.getColor() >> 8 ) & 0xff ) ).append( ',' )
+                 .append( toLinear( mesh.getColor() & 0xff ) )
+                 .append( ",1.0],\"metallicFactor\":0.0,\"roughnessFactor\":1.0}}" );
+        materialCount++;
+      }
+
+      meshList.append( "}]}" );
+
+      accessors.append( separator ).append( "{\"bufferView\":" ).append( 2 * m )
+               .append( ",\"componentType\":" ).append( COMPONENT_FLOAT )
+               .append( ",\"count\":" ).append( mesh.getVertexCount() )
+               .append( ",\"type\":\"VEC3\",\"min\":[" ).append( bounds[ 0 ] )
+               .append( ',' ).append( bounds[ 1 ] ).append( ',' ).append( bounds[ 2 ] )
+               .append( "],\"max\":[" ).append( bounds[ 3 ] ).append( ',' )
+               .append( bounds[ 4 ] ).append( ',' ).append( bounds[ 5 ] )
+               .append( "]},{\"bufferView\":" ).append( ( 2 * m ) + 1 )
+               .append( ",\"componentType\":" ).append( COMPONENT_UNSIGNED_INT )
+               .append( ",\"count\":" ).append( mesh.getTriangleCount() * 3 )
+               .append( ",\"type\":\"SCALAR\"}" );
+
+      views.append( separator ).append( "{\"buffer\":0,\"byteOffset\":" )
+           .append( offset ).append( ",\"byteLength\":" ).append( positionLength )
+           .append( ",\"target\":" ).append( TARGET_ARRAY_BUFFER )
+           .append( "},{\"buffer\":0,\"byteOffset\":" )
+           .append( offset + positionLength ).append( ",\"byteLength\":" )
+           .append( indexLength ).append( ",\"target\":" )
+           .append( TARGET_ELEMENT_ARRAY_BUFFER ).append( '}' );
+      offset += ( positionLength + indexLength );
+    }
+
+    StringBuffer buf = new StringBuffer();
+    buf.append( "{\"asset\":{\"version\":\"2.0\",\"generator\":\"kabeja\"}" );
+    buf.append( ",\"scene\":0,\"scenes\":[{\"nodes\":[0]}]" );
+
+    // -90 degree around the x-axis: z-up to y-up
+    buf.append( ",\"nodes\":[{\"name\":\"model\",\"rotation\":[-0.7071067811865476,0.0,0.0,0.7071067811865476]" );
+
+    if ( children.length() > 0 ) {
+      buf.append( ",\"children\":[" ).append( children ).append( ']' );
+    }
+
+    buf.append( '}' ).append( nodes ).append( ']' );
+
+    if ( meshes.size() > 0 ) {
+      buf.append( ",\"meshes\":[" ).append( meshList ).append( ']' );
+      buf.append( ",\"accessors\":[" ).append( accessors ).append( ']' );
+      buf.append( ",\"bufferViews\":[" ).append( views ).append( ']' );
+      buf.append( ",\"buffers\":[{\"byteLength\":" ).append( binLength ).append( "}]" );
+    }
+
+    if ( materialCount > 0 ) {
+      buf.append( ",\"materials\":[" ).append( materials ).append( ']' );
+    }
+
+    buf.append( '}' );
+
+    return buf.toString();
+  }
+
+  /**
+   * @return the linear value of the sRGB color component
+   */
+  protected static double toLinear( int component ) {
+    double c = component / 255.0;
+
+    return ( c <= 0.04045 ) ? ( c / 12.92 ) : Math.pow( ( c + 0.055 ) / 1.055, 2.4 );
+  }
+
+  protected static String toJSONString( String s ) {
+    StringBuffer buf = new StringBuffer( s.length() + 2 );
+    buf.append( '"' );
+
+    for ( int i = 0; i < s.length(); i++ ) {
+      char c = s.charAt( i );
+
+      if ( ( c == '"' ) || ( c == '\\' ) ) {
+        buf.append( '\\' ).append( c );
+      } else if ( c < 0x20 ) {
+        String hex = Integer.toHexString( 0x10000 | c );
+        buf.append( "\\u" ).append( hex.substring( 1 ) );
+      } else {
+        buf.append( c );
+      }
+    }
+
+    return buf.append( '"' ).toString();
+  }
+}
@@ -0,0 +1,406 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package org.kabeja.mesh;
+
+import org.kabeja.dxf.DXF3DFace;
+import org.kabeja.dxf.DXFColor;
+import org.kabeja.dxf.DXFConstants;
+import org.kabeja.dxf.DXFDocument;
+import org.kabeja.dxf.DXFEntity;
+import org.kabeja.dxf.DXFInsert;
+import org.kabeja.dxf.DXFLayer;
+import org.kabeja.dxf.DXFPolyline;
+import org.kabeja.dxf.DXFVertex;
+import org.kabeja.dxf.helpers.BlockInstanceHandler;
+import org.kabeja.dxf.helpers.DXFInsertExploder;
+import org.kabeja.dxf.helpers.Point;
+import org.kabeja.math.AffineTransform3D;
+import org.kabeja.math.PathBuffer;
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.StringTokenizer;
+import java.util.TreeMap;
+
+/**
+ * Converts the 3DFACEs, polyface meshes and polygon meshes of a document
+ * to one welded TriangleMesh per layer. Quads and polyface faces are split
+ * into triangles, the inserts are exploded with their blocks and entities
+ * of a block on layer 0 go to the layer of the insert.
+ * <pre>
+ * MeshBuilder builder = new MeshBuilder( doc );
+ * builder.build();
+ * builder.write( new GLBMeshWriter(), "model.glb" );
+ * </pre>
+ * All meshes share one origin, which is the first vertex unless it is set
+ * before.
+ */
+public class MeshBuilder {
+  private final static int BUFFER_SIZE = 65536;
+  protected DXFDocument doc;
+  protected double weldTolerance;
+  protected Map meshes = new TreeMap();
+  protected boolean originSet = false;
+  protected double originX;
+  protected double originY;
+  protected double originZ;
+  private Point point = new Point();
+  private int[] corners = new int[ 4 ];
+
+  public MeshBuilder( DXFDocument doc ) {
+    this( doc, TriangleMesh.DEFAULT_WELD_TOLERANCE );
+  }
+
+  /**
+   * @param doc           the document
+   * @param weldTolerance the grid of the welded vertices
+   */
+  public MeshBuilder( DXFDocument doc, double weldTolerance ) {
+    this.doc = doc;
+    this.weldTolerance = weldTolerance;
+  }
+
+  /**
+   * Sets the origin of the positions of all meshes, it can not be changed
+   * after the first vertex.
+   */
+  public void setOrigin( double x, double y, double z ) {
+    if ( !this.meshes.isEmpty() ) {
+      throw new IllegalStateException( "The meshes are already started" );
+    }
+
+    this.originX = x;
+    this.originY = y;
+    this.originZ = z;
+    this.originSet = true;
+  }
+
+  /**
+   * Adds the model space entities of all layers, which are not frozen.
+   */
+  public void build() {
+    DXFInsertExploder exploder = new DXFInsertExploder( this.doc );
+    BlockInstanceHandler handler = new BlockInstanceHandler() {
+        public void instance( DXFEntity entity, PathBuffer geometry,
+                              AffineTransform3D transform, DXFInsert insert ) {
+          String layer = entity.getLayerName();
+
+          if ( ( insert != null ) &&
+            DXFConstants.DEFAULT_LAYER.equals( layer ) ) {
+            layer = insert.getLayerName();
+          }
+
+          add( entity, transform, layer );
+        }
+      };
+
+    Iterator i = this.doc.getDXFLayerIterator();
+
+    while ( i.hasNext() ) {
+      DXFLayer layer = ( DXFLayer ) i.next();
+
+      if ( layer.isFrozen() ) {
+        continue;
+      }
+
+      Iterator types = layer.getDXFEntityTypeIterator();
+
+      while ( types.hasNext() ) {
+        String type = ( String ) types.next();
+        List entities = layer.getDXFEntities( type );
+
+        for ( int x = 0; x < entities.size(); x++ ) {
+          DXFEntity entity = ( DXFEntity ) entities.get( x );
+
+          if ( !entity.isModelSpace() ) {
+            continue;
+          }
+
+          if ( entity instanceof DXFInsert ) {
+            exploder.explode( ( DXFInsert ) entity, handler );
+          } else {
+            this.add( entity, null, entity.getLayerName() );
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Adds the faces of the entity to the mesh of the layer, other entities
+   * are ignored.
+   *
+   * @param entity    a 3DFACE or a mesh POLYLINE
+   * @param transform the transformation to world coordinates or null
+   * @param layer     the name of the mesh
+   * @return true if the entity has faces
+   */
+  public boolean add( DXFEntity entity, AffineTransform3D transform,
+                      String layer ) {
+    if ( entity instanceof DXF3DFace ) {
+      DXF3DFace face = ( DXF3DFace ) entity;
+      this.initOrigin( face.getPoint1(), transform );
+
+      TriangleMesh mesh = this.getOrCreateMesh( layer );
+      boolean flip = isMirror( transform );
+      this.corners[ 0 ] = this.addVertex( mesh, face.getPoint1(), transform );
+      this.corners[ 1 ] = this.addVertex( mesh, face.getPoint2(), transform );
+      this.corners[ 2 ] = this.addVertex( mesh, face.getPoint3(), transform );
+      this.corners[ 3 ] = this.addVertex( mesh, face.getPoint4(), transform );
+      addPolygon( mesh, this.corners, 4, flip );
+
+      return true;
+    } else if ( entity instanceof DXFPolyline ) {
+      DXFPolyline pline = ( DXFPolyline ) entity;
+
+      if ( pline.getVertexCount() == 0 ) {
+        return false;
+      }
+
+      this.initOrigin( pline.getVertex( 0 ).getPoint(), transform );
+
+      if ( pline.isPolyfaceMesh() ) {
+        this.addPolyface( pline, transform, this.getOrCreateMesh( layer ) );
+
+        return true;
+      } else if ( pline.is3DPolygonMesh() ) {
+        this.addPolygonMesh( pline, transform, this.getOrCreateMesh( layer ) );
+
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * @return the meshes sorted by name
+   */
+  public List getMeshes() { return new ArrayList( this.meshes.values() ); }
+
+  public TriangleMesh getMesh( String layer ) {
+    return ( TriangleMesh ) this.meshes.get( layer );
+  }
+
+  public void write( MeshWriter writer, String file ) throws IOException {
+    OutputStream out = new BufferedOutputStream( new FileOutputStream( file ),
+        BUFFER_SIZE );
+
+    try {
+      this.write( writer, out );
+    } finally {
+      out.close();
+    }
+  }
+
+  /**
+   * Writes the meshes, which are not empty, the stream is not closed.
+   */
+  public void write( MeshWriter writer, OutputStream out )
+    throws IOException {
+    List list = new ArrayList();
+    Iterator i = this.meshes.values().iterator();
+
+    while ( i.hasNext() ) {
+      TriangleMesh mesh = ( TriangleMesh ) i.next();
+
+      if ( !mesh.isEmpty() ) {
+        list.add( mesh );
+      }
+    }
+
+    writer.write( list, out );
+    out.flush();
+  }
+
+  protected void addPolyface( DXFPolyline pline, AffineTransform3D transform,
+                              TriangleMesh mesh ) {
+    // the mesh vertices are referenced by their 1-based index
+    List vertices = new ArrayList();
+    Iterator i = pline.getVertexIterator();
+
+    while ( i.hasNext() ) {
+      DXFVertex v = ( DXFVertex ) i.next();
+
+      if ( v.isPolyFaceMeshVertex() ) {
+        vertices.add( v );
+      }
+    }
+
+    int[] welded = new int[ vertices.size() ];
+
+    for ( int x = 0; x < welded.length; x++ ) {
+      welded[ x ] = this.addVertex( mesh,
+          ( ( DXFVertex ) vertices.get( x ) ).getPoint(), transform );
+    }
+
+    boolean flip = isMirror( transform );
+    i = pline.getVertexIterator();
+
+    while ( i.hasNext() ) {
+      DXFVertex v = ( DXFVertex ) i.next();
+
+      if ( v.isFaceRecord() ) {
+        int[] face = new int[] {
+            v.getPolyFaceMeshVertex0(), v.getPolyFaceMeshVertex1(),
+            v.getPolyFaceMeshVertex2(), v.getPolyFaceMeshVertex3()
+          };
+        int n = 0;
+
+        for ( int x = 0; x < face.length; x++ ) {
+          if ( ( face[ x ] > 0 ) && ( face[ x ] <= welded.length ) ) {
+            this.corners[ n++ ] = welded[ face[ x ] - 1 ];
+          }
+        }
+
+        addPolygon( mesh, this.corners, n, flip );
+      }
+    }
+  }
+
+  /**
+   * Adds the quads of the M x N grid, a surface fitted mesh uses the grid
+   * of the approximation vertices.
+   */
+  protected void addPolygonMesh( DXFPolyline pline,
+                                 AffineTransform3D transform, TriangleMesh mesh ) {
+    int rows = pline.getRows();
+    int columns = pline.getColumns();
+    boolean simple = pline.isSimpleMesh();
+
+    if ( !simple ) {
+      rows = pline.getSurefaceDensityRows();
+      columns = pline.getSurefaceDensityColumns();
+    }
+
+    if ( ( rows < 2 ) && ( columns < 2 ) ) {
+      return;
+    }
+
+    int[] grid = new int[ rows * columns ];
+    int n = 0;
+    Iterator i = pline.getVertexIterator();
+
+    while ( i.hasNext() && ( n < grid.length ) ) {
+      DXFVertex v = ( DXFVertex ) i.next();
+
+      if ( simple || v.isMeshApproximationVertex() ) {
+        grid[ n++ ] = this.addVertex( mesh, v.getPoint(), transform );
+      }
+    }
+
+    if ( n < grid.length ) {
+      return;
+    }
+
+    boolean flip = isMirror( transform );
+    int lastRow = pline.isClosedMeshMDirection() ? rows : ( rows - 1 );
+    int lastColumn = pline.isClosedMeshNDirection() ? columns : ( columns - 1 );
+
+    for ( int r = 0; r < lastRow; r++ ) {
+      int r2 = ( r + 1 ) % rows;
+
+      for ( int c = 0; c < lastColumn; c++ ) {
+        int c2 = ( c + 1 ) % columns;
+        this.corners[ 0 ] = grid[ ( r * columns ) + c ];
+        this.corners[ 1 ] = grid[ ( r * columns ) + c2 ];
+        this.corners[ 2 ] = grid[ ( r2 * columns ) + c2 ];
+        this.corners[ 3 ] = grid[ ( r2 * columns ) + c ];
+        addPolygon( mesh, this.corners, 4, flip );
+      }
+    }
+  }
+
+  /**
+   * Adds a triangle or a quad as fan, the quad is split at the corners 0
+   * and 2.
+   */
+  protected static void addPolygon( TriangleMesh mesh, int[] corners, int n,
+                                    boolean flip ) {
+    for ( int i = 2; i < n; i++ ) {
+      if ( flip ) {
+        mesh.addTriangle( corners[ 0 ], corners[ i ], corners[ i - 1 ] );
+      } else {
+        mesh.addTriangle( corners[ 0 ], corners[ i - 1 ], corners[ i ] );
+      }
+    }
+  }
+
+  protected int addVertex( TriangleMesh mesh, Point p,
+                           AffineTransform3D transform ) {
+    if ( transform != null ) {
+      p = transform.transform( p, this.point );
+    }
+
+    return mesh.addVertex( p.getX(), p.getY(), p.getZ() );
+  }
+
+  /**
+   * Uses the point as origin, if no origin is set.
+   */
+  protected void initOrigin( Point p, AffineTransform3D transform ) {
+    if ( !this.originSet ) {
+      if ( transform != null ) {
+        p = transform.transform( p, this.point );
+      }
+
+      this.originX = p.getX();
+      this.originY = p.getY();
+      this.originZ = p.getZ();
+      this.originSet = true;
+    }
+  }
+
+  protected TriangleMesh getOrCreateMesh( String layer ) {
+    TriangleMesh mesh = ( TriangleMesh ) this.meshes.get( layer );
+
+    if ( mesh == null ) {
+      mesh = new TriangleMesh( layer, this.originX, this.originY,
+          this.originZ, this.weldTolerance );
+      mesh.setColor( this.getLayerColor( layer ) );
+      this.meshes.put( layer, mesh );
+    }
+
+    return mesh;
+  }
+
+  /**
+   * @return the color of the layer as 0xrrggbb
+   */
+  protected int getLayerColor( String name ) {
+    DXFLayer layer = this.doc.getDXFLayer( name );
+    StringTokenizer st = new StringTokenizer( DXFColor.getRGBString( Math.abs(
+            layer.getColor() ) ), "," );
+    int rgb = 0;
+
+    while ( st.hasMoreTokens() ) {
+      rgb = ( rgb << 8 ) | Integer.parseInt( st.nextToken().trim() );
+    }
+
+    return rgb;
+  }
+
+  protected static boolean isMirror( AffineTransform3D transform ) {
+    return ( transform != null ) && ( transform.getDeterminant() < 0.0 );
+  }
+}
@@ -0,0 +1,36 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package org.kabeja.mesh;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Writes triangle meshes to a file format.
+ */
+public interface MeshWriter {
+  /**
+   * Writes the meshes, the stream is not closed.
+   *
+   * @param meshes the TriangleMeshes
+   * @param out    the stream
+   * @throws IOException
+   */
+  public void write( List meshes, OutputStream out ) throws IOException;
+}
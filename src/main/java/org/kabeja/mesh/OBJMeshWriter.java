@@ -0,0 +1,132 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package org.kabeja.mesh;
+
+import org.kabeja.tools.DoubleFormatter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Writes Wavefront OBJ with one object per mesh. The vertices are written
+ * in world coordinates with the origin of the mesh added, the faces
+ * reference the vertices with 1-based indices over all meshes.
+ */
+public class OBJMeshWriter implements MeshWriter {
+  public final static int DEFAULT_PRECISION = 6;
+  private final static int BUFFER_SIZE = 65536;
+  private final static double[] POW10 = new double[ DoubleFormatter.MAX_FRACTION_DIGITS + 1 ];
+
+  static {
+    POW10[ 0 ] = 1.0;
+
+    for ( int i = 1; i < POW10.length; i++ ) {
+      POW10[ i ] = POW10[ i - 1 ] * 10.0;
+    }
+  }
+
+  protected int precision = DEFAULT_PRECISION;
+  private byte[] buffer = new byte[ BUFFER_SIZE ];
+  private int position;
+
+  /**
+   * @param precision the count of fraction digits of the coordinates
+   */
+  public void setPrecision( int precision ) {
+    this.precision = Math.max( 0, Math.min( precision,
+          DoubleFormatter.MAX_FRACTION_DIGITS ) );
+  }
+
+  public void write( List meshes, OutputStream out ) throws IOException {
+    this.position = 0;
+
+    int offset = 1;
+
+    for ( int m = 0; m < meshes.size(); m++ ) {
+      TriangleMesh mesh = ( TriangleMesh ) meshes.get( m );
+      float[] p = mesh.getPositions();
+      int[] indices = mesh.getIndices();
+      this.writeText( "o ", out );
+      this.writeText( mesh.getName().replace( '\n', ' ' ).replace( '\r', ' ' ),
+        out );
+      this.writeText( "\n", out );
+
+      for ( int v = 0; v < mesh.getVertexCount(); v++ ) {
+        this.require( 3 + ( 3 * DoubleFormatter.MAX_LENGTH ), out );
+        this.buffer[ this.position++ ] = 'v';
+        this.writeNumber( mesh.getOriginX() + p[ v * 3 ] );
+        this.writeNumber( mesh.getOriginY() + p[ ( v * 3 ) + 1 ] );
+        this.writeNumber( mesh.getOriginZ() + p[ ( v * 3 ) + 2 ] );
+        this.buffer[ this.position++ ] = '\n';
+      }
+
+      for ( int t = 0; t < ( mesh.getTriangleCount() * 3 ); t += 3 ) {
+        this.require( 3 + ( 3 * DoubleFormatter.MAX_LENGTH ), out );
+        this.buffer[ this.position++ ] = 'f';
+
+        for ( int i = 0; i < 3; i++ ) {
+          this.buffer[ this.position++ ] = ' ';
+          this.position = DoubleFormatter.formatLong( ( long ) indices[ t + i ] +
+              offset, this.buffer, this.position );
+        }
+
+        this.buffer[ this.position++ ] = '\n';
+      }
+
+      offset += mesh.getVertexCount();
+    }
+
+    out.write( this.buffer, 0, this.position );
+    this.position = 0;
+  }
+
+  protected void writeNumber( double value ) {
+    this.buffer[ this.position++ ] = ' ';
+
+    double scaled = value * POW10[ this.precision ];
+
+    if ( Math.abs( scaled ) < Long.MAX_VALUE ) {
+      this.position = DoubleFormatter.formatScaled( Math.round( scaled ),
+          this.precision, this.buffer, this.position );
+    } else {
+      this.position = DoubleFormatter.format( value, this.buffer, this.position );
+    }
+  }
+
+  protected void writeText( String s, OutputStream out )
+    throws IOException {
+    byte[] b = s.getBytes( StandardCharsets.UTF_8 );
+    this.require( b.length, out );
+
+    if ( b.length > this.buffer.length ) {
+      out.write( b );
+    } else {
+      System.arraycopy( b, 0, this.buffer, this.position, b.length );
+      this.position += b.length;
+    }
+  }
+
+  protected void require( int length, OutputStream out )
+    throws IOException {
+    if ( ( this.position + length ) > this.buffer.length ) {
+      out.write( this.buffer, 0, this.position );
+      this.position = 0;
+    }
+  }
+}
@@ -0,0 +1,126 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package org.kabeja.mesh;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Writes binary STL with the triangles of all meshes. STL has only float
+ * coordinates, so the positions are written relative to the origin of the
+ * first mesh, which is noted in the header.
+ */
+public class STLMeshWriter implements MeshWriter {
+  private final static int HEADER_SIZE = 80;
+  private final static int TRIANGLE_SIZE = 50;
+  private final static int BUFFER_TRIANGLES = 1024;
+
+  public void write( List meshes, OutputStream out ) throws IOException {
+    long count = 0;
+
+    for ( int m = 0; m < meshes.size(); m++ ) {
+      count += ( ( TriangleMesh ) meshes.get( m ) ).getTriangleCount();
+    }
+
+    if ( count > 0xffffffffL ) {
+      throw new IOException( "Too many triangles for STL: " + count );
+    }
+
+    ByteBuffer b = ByteBuffer.allocate( TRIANGLE_SIZE * BUFFER_TRIANGLES );
+    b.order( ByteOrder.LITTLE_ENDIAN );
+
+    TriangleMesh first = meshes.isEmpty() ? null : ( TriangleMesh ) meshes.get( 0 );
+    String header = ( first == null ) ? "kabeja"
+                                      : ( "kabeja origin " + first.getOriginX() + " " +
+      first.getOriginY() + " " + first.getOriginZ() );
+    byte[] text = header.getBytes( StandardCharsets.US_ASCII );
+    b.put( text, 0, Math.min( text.length, HEADER_SIZE ) );
+
+    for ( int i = text.length; i < HEADER_SIZE; i++ ) {
+      b.put( ( byte ) ' ' );
+    }
+
+    b.putInt( ( int ) count );
+
+    float[] c = new float[ 9 ];
+
+    for ( int m = 0; m < meshes.size(); m++ ) {
+      TriangleMesh mesh = ( TriangleMesh ) meshes.get( m );
+      float[] p = mesh.getPositions();
+      int[] indices = mesh.getIndices();
+      float dx = ( float ) ( mesh.getOriginX() - first.getOriginX() );
+      float dy = ( float ) ( mesh.getOriginY() - first.getOriginY() );
+      float dz = ( float ) ( mesh.getOriginZ() - first.getOriginZ() );
+
+      for ( int t = 0; t < ( mesh.getTriangleCount() * 3 ); t += 3 ) {
+        for ( int i = 0; i < 3; i++ ) {
+          int v = indices[ t + i ] * 3;
+          c[ i * 3 ] = p[ v ] + dx;
+          c[ ( i * 3 ) + 1 ] = p[ v + 1 ] + dy;
+          c[ ( i * 3 ) + 2 ] = p[ v + 2 ] + dz;
+        }
+
+        if ( b.remaining() < TRIANGLE_SIZE ) {
+          out.write( b.array(), 0, b.position() );
+          b.clear();
+        }
+
+        putNormal( c, b );
+
+        for ( int i = 0; i < c.length; i++ ) {
+          b.putFloat( c[ i ] );
+        }
+
+        b.putShort( ( short ) 0 );
+      }
+    }
+
+    out.write( b.array(), 0, b.position() );
+  }
+
+  /**
+   * Puts the unit normal of the triangle, a degenerated triangle has the
+   * zero vector.
+   */
+  protected static void putNormal( float[] c, ByteBuffer b ) {
+    double ux = c[ 3 ] - c[ 0 ];
+    double uy = c[ 4 ] - c[ 1 ];
+    double uz = c[ 5 ] - c[ 2 ];
+    double vx = c[ 6 ] - c[ 0 ];
+    double vy = c[ 7 ] - c[ 1 ];
+    double vz = c[ 8 ] - c[ 2 ];
+    double nx = ( uy * vz ) - ( uz * vy );
+    double ny = ( uz * vx ) - ( ux * vz );
+    double nz = ( ux * vy ) - ( uy * vx );
+    double length = Math.sqrt( ( nx * nx ) + ( ny * ny ) + ( nz * nz ) );
+
+    if ( length > 0.0 ) {
+      nx /= length;
+      ny /= length;
+      nz /= length;
+    }
+
+    b.putFloat( ( float ) nx );
+    b.putFloat( ( float ) ny );
+    b.putFloat( ( float ) nz );
+  }
+}
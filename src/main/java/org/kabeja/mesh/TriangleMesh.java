@@ -0,0 +1,241 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package org.kabeja.mesh;
+
+/**
+ * An indexed triangle mesh with packed float buffers. The positions are
+ * stored as x,y,z triples relative to an origin, so large world
+ * coordinates keep the precision of the float values. The indices are
+ * triples of vertex indices.
+ * <p>
+ * Vertices are welded while they are added: each coordinate is snapped to
+ * the grid of the weld tolerance and vertices with the same snapped
+ * position share one index. The vertices are found by a hash table over
+ * the snapped positions, which is dropped by trimToSize().
+ * </p>
+ */
+public class TriangleMesh {
+  public final static double DEFAULT_WELD_TOLERANCE = 1.0E-6;
+  public final static int NO_COLOR = -1;
+  protected String name;
+  protected double originX;
+  protected double originY;
+  protected double originZ;
+  protected double weldTolerance;
+  protected int color = NO_COLOR;
+  protected float[] positions = new float[ 3 * 64 ];
+  protected int vertexCount = 0;
+  protected int[] indices = new int[ 3 * 64 ];
+  protected int indexCount = 0;
+
+  // vertex index + 1 of the snapped positions, 0 is empty
+  protected int[] table;
+
+  /**
+   * @param name          the name, for example the layer
+   * @param originX       the origin of the positions
+   * @param originY
+   * @param originZ
+   * @param weldTolerance the grid of the welded vertices, 0 welds only
+   *                      equal float positions
+   */
+  public TriangleMesh( String name, double originX, double originY,
+                       double originZ, double weldTolerance ) {
+    this.name = name;
+    this.originX = originX;
+    this.originY = originY;
+    this.originZ = originZ;
+    this.weldTolerance = weldTolerance;
+  }
+
+  public String getName() { return this.name; }
+
+  public double getOriginX() { return this.originX; }
+
+  public double getOriginY() { return this.originY; }
+
+  public double getOriginZ() { return this.originZ; }
+
+  /**
+   * @return the color as 0xrrggbb or NO_COLOR
+   */
+  public int getColor() { return this.color; }
+
+  public void setColor( int color ) { this.color = color; }
+
+  public int getVertexCount() { return this.vertexCount; }
+
+  public int getTriangleCount() { return this.indexCount / 3; }
+
+  /**
+   * @return the internal positions relative to the origin, the array can
+   * be larger than 3 * getVertexCount()
+   */
+  public float[] getPositions() { return this.positions; }
+
+  /**
+   * @return the internal indices, the array can be larger than
+   * 3 * getTriangleCount()
+   */
+  public int[] getIndices() { return this.indices; }
+
+  public boolean isEmpty() { return this.indexCount == 0; }
+
+  /**
+   * Adds a vertex in world coordinates or returns the index of the welded
+   * vertex at the same snapped position.
+   *
+   * @return the index of the vertex
+   */
+  public int addVertex( double x, double y, double z ) {
+    // adding 0.0f turns -0.0f into 0.0f for the hash
+    float fx = this.snap( x - this.originX ) + 0.0f;
+    float fy = this.snap( y - this.originY ) + 0.0f;
+    float fz = this.snap( z - this.originZ ) + 0.0f;
+
+    if ( ( this.table == null ) ||
+      ( ( ( this.vertexCount + 1 ) * 2 ) > this.table.length ) ) {
+      this.rehash( Integer.highestOneBit( Math.max( this.vertexCount + 1, 16 ) ) * 4 );
+    }
+
+    int mask = this.table.length - 1;
+    int slot = hash( fx, fy, fz ) & mask;
+    int entry;
+
+    while ( ( entry = this.table[ slot ] ) != 0 ) {
+      int p = ( entry - 1 ) * 3;
+
+      if ( ( this.positions[ p ] == fx ) && ( this.positions[ p + 1 ] == fy ) &&
+        ( this.positions[ p + 2 ] == fz ) ) {
+        return entry - 1;
+      }
+
+      slot = ( slot + 1 ) & mask;
+    }
+
+    if ( this.positions.length < ( ( this.vertexCount + 1 ) * 3 ) ) {
+      float[] p = new float[ grow( this.positions.length ) ];
+      System.arraycopy( this.positions, 0, p, 0, this.vertexCount * 3 );
+      this.positions = p;
+    }
+
+    int p = this.vertexCount * 3;
+    this.positions[ p ] = fx;
+    this.positions[ p + 1 ] = fy;
+    this.positions[ p + 2 ] = fz;
+    this.table[ slot ] = ++this.vertexCount;
+
+    return this.vertexCount - 1;
+  }
+
+  /**
+   * Adds a triangle, degenerated triangles with welded corners are
+   * omitted.
+   *
+   * @return true if the triangle was added
+   */
+  public boolean addTriangle( int a, int b, int c ) {
+    if ( ( a == b ) || ( b == c ) || ( a == c ) ) {
+      return false;
+    }
+
+    if ( this.indices.length < ( this.indexCount + 3 ) ) {
+      int[] i = new int[ grow( this.indices.length ) ];
+      System.arraycopy( this.indices, 0, i, 0, this.indexCount );
+      this.indices = i;
+    }
+
+    this.indices[ this.indexCount++ ] = a;
+    this.indices[ this.indexCount++ ] = b;
+    this.indices[ this.indexCount++ ] = c;
+
+    return true;
+  }
+
+  /**
+   * @return the minimum and the maximum of the positions as x,y,z,x,y,z
+   */
+  public float[] getBounds() {
+    float[] b = new float[] {
+        Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE, -Float.MAX_VALUE,
+        -Float.MAX_VALUE, -Float.MAX_VALUE
+      };
+
+    for ( int i = 0; i < ( this.vertexCount * 3 ); i++ ) {
+      int axis = i % 3;
+      b[ axis ] = Math.min( b[ axis ], this.positions[ i ] );
+      b[ axis + 3 ] = Math.max( b[ axis + 3 ], this.positions[ i ] );
+    }
+
+    return b;
+  }
+
+  /**
+   * Reduces the buffers to the used size and drops the weld table, which
+   * is rebuilt if more vertices are added.
+   */
+  public void trimToSize() {
+    float[] p = new float[ this.vertexCount * 3 ];
+    System.arraycopy( this.positions, 0, p, 0, p.length );
+    this.positions = p;
+
+    int[] i = new int[ this.indexCount ];
+    System.arraycopy( this.indices, 0, i, 0, i.length );
+    this.indices = i;
+    this.table = null;
+  }
+
+  protected float snap( double v ) {
+    if ( this.weldTolerance > 0.0 ) {
+      return ( float ) ( Math.rint( v / this.weldTolerance ) * this.weldTolerance );
+    }
+
+    return ( float ) v;
+  }
+
+  protected void rehash( int size ) {
+    this.table = new int[ size ];
+
+    int mask = size - 1;
+
+    for ( int v = 0; v < this.vertexCount; v++ ) {
+      int p = v * 3;
+      int slot = hash( this.positions[ p ], this.positions[ p + 1 ],
+          this.positions[ p + 2 ] ) & mask;
+
+      while ( this.table[ slot ] != 0 ) {
+        slot = ( slot + 1 ) & mask;
+      }
+
+      this.table[ slot ] = v + 1;
+    }
+  }
+
+  protected static int hash( float x, float y, float z ) {
+    int h = ( Float.floatToIntBits( x ) * 73856093 ) ^
+      ( Float.floatToIntBits( y ) * 19349663 ) ^
+      ( Float.floatToIntBits( z ) * 83492791 );
+
+    // spread the high bits to the masked low bits
+    return h ^ ( h >>> 16 );
+  }
+
+  protected static int grow( int length ) {
+    return Math.max( length + ( length >> 1 ), 3 * 64 );
+  }
+}
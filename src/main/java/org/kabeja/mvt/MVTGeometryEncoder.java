@@ -0,0 +1,548 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+
+package org.kabeja.mvt;
+
+import org.kabeja.geo.GeoGeometry;
+import org.kabeja.math.PathBuffer;
+
+/**
+ * Encodes geometries in world coordinates to the command integers of a
+ * vector tile. The geometry is transformed to the tile coordinates (y
+ * down), clipped to the tile with a buffer, simplified with the
+ * Douglas-Peucker algorithm and rounded to integers. The tolerance is
+ * given in tile units, so coarse zoom levels are simplified more in world
+ * units.
+ * <p>
+ * Exterior rings are written with positive area and holes with negative
+ * area in tile coordinates, as required by the vector tile
+ * specification 2.1. An encoder is used by one thread at a time.
+ * </p>
+ */
+public class MVTGeometryEncoder {
+  public final static int GEOM_POINT = 1;
+  public final static int GEOM_LINESTRING = 2;
+  public final static int GEOM_POLYGON = 3;
+  private final static int COMMAND_MOVE_TO = 1;
+  private final static int COMMAND_LINE_TO = 2;
+  private final static int COMMAND_CLOSE_PATH = 7;
+  private int extent;
+  private double tolerance;
+  private double clipMin;
+  private double clipMax;
+
+  // the tile
+  private double minX;
+  private double maxY;
+  private double scale;
+
+  // the parameters of the clipped segment
+  private double t0;
+  private double t1;
+
+  // the points of the current part
+  private double[] xs = new double[ 256 ];
+  private double[] ys = new double[ 256 ];
+  private int count;
+  private double[] clipX = new double[ 256 ];
+  private double[] clipY = new double[ 256 ];
+  private boolean[] keep = new boolean[ 256 ];
+  private int[] stack = new int[ 512 ];
+  private int[] qx = new int[ 256 ];
+  private int[] qy = new int[ 256 ];
+
+  // the commands
+  private int[] commands = new int[ 256 ];
+  private int commandCount;
+  private int cursorX;
+  private int cursorY;
+
+  /**
+   * @param extent    the count of integer units of a tile
+   * @param buffer    the units outside of the tile, which are kept
+   * @param tolerance the tolerance of the simplification in units
+   */
+  public MVTGeometryEncoder( int extent, int buffer, double tolerance ) {
+    this.clipMin = -buffer;
+    this.clipMax = extent + buffer;
+    this.tolerance = tolerance;
+    this.extent = extent;
+    this.scale = extent;
+  }
+
+  /**
+   * Sets the tile in world coordinates.
+   *
+   * @param minX the left of the tile
+   * @param maxY the top of the tile
+   * @param size the width and height of the tile
+   */
+  public void setTile( double minX, double maxY, double size ) {
+    this.minX = minX;
+    this.maxY = maxY;
+    this.scale = this.extent / size;
+  }
+
+  public int[] getCommands() { return this.commands; }
+
+  public int getCommandCount() { return this.commandCount; }
+
+  /**
+   * Encodes the geometry for the current tile.
+   *
+   * @param geometry the geometry in world coordinates
+   * @return the vector tile geometry type or 0 if nothing of the geometry
+   *         lies in the tile
+   */
+  public int encode( GeoGeometry geometry ) {
+    PathBuffer coordinates = geometry.getCoordinates();
+    this.commandCount = 0;
+    this.cursorX = 0;
+    this.cursorY = 0;
+
+    switch ( geometry.getType() ) {
+      case GeoGeometry.TYPE_POINT:
+
+        double x = this.toTileX( coordinates.getX( 0 ) );
+        double y = this.toTileY( coordinates.getY( 0 ) );
+
+        if ( ( x < this.clipMin ) || ( x > this.clipMax ) || ( y < this.clipMin ) ||
+          ( y > this.clipMax ) ) {
+          return 0;
+        }
+
+        this.addCommand( COMMAND_MOVE_TO, 1 );
+        this.addPoint( ( int ) Math.round( x ), ( int ) Math.round( y ) );
+
+        return GEOM_POINT;
+
+      case GeoGeometry.TYPE_LINESTRING:
+      case GeoGeometry.TYPE_MULTILINESTRING:
+
+        for ( int part = 0; part < coordinates.getPartCount(); part++ ) {
+          this.clipLine( coordinates, part );
+        }
+
+        return ( this.commandCount > 0 ) ? GEOM_LINESTRING : 0;
+
+      default:
+
+        for ( int i = 0; i < geometry.getPolygonCount(); i++ ) {
+          int start = geometry.getRingStart( i );
+
+          if ( this.addRing( coordinates, start, true ) ) {
+            for ( int ring = start + 1; ring < geometry.getRingEnd( i ); ring++ ) {
+              this.addRing( coordinates, ring, false );
+            }
+          }
+        }
+
+        return ( this.commandCount > 0 ) ? GEOM_POLYGON : 0;
+    }
+  }
+
+  protected double toTileX( double x ) { return ( x - this.minX ) * this.scale; }
+
+  protected double toTileY( double y ) { return ( this.maxY - y ) * this.scale; }
+
+  /**
+   * Clips the segments of the part to the buffered tile, every inside
+   * piece is added as line string.
+   */
+  protected void clipLine( PathBuffer coordinates, int part ) {
+    int start = coordinates.getPartStart( part );
+    int end = coordinates.getPartEnd( part );
+    double x0 = this.toTileX( coordinates.getX( start ) );
+    double y0 = this.toTileY( coordinates.getY( start ) );
+    this.count = 0;
+
+    for ( int i = start + 1; i < end; i++ ) {
+      double x1 = this.toTileX( coordinates.getX( i ) );
+      double y1 = this.toTileY( coordinates.getY( i ) );
+
+      // Liang-Barsky
+      double dx = x1 - x0;
+      double dy = y1 - y0;
+      this.t0 = 0.0;
+      this.t1 = 1.0;
+
+      if ( !this.clipSegment( -dx, x0 - this.clipMin ) ||
+        !this.clipSegment( dx, this.clipMax - x0 ) ||
+        !this.clipSegment( -dy, y0 - this.clipMin ) ||
+        !this.clipSegment( dy, this.clipMax - y0 ) ) {
+        this.addLine();
+      } else {
+        if ( ( this.count == 0 ) || ( this.t0 > 0.0 ) ) {
+          this.addLine();
+          this.append( x0 + ( this.t0 * dx ), y0 + ( this.t0 * dy ) );
+        }
+
+        this.append( x0 + ( this.t1 * dx ), y0 + ( this.t1 * dy ) );
+
+        if ( this.t1 < 1.0 ) {
+          this.addLine();
+        }
+      }
+
+      x0 = x1;
+      y0 = y1;
+    }
+
+    this.addLine();
+  }
+
+  /**
+   * Clips the parameter range t0 to t1 of the segment against one side.
+   *
+   * @return false if the segment lies outside
+   */
+  protected boolean clipSegment( double p, double q ) {
+    if ( p == 0.0 ) {
+      return q >= 0.0;
+    }
+
+    double r = q / p;
+
+    if ( p < 0.0 ) {
+      if ( r > this.t1 ) {
+        return false;
+      } else if ( r > this.t0 ) {
+        this.t0 = r;
+      }
+    } else if ( r < this.t0 ) {
+      return false;
+    } else if ( r < this.t1 ) {
+      this.t1 = r;
+    }
+
+    return true;
+  }
+
+  /**
+   * Adds the collected points as line string and clears them.
+   */
+  protected void addLine() {
+    if ( this.count > 1 ) {
+      int n = this.quantize( this.simplify( this.count ), false );
+
+      if ( n > 1 ) {
+        this.addCommand( COMMAND_MOVE_TO, 1 );
+        this.addPoint( this.qx[ 0 ], this.qy[ 0 ] );
+        this.addCommand( COMMAND_LINE_TO, n - 1 );
+
+        for ( int i = 1; i < n; i++ ) {
+          this.addPoint( this.qx[ i ], this.qy[ i ] );
+        }
+      }
+    }
+
+    this.count = 0;
+  }
+
+  /**
+   * Clips, simplifies and adds the closed ring of the part.
+   *
+   * @return false if nothing of the ring remains
+   */
+  protected boolean addRing( PathBuffer coordinates, int part, boolean exterior ) {
+    int start = coordinates.getPartStart( part );
+
+    // the last point repeats the first
+    int end = coordinates.getPartEnd( part ) - 1;
+    this.count = 0;
+
+    for ( int i = start; i < end; i++ ) {
+      this.append( this.toTileX( coordinates.getX( i ) ),
+        this.toTileY( coordinates.getY( i ) ) );
+    }
+
+    // Sutherland-Hodgman against the four sides
+    this.clipRing( true, this.clipMin, true );
+    this.clipRing( true, this.clipMax, false );
+    this.clipRing( false, this.clipMin, true );
+    this.clipRing( false, this.clipMax, false );
+
+    if ( this.count < 3 ) {
+      return false;
+    }
+
+    // simplify the ring as line back to the first point
+    this.append( this.xs[ 0 ], this.ys[ 0 ] );
+
+    int n = this.quantize( this.simplify( this.count ), true );
+
+    if ( n < 3 ) {
+      return false;
+    }
+
+    long area = 0;
+
+    for ( int i = 0, j = n - 1; i < n; j = i++ ) {
+      area += ( ( ( long ) this.qx[ j ] * this.qy[ i ] ) -
+      ( ( long ) this.qx[ i ] * this.qy[ j ] ) );
+    }
+
+    if ( area == 0 ) {
+      return false;
+    } else if ( ( area > 0 ) != exterior ) {
+      for ( int i = 0, j = n - 1; i < j; i++, j-- ) {
+        int x = this.qx[ i ];
+        int y = this.qy[ i ];
+        this.qx[ i ] = this.qx[ j ];
+        this.qy[ i ] = this.qy[ j ];
+        this.qx[ j ] = x;
+        this.qy[ j ] = y;
+      }
+    }
+
+    this.addCommand( COMMAND_MOVE_TO, 1 );
+    this.addPoint( this.qx[ 0 ], this.qy[ 0 ] );
+    this.addCommand( COMMAND_LINE_TO, n - 1 );
+
+    for ( int i = 1; i < n; i++ ) {
+      this.addPoint( this.qx[ i ], this.qy[ i ] );
+    }
+
+    this.addCommand( COMMAND_CLOSE_PATH, 1 );
+
+    return true;
+  }
+
+  /**
+   * Clips the ring in xs, ys against one side.
+   *
+   * @param vertical true for x = value, false for y = value
+   * @param value    the coordinate of the side
+   * @param greater  true if the inside is greater than the value
+   */
+  protected void clipRing( boolean vertical, double value, boolean greater ) {
+    int n = this.count;
+
+    if ( n == 0 ) {
+      return;
+    }
+
+    this.ensureClipCapacity( ( 2 * n ) + 1 );
+
+    int m = 0;
+    double px = this.xs[ n - 1 ];
+    double py = this.ys[ n - 1 ];
+    double pv = vertical ? px : py;
+    boolean pin = greater ? ( pv >= value ) : ( pv <= value );
+
+    for ( int i = 0; i < n; i++ ) {
+      double cx = this.xs[ i ];
+      double cy = this.ys[ i ];
+      double cv = vertical ? cx : cy;
+      boolean cin = greater ? ( cv >= value ) : ( cv <= value );
+
+      if ( cin != pin ) {
+        double t = ( value - pv ) / ( cv - pv );
+        this.clipX[ m ] = vertical ? value : ( px + ( t * ( cx - px ) ) );
+        this.clipY[ m++ ] = vertical ? ( py + ( t * ( cy - py ) ) ) : value;
+      }
+
+      if ( cin ) {
+        this.clipX[ m ] = cx;
+        this.clipY[ m++ ] = cy;
+      }
+
+      px = cx;
+      py = cy;
+      pv = cv;
+      pin = cin;
+    }
+
+    double[] swap = this.xs;
+    this.xs = this.clipX;
+    this.clipX = swap;
+    swap = this.ys;
+    this.ys = this.clipY;
+    this.clipY = swap;
+    this.count = m;
+  }
+
+  /**
+   * Simplifies the first n points with the Douglas-Peucker algorithm, the
+   * first and the last point are kept.
+   *
+   * @return the count of remaining points
+   */
+  protected int simplify( int n ) {
+    if ( ( n < 3 ) || ( this.tolerance <= 0.0 ) ) {
+      return n;
+    }
+
+    if ( this.keep.length < n ) {
+      this.keep = new boolean[ n * 2 ];
+      this.stack = new int[ n * 4 ];
+    }
+
+    for ( int i = 1; i < ( n - 1 ); i++ ) {
+      this.keep[ i ] = false;
+    }
+
+    this.keep[ 0 ] = true;
+    this.keep[ n - 1 ] = true;
+
+    double toleranceSq = this.tolerance * this.tolerance;
+    int top = 0;
+    this.stack[ top++ ] = 0;
+    this.stack[ top++ ] = n - 1;
+
+    while ( top > 0 ) {
+      int b = this.stack[ --top ];
+      int a = this.stack[ --top ];
+      double max = toleranceSq;
+      int index = -1;
+
+      for ( int i = a + 1; i < b; i++ ) {
+        double d = distanceSq( this.xs[ i ], this.ys[ i ], this.xs[ a ], this.ys[ a ],
+            this.xs[ b ], this.ys[ b ] );
+
+        if ( d > max ) {
+          max = d;
+          index = i;
+        }
+      }
+
+      if ( index > 0 ) {
+        this.keep[ index ] = true;
+        this.stack[ top++ ] = a;
+        this.stack[ top++ ] = index;
+        this.stack[ top++ ] = index;
+        this.stack[ top++ ] = b;
+      }
+    }
+
+    int m = 0;
+
+    for ( int i = 0; i < n; i++ ) {
+      if ( this.keep[ i ] ) {
+        this.xs[ m ] = this.xs[ i ];
+        this.ys[ m++ ] = this.ys[ i ];
+      }
+    }
+
+    return m;
+  }
+
+  /**
+   * Rounds the points to qx, qy without repeated points.
+   *
+   * @param ring true to remove the last point, if it equals the first
+   * @return the count of points
+   */
+  protected int quantize( int n, boolean ring ) {
+    if ( this.qx.length < n ) {
+      this.qx = new int[ n * 2 ];
+      this.qy = new int[ n * 2 ];
+    }
+
+    int m = 0;
+
+    for ( int i = 0; i < n; i++ ) {
+      int x = ( int ) Math.round( this.xs[ i ] );
+      int y = ( int ) Math.round( this.ys[ i ] );
+
+      if ( ( m == 0 ) || ( x != this.qx[ m - 1 ] ) || ( y != this.qy[ m - 1 ] ) ) {
+        this.qx[ m ] = x;
+        this.qy[ m++ ] = y;
+      }
+    }
+
+    if ( ring && ( m > 1 ) && ( this.qx[ m - 1 ] == this.qx[ 0 ] ) &&
+      ( this.qy[ m - 1 ] == this.qy[ 0 ] ) ) {
+      m--;
+    }
+
+    return m;
+  }
+
+  /**
+   * @return the squared distance of the point to the segment a-b
+   */
+  protected static double distanceSq( double x, double y, double ax, double ay,
+                                      double bx, double by ) {
+    double dx = bx - ax;
+    double dy = by - ay;
+    double length = ( dx * dx ) + ( dy * dy );
+    double t = ( length > 0.0 ) ? ( ( ( ( x - ax ) * dx ) + ( ( y - ay ) * dy ) ) / length )
+                                : 0.0;
+    t = Math.max( 0.0, Math.min( 1.0, t ) );
+
+    double ex = ( ax + ( t * dx ) ) - x;
+    double ey = ( ay + ( t * dy ) ) - y;
+
+    return ( ex * ex ) + ( ey * ey );
+  }
+
+  protected void append( double x, double y ) {
+    if ( this.count == this.xs.length ) {
+      double[] b = new double[ this.count * 2 ];
+      System.arraycopy( this.xs, 0, b, 0, this.count );
+      this.xs = b;
+      b = new double[ this.count * 2 ];
+      System.arraycopy( this.ys, 0, b, 0, this.count );
+      this.ys = b;
+    }
+
+    this.xs[ this.count ] = x;
+    this.ys[ this.count++ ] = y;
+  }
+
+  protected void ensureClipCapacity( int n ) {
+    if ( this.clipX.length < n ) {
+      this.clipX = new double[ n * 2 ];
+      this.clipY = new double[ n * 2 ];
+    }
+
+    if ( this.xs.length < n ) {
+      double[] b = new double[ n * 2 ];
+      System.arraycopy( this.xs, 0, b, 0, this.count );
+      this.xs = b;
+      b = new double[ n * 2 ];
+      System.arraycopy( this.ys, 0, b, 0, this.count );
+      this.ys = b;
+    }
+  }
+
+  protected void addCommand( int command, int count ) {
+    this.addInt( ( command & 0x7 ) | ( count << 3 ) );
+  }
+
+  /**
+   * Adds the point as zigzag encoded delta to the cursor.
+   */
+  protected void addPoint( int x, int y ) {
+    this.addInt( ProtobufOutput.zigZag( x - this.cursorX ) );
+    this.addInt( ProtobufOutput.zigZag( y - this.cursorY ) );
+    this.cursorX = x;
+    this.cursorY = y;
+  }
+
+  protected void addInt( int value ) {
+    if ( this.commandCount == this.commands.length ) {
+      int[] b = new int[ this.commandCount * 2 ];
+      System.arraycopy( this.commands, 0, b, 0, this.commandCount );
+      this.commands = b;
+    }
+
+    this.commands[ this.commandCount++ ] = value;
+  }
+}
@@ -0,0 +1,167 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+
+package org.kabeja.mvt;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects the features of a vector tile and encodes the tile in the
+ * protocol buffers format of the Mapbox vector tile specification 2.1.
+ * The attributes are string values, the keys and values are shared by the
+ * features of a layer.
+ */
+public class MVTTile {
+  public final static int VERSION = 2;
+
+  // the field numbers of the messages
+  private final static int TILE_LAYERS = 3;
+  private final static int LAYER_NAME = 1;
+  private final static int LAYER_FEATURES = 2;
+  private final static int LAYER_KEYS = 3;
+  private final static int LAYER_VALUES = 4;
+  private final static int LAYER_EXTENT = 5;
+  private final static int LAYER_VERSION = 15;
+  private final static int FEATURE_ID = 1;
+  private final static int FEATURE_TAGS = 2;
+  private final static int FEATURE_TYPE = 3;
+  private final static int FEATURE_GEOMETRY = 4;
+  private final static int VALUE_STRING = 1;
+  private int extent;
+  private Map layers = new LinkedHashMap();
+  private ProtobufOutput feature = new ProtobufOutput();
+  private int[] tags = new int[ 16 ];
+
+  public MVTTile( int extent ) {
+    this.extent = extent;
+  }
+
+  public boolean isEmpty() { return this.layers.isEmpty(); }
+
+  /**
+   * Adds a feature to the layer.
+   *
+   * @param layerName  the name of the layer
+   * @param id         the ID of the feature, 0 for none
+   * @param attributes the keys and values of the attributes alternating,
+   *                   null values are omitted
+   * @param type       the geometry type
+   * @param commands   the geometry commands
+   * @param count      the count of commands
+   */
+  public void addFeature( String layerName, long id, String[] attributes, int type,
+                          int[] commands, int count ) {
+    Layer layer = ( Layer ) this.layers.get( layerName );
+
+    if ( layer == null ) {
+      layer = new Layer( layerName );
+      this.layers.put( layerName, layer );
+    }
+
+    if ( this.tags.length < attributes.length ) {
+      this.tags = new int[ attributes.length ];
+    }
+
+    int tagCount = 0;
+
+    for ( int i = 0; i < attributes.length; i += 2 ) {
+      if ( attributes[ i + 1 ] != null ) {
+        this.tags[ tagCount++ ] = layer.getIndex( layer.keys, layer.keyList, attributes[ i ] );
+        this.tags[ tagCount++ ] = layer.getIndex( layer.values, layer.valueList,
+            attributes[ i + 1 ] );
+      }
+    }
+
+    this.feature.reset();
+
+    if ( id > 0 ) {
+      this.feature.writeVarintField( FEATURE_ID, id );
+    }
+
+    if ( tagCount > 0 ) {
+      this.feature.writePackedField( FEATURE_TAGS, this.tags, tagCount );
+    }
+
+    this.feature.writeVarintField( FEATURE_TYPE, type );
+    this.feature.writePackedField( FEATURE_GEOMETRY, commands, count );
+    layer.features.writeMessageField( LAYER_FEATURES, this.feature );
+  }
+
+  /**
+   * @return the encoded tile
+   */
+  public byte[] encode() {
+    ProtobufOutput tile = new ProtobufOutput( 4096 );
+    ProtobufOutput message = new ProtobufOutput( 4096 );
+    ProtobufOutput value = new ProtobufOutput( 64 );
+    Iterator i = this.layers.values().iterator();
+
+    while ( i.hasNext() ) {
+      Layer layer = ( Layer ) i.next();
+      message.reset();
+      message.writeVarintField( LAYER_VERSION, VERSION );
+      message.writeStringField( LAYER_NAME, layer.name );
+      message.writeRaw( layer.features.toByteArray(), 0, layer.features.size() );
+
+      for ( int x = 0; x < layer.keyList.size(); x++ ) {
+        message.writeStringField( LAYER_KEYS, ( String ) layer.keyList.get( x ) );
+      }
+
+      for ( int x = 0; x < layer.valueList.size(); x++ ) {
+        value.reset();
+        value.writeStringField( VALUE_STRING, ( String ) layer.valueList.get( x ) );
+        message.writeMessageField( LAYER_VALUES, value );
+      }
+
+      message.writeVarintField( LAYER_EXTENT, this.extent );
+      tile.writeMessageField( TILE_LAYERS, message );
+    }
+
+    return tile.toByteArray();
+  }
+
+  private static class Layer {
+    private String name;
+    private ProtobufOutput features = new ProtobufOutput( 4096 );
+    private Map keys = new HashMap();
+    private List keyList = new ArrayList();
+    private Map values = new HashMap();
+    private List valueList = new ArrayList();
+
+    private Layer( String name ) {
+      this.name = name;
+    }
+
+    private int getIndex( Map indices, List list, String s ) {
+      Integer index = ( Integer ) indices.get( s );
+
+      if ( index == null ) {
+        index = Integer.valueOf( list.size() );
+        indices.put( s, index );
+        list.add( s );
+      }
+
+      return index.intValue();
+    }
+  }
+}
@@ -0,0 +1,643 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+
+package org.kabeja.mvt;
+
+import org.kabeja.dxf.DXFConstants;
+import org.kabeja.dxf.DXFDimension;
+import org.kabeja.dxf.DXFDocument;
+import org.kabeja.dxf.DXFEntity;
+import org.kabeja.dxf.DXFInsert;
+import org.kabeja.dxf.DXFLayer;
+import org.kabeja.dxf.helpers.DXFGeometryConverter;
+import org.kabeja.dxf.helpers.DXFInsertExploder;
+import org.kabeja.dxf.helpers.WorldGeometryHandler;
+import org.kabeja.geo.GeoFeature;
+import org.kabeja.geo.GeoFeatureConverter;
+import org.kabeja.geo.GeoGeometry;
+import org.kabeja.math.PathBuffer;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Cuts the model space of a document into Mapbox vector tiles. The layers
+ * of the drawing are the layers of the tiles, the features have the
+ * attributes type, color, handle and label. Inserts and dimensions are
+ * exploded to line strings.
+ * <p>
+ * The tile grid is an XYZ pyramid over the square, which starts at the
+ * top-left corner of the extent of the drawing, like the grid of the
+ * Java2DRenderer. For each zoom level the features are collected in
+ * buckets per tile from their bounds, long lines only in the tiles along
+ * their segments. The levels are bucketed in parallel and the tiles are
+ * encoded in parallel on a thread pool.
+ * </p>
+ * <p>
+ * The tiles are written as z/x/y.pbf into a directory with a
+ * metadata.json like the metadata table of MBTiles. The coordinates stay
+ * in the units of the drawing.
+ * </p>
+ */
+public class MVTTiler {
+  public final static int DEFAULT_EXTENT = 4096;
+  public final static int DEFAULT_BUFFER = 64;
+  public final static double DEFAULT_SIMPLIFICATION = 1.0;
+  public final static String TILE_FORMAT = "pbf";
+  public final static String METADATA_FILE = "metadata.json";
+
+  // the count of tiles of a feature, which are taken from its bounds
+  private final static int MAX_BOUNDS_TILES = 4;
+  private final static int TILES_PER_TASK = 64;
+  protected DXFDocument doc;
+  protected int minZoom = 0;
+  protected int maxZoom = 8;
+  protected int extent = DEFAULT_EXTENT;
+  protected int buffer = DEFAULT_BUFFER;
+  protected double simplification = DEFAULT_SIMPLIFICATION;
+  protected double tolerance = DXFGeometryConverter.DEFAULT_TOLERANCE;
+  protected int threads = Runtime.getRuntime().availableProcessors();
+
+  // the prepared features
+  protected List features;
+  protected double originX;
+  protected double originY;
+  protected double size;
+  protected double[] bounds;
+
+  public MVTTiler( DXFDocument doc ) {
+    this.doc = doc;
+  }
+
+  public void setZoomLevels( int minZoom, int maxZoom ) {
+    this.minZoom = Math.max( minZoom, 0 );
+    this.maxZoom = Math.max( Math.min( maxZoom, 30 ), this.minZoom );
+  }
+
+  /**
+   * @param extent the count of integer units of a tile side
+   */
+  public void setExtent( int extent ) { this.extent = extent; }
+
+  /**
+   * @param buffer the units around a tile, which are included
+   */
+  public void setBuffer( int buffer ) { this.buffer = buffer; }
+
+  /**
+   * @param simplification the Douglas-Peucker tolerance in tile units, 0
+   *                       to switch the simplification off
+   */
+  public void setSimplification( double simplification ) {
+    this.simplification = simplification;
+  }
+
+  /**
+   * @param tolerance the maximal distance between curves and segments in
+   *                  drawing units
+   */
+  public void setTolerance( double tolerance ) {
+    this.tolerance = tolerance;
+    this.features = null;
+  }
+
+  public void setThreads( int threads ) { this.threads = Math.max( threads, 1 ); }
+
+  /**
+   * Converts the entities to features, which is done once before the
+   * first tile.
+   */
+  public synchronized void prepare() {
+    if ( this.features != null ) {
+      return;
+    }
+
+    final List list = new ArrayList();
+    final GeoFeatureConverter converter = new GeoFeatureConverter( this.tolerance );
+    DXFInsertExploder exploder = new DXFInsertExploder( this.doc, this.tolerance );
+    Iterator i = this.doc.getDXFLayerIterator();
+
+    while ( i.hasNext() ) {
+      DXFLayer layer = ( DXFLayer ) i.next();
+
+      if ( layer.isFrozen() || !layer.isVisible() ) {
+        continue;
+      }
+
+      Iterator types = layer.getDXFEntityTypeIterator();
+
+      while ( types.hasNext() ) {
+        Iterator entities = layer.getDXFEntities( ( String ) types.next() ).iterator();
+
+        while ( entities.hasNext() ) {
+          final DXFEntity entity = ( DXFEntity ) entities.next();
+
+          if ( !entity.isModelSpace() || !entity.isVisibile() ) {
+            continue;
+          }
+
+          if ( ( entity instanceof DXFInsert ) || ( entity instanceof DXFDimension ) ) {
+            WorldGeometryHandler handler = new WorldGeometryHandler() {
+                public void geometry( DXFEntity blockEntity, PathBuffer geometry,
+                                      DXFInsert insert ) {
+                  addBlockFeature( list, entity, blockEntity, geometry );
+                }
+              };
+
+            if ( entity instanceof DXFInsert ) {
+              exploder.explode( ( DXFInsert ) entity, handler );
+            } else {
+              exploder.explode( ( DXFDimension ) entity, handler );
+            }
+          } else {
+            GeoFeature feature = converter.toFeature( entity );
+
+            if ( feature != null ) {
+              list.add( new TileFeature( feature.getLayer(), new String[] {
+                    "type", feature.getType(), "color", feature.getColor(), "handle",
+                    feature.getHandle(), "label", feature.getLabel()
+                  }, feature.getGeometry() ) );
+            }
+          }
+        }
+      }
+    }
+
+    // the square of the grid
+    double[] b = new double[] {
+        Double.MAX_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE
+      };
+
+    for ( int x = 0; x < list.size(); x++ ) {
+      TileFeature f = ( TileFeature ) list.get( x );
+      b[ 0 ] = Math.min( b[ 0 ], f.minX );
+      b[ 1 ] = Math.min( b[ 1 ], f.minY );
+      b[ 2 ] = Math.max( b[ 2 ], f.maxX );
+      b[ 3 ] = Math.max( b[ 3 ], f.maxY );
+    }
+
+    if ( list.isEmpty() ) {
+      b = new double[] { 0.0, 0.0, 1.0, 1.0 };
+    }
+
+    this.bounds = b;
+    this.originX = b[ 0 ];
+    this.originY = b[ 3 ];
+    this.size = Math.max( b[ 2 ] - b[ 0 ], b[ 3 ] - b[ 1 ] );
+
+    if ( this.size <= 0.0 ) {
+      this.size = 1.0;
+    }
+
+    this.features = list;
+  }
+
+  /**
+   * Adds the exploded geometry of a block entity, the block entities on
+   * layer 0 and with the color BYBLOCK take the layer and color of the
+   * insert.
+   */
+  protected void addBlockFeature( List list, DXFEntity insert, DXFEntity entity,
+                                  PathBuffer geometry ) {
+    GeoGeometry g;
+
+    if ( ( geometry.getPartCount() == 1 ) && ( geometry.getPointCount() == 1 ) ) {
+      g = new GeoGeometry( GeoGeometry.TYPE_POINT, new PathBuffer( geometry ), null );
+    } else {
+      g = GeoFeatureConverter.toLineStrings( geometry );
+    }
+
+    if ( g == null ) {
+      return;
+    }
+
+    boolean layer0 = DXFConstants.DEFAULT_LAYER.equals( entity.getLayerName() );
+    boolean byBlock = ( entity.getColorRGB() == null ) &&
+      ( ( entity.getColor() == 0 ) || ( layer0 && ( entity.getColor() == 256 ) ) );
+    list.add( new TileFeature( layer0 ? insert.getLayerName() : entity.getLayerName(),
+        new String[] {
+          "type", entity.getType(), "color",
+          GeoFeatureConverter.getColor( byBlock ? insert : entity ), "handle",
+          ( insert.getID().length() > 0 ) ? insert.getID() : null, "label", null
+        }, g ) );
+  }
+
+  /**
+   * Writes the tiles of all zoom levels and the metadata to the directory.
+   *
+   * @param directory the directory
+   * @return the count of written tiles, empty tiles are omitted
+   */
+  public int write( File directory ) throws IOException {
+    this.prepare();
+
+    ExecutorService executor = Executors.newFixedThreadPool( this.threads );
+    int count = 0;
+
+    try {
+      List bucketFutures = new ArrayList();
+
+      for ( int z = this.minZoom; z <= this.maxZoom; z++ ) {
+        final int zoom = z;
+        bucketFutures.add( executor.submit( new Callable() {
+              public Object call() {
+                return getBuckets( zoom );
+              }
+            } ) );
+      }
+
+      List tileFutures = new ArrayList();
+
+      for ( int z = this.minZoom; z <= this.maxZoom; z++ ) {
+        Map buckets = ( Map ) ( ( Future ) bucketFutures.get( z - this.minZoom ) ).get();
+        List keys = new ArrayList( buckets.keySet() );
+
+        for ( int x = 0; x < keys.size(); x += TILES_PER_TASK ) {
+          tileFutures.add( executor.submit( new TileTask( directory, z, buckets,
+                keys.subList( x, Math.min( x + TILES_PER_TASK, keys.size() ) ) ) ) );
+        }
+      }
+
+      for ( int x = 0; x < tileFutures.size(); x++ ) {
+        count += ( ( Integer ) ( ( Future ) tileFutures.get( x ) ).get() ).intValue();
+      }
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new IOException( "Interrupted while writing the tiles" );
+    } catch ( ExecutionException e ) {
+      if ( e.getCause() instanceof IOException ) {
+        throw ( IOException ) e.getCause();
+      }
+
+      throw new RuntimeException( "Could not write the tiles", e.getCause() );
+    } finally {
+      executor.shutdownNow();
+    }
+
+    this.writeMetadata( new File( directory, METADATA_FILE ) );
+
+    return count;
+  }
+
+  /**
+   * Encodes a single tile, the features are searched by their bounds.
+   *
+   * @return the tile or null if the tile is empty
+   */
+  public byte[] getTile( int z, int x, int y ) {
+    this.prepare();
+
+    double tileSize = this.size / ( 1L << z );
+    double margin = ( tileSize * this.buffer ) / this.extent;
+    double minX = ( this.originX + ( x * tileSize ) ) - margin;
+    double maxY = ( this.originY - ( y * tileSize ) ) + margin;
+    double maxX = minX + tileSize + ( 2 * margin );
+    double minY = maxY - tileSize - ( 2 * margin );
+    IntList indices = new IntList();
+
+    for ( int i = 0; i < this.features.size(); i++ ) {
+      TileFeature f = ( TileFeature ) this.features.get( i );
+
+      if ( ( f.minX <= maxX ) && ( f.maxX >= minX ) && ( f.minY <= maxY ) &&
+        ( f.maxY >= minY ) ) {
+        indices.add( i );
+      }
+    }
+
+    MVTTile tile = this.encodeTile( z, x, y, indices, new MVTGeometryEncoder(
+          this.extent, this.buffer, this.simplification ) );
+
+    return tile.isEmpty() ? null : tile.encode();
+  }
+
+  /**
+   * @return the file of the tile, which may not exist
+   */
+  public static File getTileFile( File directory, int z, int x, int y ) {
+    return new File( directory, z + File.separator + x + File.separator + y + "." +
+      TILE_FORMAT );
+  }
+
+  /**
+   * Collects the indices of the features for each tile of the level.
+   *
+   * @return the indices by the key of the tile (x &lt;&lt; 32 | y)
+   */
+  protected Map getBuckets( int z ) {
+    Map buckets = new HashMap();
+    int count = 1 << z;
+    double tileSize = this.size / count;
+    double margin = ( tileSize * this.buffer ) / this.extent;
+    int[] range = new int[ 4 ];
+
+    for ( int i = 0; i < this.features.size(); i++ ) {
+      TileFeature f = ( TileFeature ) this.features.get( i );
+      this.getTileRange( f.minX - margin, f.minY - margin, f.maxX + margin,
+        f.maxY + margin, tileSize, count, range );
+
+      long tiles = ( ( long ) ( range[ 2 ] - range[ 0 ] ) + 1 ) * ( ( range[ 3 ] - range[ 1 ] ) + 1 );
+
+      if ( ( tiles <= MAX_BOUNDS_TILES ) ||
+        ( f.geometry.getType() != GeoGeometry.TYPE_LINESTRING &&
+        f.geometry.getType() != GeoGeometry.TYPE_MULTILINESTRING ) ) {
+        addToBuckets( buckets, range, i );
+      } else {
+        // walk along the segments in steps of half a tile
+        PathBuffer c = f.geometry.getCoordinates();
+
+        for ( int part = 0; part < c.getPartCount(); part++ ) {
+          for ( int p = c.getPartStart( part ) + 1; p < c.getPartEnd( part ); p++ ) {
+            double x0 = c.getX( p - 1 );
+            double y0 = c.getY( p - 1 );
+            double dx = c.getX( p ) - x0;
+            double dy = c.getY( p ) - y0;
+            int steps = ( int ) Math.min( Math.ceil( ( 2 * Math.sqrt( ( dx * dx ) +
+                      ( dy * dy ) ) ) / tileSize ), Integer.MAX_VALUE - 1 );
+            steps = Math.max( steps, 1 );
+
+            for ( int s = 0; s < steps; s++ ) {
+              double ax = x0 + ( ( dx * s ) / steps );
+              double ay = y0 + ( ( dy * s ) / steps );
+              double bx = x0 + ( ( dx * ( s + 1 ) ) / steps );
+              double by = y0 + ( ( dy * ( s + 1 ) ) / steps );
+              this.getTileRange( Math.min( ax, bx ) - margin, Math.min( ay, by ) - margin,
+                Math.max( ax, bx ) + margin, Math.max( ay, by ) + margin, tileSize,
+                count, range );
+              addToBuckets( buckets, range, i );
+            }
+          }
+        }
+      }
+    }
+
+    return buckets;
+  }
+
+  /**
+   * @param range the result: the first and last column and row
+   */
+  protected void getTileRange( double minX, double minY, double maxX, double maxY,
+                               double tileSize, int count, int[] range ) {
+    range[ 0 ] = clamp( ( int ) Math.floor( ( minX - this.originX ) / tileSize ), count );
+    range[ 1 ] = clamp( ( int ) Math.floor( ( this.originY - maxY ) / tileSize ), count );
+    range[ 2 ] = clamp( ( int ) Math.floor( ( maxX - this.originX ) / tileSize ), count );
+    range[ 3 ] = clamp( ( int ) Math.floor( ( this.originY - minY ) / tileSize ), count );
+  }
+
+  protected static int clamp( int value, int count ) {
+    return Math.max( 0, Math.min( value, count - 1 ) );
+  }
+
+  protected static void addToBuckets( Map buckets, int[] range, int index ) {
+    for ( int x = range[ 0 ]; x <= range[ 2 ]; x++ ) {
+      for ( int y = range[ 1 ]; y <= range[ 3 ]; y++ ) {
+        Long key = Long.valueOf( ( ( long ) x << 32 ) | y );
+        IntList list = ( IntList ) buckets.get( key );
+
+        if ( list == null ) {
+          list = new IntList();
+          buckets.put( key, list );
+        }
+
+        // the features are added in order, a repeated tile is skipped
+        if ( ( list.size == 0 ) || ( list.values[ list.size - 1 ] != index ) ) {
+          list.add( index );
+        }
+      }
+    }
+  }
+
+  protected MVTTile encodeTile( int z, int x, int y, IntList indices,
+                                MVTGeometryEncoder encoder ) {
+    double tileSize = this.size / ( 1L << z );
+    encoder.setTile( this.originX + ( x * tileSize ), this.originY - ( y * tileSize ),
+      tileSize );
+
+    MVTTile tile = new MVTTile( this.extent );
+
+    for ( int i = 0; i < indices.size; i++ ) {
+      TileFeature f = ( TileFeature ) this.features.get( indices.values[ i ] );
+      int type = encoder.encode( f.geometry );
+
+      if ( type > 0 ) {
+        tile.addFeature( f.layer, indices.values[ i ] + 1, f.attributes, type,
+          encoder.getCommands(), encoder.getCommandCount() );
+      }
+    }
+
+    return tile;
+  }
+
+  /**
+   * Writes the tile to a temporary file, which replaces the tile, so other
+   * readers never see a partial tile.
+   */
+  protected void writeTile( byte[] data, File file ) throws IOException {
+    File dir = file.getParentFile();
+
+    if ( !dir.isDirectory() && !dir.mkdirs() && !dir.isDirectory() ) {
+      throw new IOException( "Could not create " + dir );
+    }
+
+    File tmp = File.createTempFile( "tile", ".tmp", dir );
+
+    try {
+      OutputStream out = new FileOutputStream( tmp );
+
+      try {
+        out.write( data );
+      } finally {
+        out.close();
+      }
+
+      try {
+        Files.move( tmp.toPath(), file.toPath(),
+          StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+      } catch ( AtomicMoveNotSupportedException e ) {
+        Files.move( tmp.toPath(), file.toPath(),
+          StandardCopyOption.REPLACE_EXISTING );
+      }
+    } finally {
+      tmp.delete();
+    }
+  }
+
+  /**
+   * Writes the metadata with the keys of the MBTiles metadata table, the
+   * bounds and the grid are given in drawing units.
+   */
+  protected void writeMetadata( File file ) throws IOException {
+    TreeSet layers = new TreeSet();
+
+    for ( int i = 0; i < this.features.size(); i++ ) {
+      layers.add( ( ( TileFeature ) this.features.get( i ) ).layer );
+    }
+
+    StringBuilder buf = new StringBuilder();
+    buf.append( "{\"format\":\"" ).append( TILE_FORMAT ).append( "\"" );
+    buf.append( ",\"minzoom\":" ).append( this.minZoom );
+    buf.append( ",\"maxzoom\":" ).append( this.maxZoom );
+    buf.append( ",\"bounds\":[" ).append( this.bounds[ 0 ] ).append( ',' )
+       .append( this.bounds[ 1 ] ).append( ',' ).append( this.bounds[ 2 ] )
+       .append( ',' ).append( this.bounds[ 3 ] ).append( ']' );
+    buf.append( ",\"origin\":[" ).append( this.originX ).append( ',' )
+       .append( this.originY ).append( ']' );
+    buf.append( ",\"size\":" ).append( this.size );
+    buf.append( ",\"extent\":" ).append( this.extent );
+    buf.append( ",\"vector_layers\":[" );
+
+    Iterator i = layers.iterator();
+
+    while ( i.hasNext() ) {
+      buf.append( "{\"id\":" );
+      appendString( buf, ( String ) i.next() );
+      buf.append( ",\"fields\":{\"type\":\"String\",\"color\":\"String\"," );
+      buf.append( "\"handle\":\"String\",\"label\":\"String\"}}" );
+
+      if ( i.hasNext() ) {
+        buf.append( ',' );
+      }
+    }
+
+    buf.append( "]}\n" );
+    file.getParentFile().mkdirs();
+
+    Writer out = new OutputStreamWriter( new FileOutputStream( file ),
+        StandardCharsets.UTF_8 );
+
+    try {
+      out.write( buf.toString() );
+    } finally {
+      out.close();
+    }
+  }
+
+  protected static void appendString( StringBuilder buf, String s ) {
+    buf.append( '"' );
+
+    for ( int i = 0; i < s.length(); i++ ) {
+      char c = s.charAt( i );
+
+      if ( ( c == '"' ) || ( c == '\\' ) ) {
+        buf.append( '\\' ).append( c );
+      } else if ( c < 0x20 ) {
+        buf.append( String.format( "\\u%04x", Integer.valueOf( c ) ) );
+      } else {
+        buf.append( c );
+      }
+    }
+
+    buf.append( '"' );
+  }
+
+  /**
+   * Encodes and writes a chunk of the tiles of a level.
+   */
+  protected class TileTask implements Callable {
+    private File directory;
+    private int z;
+    private Map buckets;
+    private List keys;
+
+    protected TileTask( File directory, int z, Map buckets, List keys ) {
+      this.directory = directory;
+      this.z = z;
+      this.buckets = buckets;
+      this.keys = keys;
+    }
+
+    public Object call() throws IOException {
+      MVTGeometryEncoder encoder = new MVTGeometryEncoder( extent, buffer,
+          simplification );
+      int written = 0;
+
+      for ( int i = 0; i < this.keys.size(); i++ ) {
+        long key = ( ( Long ) this.keys.get( i ) ).longValue();
+        int x = ( int ) ( key >>> 32 );
+        int y = ( int ) key;
+        MVTTile tile = encodeTile( this.z, x, y, ( IntList ) this.buckets.get( this.keys.get( i ) ),
+            encoder );
+
+        if ( !tile.isEmpty() ) {
+          writeTile( tile.encode(), getTileFile( this.directory, this.z, x, y ) );
+          written++;
+        }
+      }
+
+      return Integer.valueOf( written );
+    }
+  }
+
+  protected static class TileFeature {
+    protected String layer;
+    protected String[] attributes;
+    protected GeoGeometry geometry;
+    protected double minX = Double.MAX_VALUE;
+    protected double minY = Double.MAX_VALUE;
+    protected double maxX = -Double.MAX_VALUE;
+    protected double maxY = -Double.MAX_VALUE;
+
+    protected TileFeature( String layer, String[] attributes, GeoGeometry geometry ) {
+      this.layer = layer;
+      this.attributes = attributes;
+      this.geometry = geometry;
+
+      PathBuffer c = geometry.getCoordinates();
+
+      for ( int i = 0; i < c.getPointCount(); i++ ) {
+        this.minX = Math.min( this.minX, c.getX( i ) );
+        this.minY = Math.min( this.minY, c.getY( i ) );
+        this.maxX = Math.max( this.maxX, c.getX( i ) );
+        this.maxY = Math.max( this.maxY, c.getY( i ) );
+      }
+    }
+  }
+
+  protected static class IntList {
+    protected int[] values = new int[ 4 ];
+    protected int size;
+
+    protected void add( int value ) {
+      if ( this.size == this.values.length ) {
+        int[] b = new int[ this.size * 2 ];
+        System.arraycopy( this.values, 0, b, 0, this.size );
+        this.values = b;
+      }
+
+      this.values[ this.size++ ] = value;
+    }
+  }
+}
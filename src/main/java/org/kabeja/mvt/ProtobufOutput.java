@@ -0,0 +1,155 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+
+package org.kabeja.mvt;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes the protocol buffers wire format into a growing byte array. Only
+ * the parts needed for vector tiles are supported: varints, fixed 64 bit
+ * doubles, strings, packed varints and embedded messages, which are
+ * written to an own ProtobufOutput first.
+ */
+public class ProtobufOutput {
+  public final static int WIRE_VARINT = 0;
+  public final static int WIRE_FIXED64 = 1;
+  public final static int WIRE_LENGTH_DELIMITED = 2;
+  private byte[] buffer;
+  private int position;
+
+  public ProtobufOutput() {
+    this( 256 );
+  }
+
+  public ProtobufOutput( int size ) {
+    this.buffer = new byte[ Math.max( size, 16 ) ];
+  }
+
+  public int size() { return this.position; }
+
+  public void reset() { this.position = 0; }
+
+  public byte[] toByteArray() {
+    byte[] b = new byte[ this.position ];
+    System.arraycopy( this.buffer, 0, b, 0, this.position );
+
+    return b;
+  }
+
+  public void writeTo( OutputStream out ) throws IOException {
+    out.write( this.buffer, 0, this.position );
+  }
+
+  public void writeTag( int field, int wireType ) {
+    this.writeVarint( ( field << 3 ) | wireType );
+  }
+
+  public void writeVarint( long value ) {
+    this.require( 10 );
+
+    while ( ( value & ~0x7fL ) != 0 ) {
+      this.buffer[ this.position++ ] = ( byte ) ( ( value & 0x7f ) | 0x80 );
+      value >>>= 7;
+    }
+
+    this.buffer[ this.position++ ] = ( byte ) value;
+  }
+
+  public void writeVarintField( int field, long value ) {
+    this.writeTag( field, WIRE_VARINT );
+    this.writeVarint( value );
+  }
+
+  public void writeDoubleField( int field, double value ) {
+    this.writeTag( field, WIRE_FIXED64 );
+    this.require( 8 );
+
+    long bits = Double.doubleToLongBits( value );
+
+    for ( int i = 0; i < 8; i++ ) {
+      this.buffer[ this.position++ ] = ( byte ) bits;
+      bits >>>= 8;
+    }
+  }
+
+  public void writeStringField( int field, String value ) {
+    byte[] b = value.getBytes( StandardCharsets.UTF_8 );
+    this.writeTag( field, WIRE_LENGTH_DELIMITED );
+    this.writeVarint( b.length );
+    this.writeRaw( b, 0, b.length );
+  }
+
+  public void writeMessageField( int field, ProtobufOutput message ) {
+    this.writeTag( field, WIRE_LENGTH_DELIMITED );
+    this.writeVarint( message.position );
+    this.writeRaw( message.buffer, 0, message.position );
+  }
+
+  /**
+   * Writes the values as packed repeated uint32 field.
+   */
+  public void writePackedField( int field, int[] values, int count ) {
+    int length = 0;
+
+    for ( int i = 0; i < count; i++ ) {
+      length += getVarintSize( values[ i ] & 0xffffffffL );
+    }
+
+    this.writeTag( field, WIRE_LENGTH_DELIMITED );
+    this.writeVarint( length );
+
+    for ( int i = 0; i < count; i++ ) {
+      this.writeVarint( values[ i ] & 0xffffffffL );
+    }
+  }
+
+  public void writeRaw( byte[] b, int off, int length ) {
+    this.require( length );
+    System.arraycopy( b, off, this.buffer, this.position, length );
+    this.position += length;
+  }
+
+  public static int getVarintSize( long value ) {
+    int size = 1;
+
+    while ( ( value & ~0x7fL ) != 0 ) {
+      value >>>= 7;
+      size++;
+    }
+
+    return size;
+  }
+
+  /**
+   * @return the zigzag encoding of a signed integer
+   */
+  public static int zigZag( int value ) {
+    return ( value << 1 ) ^ ( value >> 31 );
+  }
+
+  protected void require( int count ) {
+    if ( ( this.position + count ) > this.buffer.length ) {
+      byte[] b = new byte[ Math.max( this.buffer.length * 2, this.position + count ) ];
+      System.arraycopy( this.buffer, 0, b, 0, this.position );
+      this.buffer = b;
+    }
+  }
+}
@@ -0,0 +1,418 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package org.kabeja.parser;
+
+import org.kabeja.dxf.DXFBlock;
+import org.kabeja.dxf.DXFDocument;
+import org.kabeja.dxf.DXFEntity;
+import org.kabeja.dxf.DXFHatch;
+import org.kabeja.dxf.DXFLayer;
+import org.kabeja.dxf.DXFMText;
+import org.kabeja.dxf.DXFPolyline;
+import org.kabeja.dxf.DXFSpline;
+import org.kabeja.dxf.DXFText;
+import org.kabeja.parser.snapshot.DXFSnapshotCache;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * A cache of parsed documents, which is safe for concurrent use. The
+ * documents are keyed by the path, length and modification time of the
+ * file or optional by the hash of the content. Concurrent requests of the
+ * same file wait for one parse.
+ * <p>
+ * The size of a document is estimated from the count of entities, vertices
+ * and characters. The least recently used documents are removed if the sum
+ * exceeds the maximum weight, documents larger than the maximum weight are
+ * not cached. The documents are only softly referenced, so the garbage
+ * collector can remove them before the maximum is reached, the weight of
+ * such documents is subtracted on the next access.
+ * </p>
+ */
+public class DXFDocumentCache {
+  public final static long ENTITY_WEIGHT = 400;
+  public final static long VERTEX_WEIGHT = 120;
+  public final static long CHARACTER_WEIGHT = 2;
+  private long maximumWeight;
+  private long weight = 0;
+  private boolean contentHash = false;
+  private DXFSnapshotCache snapshotCache;
+  private LinkedHashMap entries = new LinkedHashMap( 16, 0.75f, true );
+  private Map paths = new HashMap();
+  private Map loading = new HashMap();
+  private ReferenceQueue queue = new ReferenceQueue();
+  private long hitCount = 0;
+  private long missCount = 0;
+
+  /**
+   * A cache with the maximum weight of a quarter of the maximum heap.
+   */
+  public DXFDocumentCache() {
+    this( Runtime.getRuntime().maxMemory() / 4 );
+  }
+
+  /**
+   * @param maximumWeight the maximum of the estimated size in bytes
+   */
+  public DXFDocumentCache( long maximumWeight ) {
+    this.maximumWeight = maximumWeight;
+  }
+
+  public synchronized long getMaximumWeight() { return this.maximumWeight; }
+
+  public synchronized void setMaximumWeight( long maximumWeight ) {
+    this.maximumWeight = maximumWeight;
+    this.evict();
+  }
+
+  /**
+   * @return the estimated size of all cached documents
+   */
+  public synchronized long getWeight() {
+    this.expunge();
+
+    return this.weight;
+  }
+
+  public synchronized int size() {
+    this.expunge();
+
+    return this.entries.size();
+  }
+
+  public synchronized long getHitCount() { return this.hitCount; }
+
+  public synchronized long getMissCount() { return this.missCount; }
+
+  public boolean isContentHash() { return this.contentHash; }
+
+  /**
+   * @param contentHash if true the documents are keyed by the SHA-1 hash of
+   *                    the content instead of the modification time
+   */
+  public void setContentHash( boolean contentHash ) { this.contentHash = contentHash; }
+
+  /**
+   * @param snapshotCache the snapshots used to load the documents or null
+   *                      to parse the files
+   */
+  public void setSnapshotCache( DXFSnapshotCache snapshotCache ) {
+    this.snapshotCache = snapshotCache;
+  }
+
+  /**
+   * Returns the cached document or loads it. The returned document is
+   * shared and should not be changed.
+   *
+   * @param file the DXF file
+   * @return the document
+   * @throws ParseException
+   */
+  public DXFDocument getDocument( final File file ) throws ParseException {
+    String key = this.getKey( file );
+    FutureTask task;
+    boolean owner = false;
+
+    synchronized ( this ) {
+      DXFDocument doc = this.lookup( key );
+
+      if ( doc != null ) {
+        this.hitCount++;
+
+        return doc;
+      }
+
+      this.missCount++;
+      task = ( FutureTask ) this.loading.get( key );
+
+      if ( task == null ) {
+        task = new FutureTask( new Callable() {
+          public Object call() throws Exception {
+            return load( file );
+          }
+        } );
+        this.loading.put( key, task );
+        owner = true;
+      }
+    }
+
+    if ( owner ) {
+      task.run();
+    }
+
+    DXFDocument doc = null;
+
+    try {
+      doc = ( DXFDocument ) task.get();
+
+      return doc;
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new ParseException( "Interrupted", e );
+    } catch ( ExecutionException e ) {
+      if ( e.getCause() instanceof ParseException ) {
+        throw ( ParseException ) e.getCause();
+      }
+
+      throw new ParseException( "Could not load " + file, e.getCause() );
+    } finally {
+      if ( owner ) {
+        synchronized ( this ) {
+          this.loading.remove( key );
+
+          if ( doc != null ) {
+            this.add( file.getAbsolutePath(), key, doc );
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Remove the documents of the file.
+   *
+   * @param file
+   */
+  public synchronized void invalidate( File file ) {
+    String key = ( String ) this.paths.remove( file.getAbsolutePath() );
+
+    if ( key != null ) {
+      this.remove( key );
+    }
+  }
+
+  public synchronized void clear() {
+    this.entries.clear();
+    this.paths.clear();
+    this.weight = 0;
+
+    // the queued references are no longer in the map
+    while ( this.queue.poll() != null ) {
+    }
+  }
+
+  protected DXFDocument lookup( String key ) {
+    Entry entry = ( Entry ) this.entries.get( key );
+
+    if ( entry != null ) {
+      DXFDocument doc = ( DXFDocument ) entry.get();
+
+      if ( doc != null ) {
+        return doc;
+      }
+
+      // removed by the garbage collector
+      this.remove( key );
+    }
+
+    return null;
+  }
+
+  protected void add( String path, String key, DXFDocument doc ) {
+    long w = estimateWeight( doc );
+    this.expunge();
+
+    // an older version of the file
+    String old = ( String ) this.paths.get( path );
+
+    if ( ( old != null ) && !old.equals( key ) ) {
+      this.remove( old );
+    }
+
+    if ( w <= this.maximumWeight ) {
+      this.remove( key );
+      this.entries.put( key, new Entry( key, doc, w, this.queue ) );
+      this.paths.put( path, key );
+      this.weight += w;
+      this.evict();
+    }
+  }
+
+  protected void remove( String key ) {
+    Entry entry = ( Entry ) this.entries.remove( key );
+
+    if ( entry != null ) {
+      this.weight -= entry.weight;
+      this.removePaths( key );
+    }
+  }
+
+  /**
+   * Remove the paths of the files of the removed document.
+   */
+  protected void removePaths( String key ) {
+    Iterator i = this.paths.values().iterator();
+
+    while ( i.hasNext() ) {
+      if ( key.equals( i.next() ) ) {
+        i.remove();
+      }
+    }
+  }
+
+  /**
+   * Remove the entries of the documents, which are cleared by the garbage
+   * collector.
+   */
+  protected void expunge() {
+    Entry entry;
+
+    while ( ( entry = ( Entry ) this.queue.poll() ) != null ) {
+      // the key may be in use by a newer entry
+      if ( this.entries.get( entry.key ) == entry ) {
+        this.remove( entry.key );
+      }
+    }
+  }
+
+  /**
+   * Remove the least recently used documents until the weight fits.
+   */
+  protected void evict() {
+    Iterator i = this.entries.values().iterator();
+
+    while ( ( this.weight > this.maximumWeight ) && i.hasNext() ) {
+      Entry entry = ( Entry ) i.next();
+      this.weight -= entry.weight;
+      i.remove();
+      this.removePaths( entry.key );
+    }
+  }
+
+  protected String getKey( File file ) throws ParseException {
+    if ( this.contentHash ) {
+      try {
+        return DXFSnapshotCache.getContentHash( file );
+      } catch ( IOException e ) {
+        throw new ParseException( e );
+      }
+    }
+
+    return file.getAbsolutePath() + "|" + file.length() + "|" +
+    file.lastModified();
+  }
+
+  /**
+   * Load the document, called only once for concurrent requests.
+   *
+   * @param file
+   * @return the document
+   * @throws ParseException
+   */
+  protected DXFDocument load( File file ) throws ParseException {
+    if ( this.snapshotCache != null ) {
+      return this.snapshotCache.getDocument( file );
+    }
+
+    Parser parser = ParserBuilder.createDefaultParser();
+
+    try {
+      InputStream in = new FileInputStream( file );
+
+      try {
+        parser.parse( in, DXFParser.DEFAULT_ENCODING );
+      } finally {
+        in.close();
+      }
+    } catch ( IOException e ) {
+      throw new ParseException( e );
+    }
+
+    return parser.getDocument();
+  }
+
+  /**
+   * Estimates the retained size of the document from the count of
+   * entities, vertices and characters.
+   *
+   * @param doc
+   * @return the estimated size in bytes
+   */
+  public static long estimateWeight( DXFDocument doc ) {
+    long w = 0;
+    Iterator i = doc.getDXFLayerIterator();
+
+    while ( i.hasNext() ) {
+      DXFLayer layer = ( DXFLayer ) i.next();
+      Iterator types = layer.getDXFEntityTypeIterator();
+
+      while ( types.hasNext() ) {
+        List entities = layer.getDXFEntities( ( String ) types.next() );
+
+        for ( int n = 0; n < entities.size(); n++ ) {
+          w += estimateWeight( ( DXFEntity ) entities.get( n ) );
+        }
+      }
+    }
+
+    i = doc.getDXFBlockIterator();
+
+    while ( i.hasNext() ) {
+      Iterator entities = ( ( DXFBlock ) i.next() ).getDXFEntitiesIterator();
+
+      while ( entities.hasNext() ) {
+        w += estimateWeight( ( DXFEntity ) entities.next() );
+      }
+    }
+
+    return w;
+  }
+
+  protected static long estimateWeight( DXFEntity entity ) {
+    long w = ENTITY_WEIGHT;
+
+    if ( entity instanceof DXFPolyline ) {
+      w += ( ( DXFPolyline ) entity ).getVertexCount() * VERTEX_WEIGHT;
+    } else if ( entity instanceof DXFSpline ) {
+      DXFSpline spline = ( DXFSpline ) entity;
+      w += ( ( spline.getControlPointSize() + spline.getFitPointSize() ) * VERTEX_WEIGHT );
+    } else if ( entity instanceof DXFHatch ) {
+      w += ( ( DXFHatch ) entity ).getBoundaryPathCount() * 4 * VERTEX_WEIGHT;
+    } else if ( entity instanceof DXFMText ) {
+      String text = ( ( DXFMText ) entity ).getText();
+      w += ( ( text != null ) ? ( text.length() * CHARACTER_WEIGHT * 2 ) : 0 );
+    } else if ( entity instanceof DXFText ) {
+      String text = ( ( DXFText ) entity ).getText();
+      w += ( ( text != null ) ? ( text.length() * CHARACTER_WEIGHT ) : 0 );
+    }
+
+    return w;
+  }
+
+  protected static class Entry extends SoftReference {
+    String key;
+    long weight;
+
+    Entry( String key, DXFDocument doc, long weight, ReferenceQueue queue ) {
+      super( doc, queue );
+      this.key = key;
+      this.weight = weight;
+    }
+  }
+}
@@ -0,0 +1,37 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+
+package org.kabeja.parser;
+
+import org.kabeja.dxf.DXFEntity;
+
+/**
+ * Receives the entities of the ENTITIES section of a streaming parser.
+ *
+ * @see ParserBuilder#createStreamingParser(DXFEntityListener)
+ */
+public interface DXFEntityListener {
+  /**
+   * Called for each completely parsed entity in the order of the source.
+   * The entity is not added to a layer, it is only bound to the document,
+   * which contains the tables and blocks parsed so far.
+   *
+   * @param entity the entity
+   */
+  public void entityParsed( DXFEntity entity );
+}
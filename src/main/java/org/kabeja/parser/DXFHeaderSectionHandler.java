@@ -51,6 +51,7 @@ public class DXFHeaderSectionHandler implements DXFSectionHandler {
    * @see org.dxf2svg.parser.SectionHandler#endParsing()
    */
   public void endSection() {
+    this.addVariable();
   }
 
   /* (non-Javadoc)
@@ -58,16 +59,26 @@ public class DXFHeaderSectionHandler implements DXFSectionHandler {
    */
   public void parseGroup( int groupCode, DXFValue value ) {
     if ( groupCode == VARIABLE_CODE ) {
+      this.addVariable();
       variable = new DXFVariable( value.getValue() );
-      doc.getDXFHeader().setVariable( variable );
-    } else {
+    } else if ( variable != null ) {
       //handle the current mode
       parse( groupCode, value );
     }
   }
 
   private void parse( int code, DXFValue value ) {
-    variable.setValue( "" + code, value.getValue() );
+    variable.setValue( code, value.getValue() );
+  }
+
+  /**
+   * Add the completed variable to the header.
+   */
+  private void addVariable() {
+    if ( variable != null ) {
+      doc.getDXFHeader().setVariable( variable );
+      variable = null;
+    }
   }
 
   /* (non-Javadoc)
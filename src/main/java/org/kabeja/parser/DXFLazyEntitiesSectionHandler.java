@@ -0,0 +1,343 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package org.kabeja.parser;
+
+import org.kabeja.dxf.DXFConstants;
+import org.kabeja.dxf.DXFDocument;
+import org.kabeja.dxf.DXFEntity;
+import org.kabeja.dxf.DXFEntityLoader;
+import org.kabeja.parser.entities.DXFEntityHandler;
+import org.kabeja.parser.entities.DXFPolylineHandler;
+import org.kabeja.tools.CodePageDecoder;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An entities section handler, which only indexes the entities when a file
+ * is parsed. The type, layer, handle and the byte range of each entity are
+ * recorded and the entities are parsed with the DXFEntityHandlers on the
+ * first access through the DXFLayer from the memory mapped file.
+ * <p>
+ * The entities are parsed completely, if the parser reads from a stream or
+ * if stream filters are used, which could change the groups. The file must
+ * not be changed while the document is used.
+ * </p>
+ */
+public class DXFLazyEntitiesSectionHandler extends DXFEntitiesSectionHandler {
+  protected DXFParser parser;
+  protected boolean lazy = false;
+  protected Source source;
+  protected Map indices = new LinkedHashMap();
+  protected String entityType;
+  protected String entityLayer;
+  protected String entityID;
+  protected long entityStart;
+  protected boolean subEntity = false;
+  protected boolean followSequence = false;
+
+  /**
+   * @param parser the parser, which provides the offsets of the groups
+   */
+  public DXFLazyEntitiesSectionHandler( DXFParser parser ) {
+    this.parser = parser;
+  }
+
+  public void startSection() {
+    super.startSection();
+
+    File file = this.parser.getSourceFile();
+    this.lazy = ( file != null ) && this.parser.streamFilters.isEmpty() &&
+      ( this.parser.getGroupOffset() >= 0 );
+
+    if ( this.lazy ) {
+      this.source = new Source( file, this.parser.getDecoder() );
+      this.indices.clear();
+      this.entityType = null;
+    }
+  }
+
+  public void endSection() {
+    if ( !this.lazy ) {
+      super.endSection();
+
+      return;
+    }
+
+    this.endIndexEntity( this.parser.getGroupOffset() );
+
+    Iterator i = this.indices.values().iterator();
+
+    while ( i.hasNext() ) {
+      EntityIndex index = ( EntityIndex ) i.next();
+      this.doc.getDXFLayer( index.layer ).addDXFEntityLoader( index );
+    }
+
+    this.indices.clear();
+    this.source = null;
+    this.lazy = false;
+  }
+
+  public void parseGroup( int groupCode, DXFValue value ) {
+    if ( !this.lazy ) {
+      super.parseGroup( groupCode, value );
+
+      return;
+    }
+
+    if ( groupCode == ENTITY_START ) {
+      String type = value.getValue();
+
+      if ( ( this.entityType != null ) && this.followSequence ) {
+        // the sequence like the vertices of a polyline belongs to the
+        // entity, as the handler gets it while parsing
+        this.subEntity = true;
+
+        if ( DXFPolylineHandler.END_SEQUENCE.equals( type ) ) {
+          this.followSequence = false;
+        }
+
+        return;
+      }
+
+      this.endIndexEntity( this.parser.getGroupOffset() );
+
+      if ( this.handlers.containsKey( type ) ) {
+        this.entityType = type;
+        this.entityStart = this.parser.getGroupOffset();
+        this.entityLayer = DXFConstants.DEFAULT_LAYER;
+        this.entityID = null;
+        this.subEntity = false;
+        this.followSequence = isFollowSequence( type );
+      }
+    } else if ( ( this.entityType != null ) && !this.subEntity ) {
+      if ( groupCode == 8 ) {
+        this.entityLayer = value.getValue();
+      } else if ( groupCode == 5 ) {
+        this.entityID = value.getValue();
+      }
+    }
+  }
+
+  /**
+   * Whether the handler of the type takes the following entities up to the
+   * SEQEND, the other entities like the ATTRIBs of an INSERT are parsed on
+   * their own or skipped without a handler.
+   *
+   * @param type
+   * @return true if the handler of the type follows a sequence
+   */
+  protected synchronized boolean isFollowSequence( String type ) {
+    DXFEntityHandler handler = ( DXFEntityHandler ) this.handlers.get( type );
+    handler.setDXFDocument( this.doc );
+    handler.startDXFEntity();
+
+    return handler.isFollowSequence();
+  }
+
+  protected void endIndexEntity( long end ) {
+    if ( this.entityType == null ) {
+      return;
+    }
+
+    String key = this.entityLayer + "\n" + this.entityType;
+    EntityIndex index = ( EntityIndex ) this.indices.get( key );
+
+    if ( index == null ) {
+      index = new EntityIndex( this.doc, this.entityType, this.entityLayer,
+          this.source );
+      this.indices.put( key, index );
+    }
+
+    index.add( this.entityStart, ( int ) ( end - this.entityStart ), this.entityID );
+    this.entityType = null;
+  }
+
+  /**
+   * Parse the entities of the index from the source.
+   *
+   * @param index
+   * @return the entities
+   */
+  protected synchronized List load( EntityIndex index ) {
+    DXFEntityHandler handler = ( DXFEntityHandler ) this.handlers.get( index.type );
+    List entities = new ArrayList( index.count );
+
+    try {
+      for ( int i = 0; i < index.count; i++ ) {
+        DXFLineReader reader = new DXFLineReader( new ByteBufferInputStream(
+              index.source.getRange( index.offsets[ i ], index.lengths[ i ] ) ),
+            index.source.decoder, Math.min( index.lengths[ i ], DXFLineReader.DEFAULT_BUFFER_SIZE ) );
+        handler.setDXFDocument( index.doc );
+        handler.startDXFEntity();
+
+        boolean key = true;
+        boolean first = true;
+        int code = 0;
+
+        while ( reader.nextLine() ) {
+          if ( key ) {
+            code = reader.getGroupCode();
+            key = false;
+          } else {
+            key = true;
+
+            if ( first ) {
+              // the type of the entity
+              first = false;
+            } else {
+              handler.parseGroup( code, new DXFValue( reader.getTrimmedLine() ) );
+            }
+          }
+        }
+
+        handler.endDXFEntity();
+
+        DXFEntity entity = handler.getDXFEntity();
+        entities.add( entity );
+      }
+    } catch ( IOException e ) {
+      throw new IllegalStateException( "Could not load the entities", e );
+    }
+
+    return entities;
+  }
+
+  /**
+   * The entities of one type on one layer.
+   */
+  protected class EntityIndex implements DXFEntityLoader {
+    DXFDocument doc;
+    String type;
+    String layer;
+    Source source;
+    long[] offsets = new long[ 16 ];
+    int[] lengths = new int[ 16 ];
+    Set ids = new HashSet();
+    int count = 0;
+
+    EntityIndex( DXFDocument doc, String type, String layer, Source source ) {
+      this.doc = doc;
+      this.type = type;
+      this.layer = layer;
+      this.source = source;
+    }
+
+    void add( long offset, int length, String id ) {
+      if ( this.count == this.offsets.length ) {
+        long[] o = new long[ this.count * 2 ];
+        System.arraycopy( this.offsets, 0, o, 0, this.count );
+        this.offsets = o;
+
+        int[] l = new int[ this.count * 2 ];
+        System.arraycopy( this.lengths, 0, l, 0, this.count );
+        this.lengths = l;
+      }
+
+      this.offsets[ this.count ] = offset;
+      this.lengths[ this.count ] = length;
+      this.count++;
+
+      if ( id != null ) {
+        this.ids.add( id );
+      }
+    }
+
+    public String getType() { return this.type; }
+
+    public boolean containsID( String id ) { return this.ids.contains( id ); }
+
+    public List load() {
+      return DXFLazyEntitiesSectionHandler.this.load( this );
+    }
+  }
+
+  /**
+   * The memory mapped file, files larger than 2 GB are mapped for each
+   * entity.
+   */
+  protected static class Source {
+    File file;
+    CodePageDecoder decoder;
+    ByteBuffer data;
+
+    Source( File file, CodePageDecoder decoder ) {
+      this.file = file;
+      this.decoder = decoder;
+    }
+
+    synchronized ByteBuffer getRange( long offset, int length )
+      throws IOException {
+      if ( this.data == null ) {
+        if ( this.file.length() <= Integer.MAX_VALUE ) {
+          this.data = this.map( 0, this.file.length() );
+        } else {
+          return this.map( offset, length );
+        }
+      }
+
+      ByteBuffer b = this.data.duplicate();
+      b.position( ( int ) offset );
+      b.limit( ( int ) offset + length );
+
+      return b;
+    }
+
+    ByteBuffer map( long offset, long length ) throws IOException {
+      RandomAccessFile raf = new RandomAccessFile( this.file, "r" );
+
+      try {
+        return raf.getChannel().map( FileChannel.MapMode.READ_ONLY, offset, length );
+      } finally {
+        raf.close();
+      }
+    }
+  }
+
+  protected static class ByteBufferInputStream extends InputStream {
+    ByteBuffer buffer;
+
+    ByteBufferInputStream( ByteBuffer buffer ) {
+      this.buffer = buffer;
+    }
+
+    public int read() {
+      return this.buffer.hasRemaining() ? ( this.buffer.get() & 0xff ) : ( -1 );
+    }
+
+    public int read( byte[] b, int off, int len ) {
+      if ( !this.buffer.hasRemaining() ) {
+        return -1;
+      }
+
+      len = Math.min( len, this.buffer.remaining() );
+      this.buffer.get( b, off, len );
+
+      return len;
+    }
+  }
+}
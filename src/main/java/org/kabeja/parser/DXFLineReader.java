@@ -0,0 +1,269 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package org.kabeja.parser;
+
+import org.kabeja.tools.CodePageDecoder;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the lines of a DXF stream as bytes. A line is only decoded to a
+ * String on request with the current CodePageDecoder, so the decoder can
+ * be changed while reading, when the codepage of the document is known.
+ * Lines end with LF, CR or CR LF like in BufferedReader.readLine().
+ */
+public class DXFLineReader {
+  public final static int DEFAULT_BUFFER_SIZE = 65536;
+  protected InputStream in;
+  protected CodePageDecoder decoder;
+  protected byte[] buffer;
+  protected int position = 0;
+  protected int limit = 0;
+  protected long bufferOffset = 0;
+  protected long lineOffset = 0;
+  protected byte[] lineBuffer = new byte[ 256 ];
+  protected byte[] line;
+  protected int lineStart;
+  protected int lineEnd;
+  protected int lineNumber = 0;
+  protected boolean skipLF = false;
+  protected boolean started = false;
+  protected boolean byteOrderMark = false;
+
+  public DXFLineReader( InputStream in, CodePageDecoder decoder ) {
+    this( in, decoder, DEFAULT_BUFFER_SIZE );
+  }
+
+  public DXFLineReader( InputStream in, CodePageDecoder decoder, int bufferSize ) {
+    this.in = in;
+    this.decoder = decoder;
+    this.buffer = new byte[ Math.max( bufferSize, 16 ) ];
+  }
+
+  public CodePageDecoder getDecoder() { return this.decoder; }
+
+  /**
+   * Change the decoder for the following lines.
+   *
+   * @param decoder
+   */
+  public void setDecoder( CodePageDecoder decoder ) { this.decoder = decoder; }
+
+  /**
+   * @return true if the stream starts with the UTF-8 byte order mark, the
+   *         decoder is switched to UTF-8 then
+   */
+  public boolean hasByteOrderMark() { return this.byteOrderMark; }
+
+  public int getLineNumber() { return this.lineNumber; }
+
+  /**
+   * @return the offset of the current line in the stream
+   */
+  public long getLineOffset() { return this.lineOffset; }
+
+  /**
+   * Read the next line.
+   *
+   * @return false at the end of the stream
+   * @throws IOException
+   */
+  public boolean nextLine() throws IOException {
+    int length = 0;
+    boolean copied = false;
+    long start = -1;
+
+    while ( true ) {
+      if ( ( this.position >= this.limit ) && !this.fill() ) {
+        if ( !copied ) {
+          return false;
+        }
+
+        this.lineOffset = start;
+        this.setLine( this.lineBuffer, 0, length );
+
+        return true;
+      }
+
+      if ( this.skipLF ) {
+        this.skipLF = false;
+
+        if ( this.buffer[ this.position ] == '\n' ) {
+          this.position++;
+
+          continue;
+        }
+      }
+
+      int begin = this.position;
+      int i = begin;
+      byte[] b = this.buffer;
+
+      if ( start < 0 ) {
+        start = this.bufferOffset + begin;
+      }
+
+      while ( ( i < this.limit ) && ( b[ i ] != '\n' ) && ( b[ i ] != '\r' ) ) {
+        i++;
+      }
+
+      if ( i < this.limit ) {
+        this.skipLF = b[ i ] == '\r';
+        this.position = i + 1;
+        this.lineOffset = start;
+
+        if ( copied ) {
+          length = this.append( length, begin, i );
+          this.setLine( this.lineBuffer, 0, length );
+        } else {
+          this.setLine( b, begin, i );
+        }
+
+        return true;
+      }
+
+      // the line continues in the next buffer
+      length = this.append( length, begin, i );
+      copied = true;
+      this.position = i;
+    }
+  }
+
+  protected void setLine( byte[] b, int start, int end ) {
+    this.line = b;
+    this.lineStart = start;
+    this.lineEnd = end;
+    this.lineNumber++;
+  }
+
+  protected int append( int length, int start, int end ) {
+    int count = end - start;
+
+    if ( ( length + count ) > this.lineBuffer.length ) {
+      byte[] b = new byte[ Math.max( length + count, this.lineBuffer.length * 2 ) ];
+      System.arraycopy( this.lineBuffer, 0, b, 0, length );
+      this.lineBuffer = b;
+    }
+
+    System.arraycopy( this.buffer, start, this.lineBuffer, length, count );
+
+    return length + count;
+  }
+
+  protected boolean fill() throws IOException {
+    this.bufferOffset += this.limit;
+
+    int count = this.in.read( this.buffer, 0, this.buffer.length );
+    this.position = 0;
+    this.limit = Math.max( count, 0 );
+
+    if ( !this.started && ( this.limit > 0 ) ) {
+      this.started = true;
+
+      while ( this.limit < 3 ) {
+        count = this.in.read( this.buffer, this.limit, this.buffer.length - this.limit );
+
+        if ( count < 0 ) {
+          break;
+        }
+
+        this.limit += count;
+      }
+
+      if ( ( this.limit >= 3 ) && ( this.buffer[ 0 ] == ( byte ) 0xEF ) &&
+        ( this.buffer[ 1 ] == ( byte ) 0xBB ) && ( this.buffer[ 2 ] == ( byte ) 0xBF ) ) {
+        this.position = 3;
+        this.byteOrderMark = true;
+        this.decoder = CodePageDecoder.getDecoder( StandardCharsets.UTF_8 );
+      }
+    }
+
+    return this.position < this.limit;
+  }
+
+  /**
+   * @return the current line decoded
+   */
+  public String getLine() {
+    return this.decoder.decode( this.line, this.lineStart, this.lineEnd - this.lineStart );
+  }
+
+  /**
+   * @return the current line decoded without leading and trailing
+   *         whitespace like String.trim()
+   */
+  public String getTrimmedLine() {
+    int start = this.lineStart;
+    int end = this.lineEnd;
+
+    while ( ( start < end ) && ( ( this.line[ start ] & 0xff ) <= ' ' ) ) {
+      start++;
+    }
+
+    while ( ( end > start ) && ( ( this.line[ end - 1 ] & 0xff ) <= ' ' ) ) {
+      end--;
+    }
+
+    return this.decoder.decode( this.line, start, end - start );
+  }
+
+  /**
+   * Parse the current line as group code without creating a String.
+   *
+   * @return the group code
+   * @throws NumberFormatException if the line is not an integer
+   */
+  public int getGroupCode() {
+    int start = this.lineStart;
+    int end = this.lineEnd;
+
+    while ( ( start < end ) && ( ( this.line[ start ] & 0xff ) <= ' ' ) ) {
+      start++;
+    }
+
+    while ( ( end > start ) && ( ( this.line[ end - 1 ] & 0xff ) <= ' ' ) ) {
+      end--;
+    }
+
+    boolean negative = ( start < end ) && ( this.line[ start ] == '-' );
+    int i = negative ? ( start + 1 ) : start;
+
+    // more than 9 digits could overflow
+    if ( ( i == end ) || ( ( end - i ) > 9 ) ) {
+      return Integer.parseInt( this.getTrimmedLine() );
+    }
+
+    int code = 0;
+
+    for ( ; i < end; i++ ) {
+      int d = this.line[ i ] - '0';
+
+      if ( ( d < 0 ) || ( d > 9 ) ) {
+        return Integer.parseInt( this.getTrimmedLine() );
+      }
+
+      code = ( code * 10 ) + d;
+    }
+
+    return negative ? ( -code ) : code;
+  }
+
+  public void close() throws IOException {
+    this.in.close();
+  }
+}
@@ -19,8 +19,11 @@ package org.kabeja.parser;
 import org.kabeja.dxf.DXFDocument;
 import org.kabeja.parser.dxf.DXFHandler;
 import org.kabeja.parser.dxf.filter.DXFStreamFilter;
+import org.kabeja.tools.CodePageDecoder;
 import org.kabeja.tools.CodePageParser;
 import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Hashtable;
 import java.util.Iterator;
@@ -36,12 +39,21 @@ public class DXFParser implements HandlerManager, Handler, Parser, DXFHandler {
   private final static String SECTION_START = "SECTION";
   private final static String SECTION_END = "ENDSEC";
   private final static int COMMAND_CODE = 0;
+  private final static int HEADER_VARIABLE_CODE = 9;
+  private final static int ACADVER_CODE = 1;
+  private final static int CODEPAGE_CODE = 3;
+  private final static String ACADVER_VARIABLE = "$ACADVER";
+  private final static String UTF8_ACADVER = "AC1021";
   protected Hashtable<String, DXFSectionHandler> handlers = new Hashtable<String, DXFSectionHandler>();
   protected DXFSectionHandler currentHandler;
   protected List<DXFStreamFilter> streamFilters = new ArrayList<DXFStreamFilter>();
   protected DXFDocument doc;
   protected DXFHandler filter;
-  private String line;
+  private boolean autoEncoding = false;
+  private DXFLineReader reader;
+  private long groupOffset = -1;
+  private File sourceFile;
+  private String headerVariable;
   // some parse flags
   private boolean key = false;
   private boolean sectionstarts = false;
@@ -56,76 +68,164 @@ public class DXFParser implements HandlerManager, Handler, Parser, DXFHandler {
 
   public void parse( String file, String encoding ) throws ParseException {
     try {
-      parse( new FileInputStream( file ), encoding );
+      InputStream in = new FileInputStream( file );
+      this.sourceFile = new File( file );
+
+      try {
+        parse( in, encoding );
+      } finally {
+        this.sourceFile = null;
+        in.close();
+      }
     } catch ( FileNotFoundException e ) {
       e.printStackTrace();
+    } catch ( IOException e ) {
+      throw new ParseException( e );
     }
   }
 
   public void parse( InputStream input, String encoding ) throws ParseException {
-    String currentKey = "";
+    int keyCode = 0;
     linecount = 0;
-    parse = false;
     key = false;
 
     //initialize
-    doc = new DXFDocument();
+    this.startDocument( new DXFDocument() );
     doc.setProperty( DXFDocument.PROPERTY_ENCODING, encoding );
-    //the StreamFilters
-    this.buildFilterChain();
-
-    BufferedReader in = null;
 
     try {
+      DXFLineReader in;
+
       if ( "".equals( encoding ) ) {
-        BufferedInputStream buf = new BufferedInputStream( input );
-        buf.mark( 9000 );
-
-        try {
-          BufferedReader r = new BufferedReader( new InputStreamReader( buf ) );
-          CodePageParser p = new CodePageParser();
-          encoding = p.parseEncoding( r );
-          buf.reset();
-
-          in = new BufferedReader( new InputStreamReader( buf, encoding ) );
-        } catch ( IOException e1 ) {
-          buf.reset();
-          in = new BufferedReader( new InputStreamReader( buf ) );
-        }
+        // the encoding is detected from the header while parsing,
+        // until then the platform encoding is used
+        in = new DXFLineReader( input,
+            CodePageDecoder.getDecoder( Charset.defaultCharset() ) );
+        autoEncoding = true;
+        headerVariable = null;
       } else {
-        in = new BufferedReader( new InputStreamReader( input, encoding ) );
+        in = new DXFLineReader( input, CodePageDecoder.getDecoder( encoding ) );
+        autoEncoding = false;
       }
 
       key = true;
       sectionstarts = false;
+      reader = in;
 
-      while ( ( line = in.readLine() ) != null ) {
+      while ( in.nextLine() ) {
         linecount++;
 
         if ( key ) {
-          currentKey = line;
+          groupOffset = in.getLineOffset();
+          keyCode = in.getGroupCode();
           key = false;
         } else {
-          int keyCode = Integer.parseInt( currentKey.trim() );
+          String value = in.getTrimmedLine();
+
+          if ( autoEncoding ) {
+            detectEncoding( keyCode, value, in );
+          }
+
           //the filter chain
-          filter.parseGroup( keyCode, new DXFValue( line.trim() ) );
-          // parseGroup(currentKey, line);
+          filter.parseGroup( keyCode, new DXFValue( value ) );
           key = true;
         }
       }
 
       in.close();
 
-      in = null;
-
       // finish last parsing
-      if ( parse ) {
-        currentHandler.endSection();
-      }
+      this.endDocument();
     } catch ( FileNotFoundException e ) {
       throw new ParseException( e.toString() );
     } catch ( IOException ioe ) {
       throw new ParseException( ioe.toString() );
+    } finally {
+      reader = null;
+      groupOffset = -1;
+    }
+  }
+
+  /**
+   * @return the offset of the current group in the stream or -1 if the
+   *         groups are not parsed from a stream
+   */
+  public long getGroupOffset() { return this.groupOffset; }
+
+  /**
+   * @return the parsed file or null if a stream is parsed
+   */
+  public File getSourceFile() { return this.sourceFile; }
+
+  /**
+   * @return the current decoder or null if the groups are not parsed from
+   *         a stream
+   */
+  public CodePageDecoder getDecoder() {
+    return ( this.reader != null ) ? this.reader.getDecoder() : null;
+  }
+
+  /**
+   * Switch the decoder of the reader with the $ACADVER (AC1021 and later
+   * are UTF-8) or the $DWGCODEPAGE variable. The detection ends with the
+   * header section.
+   */
+  protected void detectEncoding( int keyCode, String value, DXFLineReader in ) {
+    if ( in.hasByteOrderMark() ) {
+      autoEncoding = false;
+      doc.setProperty( DXFDocument.PROPERTY_ENCODING, in.getDecoder().getEncoding() );
+    } else if ( keyCode == HEADER_VARIABLE_CODE ) {
+      headerVariable = value;
+    } else if ( ( keyCode == COMMAND_CODE ) && SECTION_END.equals( value ) ) {
+      autoEncoding = false;
+    } else if ( ( keyCode == ACADVER_CODE ) &&
+      ACADVER_VARIABLE.equals( headerVariable ) ) {
+      if ( value.startsWith( "AC" ) && ( value.compareTo( UTF8_ACADVER ) >= 0 ) ) {
+        in.setDecoder( CodePageDecoder.getDecoder( StandardCharsets.UTF_8 ) );
+        doc.setProperty( DXFDocument.PROPERTY_ENCODING, in.getDecoder().getEncoding() );
+        autoEncoding = false;
+      }
+    } else if ( ( keyCode == CODEPAGE_CODE ) &&
+      CodePageParser.CODEPAGE_CODE.equals( headerVariable ) ) {
+      String codepage = new CodePageParser().translateCodePage( value );
+
+      try {
+        in.setDecoder( CodePageDecoder.getDecoder( codepage ) );
+        doc.setProperty( DXFDocument.PROPERTY_ENCODING, codepage );
+      } catch ( UnsupportedEncodingException e ) {
+        // keep the platform encoding
+      }
+
+      autoEncoding = false;
+    }
+  }
+
+  /**
+   * Start to parse groups from another source than a DXF stream into the
+   * given document. The groups have to be passed to getInputHandler(), which
+   * is the first stream filter or the parser itself.
+   *
+   * @param doc the new document or a document to add content to
+   */
+  public void startDocument( DXFDocument doc ) {
+    this.doc = doc;
+    this.parse = false;
+    this.sectionstarts = false;
+    this.buildFilterChain();
+  }
+
+  /**
+   * @return the start of the filter chain
+   */
+  public DXFHandler getInputHandler() { return this.filter; }
+
+  /**
+   * Finish the last section.
+   */
+  public void endDocument() {
+    if ( parse ) {
+      currentHandler.endSection();
+      parse = false;
     }
   }
 
@@ -0,0 +1,46 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+
+package org.kabeja.parser;
+
+import org.kabeja.dxf.DXFEntity;
+
+/**
+ * An entities section handler, which passes the parsed entities to a
+ * DXFEntityListener instead of adding them to the document, so the
+ * entities of a large file are not held in memory.
+ */
+public class DXFStreamingEntitiesSectionHandler extends DXFEntitiesSectionHandler {
+  protected DXFEntityListener listener;
+
+  public DXFStreamingEntitiesSectionHandler( DXFEntityListener listener ) {
+    this.listener = listener;
+  }
+
+  public DXFEntityListener getDXFEntityListener() { return this.listener; }
+
+  protected void endEntity() {
+    if ( parseEntity ) {
+      handler.endDXFEntity();
+
+      DXFEntity entity = handler.getDXFEntity();
+      entity.setDXFDocument( this.doc );
+      this.listener.entityParsed( entity );
+    }
+  }
+}
@@ -23,7 +23,12 @@ package org.kabeja.parser;
  */
 public final class DXFValue {
   private String value;
+  private final static int TYPE_STRING = 0;
+  private final static int TYPE_DOUBLE = 1;
+  private final static int TYPE_INTEGER = 2;
   private int integerValue = Integer.MAX_VALUE;
+  private double doubleValue;
+  private int type = TYPE_STRING;
 
   /**
    *
@@ -36,14 +41,54 @@ public final class DXFValue {
     setValue( value );
   }
 
-  public String getValue() { return value; }
+  /**
+   * A value with an already known number, the String is created on
+   * request.
+   *
+   * @param value the number
+   */
+  public DXFValue( double value ) {
+    this.doubleValue = value;
+    this.type = TYPE_DOUBLE;
+  }
+
+  /**
+   * A value with an already known integer, the String is created on
+   * request.
+   *
+   * @param value the integer
+   */
+  public DXFValue( int value ) {
+    this.integerValue = value;
+    this.type = TYPE_INTEGER;
+  }
+
+  public String getValue() {
+    if ( value == null ) {
+      if ( type == TYPE_DOUBLE ) {
+        value = Double.toString( doubleValue );
+      } else if ( type == TYPE_INTEGER ) {
+        value = Integer.toString( integerValue );
+      }
+    }
+
+    return value;
+  }
 
   /**
    * @param value The value to set.
    */
   private void setValue( String value ) { this.value = value.trim(); }
 
-  public double getDoubleValue() { return Double.parseDouble( value ); }
+  public double getDoubleValue() {
+    if ( type == TYPE_DOUBLE ) {
+      return doubleValue;
+    } else if ( type == TYPE_INTEGER ) {
+      return integerValue;
+    }
+
+    return Double.parseDouble( value );
+  }
 
   /**
    * Convert the DXF value to boolean
@@ -58,10 +103,16 @@ public final class DXFValue {
     return ( getIntegerValue() == 0 ) ? true : false;
   }
 
-  public int getIntegerValue() { return Integer.parseInt( value ); }
+  public int getIntegerValue() {
+    if ( type == TYPE_INTEGER ) {
+      return integerValue;
+    }
+
+    return Integer.parseInt( getValue() );
+  }
 
   public String toString() {
-    return value;
+    return getValue();
   }
 
   public boolean isBitSet( int pos ) {
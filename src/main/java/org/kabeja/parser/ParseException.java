@@ -28,6 +28,10 @@ public class ParseException extends Exception {
     super( s, e );
   }
 
+  public ParseException( String s, Throwable t ) {
+    super( s, t );
+  }
+
   public ParseException( Exception e ) {
     super( e );
   }
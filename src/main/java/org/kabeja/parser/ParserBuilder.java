@@ -28,8 +28,41 @@ import java.io.InputStream;
  */
 public class ParserBuilder {
   public static Parser createDefaultParser() {
+    return createParser( false );
+  }
+
+  /**
+   * Creates a parser, which only indexes the entities of a parsed file.
+   * The entities are parsed on the first access through the layer.
+   *
+   * @return the parser
+   */
+  public static Parser createLazyParser() {
+    return createParser( true );
+  }
+
+  /**
+   * Creates a parser, which passes the entities of the ENTITIES section to
+   * the listener instead of adding them to the document. The tables and
+   * blocks are parsed into the document as usual.
+   *
+   * @param listener the listener
+   * @return the parser
+   */
+  public static Parser createStreamingParser( DXFEntityListener listener ) {
+    return createParser( new DXFParser(),
+      new DXFStreamingEntitiesSectionHandler( listener ) );
+  }
+
+  protected static Parser createParser( boolean lazy ) {
     DXFParser parser = new DXFParser();
 
+    return createParser( parser,
+      lazy ? new DXFLazyEntitiesSectionHandler( parser ) : new DXFEntitiesSectionHandler() );
+  }
+
+  protected static Parser createParser( DXFParser parser,
+                                        HandlerManager dxfEntitiesSectionHandlerManager ) {
     // the header section handler
     Handler handler = new DXFHeaderSectionHandler();
     parser.addHandler( handler );
@@ -75,7 +108,6 @@ public class ParserBuilder {
     parser.addHandler( tableSectionHandlerManager );
 
     // the ENTITY section handler
-    HandlerManager dxfEntitiesSectionHandlerManager = new DXFEntitiesSectionHandler();
     dxfEntitiesSectionHandlerManager.addHandler( new DXFPointHandler() );
     dxfEntitiesSectionHandlerManager.addHandler( new DXFLineHandler() );
     dxfEntitiesSectionHandlerManager.addHandler( new DXFArcHandler() );
@@ -0,0 +1,206 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package org.kabeja.parser.dxf.filter;
+
+import org.kabeja.parser.DXFValue;
+import org.kabeja.parser.ParseException;
+import org.kabeja.parser.dxf.DXFHandler;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Delivers the groups to a DXFHandler on its own thread. The groups are
+ * collected in batches, which circulate between the calling thread and the
+ * consumer thread through a fixed ring of batches. If all batches are in
+ * use the calling thread waits, so the memory is bounded.
+ * <p>
+ * An exception of the DXFHandler is thrown on the calling thread with the
+ * next batch or from finish(). After finish() the next group starts a new
+ * consumer thread.
+ * </p>
+ */
+public class AsyncDXFHandler implements DXFHandler {
+  public final static int DEFAULT_BATCH_SIZE = 1024;
+  public final static int DEFAULT_BATCH_COUNT = 8;
+  protected DXFHandler handler;
+  protected BlockingQueue free;
+  protected BlockingQueue filled;
+  protected Batch current;
+  protected Thread thread;
+  protected volatile Exception error;
+
+  public AsyncDXFHandler( DXFHandler handler ) {
+    this( handler, DEFAULT_BATCH_SIZE, DEFAULT_BATCH_COUNT );
+  }
+
+  /**
+   * @param handler    the handler, which gets the groups on the consumer
+   *                   thread
+   * @param batchSize  the count of groups in a batch
+   * @param batchCount the count of batches in the ring
+   */
+  public AsyncDXFHandler( DXFHandler handler, int batchSize, int batchCount ) {
+    this.handler = handler;
+    batchCount = Math.max( batchCount, 2 );
+    this.free = new ArrayBlockingQueue( batchCount );
+    this.filled = new ArrayBlockingQueue( batchCount + 1 );
+
+    for ( int i = 0; i < batchCount; i++ ) {
+      this.free.add( new Batch( Math.max( batchSize, 1 ) ) );
+    }
+  }
+
+  public DXFHandler getDXFHandler() { return this.handler; }
+
+  public void parseGroup( int groupCode, DXFValue value )
+    throws ParseException {
+    if ( this.current == null ) {
+      this.start();
+      this.current = this.takeFree();
+    }
+
+    Batch b = this.current;
+    b.codes[ b.count ] = groupCode;
+    b.values[ b.count ] = value;
+    b.count++;
+
+    if ( b.count == b.codes.length ) {
+      this.publish( b );
+      this.current = this.takeFree();
+    }
+  }
+
+  /**
+   * Deliver the remaining groups and wait until the consumer thread has
+   * processed all groups.
+   *
+   * @throws ParseException if the handler failed
+   */
+  public void finish() throws ParseException {
+    if ( this.thread == null ) {
+      return;
+    }
+
+    try {
+      if ( this.current.count > 0 ) {
+        this.filled.put( this.current );
+      } else {
+        this.free.put( this.current );
+      }
+
+      this.current = null;
+
+      // an empty batch marks the end
+      this.filled.put( new Batch( 0 ) );
+      this.thread.join();
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new ParseException( "Interrupted", e );
+    }
+
+    this.thread = null;
+    this.checkError();
+  }
+
+  protected void start() {
+    this.error = null;
+    this.thread = new Thread( new Runnable() {
+      public void run() {
+        consume();
+      }
+    }, "AsyncDXFHandler" );
+    this.thread.setDaemon( true );
+    this.thread.start();
+  }
+
+  protected void consume() {
+    try {
+      while ( true ) {
+        Batch b = ( Batch ) this.filled.take();
+
+        if ( b.codes.length == 0 ) {
+          return;
+        }
+
+        if ( this.error == null ) {
+          try {
+            for ( int i = 0; i < b.count; i++ ) {
+              this.handler.parseGroup( b.codes[ i ], b.values[ i ] );
+            }
+          } catch ( Exception e ) {
+            // skip the remaining groups
+            this.error = e;
+          }
+        }
+
+        b.clear();
+        this.free.put( b );
+      }
+    } catch ( InterruptedException e ) {
+      this.error = e;
+    }
+  }
+
+  protected void publish( Batch b ) throws ParseException {
+    this.checkError();
+
+    try {
+      this.filled.put( b );
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new ParseException( "Interrupted", e );
+    }
+  }
+
+  protected Batch takeFree() throws ParseException {
+    try {
+      return ( Batch ) this.free.take();
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new ParseException( "Interrupted", e );
+    }
+  }
+
+  protected void checkError() throws ParseException {
+    Exception e = this.error;
+
+    if ( e instanceof ParseException ) {
+      throw ( ParseException ) e;
+    } else if ( e != null ) {
+      throw new ParseException( e );
+    }
+  }
+
+  protected static class Batch {
+    int[] codes;
+    DXFValue[] values;
+    int count = 0;
+
+    Batch( int size ) {
+      this.codes = new int[ size ];
+      this.values = new DXFValue[ size ];
+    }
+
+    void clear() {
+      for ( int i = 0; i < this.count; i++ ) {
+        this.values[ i ] = null;
+      }
+
+      this.count = 0;
+    }
+  }
+}
@@ -61,6 +61,7 @@ abstract class DXFStreamEntityFilter extends DXFStreamSectionFilter {
   protected void sectionEnd( String Section ) throws ParseException {
     if ( section.equals( SECTION_KEY ) ) {
       this.entitySection = false;
+      this.parseEntity = false;
     }
   }
 
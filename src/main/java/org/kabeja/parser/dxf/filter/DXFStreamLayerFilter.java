@@ -16,19 +16,46 @@
 
 package org.kabeja.parser.dxf.filter;
 
+import org.kabeja.dxf.DXFConstants;
 import org.kabeja.parser.DXFValue;
 import org.kabeja.parser.ParseException;
-import java.util.*;
-
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringTokenizer;
+
+/**
+ * Filters the entities by their layer. The decision is made as soon as the
+ * layer group arrives, only the groups before are buffered. The following
+ * groups are passed through or dropped directly.
+ * <p>
+ * If layers are included only entities of these layers pass, excluded
+ * layers are removed always. The VERTEX, ATTRIB and SEQEND entities
+ * follow the decision of their POLYLINE or INSERT.
+ * </p>
+ */
 public class DXFStreamLayerFilter extends DXFStreamEntityFilter {
   public final static String PROPERTY_LAYERS_EXCLUDE = "layers.exclude";
   public final static String PROPERTY_LAYERS_INCLUDE = "layers.include";
   public final static int LAYER_NAME = 8;
-  protected List parseValues = new ArrayList();
+  protected final static int STATE_PREFIX = 0;
+  protected final static int STATE_PASS = 1;
+  protected final static int STATE_DROP = 2;
+  private final static String SECTION_END = "ENDSEC";
+  private final static String ENTITY_TYPE_SEQEND = "SEQEND";
   protected Set exclude = new HashSet();
   protected Set include = new HashSet();
   protected String layer = "";
-  boolean findLayer = true;
+  protected int state = STATE_PREFIX;
+
+  // the groups before the layer group
+  protected int[] prefixCodes = new int[ 8 ];
+  protected DXFValue[] prefixValues = new DXFValue[ 8 ];
+  protected int prefixCount = 0;
+
+  // the decision for the following VERTEX, ATTRIB and SEQEND entities
+  protected int parentState = STATE_PREFIX;
+  protected boolean parentFollowers = false;
 
   public void setProperties( Map properties ) {
     if ( properties.containsKey( PROPERTY_LAYERS_INCLUDE ) ) {
@@ -54,50 +81,120 @@ public class DXFStreamLayerFilter extends DXFStreamEntityFilter {
     }
   }
 
-  protected void startEntity( String type ) throws ParseException {
-    this.parseValues.clear();
-    this.findLayer = true;
+  /**
+   * @param layer the name of the layer
+   * @return true if the entities of the layer pass the filter
+   */
+  public boolean isLayerIncluded( String layer ) {
+    if ( this.exclude.contains( layer ) ) {
+      return false;
+    }
+
+    return this.include.isEmpty() || this.include.contains( layer );
   }
 
-  protected void endEntity() throws ParseException {
-    if ( include.contains( this.layer ) ) {
-      this.outputEntity();
-    } else if ( !exclude.contains( this.layer ) ) {
-      this.outputEntity();
+  protected void startEntity( String type ) throws ParseException {
+    this.prefixCount = 0;
+    this.layer = DXFConstants.DEFAULT_LAYER;
+
+    if ( SECTION_END.equals( type ) ) {
+      this.state = STATE_PASS;
+      this.parentFollowers = false;
+    } else if ( this.parentFollowers &&
+      ( DXFConstants.ENTITY_TYPE_VERTEX.equals( type ) ||
+        DXFConstants.ENTITY_TYPE_ATTRIB.equals( type ) ||
+        ENTITY_TYPE_SEQEND.equals( type ) ) ) {
+      this.state = this.parentState;
+    } else {
+      this.state = STATE_PREFIX;
+      this.parentFollowers = DXFConstants.ENTITY_TYPE_POLYLINE.equals( type ) ||
+        DXFConstants.ENTITY_TYPE_INSERT.equals( type );
     }
   }
 
-  protected void outputEntity() throws ParseException {
-    // give the complete entity to the next handler
-    for ( int i = 0; i < this.parseValues.size(); i++ ) {
-      ParseValue v = ( ParseValue ) this.parseValues.get( i );
-      this.handler.parseGroup( v.getGroupCode(), v.getDXFValue() );
+  protected void endEntity() throws ParseException {
+    if ( this.state == STATE_PREFIX ) {
+      // no layer group, the entity is on the default layer
+      this.decide();
     }
   }
 
   protected void parseEntity( int groupCode, DXFValue value )
     throws ParseException {
-    if ( this.findLayer && ( groupCode == LAYER_NAME ) ) {
-      this.layer = value.getValue();
-      this.findLayer = false;
+    switch ( this.state ) {
+      case STATE_PASS:
+        this.handler.parseGroup( groupCode, value );
+
+        break;
+
+      case STATE_PREFIX:
+
+        if ( groupCode == LAYER_NAME ) {
+          this.layer = value.getValue();
+          this.addPrefix( groupCode, value );
+          this.decide();
+        } else {
+          this.addPrefix( groupCode, value );
+        }
+
+        break;
+
+      default:
+
+        // dropped
+        break;
     }
+  }
 
-    //parse values to buffer
-    ParseValue v = new ParseValue( groupCode, value );
-    this.parseValues.add( v );
+  protected void sectionEnd( String section ) throws ParseException {
+    super.sectionEnd( section );
+    this.state = STATE_PREFIX;
+    this.parentFollowers = false;
   }
 
-  private class ParseValue {
-    int groupCode;
-    DXFValue value;
+  /**
+   * Decide with the current layer and give the buffered groups to the next
+   * handler, if the entity passes.
+   */
+  protected void decide() throws ParseException {
+    if ( this.isLayerIncluded( this.layer ) ) {
+      this.state = STATE_PASS;
+      this.outputEntity();
+    } else {
+      this.state = STATE_DROP;
+    }
+
+    if ( this.parentFollowers ) {
+      this.parentState = this.state;
+    }
 
-    public ParseValue( int groupCode, DXFValue value ) {
-      this.groupCode = groupCode;
-      this.value = value;
+    for ( int i = 0; i < this.prefixCount; i++ ) {
+      this.prefixValues[ i ] = null;
     }
 
-    public int getGroupCode() { return this.groupCode; }
+    this.prefixCount = 0;
+  }
+
+  protected void outputEntity() throws ParseException {
+    // give the buffered groups to the next handler
+    for ( int i = 0; i < this.prefixCount; i++ ) {
+      this.handler.parseGroup( this.prefixCodes[ i ], this.prefixValues[ i ] );
+    }
+  }
+
+  protected void addPrefix( int groupCode, DXFValue value ) {
+    if ( this.prefixCount == this.prefixCodes.length ) {
+      int[] codes = new int[ this.prefixCount * 2 ];
+      System.arraycopy( this.prefixCodes, 0, codes, 0, this.prefixCount );
+      this.prefixCodes = codes;
+
+      DXFValue[] values = new DXFValue[ this.prefixCount * 2 ];
+      System.arraycopy( this.prefixValues, 0, values, 0, this.prefixCount );
+      this.prefixValues = values;
+    }
 
-    public DXFValue getDXFValue() { return this.value; }
+    this.prefixCodes[ this.prefixCount ] = groupCode;
+    this.prefixValues[ this.prefixCount ] = value;
+    this.prefixCount++;
   }
 }
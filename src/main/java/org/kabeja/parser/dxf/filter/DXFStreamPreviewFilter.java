@@ -0,0 +1,529 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package org.kabeja.parser.dxf.filter;
+
+import org.kabeja.dxf.DXFConstants;
+import org.kabeja.parser.DXFValue;
+import org.kabeja.parser.ParseException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reduces the entities for a preview with the given resolution (the size
+ * of a pixel in drawing units):
+ * <ul>
+ * <li>LINE, CIRCLE, ARC, TEXT and MTEXT entities smaller than the
+ * resolution are dropped</li>
+ * <li>the vertices of LWPOLYLINE and POLYLINE entities closer than the
+ * resolution to the last vertex are dropped, the last vertex and the end
+ * of a bulged segment are kept always</li>
+ * <li>polylines with an extent smaller than the resolution are dropped</li>
+ * <li>with a layer budget only the given count of entities per layer
+ * passes</li>
+ * </ul>
+ * The properties are "resolution" and "layer.budget", a budget of 0 means
+ * no limit. Polygon and polyface meshes are not decimated.
+ */
+public class DXFStreamPreviewFilter extends DXFStreamEntityFilter {
+  public final static String PROPERTY_RESOLUTION = "resolution";
+  public final static String PROPERTY_LAYER_BUDGET = "layer.budget";
+  protected final static int STATE_BUFFER = 0;
+  protected final static int STATE_PASS = 1;
+  protected final static int STATE_DROP = 2;
+  protected final static int KIND_OTHER = 0;
+  protected final static int KIND_FOLLOW = 1;
+  protected final static int KIND_LINE = 2;
+  protected final static int KIND_CIRCLE = 3;
+  protected final static int KIND_TEXT = 4;
+  protected final static int KIND_LWPOLYLINE = 5;
+  protected final static int KIND_POLYLINE = 6;
+  protected final static int KIND_VERTEX = 7;
+  private final static String SECTION_END = "ENDSEC";
+  private final static String ENTITY_TYPE_SEQEND = "SEQEND";
+  private final static int LAYER_NAME = 8;
+  private final static int POLYLINE_MESH_FLAGS = 16 | 64;
+  protected double resolution = 0.0;
+  protected int layerBudget = 0;
+  protected Map layerCounts = new HashMap();
+  protected int state = STATE_PASS;
+  protected int kind = KIND_FOLLOW;
+  protected String layer;
+  protected boolean polylineSequence = false;
+  protected boolean insertSequence = false;
+
+  // the buffered groups of the entity
+  protected int[] codes = new int[ 32 ];
+  protected DXFValue[] values = new DXFValue[ 32 ];
+  protected int count = 0;
+
+  // the groups of the current vertex
+  protected int[] vertexCodes = new int[ 16 ];
+  protected DXFValue[] vertexValues = new DXFValue[ 16 ];
+  protected int vertexCount = 0;
+  protected boolean vertexPending = false;
+  protected double vertexX;
+  protected double vertexY;
+
+  // the decimation state
+  protected boolean decimate;
+  protected boolean vertexEmitted;
+  protected double lastX;
+  protected double lastY;
+  protected boolean lastBulged;
+
+  // the kept vertices of a LWPOLYLINE and the index of its group 90
+  protected int keptVertices;
+  protected int vertexCountIndex;
+
+  // the extent of the entity
+  protected double minX;
+  protected double minY;
+  protected double maxX;
+  protected double maxY;
+  protected double size;
+
+  public void setProperties( Map properties ) {
+    super.setProperties( properties );
+
+    if ( properties.containsKey( PROPERTY_RESOLUTION ) ) {
+      this.resolution = Double.parseDouble( ( ( String ) properties.get( PROPERTY_RESOLUTION ) ).trim() );
+    }
+
+    if ( properties.containsKey( PROPERTY_LAYER_BUDGET ) ) {
+      this.layerBudget = Integer.parseInt( ( ( String ) properties.get( PROPERTY_LAYER_BUDGET ) ).trim() );
+    }
+  }
+
+  public void setResolution( double resolution ) { this.resolution = resolution; }
+
+  public double getResolution() { return this.resolution; }
+
+  public void setLayerBudget( int budget ) { this.layerBudget = budget; }
+
+  public int getLayerBudget() { return this.layerBudget; }
+
+  protected void sectionStart( String section ) throws ParseException {
+    super.sectionStart( section );
+    this.layerCounts.clear();
+  }
+
+  protected void sectionEnd( String section ) throws ParseException {
+    super.sectionEnd( section );
+    this.polylineSequence = false;
+    this.insertSequence = false;
+    this.state = STATE_PASS;
+    this.kind = KIND_FOLLOW;
+  }
+
+  protected void startEntity( String type ) throws ParseException {
+    if ( this.polylineSequence ) {
+      boolean vertex = DXFConstants.ENTITY_TYPE_VERTEX.equals( type );
+
+      if ( this.vertexPending ) {
+        this.completeVertex( !vertex );
+      }
+
+      if ( vertex ) {
+        this.kind = KIND_VERTEX;
+        this.vertexPending = true;
+
+        return;
+      }
+
+      this.polylineSequence = false;
+
+      if ( this.state == STATE_BUFFER ) {
+        // the extent of the polyline is below the resolution
+        this.drop();
+      }
+
+      if ( ENTITY_TYPE_SEQEND.equals( type ) ) {
+        this.kind = KIND_FOLLOW;
+
+        return;
+      }
+    }
+
+    if ( this.insertSequence ) {
+      if ( DXFConstants.ENTITY_TYPE_ATTRIB.equals( type ) ||
+        ENTITY_TYPE_SEQEND.equals( type ) ) {
+        // follows the decision of the insert
+        this.kind = KIND_FOLLOW;
+
+        return;
+      }
+
+      this.insertSequence = false;
+    }
+
+    this.count = 0;
+    this.layer = DXFConstants.DEFAULT_LAYER;
+    this.minX = Double.POSITIVE_INFINITY;
+    this.minY = Double.POSITIVE_INFINITY;
+    this.maxX = Double.NEGATIVE_INFINITY;
+    this.maxY = Double.NEGATIVE_INFINITY;
+    this.size = 0.0;
+    this.state = STATE_BUFFER;
+
+    if ( SECTION_END.equals( type ) ) {
+      this.kind = KIND_FOLLOW;
+      this.state = STATE_PASS;
+    } else if ( DXFConstants.ENTITY_TYPE_LINE.equals( type ) ) {
+      this.kind = KIND_LINE;
+    } else if ( DXFConstants.ENTITY_TYPE_CIRCLE.equals( type ) ||
+      DXFConstants.ENTITY_TYPE_ARC.equals( type ) ) {
+      this.kind = KIND_CIRCLE;
+    } else if ( DXFConstants.ENTITY_TYPE_TEXT.equals( type ) ||
+      DXFConstants.ENTITY_TYPE_MTEXT.equals( type ) ) {
+      this.kind = KIND_TEXT;
+    } else if ( DXFConstants.ENTITY_TYPE_LWPOLYLINE.equals( type ) ) {
+      this.kind = KIND_LWPOLYLINE;
+      this.startDecimation();
+    } else if ( DXFConstants.ENTITY_TYPE_POLYLINE.equals( type ) ) {
+      this.kind = KIND_POLYLINE;
+      this.polylineSequence = true;
+      this.startDecimation();
+    } else {
+      this.kind = KIND_OTHER;
+      this.insertSequence = DXFConstants.ENTITY_TYPE_INSERT.equals( type );
+    }
+  }
+
+  protected void endEntity() throws ParseException {
+    if ( this.polylineSequence ) {
+      // decided with the following entity
+      return;
+    }
+
+    switch ( this.kind ) {
+      case KIND_LINE:
+
+        if ( ( this.minX > this.maxX ) || ( this.minY > this.maxY ) ) {
+          // no coordinates
+          this.decideBudget();
+        } else {
+          this.decideSize( Math.max( this.maxX - this.minX, this.maxY - this.minY ) );
+        }
+
+        break;
+
+      case KIND_CIRCLE:
+        this.decideSize( 2 * this.size );
+
+        break;
+
+      case KIND_TEXT:
+
+        // without height the height of the style is used
+        this.decideSize( ( this.size > 0.0 ) ? this.size : this.resolution );
+
+        break;
+
+      case KIND_LWPOLYLINE:
+
+        if ( this.vertexPending ) {
+          this.completeVertex( true );
+        }
+
+        // the whole entity is buffered to write the count of the vertices
+        if ( this.state == STATE_BUFFER ) {
+          if ( Math.max( this.maxX - this.minX, this.maxY - this.minY ) >= this.resolution ) {
+            if ( this.vertexCountIndex >= 0 ) {
+              this.values[ this.vertexCountIndex ] = new DXFValue( this.keptVertices );
+            }
+
+            this.decideBudget();
+          } else {
+            this.drop();
+          }
+        }
+
+        break;
+
+      case KIND_OTHER:
+
+        if ( this.state == STATE_BUFFER ) {
+          this.decideBudget();
+        }
+
+        break;
+    }
+  }
+
+  protected void parseEntity( int groupCode, DXFValue value )
+    throws ParseException {
+    if ( this.state == STATE_DROP ) {
+      return;
+    }
+
+    switch ( this.kind ) {
+      case KIND_FOLLOW:
+
+        if ( this.state == STATE_PASS ) {
+          this.handler.parseGroup( groupCode, value );
+        }
+
+        break;
+
+      case KIND_VERTEX:
+
+        if ( groupCode == 10 ) {
+          this.vertexX = value.getDoubleValue();
+        } else if ( groupCode == 20 ) {
+          this.vertexY = value.getDoubleValue();
+        }
+
+        this.addVertexGroup( groupCode, value );
+
+        break;
+
+      case KIND_LWPOLYLINE:
+
+        if ( isLWPolylineVertexGroup( groupCode ) ) {
+          if ( groupCode == 10 ) {
+            if ( this.vertexPending ) {
+              this.completeVertex( false );
+            }
+
+            this.vertexPending = true;
+            this.vertexX = value.getDoubleValue();
+          } else if ( groupCode == 20 ) {
+            this.vertexY = value.getDoubleValue();
+          }
+
+          this.addVertexGroup( groupCode, value );
+        } else {
+          if ( groupCode == 90 ) {
+            // replaced by the count of the kept vertices
+            this.vertexCountIndex = this.count;
+          }
+
+          this.parseCommonGroup( groupCode, value );
+          this.emit( groupCode, value );
+        }
+
+        break;
+
+      case KIND_POLYLINE:
+
+        if ( ( groupCode == 70 ) &&
+          ( ( value.getIntegerValue() & POLYLINE_MESH_FLAGS ) != 0 ) ) {
+          this.decimate = false;
+        }
+
+        this.parseCommonGroup( groupCode, value );
+        this.emit( groupCode, value );
+
+        break;
+
+      default:
+        this.emit( groupCode, value );
+
+        if ( groupCode == LAYER_NAME ) {
+          this.layer = value.getValue();
+
+          if ( this.kind == KIND_OTHER ) {
+            this.decideBudget();
+          }
+        } else if ( this.kind == KIND_LINE ) {
+          if ( ( groupCode == 10 ) || ( groupCode == 11 ) ) {
+            double x = value.getDoubleValue();
+            this.minX = Math.min( this.minX, x );
+            this.maxX = Math.max( this.maxX, x );
+          } else if ( ( groupCode == 20 ) || ( groupCode == 21 ) ) {
+            double y = value.getDoubleValue();
+            this.minY = Math.min( this.minY, y );
+            this.maxY = Math.max( this.maxY, y );
+          }
+        } else if ( groupCode == 40 ) {
+          // the radius or the text height
+          this.size = Math.abs( value.getDoubleValue() );
+        }
+
+        break;
+    }
+  }
+
+  protected void parseCommonGroup( int groupCode, DXFValue value ) {
+    if ( groupCode == LAYER_NAME ) {
+      this.layer = value.getValue();
+    }
+  }
+
+  protected static boolean isLWPolylineVertexGroup( int groupCode ) {
+    switch ( groupCode ) {
+      case 10:
+      case 20:
+      case 30:
+      case 40:
+      case 41:
+      case 42:
+      case 91:
+        return true;
+
+      default:
+        return false;
+    }
+  }
+
+  protected void startDecimation() {
+    this.decimate = this.resolution > 0.0;
+    this.vertexEmitted = false;
+    this.vertexPending = false;
+    this.vertexCount = 0;
+    this.lastBulged = false;
+    this.keptVertices = 0;
+    this.vertexCountIndex = -1;
+  }
+
+  /**
+   * The collected vertex is complete, keep it if it is the last vertex, the
+   * end of a bulged segment or far enough from the last kept vertex. The
+   * bulge of the last kept vertex would be applied to the longer segment
+   * otherwise.
+   */
+  protected void completeVertex( boolean last ) throws ParseException {
+    this.vertexPending = false;
+
+    if ( this.state != STATE_DROP ) {
+      this.minX = Math.min( this.minX, this.vertexX );
+      this.maxX = Math.max( this.maxX, this.vertexX );
+      this.minY = Math.min( this.minY, this.vertexY );
+      this.maxY = Math.max( this.maxY, this.vertexY );
+
+      double dx = this.vertexX - this.lastX;
+      double dy = this.vertexY - this.lastY;
+
+      if ( last || !this.decimate || !this.vertexEmitted || this.lastBulged ||
+        ( ( ( dx * dx ) + ( dy * dy ) ) >= ( this.resolution * this.resolution ) ) ) {
+        this.lastBulged = false;
+
+        for ( int i = 0; i < this.vertexCount; i++ ) {
+          this.emit( this.vertexCodes[ i ], this.vertexValues[ i ] );
+
+          if ( ( this.vertexCodes[ i ] == 42 ) &&
+            ( this.vertexValues[ i ].getDoubleValue() != 0.0 ) ) {
+            this.lastBulged = true;
+          }
+        }
+
+        this.lastX = this.vertexX;
+        this.lastY = this.vertexY;
+        this.vertexEmitted = true;
+        this.keptVertices++;
+      }
+
+      if ( ( this.state == STATE_BUFFER ) && ( this.kind != KIND_LWPOLYLINE ) &&
+        ( Math.max( this.maxX - this.minX, this.maxY - this.minY ) >= this.resolution ) ) {
+        this.decideBudget();
+      }
+    }
+
+    for ( int i = 0; i < this.vertexCount; i++ ) {
+      this.vertexValues[ i ] = null;
+    }
+
+    this.vertexCount = 0;
+  }
+
+  protected void decideSize( double size ) throws ParseException {
+    if ( size < this.resolution ) {
+      this.drop();
+    } else {
+      this.decideBudget();
+    }
+  }
+
+  /**
+   * Pass the entity if the budget of the layer allows it.
+   */
+  protected void decideBudget() throws ParseException {
+    if ( this.layerBudget > 0 ) {
+      int[] c = ( int[] ) this.layerCounts.get( this.layer );
+
+      if ( c == null ) {
+        c = new int[ 1 ];
+        this.layerCounts.put( this.layer, c );
+      }
+
+      if ( c[ 0 ] >= this.layerBudget ) {
+        this.drop();
+
+        return;
+      }
+
+      c[ 0 ]++;
+    }
+
+    this.state = STATE_PASS;
+
+    for ( int i = 0; i < this.count; i++ ) {
+      this.handler.parseGroup( this.codes[ i ], this.values[ i ] );
+    }
+
+    this.clear();
+  }
+
+  protected void drop() {
+    this.state = STATE_DROP;
+    this.clear();
+  }
+
+  protected void emit( int groupCode, DXFValue value ) throws ParseException {
+    if ( this.state == STATE_PASS ) {
+      this.handler.parseGroup( groupCode, value );
+    } else if ( this.state == STATE_BUFFER ) {
+      if ( this.count == this.codes.length ) {
+        int[] c = new int[ this.count * 2 ];
+        System.arraycopy( this.codes, 0, c, 0, this.count );
+        this.codes = c;
+
+        DXFValue[] v = new DXFValue[ this.count * 2 ];
+        System.arraycopy( this.values, 0, v, 0, this.count );
+        this.values = v;
+      }
+
+      this.codes[ this.count ] = groupCode;
+      this.values[ this.count ] = value;
+      this.count++;
+    }
+  }
+
+  protected void addVertexGroup( int groupCode, DXFValue value ) {
+    if ( this.vertexCount == this.vertexCodes.length ) {
+      int[] c = new int[ this.vertexCount * 2 ];
+      System.arraycopy( this.vertexCodes, 0, c, 0, this.vertexCount );
+      this.vertexCodes = c;
+
+      DXFValue[] v = new DXFValue[ this.vertexCount * 2 ];
+      System.arraycopy( this.vertexValues, 0, v, 0, this.vertexCount );
+      this.vertexValues = v;
+    }
+
+    this.vertexCodes[ this.vertexCount ] = groupCode;
+    this.vertexValues[ this.vertexCount ] = value;
+    this.vertexCount++;
+  }
+
+  protected void clear() {
+    for ( int i = 0; i < this.count; i++ ) {
+      this.values[ i ] = null;
+    }
+
+    this.count = 0;
+  }
+}
@@ -0,0 +1,599 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package org.kabeja.parser.dxf.filter;
+
+import org.kabeja.dxf.Bounds;
+import org.kabeja.dxf.DXFConstants;
+import org.kabeja.dxf.DXFExtrusion;
+import org.kabeja.parser.DXFParser;
+import org.kabeja.parser.DXFValue;
+import org.kabeja.parser.ParseException;
+import org.kabeja.tools.CodePageEncoder;
+import org.kabeja.writer.DXFAsciiOutput;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringTokenizer;
+
+/**
+ * Rewrites the parsed file with a subset of its entities. The kept parts of
+ * the file are copied byte for byte from the source file to the output
+ * channel, so unknown entities, groups and number formats are preserved.
+ * Only the $EXTMIN and $EXTMAX header variables are regenerated from the
+ * kept entities.
+ * <p>
+ * While the groups pass (unchanged to the next handler) only the byte
+ * ranges to copy are recorded. With the EOF group or finish() the ranges
+ * are copied with FileChannel.transferTo(). The parser has to parse a file
+ * with parse(String file,...), the offsets of the groups are taken from the
+ * parser. An instance rewrites one file.
+ * </p>
+ * <p>
+ * The entities are selected by their layer with the properties of the
+ * DXFStreamLayerFilter and optional by their handles. The VERTEX, ATTRIB
+ * and SEQEND entities follow their POLYLINE or INSERT. All other sections
+ * are copied completely, the $HANDSEED is still valid.
+ * </p>
+ * <p>
+ * The extents are approximated from the points of the entities, mapped
+ * from the object coordinate system with the extrusion. Circles and arcs
+ * are taken as full circles, curves by their control points and an INSERT
+ * by its insertion point only, the blocks are not measured.
+ * </p>
+ */
+public class DXFStreamRewriteFilter extends AbstractDXFStreamFilter {
+  public final static String PROPERTY_HANDLES_INCLUDE = "handles.include";
+  private final static int COMMAND_CODE = 0;
+  private final static int NAME_CODE = 2;
+  private final static int HANDLE_CODE = 5;
+  private final static int LAYER_NAME = 8;
+  private final static int HEADER_VARIABLE_CODE = 9;
+  private final static int FLAGS_CODE = 70;
+  private final static int RADIUS_CODE = 40;
+  private final static int VERTEX_FACE = 128;
+  private final static int VERTEX_POLYFACE_MESH = 64;
+  private final static int POLYLINE_3D = 8 | 16 | 64;
+  private final static String SECTION_START = "SECTION";
+  private final static String SECTION_END = "ENDSEC";
+  private final static String END_OF_FILE = "EOF";
+  private final static String HEADER_SECTION = "HEADER";
+  private final static String ENTITIES_SECTION = "ENTITIES";
+  private final static String ENTITY_TYPE_SEQEND = "SEQEND";
+  private final static String[] EXTENTS = new String[] { "$EXTMIN", "$EXTMAX" };
+
+  // the marker of a generated variable in the copy plan
+  private final static long GENERATED = -1;
+  protected DXFParser parser;
+  protected WritableByteChannel out;
+  protected Set include = new HashSet();
+  protected Set exclude = new HashSet();
+  protected Set handles = new HashSet();
+
+  // the copy plan as pairs of start and end offsets
+  protected long[] plan = new long[ 64 ];
+  protected int planSize = 0;
+  protected long runStart = 0;
+  protected boolean finished = false;
+  protected Bounds extent = new Bounds();
+  protected double[][] originalExtents = new double[ 2 ][ 3 ];
+  protected String section;
+  protected boolean sectionStarts = false;
+  protected int skipVariable = -1;
+
+  // the current entity
+  protected boolean entity = false;
+  protected long entityStart;
+  protected String entityType;
+  protected String entityLayer;
+  protected String entityHandle;
+  protected int entityFlags;
+  protected double entityRadius;
+  protected Bounds entityBounds = new Bounds();
+  protected double[] point = new double[ 3 ];
+  protected int pointSlot = -1;
+  protected double[] axis = new double[ 3 ];
+  protected double[] extrusion = new double[] { 0.0, 0.0, 1.0 };
+  protected double[] parentExtrusion = new double[] { 0.0, 0.0, 1.0 };
+  protected boolean elevationPoint = false;
+  protected double elevation;
+  protected boolean parentFollowers = false;
+  protected boolean parentKept = false;
+
+  /**
+   * @param parser the parser, which provides the offsets of the groups
+   * @param out    the channel to write the new file to
+   */
+  public DXFStreamRewriteFilter( DXFParser parser, WritableByteChannel out ) {
+    this.parser = parser;
+    this.out = out;
+  }
+
+  public void setProperties( Map properties ) {
+    super.setProperties( properties );
+    this.include = this.getSet( properties,
+        DXFStreamLayerFilter.PROPERTY_LAYERS_INCLUDE );
+    this.exclude = this.getSet( properties,
+        DXFStreamLayerFilter.PROPERTY_LAYERS_EXCLUDE );
+    this.handles = this.getSet( properties, PROPERTY_HANDLES_INCLUDE );
+  }
+
+  protected Set getSet( Map properties, String key ) {
+    Set set = new HashSet();
+
+    if ( properties.containsKey( key ) ) {
+      StringTokenizer st = new StringTokenizer( ( String ) properties.get( key ),
+          "|" );
+
+      while ( st.hasMoreTokens() ) {
+        set.add( st.nextToken() );
+      }
+    }
+
+    return set;
+  }
+
+  public void parseGroup( int groupCode, DXFValue value )
+    throws ParseException {
+    long offset = this.parser.getGroupOffset();
+
+    if ( offset < 0 ) {
+      throw new ParseException( "The rewrite filter needs the offsets of a parsed file" );
+    }
+
+    if ( groupCode == COMMAND_CODE ) {
+      this.command( value.getValue(), offset );
+    } else if ( this.sectionStarts && ( groupCode == NAME_CODE ) ) {
+      this.section = value.getValue();
+      this.sectionStarts = false;
+    } else if ( this.entity ) {
+      this.entityGroup( groupCode, value );
+    } else if ( groupCode == HEADER_VARIABLE_CODE ) {
+      this.headerVariable( value.getValue(), offset );
+    } else if ( this.skipVariable >= 0 ) {
+      this.originalExtent( groupCode, value );
+    }
+
+    if ( this.handler != null ) {
+      this.handler.parseGroup( groupCode, value );
+    }
+
+    if ( ( groupCode == COMMAND_CODE ) && END_OF_FILE.equals( value.getValue() ) ) {
+      this.finish();
+    }
+  }
+
+  protected void command( String command, long offset ) {
+    if ( this.entity ) {
+      this.endEntity();
+    }
+
+    this.skipVariable = -1;
+
+    if ( SECTION_START.equals( command ) ) {
+      this.sectionStarts = true;
+      this.section = null;
+    } else if ( SECTION_END.equals( command ) ) {
+      this.section = null;
+    } else if ( ENTITIES_SECTION.equals( this.section ) ) {
+      // the decision is made at the end of the entity
+      this.startEntity( command, offset );
+
+      return;
+    }
+
+    if ( this.runStart < 0 ) {
+      this.runStart = offset;
+    }
+  }
+
+  protected void headerVariable( String name, long offset ) {
+    if ( this.skipVariable >= 0 ) {
+      this.skipVariable = -1;
+      this.runStart = offset;
+    }
+
+    if ( HEADER_SECTION.equals( this.section ) ) {
+      for ( int i = 0; i < EXTENTS.length; i++ ) {
+        if ( EXTENTS[ i ].equals( name ) ) {
+          this.addRange( this.runStart, offset );
+          this.addRange( GENERATED, i );
+          this.runStart = -1;
+          this.skipVariable = i;
+        }
+      }
+    }
+  }
+
+  protected void originalExtent( int groupCode, DXFValue value ) {
+    int axisIndex = ( groupCode / 10 ) - 1;
+
+    if ( ( ( groupCode % 10 ) == 0 ) && ( axisIndex >= 0 ) && ( axisIndex < 3 ) ) {
+      this.originalExtents[ this.skipVariable ][ axisIndex ] = value.getDoubleValue();
+    }
+  }
+
+  protected void startEntity( String type, long offset ) {
+    this.entity = true;
+    this.entityStart = offset;
+    this.entityType = type;
+    this.entityLayer = DXFConstants.DEFAULT_LAYER;
+    this.entityHandle = null;
+    this.entityFlags = 0;
+    this.entityRadius = 0.0;
+    this.entityBounds = new Bounds();
+    this.pointSlot = -1;
+    this.axis[ 0 ] = this.axis[ 1 ] = this.axis[ 2 ] = 0.0;
+    this.extrusion[ 0 ] = this.extrusion[ 1 ] = 0.0;
+    this.extrusion[ 2 ] = 1.0;
+
+    // the first point of a hatch or polyline is the elevation and not
+    // geometry, the vertices follow
+    this.elevationPoint = DXFConstants.ENTITY_TYPE_HATCH.equals( type ) ||
+      DXFConstants.ENTITY_TYPE_POLYLINE.equals( type );
+    this.elevation = 0.0;
+  }
+
+  protected void entityGroup( int groupCode, DXFValue value ) {
+    switch ( groupCode ) {
+      case LAYER_NAME:
+        this.entityLayer = value.getValue();
+
+        break;
+
+      case HANDLE_CODE:
+        this.entityHandle = value.getValue();
+
+        break;
+
+      case FLAGS_CODE:
+        this.entityFlags = value.getIntegerValue();
+
+        break;
+
+      case RADIUS_CODE:
+        this.entityRadius = value.getDoubleValue();
+
+        break;
+
+      case 210:
+      case 220:
+      case 230:
+        this.extrusion[ ( groupCode - 210 ) / 10 ] = value.getDoubleValue();
+
+        break;
+
+      default:
+
+        if ( ( groupCode >= 10 ) && ( groupCode < 40 ) ) {
+          this.coordinate( groupCode, value.getDoubleValue() );
+        }
+    }
+  }
+
+  /**
+   * Collects the points of the entity for the extents. Relative vectors
+   * are not used, so the extents are approximated like the $EXTMIN and
+   * $EXTMAX of AutoCAD.
+   */
+  protected void coordinate( int groupCode, double v ) {
+    int slot = groupCode % 10;
+    int axisIndex = ( groupCode / 10 ) - 1;
+
+    if ( !this.isPointSlot( slot ) ) {
+      if ( ( slot == 1 ) &&
+        DXFConstants.ENTITY_TYPE_ELLIPSE.equals( this.entityType ) ) {
+        // the major axis
+        this.axis[ axisIndex ] = v;
+      }
+
+      return;
+    }
+
+    if ( axisIndex == 0 ) {
+      this.addPoint();
+      this.pointSlot = slot;
+      this.point[ 0 ] = v;
+      this.point[ 1 ] = 0.0;
+      this.point[ 2 ] = 0.0;
+    } else if ( slot == this.pointSlot ) {
+      this.point[ axisIndex ] = v;
+    }
+  }
+
+  protected boolean isPointSlot( int slot ) {
+    if ( slot == 0 ) {
+      return true;
+    } else if ( slot <= 3 ) {
+      return DXFConstants.ENTITY_TYPE_LINE.equals( this.entityType ) ||
+        DXFConstants.ENTITY_TYPE_SOLID.equals( this.entityType ) ||
+        DXFConstants.ENTITY_TYPE_TRACE.equals( this.entityType ) ||
+        DXFConstants.ENTITY_TYPE_3DFACE.equals( this.entityType );
+    }
+
+    return false;
+  }
+
+  protected void addPoint() {
+    if ( this.pointSlot < 0 ) {
+      return;
+    }
+
+    this.pointSlot = -1;
+
+    if ( this.elevationPoint ) {
+      this.elevationPoint = false;
+      this.elevation = this.point[ 2 ];
+    } else if ( DXFConstants.ENTITY_TYPE_HATCH.equals( this.entityType ) ) {
+      // the boundary vertices are 2D
+      this.entityBounds.addToBounds( this.point[ 0 ], this.point[ 1 ],
+        this.elevation );
+    } else {
+      this.entityBounds.addToBounds( this.point[ 0 ], this.point[ 1 ],
+        this.point[ 2 ] );
+    }
+  }
+
+  protected void endEntity() {
+    this.entity = false;
+    this.addPoint();
+
+    boolean keep;
+
+    if ( this.parentFollowers &&
+      ( DXFConstants.ENTITY_TYPE_VERTEX.equals( this.entityType ) ||
+      DXFConstants.ENTITY_TYPE_ATTRIB.equals( this.entityType ) ||
+      ENTITY_TYPE_SEQEND.equals( this.entityType ) ) ) {
+      keep = this.parentKept;
+    } else {
+      keep = this.isEntityIncluded();
+      this.parentKept = keep;
+      this.parentFollowers = DXFConstants.ENTITY_TYPE_POLYLINE.equals( this.entityType ) ||
+        DXFConstants.ENTITY_TYPE_INSERT.equals( this.entityType );
+
+      // the vertices of a 2D polyline are in its coordinate system
+      boolean ocs = DXFConstants.ENTITY_TYPE_POLYLINE.equals( this.entityType ) &&
+        ( ( this.entityFlags & POLYLINE_3D ) == 0 );
+      this.parentExtrusion[ 0 ] = ocs ? this.extrusion[ 0 ] : 0.0;
+      this.parentExtrusion[ 1 ] = ocs ? this.extrusion[ 1 ] : 0.0;
+      this.parentExtrusion[ 2 ] = ocs ? this.extrusion[ 2 ] : 1.0;
+    }
+
+    if ( keep ) {
+      this.addEntityExtent();
+
+      if ( this.runStart < 0 ) {
+        this.runStart = this.entityStart;
+      }
+    } else if ( this.runStart >= 0 ) {
+      this.addRange( this.runStart, this.entityStart );
+      this.runStart = -1;
+    }
+  }
+
+  /**
+   * @return true if the current entity is written
+   */
+  protected boolean isEntityIncluded() {
+    if ( !this.handles.isEmpty() && !this.handles.contains( this.entityHandle ) ) {
+      return false;
+    } else if ( this.exclude.contains( this.entityLayer ) ) {
+      return false;
+    }
+
+    return this.include.isEmpty() || this.include.contains( this.entityLayer );
+  }
+
+  protected void addEntityExtent() {
+    if ( !this.entityBounds.isValid() ||
+      ( DXFConstants.ENTITY_TYPE_VERTEX.equals( this.entityType ) &&
+      ( ( this.entityFlags & VERTEX_FACE ) == VERTEX_FACE ) &&
+      ( ( this.entityFlags & VERTEX_POLYFACE_MESH ) == 0 ) ) ) {
+      // the face records of a polyface mesh have no coordinates
+      return;
+    }
+
+    double r = 0.0;
+
+    if ( DXFConstants.ENTITY_TYPE_CIRCLE.equals( this.entityType ) ||
+      DXFConstants.ENTITY_TYPE_ARC.equals( this.entityType ) ) {
+      r = this.entityRadius;
+    } else if ( DXFConstants.ENTITY_TYPE_ELLIPSE.equals( this.entityType ) ) {
+      r = Math.sqrt( ( this.axis[ 0 ] * this.axis[ 0 ] ) +
+          ( this.axis[ 1 ] * this.axis[ 1 ] ) + ( this.axis[ 2 ] * this.axis[ 2 ] ) );
+    }
+
+    Bounds b = this.entityBounds;
+    double[] e = DXFConstants.ENTITY_TYPE_VERTEX.equals( this.entityType )
+      ? this.parentExtrusion : this.extrusion;
+
+    if ( isOCSEntity( this.entityType ) &&
+      ( ( e[ 0 ] != 0.0 ) || ( e[ 1 ] != 0.0 ) || ( e[ 2 ] != 1.0 ) ) ) {
+      Bounds ocs = new Bounds();
+      ocs.addToBounds( b.getMinimumX() - r, b.getMinimumY() - r, b.getMinimumZ() );
+      ocs.addToBounds( b.getMaximumX() + r, b.getMaximumY() + r, b.getMaximumZ() );
+
+      DXFExtrusion extrusion = new DXFExtrusion();
+      extrusion.setX( e[ 0 ] );
+      extrusion.setY( e[ 1 ] );
+      extrusion.setZ( e[ 2 ] );
+      extrusion.getTransform().transform( ocs, this.extent );
+    } else {
+      this.extent.addToBounds( b.getMinimumX() - r, b.getMinimumY() - r,
+        b.getMinimumZ() );
+      this.extent.addToBounds( b.getMaximumX() + r, b.getMaximumY() + r,
+        b.getMaximumZ() );
+    }
+  }
+
+  /**
+   * @return true if the points of the entity type are in the object
+   *         coordinate system
+   */
+  protected static boolean isOCSEntity( String type ) {
+    return DXFConstants.ENTITY_TYPE_CIRCLE.equals( type ) ||
+    DXFConstants.ENTITY_TYPE_ARC.equals( type ) ||
+    DXFConstants.ENTITY_TYPE_SOLID.equals( type ) ||
+    DXFConstants.ENTITY_TYPE_TRACE.equals( type ) ||
+    DXFConstants.ENTITY_TYPE_TEXT.equals( type ) ||
+    DXFConstants.ENTITY_TYPE_SHAPE.equals( type ) ||
+    DXFConstants.ENTITY_TYPE_INSERT.equals( type ) ||
+    DXFConstants.ENTITY_TYPE_ATTRIB.equals( type ) ||
+    DXFConstants.ENTITY_TYPE_LWPOLYLINE.equals( type ) ||
+    DXFConstants.ENTITY_TYPE_POLYLINE.equals( type ) ||
+    DXFConstants.ENTITY_TYPE_VERTEX.equals( type ) ||
+    DXFConstants.ENTITY_TYPE_HATCH.equals( type );
+  }
+
+  protected void addRange( long start, long end ) {
+    if ( ( start >= 0 ) && ( end <= start ) ) {
+      return;
+    }
+
+    if ( ( start >= 0 ) && ( this.planSize > 0 ) &&
+      ( this.plan[ this.planSize - 1 ] == start ) ) {
+      // merge with the last range
+      this.plan[ this.planSize - 1 ] = end;
+
+      return;
+    }
+
+    if ( ( this.planSize + 2 ) > this.plan.length ) {
+      long[] p = new long[ this.plan.length * 2 ];
+      System.arraycopy( this.plan, 0, p, 0, this.planSize );
+      this.plan = p;
+    }
+
+    this.plan[ this.planSize++ ] = start;
+    this.plan[ this.planSize++ ] = end;
+  }
+
+  /**
+   * Writes the new file. This is done with the EOF group, for files
+   * without EOF group finish() has to be called after parsing.
+   *
+   * @throws ParseException
+   */
+  public void finish() throws ParseException {
+    if ( this.finished ) {
+      return;
+    }
+
+    this.finished = true;
+
+    if ( this.entity ) {
+      this.endEntity();
+    }
+
+    if ( this.runStart >= 0 ) {
+      this.addRange( this.runStart, Long.MAX_VALUE );
+      this.runStart = -1;
+    }
+
+    File source = this.parser.getSourceFile();
+
+    if ( source == null ) {
+      throw new ParseException( "The rewrite filter needs the offsets of a parsed file" );
+    }
+
+    try {
+      RandomAccessFile file = new RandomAccessFile( source, "r" );
+
+      try {
+        FileChannel channel = file.getChannel();
+        long size = channel.size();
+        DXFAsciiOutput generated = new DXFAsciiOutput( this.out,
+            CodePageEncoder.getEncoder( StandardCharsets.UTF_8 ), 1024 );
+        generated.setCRLF( this.hasCRLF( channel ) );
+
+        for ( int i = 0; i < this.planSize; i += 2 ) {
+          if ( this.plan[ i ] == GENERATED ) {
+            this.outputExtent( ( int ) this.plan[ i + 1 ], generated );
+          } else {
+            generated.flush();
+            this.transfer( channel, this.plan[ i ],
+              Math.min( this.plan[ i + 1 ], size ) );
+          }
+        }
+
+        generated.flush();
+      } finally {
+        file.close();
+      }
+    } catch ( IOException e ) {
+      throw new ParseException( e );
+    }
+  }
+
+  protected void outputExtent( int index, DXFAsciiOutput out )
+    throws IOException {
+    double[] p = this.originalExtents[ index ];
+
+    if ( this.extent.isValid() ) {
+      p = ( index == 0 )
+        ? new double[] {
+          this.extent.getMinimumX(), this.extent.getMinimumY(),
+          this.extent.getMinimumZ()
+        }
+        : new double[] {
+          this.extent.getMaximumX(), this.extent.getMaximumY(),
+          this.extent.getMaximumZ()
+        };
+    }
+
+    out.output( HEADER_VARIABLE_CODE, EXTENTS[ index ] );
+    out.output( 10, p[ 0 ] );
+    out.output( 20, p[ 1 ] );
+    out.output( 30, p[ 2 ] );
+  }
+
+  protected void transfer( FileChannel channel, long start, long end )
+    throws IOException {
+    while ( start < end ) {
+      long count = channel.transferTo( start, end - start, this.out );
+
+      if ( count <= 0 ) {
+        throw new IOException( "Could not copy the bytes at " + start );
+      }
+
+      start += count;
+    }
+  }
+
+  /**
+   * @return true if the first line of the file ends with CR LF
+   */
+  protected boolean hasCRLF( FileChannel channel ) throws IOException {
+    ByteBuffer b = ByteBuffer.allocate( 256 );
+    int count = channel.read( b, 0 );
+
+    for ( int i = 1; i < count; i++ ) {
+      if ( b.get( i ) == '\n' ) {
+        return b.get( i - 1 ) == '\r';
+      }
+    }
+
+    return true;
+  }
+}
@@ -0,0 +1,121 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package org.kabeja.parser.dxf.filter;
+
+import org.kabeja.parser.DXFValue;
+import org.kabeja.parser.ParseException;
+import org.kabeja.parser.dxf.DXFHandler;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Delivers every group to additional DXFHandlers besides the next handler
+ * of the chain, so several consumers are fed from a single read. The
+ * additional handlers are called in the parser thread or, if added as
+ * asynchronous, on their own thread through an AsyncDXFHandler.
+ * <p>
+ * The asynchronous handlers are finished with the EOF group or by calling
+ * finish().
+ * </p>
+ */
+public class DXFStreamTeeFilter extends AbstractDXFStreamFilter {
+  private final static String END_OF_FILE = "EOF";
+  private final static int COMMAND_CODE = 0;
+  protected List handlers = new ArrayList();
+  protected List asyncHandlers = new ArrayList();
+
+  /**
+   * Add a handler, which is called in the parser thread.
+   *
+   * @param handler
+   */
+  public void addDXFHandler( DXFHandler handler ) {
+    this.handlers.add( handler );
+  }
+
+  /**
+   * Add a handler, which is called on its own thread.
+   *
+   * @param handler
+   * @param batchSize  the count of groups in a batch
+   * @param batchCount the count of batches between the threads
+   */
+  public void addAsyncDXFHandler( DXFHandler handler, int batchSize,
+                                  int batchCount ) {
+    AsyncDXFHandler async = new AsyncDXFHandler( handler, batchSize, batchCount );
+    this.handlers.add( async );
+    this.asyncHandlers.add( async );
+  }
+
+  public void addAsyncDXFHandler( DXFHandler handler ) {
+    this.addAsyncDXFHandler( handler, AsyncDXFHandler.DEFAULT_BATCH_SIZE,
+      AsyncDXFHandler.DEFAULT_BATCH_COUNT );
+  }
+
+  public void removeDXFHandler( DXFHandler handler ) {
+    for ( int i = 0; i < this.handlers.size(); i++ ) {
+      Object h = this.handlers.get( i );
+
+      if ( ( h == handler ) ||
+        ( ( h instanceof AsyncDXFHandler ) &&
+          ( ( ( AsyncDXFHandler ) h ).getDXFHandler() == handler ) ) ) {
+        this.handlers.remove( i );
+        this.asyncHandlers.remove( h );
+
+        return;
+      }
+    }
+  }
+
+  public void parseGroup( int groupCode, DXFValue value )
+    throws ParseException {
+    for ( int i = 0; i < this.handlers.size(); i++ ) {
+      ( ( DXFHandler ) this.handlers.get( i ) ).parseGroup( groupCode, value );
+    }
+
+    if ( this.handler != null ) {
+      this.handler.parseGroup( groupCode, value );
+    }
+
+    if ( ( groupCode == COMMAND_CODE ) && END_OF_FILE.equals( value.getValue() ) ) {
+      this.finish();
+    }
+  }
+
+  /**
+   * Wait until all asynchronous handlers have processed all groups.
+   *
+   * @throws ParseException the first exception of a handler
+   */
+  public void finish() throws ParseException {
+    ParseException error = null;
+
+    for ( int i = 0; i < this.asyncHandlers.size(); i++ ) {
+      try {
+        ( ( AsyncDXFHandler ) this.asyncHandlers.get( i ) ).finish();
+      } catch ( ParseException e ) {
+        if ( error == null ) {
+          error = e;
+        }
+      }
+    }
+
+    if ( error != null ) {
+      throw error;
+    }
+  }
+}
@@ -0,0 +1,314 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package org.kabeja.parser.dxf.filter;
+
+import org.kabeja.dxf.DXFConstants;
+import org.kabeja.parser.DXFValue;
+import org.kabeja.parser.ParseException;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringTokenizer;
+
+/**
+ * Passes only the entities, which intersect a window in the x-y plane. The
+ * groups of an entity are buffered until the extent of the entity is known,
+ * a POLYLINE is buffered together with its VERTEX and SEQEND entities.
+ * <p>
+ * The extent is calculated conservatively from the coordinate groups, so
+ * an entity near the window can pass. Entities with an extent depending on
+ * other data (INSERT, DIMENSION, HATCH, ...) or with an object coordinate
+ * system other than the world coordinate system pass always.
+ * </p>
+ * The window is given with the property "window" as "minX|minY|maxX|maxY".
+ */
+public class DXFStreamWindowFilter extends DXFStreamEntityFilter {
+  public final static String PROPERTY_WINDOW = "window";
+  protected final static int STATE_BUFFER = 0;
+  protected final static int STATE_PASS = 1;
+  protected final static int STATE_DROP = 2;
+  protected final static int KIND_POINTS = 0;
+  protected final static int KIND_CIRCLE = 1;
+  protected final static int KIND_ELLIPSE = 2;
+  protected final static int KIND_TEXT = 3;
+  private final static String SECTION_END = "ENDSEC";
+  private final static String ENTITY_TYPE_SEQEND = "SEQEND";
+  private final static Set POINT_TYPES = new HashSet();
+
+  static {
+    POINT_TYPES.add( DXFConstants.ENTITY_TYPE_LINE );
+    POINT_TYPES.add( DXFConstants.ENTITY_TYPE_POINT );
+    POINT_TYPES.add( DXFConstants.ENTITY_TYPE_3DFACE );
+    POINT_TYPES.add( DXFConstants.ENTITY_TYPE_SOLID );
+    POINT_TYPES.add( DXFConstants.ENTITY_TYPE_TRACE );
+    POINT_TYPES.add( DXFConstants.ENTITY_TYPE_LWPOLYLINE );
+    POINT_TYPES.add( DXFConstants.ENTITY_TYPE_POLYLINE );
+    POINT_TYPES.add( DXFConstants.ENTITY_TYPE_SPLINE );
+    POINT_TYPES.add( DXFConstants.ENTITY_TYPE_LEADER );
+  }
+
+  protected double windowMinX = Double.NEGATIVE_INFINITY;
+  protected double windowMinY = Double.NEGATIVE_INFINITY;
+  protected double windowMaxX = Double.POSITIVE_INFINITY;
+  protected double windowMaxY = Double.POSITIVE_INFINITY;
+  protected int state = STATE_PASS;
+  protected int kind = KIND_POINTS;
+  protected boolean polylineSequence = false;
+  protected boolean ignorePoints = false;
+
+  // the buffered groups
+  protected int[] codes = new int[ 32 ];
+  protected DXFValue[] values = new DXFValue[ 32 ];
+  protected int count = 0;
+
+  // the extent of the buffered entity
+  protected double minX;
+  protected double minY;
+  protected double maxX;
+  protected double maxY;
+  protected double margin;
+  protected double bulge;
+  protected double height;
+  protected int textLength;
+  protected double axisX;
+  protected double axisY;
+
+  public void setProperties( Map properties ) {
+    super.setProperties( properties );
+
+    if ( properties.containsKey( PROPERTY_WINDOW ) ) {
+      StringTokenizer st = new StringTokenizer( ( String ) properties.get( PROPERTY_WINDOW ), "|" );
+
+      if ( st.countTokens() == 4 ) {
+        this.setWindow( Double.parseDouble( st.nextToken().trim() ),
+          Double.parseDouble( st.nextToken().trim() ),
+          Double.parseDouble( st.nextToken().trim() ),
+          Double.parseDouble( st.nextToken().trim() ) );
+      }
+    }
+  }
+
+  public void setWindow( double minX, double minY, double maxX, double maxY ) {
+    this.windowMinX = Math.min( minX, maxX );
+    this.windowMinY = Math.min( minY, maxY );
+    this.windowMaxX = Math.max( minX, maxX );
+    this.windowMaxY = Math.max( minY, maxY );
+  }
+
+  protected void startEntity( String type ) throws ParseException {
+    if ( this.polylineSequence ) {
+      if ( DXFConstants.ENTITY_TYPE_VERTEX.equals( type ) ||
+        ENTITY_TYPE_SEQEND.equals( type ) ) {
+        // continue the buffered polyline
+        this.ignorePoints = false;
+
+        return;
+      }
+
+      this.polylineSequence = false;
+      this.decide();
+    }
+
+    this.count = 0;
+    this.minX = Double.POSITIVE_INFINITY;
+    this.minY = Double.POSITIVE_INFINITY;
+    this.maxX = Double.NEGATIVE_INFINITY;
+    this.maxY = Double.NEGATIVE_INFINITY;
+    this.margin = 0.0;
+    this.bulge = 0.0;
+    this.height = 0.0;
+    this.textLength = 0;
+    this.axisX = 0.0;
+    this.axisY = 0.0;
+    this.ignorePoints = false;
+    this.state = STATE_BUFFER;
+
+    if ( SECTION_END.equals( type ) ) {
+      this.state = STATE_PASS;
+    } else if ( POINT_TYPES.contains( type ) ) {
+      this.kind = KIND_POINTS;
+      this.polylineSequence = DXFConstants.ENTITY_TYPE_POLYLINE.equals( type );
+
+      // the point of the POLYLINE is a dummy, the vertices follow
+      this.ignorePoints = this.polylineSequence;
+    } else if ( DXFConstants.ENTITY_TYPE_CIRCLE.equals( type ) ||
+      DXFConstants.ENTITY_TYPE_ARC.equals( type ) ) {
+      this.kind = KIND_CIRCLE;
+    } else if ( DXFConstants.ENTITY_TYPE_ELLIPSE.equals( type ) ) {
+      this.kind = KIND_ELLIPSE;
+    } else if ( DXFConstants.ENTITY_TYPE_TEXT.equals( type ) ||
+      DXFConstants.ENTITY_TYPE_MTEXT.equals( type ) ) {
+      this.kind = KIND_TEXT;
+    } else {
+      // the extent is unknown
+      this.state = STATE_PASS;
+    }
+  }
+
+  protected void endEntity() throws ParseException {
+    if ( !this.polylineSequence ) {
+      this.decide();
+    }
+  }
+
+  protected void sectionEnd( String section ) throws ParseException {
+    super.sectionEnd( section );
+    this.polylineSequence = false;
+    this.state = STATE_PASS;
+  }
+
+  protected void parseEntity( int groupCode, DXFValue value )
+    throws ParseException {
+    if ( this.state == STATE_PASS ) {
+      this.handler.parseGroup( groupCode, value );
+    } else if ( this.state == STATE_BUFFER ) {
+      this.addGroup( groupCode, value );
+
+      try {
+        this.addToExtent( groupCode, value );
+      } catch ( NumberFormatException e ) {
+        // keep the entity and let the parser handle the value
+        this.pass();
+      }
+    }
+  }
+
+  protected void addToExtent( int groupCode, DXFValue value )
+    throws ParseException {
+    if ( this.ignorePoints && ( groupCode >= 10 ) && ( groupCode <= 38 ) ) {
+      return;
+    } else if ( ( groupCode >= 10 ) && ( groupCode <= 18 ) ) {
+      double x = value.getDoubleValue();
+
+      if ( ( this.kind == KIND_ELLIPSE ) && ( groupCode == 11 ) ) {
+        this.axisX = x;
+      } else {
+        this.minX = Math.min( this.minX, x );
+        this.maxX = Math.max( this.maxX, x );
+      }
+    } else if ( ( groupCode >= 20 ) && ( groupCode <= 28 ) ) {
+      double y = value.getDoubleValue();
+
+      if ( ( this.kind == KIND_ELLIPSE ) && ( groupCode == 21 ) ) {
+        this.axisY = y;
+      } else {
+        this.minY = Math.min( this.minY, y );
+        this.maxY = Math.max( this.maxY, y );
+      }
+    } else if ( groupCode == 40 ) {
+      if ( this.kind == KIND_CIRCLE ) {
+        this.margin = Math.max( this.margin, Math.abs( value.getDoubleValue() ) );
+      } else if ( this.kind == KIND_TEXT ) {
+        this.height = Math.abs( value.getDoubleValue() );
+      }
+    } else if ( groupCode == 41 ) {
+      if ( this.kind == KIND_TEXT ) {
+        // the reference width of MTEXT
+        this.margin = Math.max( this.margin, Math.abs( value.getDoubleValue() ) );
+      }
+    } else if ( ( groupCode == 42 ) && ( this.kind == KIND_POINTS ) ) {
+      this.bulge = Math.max( this.bulge, Math.abs( value.getDoubleValue() ) );
+    } else if ( ( groupCode == 1 ) || ( groupCode == 3 ) ) {
+      this.textLength += value.getValue().length();
+    } else if ( ( groupCode == 210 ) || ( groupCode == 220 ) ) {
+      if ( value.getDoubleValue() != 0.0 ) {
+        this.pass();
+      }
+    } else if ( groupCode == 230 ) {
+      if ( value.getDoubleValue() != 1.0 ) {
+        this.pass();
+      }
+    }
+  }
+
+  /**
+   * Decide with the extent of the buffered entity.
+   */
+  protected void decide() throws ParseException {
+    if ( this.state != STATE_BUFFER ) {
+      return;
+    }
+
+    if ( ( this.minX > this.maxX ) || ( this.minY > this.maxY ) ) {
+      // no coordinates
+      this.pass();
+
+      return;
+    }
+
+    double m = this.margin;
+
+    if ( this.kind == KIND_ELLIPSE ) {
+      m = Math.max( m,
+          Math.sqrt( ( this.axisX * this.axisX ) + ( this.axisY * this.axisY ) ) );
+    } else if ( this.kind == KIND_TEXT ) {
+      m = Math.max( m, this.height * ( this.textLength + 1 ) );
+    } else if ( this.bulge > 0.0 ) {
+      // an arc segment lies within bulge * chord / 2 of its chord
+      double dx = this.maxX - this.minX;
+      double dy = this.maxY - this.minY;
+      m = Math.max( m, ( this.bulge * Math.sqrt( ( dx * dx ) + ( dy * dy ) ) ) / 2 );
+    }
+
+    if ( ( ( this.maxX + m ) < this.windowMinX ) ||
+      ( ( this.minX - m ) > this.windowMaxX ) ||
+      ( ( this.maxY + m ) < this.windowMinY ) ||
+      ( ( this.minY - m ) > this.windowMaxY ) ) {
+      this.state = STATE_DROP;
+      this.clear();
+    } else {
+      this.pass();
+    }
+  }
+
+  /**
+   * Give the buffered groups to the next handler and pass the following.
+   */
+  protected void pass() throws ParseException {
+    this.state = STATE_PASS;
+
+    for ( int i = 0; i < this.count; i++ ) {
+      this.handler.parseGroup( this.codes[ i ], this.values[ i ] );
+    }
+
+    this.clear();
+  }
+
+  protected void clear() {
+    for ( int i = 0; i < this.count; i++ ) {
+      this.values[ i ] = null;
+    }
+
+    this.count = 0;
+  }
+
+  protected void addGroup( int groupCode, DXFValue value ) {
+    if ( this.count == this.codes.length ) {
+      int[] c = new int[ this.count * 2 ];
+      System.arraycopy( this.codes, 0, c, 0, this.count );
+      this.codes = c;
+
+      DXFValue[] v = new DXFValue[ this.count * 2 ];
+      System.arraycopy( this.values, 0, v, 0, this.count );
+      this.values = v;
+    }
+
+    this.codes[ this.count ] = groupCode;
+    this.values[ this.count ] = value;
+    this.count++;
+  }
+}
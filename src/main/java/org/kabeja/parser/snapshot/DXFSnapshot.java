@@ -0,0 +1,491 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package org.kabeja.parser.snapshot;
+
+import org.kabeja.dxf.DXFConstants;
+import org.kabeja.dxf.DXFDocument;
+import org.kabeja.parser.DXFParser;
+import org.kabeja.parser.DXFValue;
+import org.kabeja.parser.ParseException;
+import org.kabeja.parser.ParserBuilder;
+import org.kabeja.parser.dxf.DXFHandler;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * A memory mapped snapshot of the groups of a parsed DXF document. The
+ * groups are stored binary: a type byte, the group code and the value as
+ * double, integer, index of a shared string or UTF-8 string. Codes, integers,
+ * indices and lengths are written with a variable length. Numbers are only
+ * stored binary if they convert back to the same text. An index
+ * at the end of the file contains the shared strings, the ranges of the
+ * sections and the ranges of the entities of each layer and of each block
+ * with the referenced blocks.
+ * <p>
+ * A document is built by replaying the groups through a DXFParser. With
+ * lazy loading only the header, tables and objects are loaded first, the
+ * entities of a layer and the blocks are loaded with loadLayer() and
+ * loadBlock(), referenced blocks are loaded with the layer.
+ * </p>
+ * <p>
+ * The FORMAT_VERSION has to be changed with every change of the format or
+ * of the parser, which changes the resulting document.
+ * </p>
+ */
+public class DXFSnapshot {
+  public final static int MAGIC = 0x4B42534E;
+  public final static int FORMAT_VERSION = 1;
+  public final static int TYPE_STRING = 0;
+  public final static int TYPE_SHARED_STRING = 1;
+  public final static int TYPE_INTEGER = 2;
+  public final static int TYPE_DOUBLE = 3;
+  private final static String LOADED_ALL = "*";
+  private final static String LAYER_PREFIX = "L";
+  private final static String BLOCK_PREFIX = "B";
+  private File file;
+  private ByteBuffer data;
+  private long sourceLength;
+  private long sourceModified;
+  private String key;
+  private long dataStart;
+  private long dataEnd;
+  private String[] strings;
+  private Map sections = new LinkedHashMap();
+  private Map layers = new LinkedHashMap();
+  private Map blocks = new LinkedHashMap();
+  private Map loaded = new WeakHashMap();
+
+  /**
+   * Open the snapshot file and read the index.
+   *
+   * @param file
+   * @throws IOException if the file is not a valid snapshot
+   */
+  public DXFSnapshot( File file ) throws IOException {
+    this.file = file;
+
+    RandomAccessFile raf = new RandomAccessFile( file, "r" );
+
+    try {
+      FileChannel channel = raf.getChannel();
+
+      if ( channel.size() > Integer.MAX_VALUE ) {
+        throw new IOException( "Snapshot too large: " + file );
+      }
+
+      this.data = channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size() );
+    } finally {
+      raf.close();
+    }
+
+    ByteBuffer b = this.data.duplicate();
+
+    if ( ( b.limit() < 32 ) || ( b.getInt() != MAGIC ) ) {
+      throw new IOException( "Not a snapshot: " + file );
+    }
+
+    if ( b.getInt() != FORMAT_VERSION ) {
+      throw new IOException( "Unsupported snapshot version: " + file );
+    }
+
+    try {
+      this.sourceLength = b.getLong();
+      this.sourceModified = b.getLong();
+      this.key = readString( b );
+      this.dataStart = b.position();
+      this.dataEnd = this.data.getLong( b.limit() - 8 );
+      this.readIndex( b );
+    } catch ( RuntimeException e ) {
+      // a truncated or damaged file
+      throw new IOException( "Invalid snapshot: " + file + " " + e );
+    }
+  }
+
+  protected void readIndex( ByteBuffer b ) {
+    b.position( ( int ) this.dataEnd );
+    this.strings = new String[ b.getInt() ];
+
+    for ( int i = 0; i < this.strings.length; i++ ) {
+      this.strings[ i ] = readString( b );
+    }
+
+    int count = b.getInt();
+
+    for ( int i = 0; i < count; i++ ) {
+      String name = readString( b );
+      this.sections.put( name, new long[] { b.getLong(), b.getLong() } );
+    }
+
+    this.readRanges( b, this.layers );
+    this.readRanges( b, this.blocks );
+  }
+
+  protected void readRanges( ByteBuffer b, Map ranges ) {
+    int count = b.getInt();
+
+    for ( int i = 0; i < count; i++ ) {
+      String name = readString( b );
+      long[] offsets = new long[ b.getInt() * 2 ];
+
+      for ( int n = 0; n < offsets.length; n++ ) {
+        offsets[ n ] = b.getLong();
+      }
+
+      String[] references = new String[ b.getInt() ];
+
+      for ( int n = 0; n < references.length; n++ ) {
+        references[ n ] = readString( b );
+      }
+
+      ranges.put( name, new Object[] { offsets, references } );
+    }
+  }
+
+  protected static int readVarInt( ByteBuffer b ) {
+    int v = 0;
+    int shift = 0;
+    int n;
+
+    do {
+      n = b.get();
+      v |= ( ( n & 0x7F ) << shift );
+      shift += 7;
+    } while ( n < 0 );
+
+    return v;
+  }
+
+  protected static String readString( ByteBuffer b ) {
+    byte[] bytes = new byte[ readVarInt( b ) ];
+    b.get( bytes );
+
+    return new String( bytes, StandardCharsets.UTF_8 );
+  }
+
+  /**
+   * Returns how the value of the group code is stored.
+   *
+   * @param code the group code
+   * @return the type
+   */
+  public static int getValueType( int code ) {
+    if ( ( ( code >= 10 ) && ( code <= 59 ) ) ||
+      ( ( code >= 110 ) && ( code <= 149 ) ) ||
+      ( ( code >= 210 ) && ( code <= 239 ) ) ||
+      ( ( code >= 460 ) && ( code <= 469 ) ) ||
+      ( ( code >= 1010 ) && ( code <= 1059 ) ) ) {
+      return TYPE_DOUBLE;
+    } else if ( ( ( code >= 60 ) && ( code <= 99 ) ) ||
+      ( ( code >= 170 ) && ( code <= 179 ) ) ||
+      ( ( code >= 270 ) && ( code <= 299 ) ) ||
+      ( ( code >= 370 ) && ( code <= 389 ) ) ||
+      ( ( code >= 400 ) && ( code <= 409 ) ) ||
+      ( ( code >= 420 ) && ( code <= 459 ) ) ||
+      ( ( code >= 1060 ) && ( code <= 1071 ) ) ) {
+      return TYPE_INTEGER;
+    } else if ( ( code == 0 ) || ( code == 2 ) || ( code == 6 ) ||
+      ( code == 7 ) || ( code == 8 ) || ( code == 100 ) || ( code == 1001 ) ) {
+      // type and table names, which are repeated
+      return TYPE_SHARED_STRING;
+    }
+
+    return TYPE_STRING;
+  }
+
+  public File getFile() { return this.file; }
+
+  /**
+   * @return the key of the source, which was stored with the snapshot
+   */
+  public String getKey() { return this.key; }
+
+  public long getSourceLength() { return this.sourceLength; }
+
+  public long getSourceModified() { return this.sourceModified; }
+
+  /**
+   * @return the names of the layers with entities
+   */
+  public Iterator getLayerNames() { return this.layers.keySet().iterator(); }
+
+  public Iterator getBlockNames() { return this.blocks.keySet().iterator(); }
+
+  /**
+   * Load the complete document.
+   *
+   * @return the document
+   * @throws ParseException
+   */
+  public DXFDocument getDocument() throws ParseException {
+    return this.getDocument( false );
+  }
+
+  /**
+   * @param lazy if true only the header, classes, tables and objects are
+   *             loaded, the entities and blocks are loaded with
+   *             loadLayer(), loadBlock() or loadAll()
+   * @return the document
+   * @throws ParseException
+   */
+  public DXFDocument getDocument( boolean lazy ) throws ParseException {
+    DXFDocument doc = new DXFDocument();
+    DXFParser parser = this.createParser();
+    parser.startDocument( doc );
+
+    Set state = new HashSet();
+
+    if ( lazy ) {
+      Iterator i = this.sections.entrySet().iterator();
+
+      while ( i.hasNext() ) {
+        Map.Entry e = ( Map.Entry ) i.next();
+
+        if ( !DXFConstants.SECTION_ENTITIES.equals( e.getKey() ) &&
+          !DXFConstants.SECTION_BLOCKS.equals( e.getKey() ) ) {
+          long[] range = ( long[] ) e.getValue();
+          this.replay( range[ 0 ], range[ 1 ], parser.getInputHandler() );
+        }
+      }
+    } else {
+      this.replay( this.dataStart, this.dataEnd, parser.getInputHandler() );
+      state.add( LOADED_ALL );
+    }
+
+    parser.endDocument();
+
+    synchronized ( this.loaded ) {
+      this.loaded.put( doc, state );
+    }
+
+    return doc;
+  }
+
+  /**
+   * Load the entities of the layer and the blocks referenced by them into
+   * a document, which was created lazily by this snapshot.
+   *
+   * @param doc
+   * @param layer the name of the layer
+   * @throws ParseException
+   */
+  public void loadLayer( DXFDocument doc, String layer )
+    throws ParseException {
+    synchronized ( doc ) {
+      Set state = this.getLoadState( doc );
+
+      if ( state.contains( LOADED_ALL ) || !state.add( LAYER_PREFIX + layer ) ) {
+        return;
+      }
+
+      Object[] range = ( Object[] ) this.layers.get( layer );
+
+      if ( range != null ) {
+        List blockRanges = new ArrayList();
+        String[] references = ( String[] ) range[ 1 ];
+
+        for ( int i = 0; i < references.length; i++ ) {
+          this.collectBlocks( references[ i ], state, blockRanges );
+        }
+
+        List layerRanges = new ArrayList();
+        layerRanges.add( range );
+        this.load( doc, blockRanges, layerRanges );
+      }
+    }
+  }
+
+  /**
+   * Load the block and the blocks referenced by it.
+   *
+   * @param doc
+   * @param name the name of the block
+   * @throws ParseException
+   */
+  public void loadBlock( DXFDocument doc, String name )
+    throws ParseException {
+    synchronized ( doc ) {
+      List blockRanges = new ArrayList();
+      this.collectBlocks( name, this.getLoadState( doc ), blockRanges );
+      this.load( doc, blockRanges, new ArrayList() );
+    }
+  }
+
+  /**
+   * Load all remaining layers and blocks.
+   *
+   * @param doc
+   * @throws ParseException
+   */
+  public void loadAll( DXFDocument doc ) throws ParseException {
+    synchronized ( doc ) {
+      Set state = this.getLoadState( doc );
+
+      if ( state.contains( LOADED_ALL ) ) {
+        return;
+      }
+
+      List blockRanges = new ArrayList();
+      List layerRanges = new ArrayList();
+      Iterator i = this.blocks.keySet().iterator();
+
+      while ( i.hasNext() ) {
+        this.collectBlocks( ( String ) i.next(), state, blockRanges );
+      }
+
+      i = this.layers.entrySet().iterator();
+
+      while ( i.hasNext() ) {
+        Map.Entry e = ( Map.Entry ) i.next();
+
+        if ( state.add( LAYER_PREFIX + e.getKey() ) ) {
+          layerRanges.add( e.getValue() );
+        }
+      }
+
+      this.load( doc, blockRanges, layerRanges );
+      state.add( LOADED_ALL );
+    }
+  }
+
+  protected Set getLoadState( DXFDocument doc ) {
+    synchronized ( this.loaded ) {
+      Set state = ( Set ) this.loaded.get( doc );
+
+      if ( state == null ) {
+        // not created by this snapshot, the content is unknown
+        state = new HashSet();
+        this.loaded.put( doc, state );
+      }
+
+      return state;
+    }
+  }
+
+  protected void collectBlocks( String name, Set state, List blockRanges ) {
+    if ( state.contains( LOADED_ALL ) || !state.add( BLOCK_PREFIX + name ) ) {
+      return;
+    }
+
+    Object[] range = ( Object[] ) this.blocks.get( name );
+
+    if ( range != null ) {
+      String[] references = ( String[] ) range[ 1 ];
+
+      for ( int i = 0; i < references.length; i++ ) {
+        this.collectBlocks( references[ i ], state, blockRanges );
+      }
+
+      blockRanges.add( range );
+    }
+  }
+
+  protected void load( DXFDocument doc, List blockRanges, List layerRanges )
+    throws ParseException {
+    if ( blockRanges.isEmpty() && layerRanges.isEmpty() ) {
+      return;
+    }
+
+    DXFParser parser = this.createParser();
+    parser.startDocument( doc );
+
+    DXFHandler handler = parser.getInputHandler();
+    this.replaySection( DXFConstants.SECTION_BLOCKS, blockRanges, handler );
+    this.replaySection( DXFConstants.SECTION_ENTITIES, layerRanges, handler );
+    parser.endDocument();
+  }
+
+  protected void replaySection( String section, List ranges, DXFHandler handler )
+    throws ParseException {
+    if ( ranges.isEmpty() ) {
+      return;
+    }
+
+    handler.parseGroup( 0, new DXFValue( DXFConstants.SECTION_START ) );
+    handler.parseGroup( 2, new DXFValue( section ) );
+
+    for ( int i = 0; i < ranges.size(); i++ ) {
+      long[] offsets = ( long[] ) ( ( Object[] ) ranges.get( i ) )[ 0 ];
+
+      for ( int n = 0; n < offsets.length; n += 2 ) {
+        this.replay( offsets[ n ], offsets[ n + 1 ], handler );
+      }
+    }
+
+    handler.parseGroup( 0, new DXFValue( DXFConstants.SECTION_END ) );
+  }
+
+  /**
+   * Pass the groups of the range to the handler.
+   *
+   * @param start the offset of the first group
+   * @param end   the offset after the last group
+   * @param handler
+   * @throws ParseException
+   */
+  protected void replay( long start, long end, DXFHandler handler )
+    throws ParseException {
+    ByteBuffer b = this.data.duplicate();
+    b.position( ( int ) start );
+
+    byte[] bytes = new byte[ 256 ];
+
+    while ( b.position() < end ) {
+      int type = b.get();
+      int code = readVarInt( b );
+      DXFValue value;
+
+      if ( type == TYPE_DOUBLE ) {
+        value = new DXFValue( b.getDouble() );
+      } else if ( type == TYPE_INTEGER ) {
+        int v = readVarInt( b );
+        value = new DXFValue( ( v >>> 1 ) ^ -( v & 1 ) );
+      } else if ( type == TYPE_SHARED_STRING ) {
+        value = new DXFValue( this.strings[ readVarInt( b ) ] );
+      } else {
+        int length = readVarInt( b );
+
+        if ( length > bytes.length ) {
+          bytes = new byte[ Math.max( length, bytes.length * 2 ) ];
+        }
+
+        b.get( bytes, 0, length );
+        value = new DXFValue( new String( bytes, 0, length, StandardCharsets.UTF_8 ) );
+      }
+
+      handler.parseGroup( code, value );
+    }
+  }
+
+  /**
+   * @return a new parser, the default parser without stream filters
+   */
+  protected DXFParser createParser() {
+    return ( DXFParser ) ParserBuilder.createDefaultParser();
+  }
+}
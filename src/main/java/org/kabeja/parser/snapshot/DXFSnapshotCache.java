@@ -0,0 +1,222 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package org.kabeja.parser.snapshot;
+
+import org.kabeja.dxf.DXFDocument;
+import org.kabeja.parser.DXFParser;
+import org.kabeja.parser.ParseException;
+import org.kabeja.parser.ParserBuilder;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Returns the documents of DXF files from snapshots, a missing or outdated
+ * snapshot is created while the file is parsed. Without a cache directory
+ * the snapshot is stored next to the source and is valid as long as the
+ * length and the modification time of the source are unchanged. With a
+ * cache directory the snapshots are named by the SHA-1 hash of the content
+ * and the snapshot version, so equal files share one snapshot.
+ */
+public class DXFSnapshotCache {
+  public final static String SNAPSHOT_EXTENSION = ".kbs";
+  private File directory;
+
+  /**
+   * Store the snapshots next to the sources.
+   */
+  public DXFSnapshotCache() {
+  }
+
+  /**
+   * @param directory the directory of the snapshots
+   */
+  public DXFSnapshotCache( File directory ) {
+    this.directory = directory;
+  }
+
+  public File getDirectory() { return this.directory; }
+
+  /**
+   * Returns the complete document of the source.
+   *
+   * @param source the DXF file
+   * @return the document
+   * @throws ParseException
+   */
+  public DXFDocument getDocument( File source ) throws ParseException {
+    String key = this.getKey( source );
+    File file = this.getSnapshotFile( source, key );
+    DXFSnapshot snapshot = this.openSnapshot( file, key );
+
+    if ( snapshot != null ) {
+      return snapshot.getDocument();
+    }
+
+    return this.createSnapshot( source, file, key );
+  }
+
+  /**
+   * Returns the snapshot of the source for lazy loading, which is created
+   * if needed.
+   *
+   * @param source the DXF file
+   * @return the snapshot
+   * @throws ParseException
+   */
+  public DXFSnapshot getSnapshot( File source ) throws ParseException {
+    String key = this.getKey( source );
+    File file = this.getSnapshotFile( source, key );
+    DXFSnapshot snapshot = this.openSnapshot( file, key );
+
+    if ( snapshot == null ) {
+      this.createSnapshot( source, file, key );
+      snapshot = this.openSnapshot( file, key );
+
+      if ( snapshot == null ) {
+        throw new ParseException( "Could not open snapshot " + file );
+      }
+    }
+
+    return snapshot;
+  }
+
+  protected DXFSnapshot openSnapshot( File file, String key ) {
+    if ( file.isFile() ) {
+      try {
+        DXFSnapshot snapshot = new DXFSnapshot( file );
+
+        if ( key.equals( snapshot.getKey() ) ) {
+          return snapshot;
+        }
+      } catch ( IOException e ) {
+        // invalid or old version, will be replaced
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Parse the source and write the snapshot.
+   *
+   * @return the parsed document
+   */
+  protected DXFDocument createSnapshot( File source, File file, String key )
+    throws ParseException {
+    DXFSnapshotWriter writer;
+
+    try {
+      writer = new DXFSnapshotWriter( file, key, source.length(),
+          source.lastModified() );
+    } catch ( IOException e ) {
+      throw new ParseException( e );
+    }
+
+    DXFParser parser = this.createParser();
+    parser.addDXFStreamFilter( writer );
+
+    try {
+      InputStream in = new FileInputStream( source );
+
+      try {
+        parser.parse( in, DXFParser.DEFAULT_ENCODING );
+      } finally {
+        in.close();
+      }
+
+      writer.finish();
+    } catch ( IOException e ) {
+      writer.abort();
+      throw new ParseException( e );
+    } catch ( ParseException e ) {
+      writer.abort();
+      throw e;
+    }
+
+    return parser.getDocument();
+  }
+
+  protected String getKey( File source ) throws ParseException {
+    if ( this.directory == null ) {
+      return source.length() + ":" + source.lastModified();
+    }
+
+    try {
+      return getContentHash( source );
+    } catch ( IOException e ) {
+      throw new ParseException( e );
+    }
+  }
+
+  protected File getSnapshotFile( File source, String key ) {
+    if ( this.directory == null ) {
+      return new File( source.getPath() + SNAPSHOT_EXTENSION );
+    }
+
+    return new File( this.directory,
+      key + "-" + DXFSnapshot.FORMAT_VERSION + SNAPSHOT_EXTENSION );
+  }
+
+  /**
+   * @param source
+   * @return the SHA-1 hash of the content as hex string
+   * @throws IOException
+   */
+  public static String getContentHash( File source ) throws IOException {
+    MessageDigest digest;
+
+    try {
+      digest = MessageDigest.getInstance( "SHA-1" );
+    } catch ( NoSuchAlgorithmException e ) {
+      throw new IOException( e.toString() );
+    }
+
+    InputStream in = new FileInputStream( source );
+
+    try {
+      byte[] buffer = new byte[ 65536 ];
+      int count;
+
+      while ( ( count = in.read( buffer ) ) >= 0 ) {
+        digest.update( buffer, 0, count );
+      }
+    } finally {
+      in.close();
+    }
+
+    byte[] hash = digest.digest();
+    StringBuffer buf = new StringBuffer();
+
+    for ( int i = 0; i < hash.length; i++ ) {
+      buf.append( Character.forDigit( ( hash[ i ] >> 4 ) & 0x0f, 16 ) );
+      buf.append( Character.forDigit( hash[ i ] & 0x0f, 16 ) );
+    }
+
+    return buf.toString();
+  }
+
+  /**
+   * @return a new parser, the default parser
+   */
+  protected DXFParser createParser() {
+    return ( DXFParser ) ParserBuilder.createDefaultParser();
+  }
+}
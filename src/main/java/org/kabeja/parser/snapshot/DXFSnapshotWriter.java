@@ -0,0 +1,453 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package org.kabeja.parser.snapshot;
+
+import org.kabeja.dxf.DXFConstants;
+import org.kabeja.parser.DXFValue;
+import org.kabeja.parser.ParseException;
+import org.kabeja.parser.dxf.filter.AbstractDXFStreamFilter;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Records all groups, which pass the filter, into a snapshot file. The
+ * groups are passed unchanged to the next handler, so the snapshot is
+ * created while the document is parsed. The ranges of the entities of each
+ * layer and of each block are indexed, see DXFSnapshot for the format.
+ * <p>
+ * The snapshot is written to a temporary file and moved to the target file
+ * when the EOF group is reached or finish() is called.
+ * </p>
+ */
+public class DXFSnapshotWriter extends AbstractDXFStreamFilter {
+  private final static int STATE_NONE = 0;
+  private final static int STATE_SECTION_NAME = 1;
+  private final static int STATE_SECTION = 2;
+  private File target;
+  private File temp;
+  private DataOutputStream out;
+  private long offset;
+  private Map strings = new HashMap();
+  private List stringList = new ArrayList();
+  private List sections = new ArrayList();
+  private Map layers = new LinkedHashMap();
+  private Map blocks = new LinkedHashMap();
+  private int state = STATE_NONE;
+  private String section;
+  private long sectionStart;
+
+  // the current entity or block
+  private long rangeStart = -1;
+  private String rangeName;
+  private String entityType;
+  private boolean subEntity = false;
+  private boolean endBlock = false;
+  private Set references = new LinkedHashSet();
+
+  /**
+   * @param target         the snapshot file
+   * @param key            the key of the source, which is stored in the
+   *                       snapshot
+   * @param sourceLength   the length of the source
+   * @param sourceModified the modification time of the source
+   * @throws IOException
+   */
+  public DXFSnapshotWriter( File target, String key, long sourceLength,
+                            long sourceModified ) throws IOException {
+    this.target = target;
+    this.temp = new File( target.getPath() + "." + System.nanoTime() + ".tmp" );
+    this.out = new DataOutputStream( new BufferedOutputStream(
+          new FileOutputStream( this.temp ), 65536 ) );
+    this.out.writeInt( DXFSnapshot.MAGIC );
+    this.out.writeInt( DXFSnapshot.FORMAT_VERSION );
+    this.out.writeLong( sourceLength );
+    this.out.writeLong( sourceModified );
+    this.writeString( key );
+    this.offset = this.out.size();
+  }
+
+  public void parseGroup( int groupCode, DXFValue value )
+    throws ParseException {
+    if ( this.out != null ) {
+      try {
+        this.record( groupCode, value.getValue() );
+      } catch ( IOException e ) {
+        this.abort();
+        throw new ParseException( e );
+      }
+    }
+
+    this.handler.parseGroup( groupCode, value );
+
+    if ( ( groupCode == 0 ) && "EOF".equals( value.getValue() ) ) {
+      this.finish();
+    }
+  }
+
+  protected void record( int code, String value ) throws IOException {
+    long start = this.offset;
+
+    if ( code == 0 ) {
+      this.startObject( value, start );
+    } else if ( this.state == STATE_SECTION_NAME ) {
+      this.state = STATE_SECTION;
+      this.section = value;
+    } else if ( this.rangeStart >= 0 ) {
+      if ( ( code == 8 ) && !this.subEntity &&
+        DXFConstants.SECTION_ENTITIES.equals( this.section ) ) {
+        this.rangeName = value;
+      } else if ( ( code == 2 ) && !this.subEntity ) {
+        if ( this.entityType == null ) {
+          // the name of the block
+          if ( this.rangeName == null ) {
+            this.rangeName = value;
+          }
+        } else if ( DXFConstants.ENTITY_TYPE_INSERT.equals( this.entityType ) ||
+          DXFConstants.ENTITY_TYPE_DIMENSION.equals( this.entityType ) ) {
+          this.references.add( value );
+        }
+      }
+    }
+
+    this.writeGroup( code, value );
+
+    if ( ( code == 0 ) && DXFConstants.SECTION_END.equals( value ) ) {
+      if ( this.section != null ) {
+        this.sections.add( new Object[] {
+            this.section, Long.valueOf( this.sectionStart ),
+            Long.valueOf( this.offset )
+          } );
+      }
+
+      this.state = STATE_NONE;
+      this.section = null;
+    }
+  }
+
+  protected void startObject( String type, long start ) {
+    if ( "SECTION".equals( type ) ) {
+      this.endRange( start );
+      this.state = STATE_SECTION_NAME;
+      this.sectionStart = start;
+
+      return;
+    } else if ( DXFConstants.SECTION_END.equals( type ) ) {
+      this.endRange( start );
+
+      return;
+    }
+
+    if ( DXFConstants.SECTION_ENTITIES.equals( this.section ) ) {
+      if ( "VERTEX".equals( type ) || "SEQEND".equals( type ) ||
+        "ATTRIB".equals( type ) ) {
+        this.subEntity = true;
+      } else {
+        this.endRange( start );
+        this.rangeStart = start;
+        this.rangeName = DXFConstants.DEFAULT_LAYER;
+        this.entityType = type;
+        this.subEntity = false;
+      }
+    } else if ( DXFConstants.SECTION_BLOCKS.equals( this.section ) ) {
+      if ( "BLOCK".equals( type ) ) {
+        this.endRange( start );
+        this.rangeStart = start;
+        this.rangeName = null;
+        this.entityType = null;
+        this.endBlock = false;
+      } else if ( this.endBlock ) {
+        this.endRange( start );
+      } else if ( "ENDBLK".equals( type ) ) {
+        this.endBlock = true;
+        this.entityType = type;
+      } else {
+        this.subEntity = "VERTEX".equals( type ) || "SEQEND".equals( type ) ||
+          "ATTRIB".equals( type );
+
+        if ( !this.subEntity ) {
+          this.entityType = type;
+        }
+      }
+    }
+  }
+
+  protected void endRange( long end ) {
+    if ( this.rangeStart < 0 ) {
+      return;
+    }
+
+    if ( DXFConstants.SECTION_BLOCKS.equals( this.section ) ) {
+      if ( this.rangeName != null ) {
+        this.blocks.put( this.rangeName,
+          new Range( this.rangeStart, end, this.references ) );
+      }
+    } else {
+      Range range = ( Range ) this.layers.get( this.rangeName );
+
+      if ( range == null ) {
+        this.layers.put( this.rangeName,
+          new Range( this.rangeStart, end, this.references ) );
+      } else {
+        range.add( this.rangeStart, end, this.references );
+      }
+    }
+
+    this.references.clear();
+    this.rangeStart = -1;
+    this.subEntity = false;
+  }
+
+  protected void writeGroup( int code, String value ) throws IOException {
+    int type = DXFSnapshot.getValueType( code );
+
+    if ( type == DXFSnapshot.TYPE_DOUBLE ) {
+      // integral values are stored as integer
+      if ( this.writeInteger( code, value ) ) {
+        return;
+      }
+
+      try {
+        double d = Double.parseDouble( value );
+
+        if ( Double.toString( d ).equals( value ) ) {
+          this.out.writeByte( DXFSnapshot.TYPE_DOUBLE );
+          this.offset += ( 9 + this.writeVarInt( code ) );
+          this.out.writeDouble( d );
+
+          return;
+        }
+      } catch ( NumberFormatException e ) {
+      }
+    } else if ( type == DXFSnapshot.TYPE_INTEGER ) {
+      if ( this.writeInteger( code, value ) ) {
+        return;
+      }
+    } else if ( type == DXFSnapshot.TYPE_SHARED_STRING ) {
+      Integer index = ( Integer ) this.strings.get( value );
+
+      if ( index == null ) {
+        index = Integer.valueOf( this.stringList.size() );
+        this.strings.put( value, index );
+        this.stringList.add( value );
+      }
+
+      this.out.writeByte( DXFSnapshot.TYPE_SHARED_STRING );
+      this.offset += ( 1 + this.writeVarInt( code ) +
+      this.writeVarInt( index.intValue() ) );
+
+      return;
+    }
+
+    this.out.writeByte( DXFSnapshot.TYPE_STRING );
+    this.offset += ( 1 + this.writeVarInt( code ) + this.writeString( value ) );
+  }
+
+  /**
+   * Write the value as integer if the text is the canonical form.
+   *
+   * @return false if the value was not written
+   */
+  protected boolean writeInteger( int code, String value ) throws IOException {
+    int length = value.length();
+
+    if ( ( length == 0 ) || ( length > 10 ) ) {
+      return false;
+    }
+
+    try {
+      int i = Integer.parseInt( value );
+
+      if ( Integer.toString( i ).equals( value ) ) {
+        this.out.writeByte( DXFSnapshot.TYPE_INTEGER );
+        this.offset += ( 1 + this.writeVarInt( code ) +
+        this.writeVarInt( ( i << 1 ) ^ ( i >> 31 ) ) );
+
+        return true;
+      }
+    } catch ( NumberFormatException e ) {
+    }
+
+    return false;
+  }
+
+  /**
+   * Write an unsigned variable length integer with 7 bits per byte.
+   *
+   * @return the count of written bytes
+   */
+  protected int writeVarInt( int v ) throws IOException {
+    int count = 1;
+
+    while ( ( v & ~0x7F ) != 0 ) {
+      this.out.writeByte( ( v & 0x7F ) | 0x80 );
+      v >>>= 7;
+      count++;
+    }
+
+    this.out.writeByte( v );
+
+    return count;
+  }
+
+  /**
+   * @return the count of written bytes
+   */
+  protected int writeString( String s ) throws IOException {
+    byte[] b = s.getBytes( StandardCharsets.UTF_8 );
+    int count = this.writeVarInt( b.length );
+    this.out.write( b );
+
+    return b.length + count;
+  }
+
+  /**
+   * Write the index and move the snapshot to the target file. Called
+   * automatically with the EOF group.
+   *
+   * @throws ParseException
+   */
+  public void finish() throws ParseException {
+    if ( this.out == null ) {
+      return;
+    }
+
+    try {
+      this.endRange( this.offset );
+
+      long index = this.offset;
+      this.out.writeInt( this.stringList.size() );
+
+      for ( int i = 0; i < this.stringList.size(); i++ ) {
+        this.writeString( ( String ) this.stringList.get( i ) );
+      }
+
+      this.out.writeInt( this.sections.size() );
+
+      for ( int i = 0; i < this.sections.size(); i++ ) {
+        Object[] s = ( Object[] ) this.sections.get( i );
+        this.writeString( ( String ) s[ 0 ] );
+        this.out.writeLong( ( ( Long ) s[ 1 ] ).longValue() );
+        this.out.writeLong( ( ( Long ) s[ 2 ] ).longValue() );
+      }
+
+      this.writeRanges( this.layers );
+      this.writeRanges( this.blocks );
+      this.out.writeLong( index );
+      this.out.close();
+      this.out = null;
+
+      if ( this.target.exists() && !this.target.delete() ) {
+        throw new IOException( "Could not replace " + this.target );
+      }
+
+      if ( !this.temp.renameTo( this.target ) ) {
+        throw new IOException( "Could not move " + this.temp + " to " +
+          this.target );
+      }
+    } catch ( IOException e ) {
+      this.abort();
+      throw new ParseException( e );
+    }
+  }
+
+  /**
+   * Stop recording and remove the temporary file.
+   */
+  public void abort() {
+    if ( this.out != null ) {
+      try {
+        this.out.close();
+      } catch ( IOException e ) {
+      }
+
+      this.out = null;
+    }
+
+    this.temp.delete();
+  }
+
+  protected void writeRanges( Map ranges ) throws IOException {
+    this.out.writeInt( ranges.size() );
+
+    Iterator i = ranges.entrySet().iterator();
+
+    while ( i.hasNext() ) {
+      Map.Entry e = ( Map.Entry ) i.next();
+      Range range = ( Range ) e.getValue();
+      this.writeString( ( String ) e.getKey() );
+      this.out.writeInt( range.count );
+
+      for ( int n = 0; n < ( range.count * 2 ); n++ ) {
+        this.out.writeLong( range.offsets[ n ] );
+      }
+
+      this.out.writeInt( range.references.size() );
+
+      Iterator r = range.references.iterator();
+
+      while ( r.hasNext() ) {
+        this.writeString( ( String ) r.next() );
+      }
+    }
+  }
+
+  /**
+   * The start and end offsets of the groups of a layer or block, adjoining
+   * ranges are merged.
+   */
+  protected static class Range {
+    long[] offsets = new long[ 8 ];
+    int count = 0;
+    Set references = new LinkedHashSet();
+
+    Range( long start, long end, Set references ) {
+      this.add( start, end, references );
+    }
+
+    void add( long start, long end, Set references ) {
+      this.references.addAll( references );
+
+      if ( ( this.count > 0 ) && ( this.offsets[ ( this.count * 2 ) - 1 ] == start ) ) {
+        this.offsets[ ( this.count * 2 ) - 1 ] = end;
+
+        return;
+      }
+
+      if ( ( this.count * 2 ) == this.offsets.length ) {
+        long[] o = new long[ this.offsets.length * 2 ];
+        System.arraycopy( this.offsets, 0, o, 0, this.offsets.length );
+        this.offsets = o;
+      }
+
+      this.offsets[ this.count * 2 ] = start;
+      this.offsets[ ( this.count * 2 ) + 1 ] = end;
+      this.count++;
+    }
+  }
+}
@@ -0,0 +1,205 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package org.kabeja.svg;
+
+import org.kabeja.tools.CodePageEncoder;
+import org.kabeja.tools.DoubleFormatter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes UTF-8 encoded SVG markup to a channel. The markup and the numbers
+ * are written directly into a buffer, which is written to the channel when
+ * full.
+ */
+public class SVGOutput {
+  public final static int DEFAULT_BUFFER_SIZE = 262144;
+  protected WritableByteChannel channel;
+  protected CodePageEncoder encoder = CodePageEncoder.getEncoder( StandardCharsets.UTF_8 );
+  protected byte[] buffer;
+  protected ByteBuffer byteBuffer;
+  protected int position = 0;
+  protected long byteCount = 0;
+
+  public SVGOutput( WritableByteChannel channel ) {
+    this( channel, DEFAULT_BUFFER_SIZE );
+  }
+
+  public SVGOutput( WritableByteChannel channel, int bufferSize ) {
+    this.channel = channel;
+    this.buffer = new byte[ Math.max( bufferSize, 1024 ) ];
+    this.byteBuffer = ByteBuffer.wrap( this.buffer );
+  }
+
+  /**
+   * Writes markup, the String is not escaped.
+   */
+  public void write( String s ) throws IOException {
+    int length = s.length();
+
+    if ( length > ( this.buffer.length / 3 ) ) {
+      this.writeEncoded( s, 0, length );
+
+      return;
+    }
+
+    this.require( length * 3 );
+    this.position = this.encoder.encode( s, 0, length, this.buffer,
+        this.position );
+  }
+
+  public void write( char c ) throws IOException {
+    this.require( 1 );
+    this.buffer[ this.position++ ] = ( byte ) c;
+  }
+
+  /**
+   * Writes character data or an attribute value with the markup characters
+   * escaped.
+   */
+  public void writeText( String s ) throws IOException {
+    int start = 0;
+    int length = s.length();
+
+    for ( int i = 0; i < length; i++ ) {
+      String entity = null;
+
+      switch ( s.charAt( i ) ) {
+        case '<':
+          entity = "&lt;";
+
+          break;
+
+        case '>':
+          entity = "&gt;";
+
+          break;
+
+        case '&':
+          entity = "&amp;";
+
+          break;
+
+        case '"':
+          entity = "&quot;";
+
+          break;
+
+        default:
+
+          if ( s.charAt( i ) < ' ' ) {
+            // not allowed in XML 1.0
+            entity = " ";
+          }
+      }
+
+      if ( entity != null ) {
+        this.writeEncoded( s, start, i );
+        this.write( entity );
+        start = i + 1;
+      }
+    }
+
+    this.writeEncoded( s, start, length );
+  }
+
+  /**
+   * Writes the fixed precision number m * 10^-fractionDigits.
+   */
+  public void writeScaled( long m, int fractionDigits ) throws IOException {
+    this.require( DoubleFormatter.MAX_LENGTH );
+    this.position = DoubleFormatter.formatScaled( m, fractionDigits,
+        this.buffer, this.position );
+  }
+
+  /**
+   * Writes the double with all significant digits, integers without
+   * fraction.
+   */
+  public void writeNumber( double v ) throws IOException {
+    this.require( DoubleFormatter.MAX_LENGTH );
+    this.position = DoubleFormatter.format( v, this.buffer, this.position );
+
+    if ( ( this.buffer[ this.position - 1 ] == '0' ) &&
+      ( this.buffer[ this.position - 2 ] == '.' ) ) {
+      this.position -= 2;
+    }
+  }
+
+  public void writeInt( long v ) throws IOException {
+    this.require( DoubleFormatter.MAX_LENGTH );
+    this.position = DoubleFormatter.formatLong( v, this.buffer, this.position );
+  }
+
+  /**
+   * @return the count of bytes written to the channel and in the buffer
+   */
+  public long getByteCount() { return this.byteCount + this.position; }
+
+  /**
+   * Writes the buffer to the channel.
+   */
+  public void flush() throws IOException {
+    this.byteBuffer.clear();
+    this.byteBuffer.limit( this.position );
+
+    while ( this.byteBuffer.hasRemaining() ) {
+      this.channel.write( this.byteBuffer );
+    }
+
+    this.byteCount += this.position;
+    this.position = 0;
+  }
+
+  /**
+   * Flushes the buffer and closes the channel.
+   */
+  public void close() throws IOException {
+    try {
+      this.flush();
+    } finally {
+      this.channel.close();
+    }
+  }
+
+  protected void require( int count ) throws IOException {
+    if ( ( this.position + count ) > this.buffer.length ) {
+      this.flush();
+    }
+  }
+
+  protected void writeEncoded( String s, int start, int end )
+    throws IOException {
+    int chunk = ( this.buffer.length / 3 ) - 1;
+
+    while ( start < end ) {
+      int e = Math.min( start + chunk, end );
+
+      if ( ( e < end ) && Character.isHighSurrogate( s.charAt( e - 1 ) ) ) {
+        e--;
+      }
+
+      this.require( ( e - start ) * 3 );
+      this.position = this.encoder.encode( s, start, e, this.buffer,
+          this.position );
+      start = e;
+    }
+  }
+}
@@ -0,0 +1,787 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package org.kabeja.svg;
+
+import org.kabeja.dxf.Bounds;
+import org.kabeja.dxf.DXFArc;
+import org.kabeja.dxf.DXFBlock;
+import org.kabeja.dxf.DXFCircle;
+import org.kabeja.dxf.DXFColor;
+import org.kabeja.dxf.DXFConstants;
+import org.kabeja.dxf.DXFDimension;
+import org.kabeja.dxf.DXFDocument;
+import org.kabeja.dxf.DXFEntity;
+import org.kabeja.dxf.DXFExtrusion;
+import org.kabeja.dxf.DXFHatch;
+import org.kabeja.dxf.DXFInsert;
+import org.kabeja.dxf.DXFLayer;
+import org.kabeja.dxf.DXFLine;
+import org.kabeja.dxf.DXFPolyline;
+import org.kabeja.dxf.DXFSolid;
+import org.kabeja.dxf.DXFText;
+import org.kabeja.dxf.DXFVertex;
+import org.kabeja.dxf.helpers.DXFGeometryConverter;
+import org.kabeja.dxf.helpers.Point;
+import org.kabeja.math.AffineTransform3D;
+import org.kabeja.math.PathBuffer;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringTokenizer;
+
+/**
+ * Streams the model space of a document as SVG without building a DOM.
+ * <p>
+ * The layers are written as groups. Consecutive lines, arcs, circles and
+ * polylines with the same style are merged into one path element; arcs and
+ * bulges are written as SVG arcs, all other curves are flattened with the
+ * tolerance. The coordinates are rounded to a fixed precision and written
+ * relative to the previous point. The referenced blocks are written once
+ * as symbol and each insert as use element, so the size of the output
+ * follows the unique geometry.
+ * </p>
+ * <p>
+ * The drawing coordinates are kept (y up), the outer group mirrors the
+ * y-axis. Colors are inherited with currentColor, so BYLAYER and BYBLOCK
+ * colors follow the layer group and the use element.
+ * </p>
+ */
+public class SVGWriter {
+  public final static String SVG_NAMESPACE = "http://www.w3.org/2000/svg";
+  public final static int DEFAULT_PRECISION = 3;
+  public final static int DEFAULT_MAX_PATH_SEGMENTS = 10000;
+  private final static int COLOR_BYBLOCK = 0;
+  private final static int COLOR_BYLAYER = 256;
+  private final static double LINE_HEIGHT = 1.5;
+  private final static double BULGE_EPSILON = 1.0E-10;
+  private final static int MATRIX_PRECISION = 9;
+  protected int precision = DEFAULT_PRECISION;
+  protected double tolerance = DXFGeometryConverter.DEFAULT_TOLERANCE;
+  protected int maxPathSegments = DEFAULT_MAX_PATH_SEGMENTS;
+  protected int bufferSize = SVGOutput.DEFAULT_BUFFER_SIZE;
+
+  // the state while writing
+  protected SVGOutput out;
+  protected DXFDocument doc;
+  protected double scale;
+  protected Map blockIDs = new HashMap();
+  protected String[] colorStyles = new String[ 257 ];
+  protected boolean inBlock;
+  protected PathBuffer buffer = new PathBuffer( 256 );
+  protected AffineTransform3D transform = new AffineTransform3D();
+  protected double[] matrix = new double[ 12 ];
+
+  // the open path
+  protected boolean pathOpen = false;
+  protected String pathStyle;
+  protected boolean pathFilled;
+  protected int pathSegments;
+  protected char lastCommand;
+  protected long penX;
+  protected long penY;
+
+  /**
+   * @param precision the count of fraction digits of the coordinates
+   */
+  public void setPrecision( int precision ) {
+    this.precision = Math.max( 0, Math.min( precision, 9 ) );
+  }
+
+  /**
+   * @param tolerance the maximal distance between curves and their
+   *                  flattened segments
+   */
+  public void setTolerance( double tolerance ) { this.tolerance = tolerance; }
+
+  /**
+   * @param segments the maximal count of segments of a merged path
+   */
+  public void setMaxPathSegments( int segments ) { this.maxPathSegments = segments; }
+
+  public void setBufferSize( int bufferSize ) { this.bufferSize = bufferSize; }
+
+  public void write( DXFDocument doc, String file ) throws IOException {
+    FileOutputStream out = new FileOutputStream( file );
+
+    try {
+      this.write( doc, out.getChannel() );
+    } finally {
+      out.close();
+    }
+  }
+
+  /**
+   * Writes the document, the stream is not closed.
+   */
+  public void write( DXFDocument doc, OutputStream out )
+    throws IOException {
+    this.write( doc, Channels.newChannel( out ) );
+    out.flush();
+  }
+
+  /**
+   * Writes the document, the channel is not closed.
+   */
+  public void write( DXFDocument doc, WritableByteChannel channel )
+    throws IOException {
+    this.out = new SVGOutput( channel, this.bufferSize );
+    this.doc = doc;
+    this.scale = Math.pow( 10.0, this.precision );
+    this.blockIDs.clear();
+
+    for ( int i = 0; i < this.colorStyles.length; i++ ) {
+      this.colorStyles[ i ] = null;
+    }
+
+    try {
+      this.writeDocument();
+      this.out.flush();
+    } finally {
+      this.out = null;
+      this.doc = null;
+    }
+  }
+
+  protected void writeDocument() throws IOException {
+    List layers = this.getLayers();
+    Bounds b = this.getBounds( layers );
+    double width = Math.max( b.getWidth(), 1.0E-6 );
+    double height = Math.max( b.getHeight(), 1.0E-6 );
+    double margin = Math.max( width, height ) * 0.01;
+
+    this.out.write( "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<svg xmlns=\"" );
+    this.out.write( SVG_NAMESPACE );
+    this.out.write( "\" viewBox=\"" );
+    this.out.writeScaled( this.quantize( b.getMinimumX() - margin ),
+      this.precision );
+    this.out.write( ' ' );
+    this.out.writeScaled( this.quantize( -b.getMaximumY() - margin ),
+      this.precision );
+    this.out.write( ' ' );
+    this.out.writeScaled( this.quantize( width + ( 2 * margin ) ),
+      this.precision );
+    this.out.write( ' ' );
+    this.out.writeScaled( this.quantize( height + ( 2 * margin ) ),
+      this.precision );
+    this.out.write( "\">\n" );
+    this.writeSymbols( layers );
+    this.out.write( "<g transform=\"scale(1 -1)\" fill=\"none\" stroke=\"currentColor\" stroke-linecap=\"round\" stroke-linejoin=\"round\" stroke-width=\"" );
+    this.writeRounded( Math.max( width, height ) / 1000.0 );
+    this.out.write( "\">\n" );
+
+    for ( int i = 0; i < layers.size(); i++ ) {
+      this.writeLayer( ( DXFLayer ) layers.get( i ), i );
+    }
+
+    this.out.write( "</g>\n</svg>\n" );
+  }
+
+  /**
+   * @return the visible layers sorted by name
+   */
+  protected List getLayers() {
+    List names = new ArrayList();
+    Iterator i = this.doc.getDXFLayerIterator();
+
+    while ( i.hasNext() ) {
+      DXFLayer layer = ( DXFLayer ) i.next();
+
+      if ( layer.isVisible() && !layer.isFrozen() ) {
+        names.add( layer.getName() );
+      }
+    }
+
+    Collections.sort( names );
+
+    List layers = new ArrayList( names.size() );
+
+    for ( int j = 0; j < names.size(); j++ ) {
+      layers.add( this.doc.getDXFLayer( ( String ) names.get( j ) ) );
+    }
+
+    return layers;
+  }
+
+  protected Bounds getBounds( List layers ) {
+    Bounds bounds = new Bounds();
+
+    for ( int i = 0; i < layers.size(); i++ ) {
+      Bounds b = ( ( DXFLayer ) layers.get( i ) ).getBounds( true );
+
+      if ( b.isValid() ) {
+        bounds.addToBounds( b );
+      }
+    }
+
+    if ( !bounds.isValid() ) {
+      bounds.addToBounds( 0.0, 0.0, 0.0 );
+    }
+
+    return bounds;
+  }
+
+  /**
+   * Writes the blocks referenced from the layers, directly or by other
+   * blocks.
+   */
+  protected void writeSymbols( List layers ) throws IOException {
+    Set referenced = new LinkedHashSet();
+
+    for ( int i = 0; i < layers.size(); i++ ) {
+      DXFLayer layer = ( DXFLayer ) layers.get( i );
+      this.collectReferences( layer.getDXFEntities( DXFConstants.ENTITY_TYPE_INSERT ),
+        referenced );
+      this.collectReferences( layer.getDXFEntities( DXFConstants.ENTITY_TYPE_DIMENSION ),
+        referenced );
+    }
+
+    if ( referenced.isEmpty() ) {
+      return;
+    }
+
+    this.out.write( "<defs>\n" );
+    this.inBlock = true;
+
+    Iterator i = referenced.iterator();
+
+    while ( i.hasNext() ) {
+      DXFBlock block = this.doc.getDXFBlock( ( String ) i.next() );
+      this.out.write( "<symbol id=\"" );
+      this.out.write( this.getBlockID( block.getName() ) );
+      this.out.write( "\" overflow=\"visible\">" );
+
+      Iterator e = block.getDXFEntitiesIterator();
+
+      while ( e.hasNext() ) {
+        this.writeEntity( ( DXFEntity ) e.next() );
+      }
+
+      this.closePath();
+      this.out.write( "</symbol>\n" );
+    }
+
+    this.inBlock = false;
+    this.out.write( "</defs>\n" );
+  }
+
+  protected void collectReferences( List entities, Set referenced ) {
+    if ( entities == null ) {
+      return;
+    }
+
+    for ( int i = 0; i < entities.size(); i++ ) {
+      DXFEntity entity = ( DXFEntity ) entities.get( i );
+      String name = null;
+
+      if ( entity instanceof DXFInsert ) {
+        name = ( ( DXFInsert ) entity ).getBlockID();
+      } else if ( entity instanceof DXFDimension ) {
+        name = ( ( DXFDimension ) entity ).getDimensionBlock();
+      }
+
+      DXFBlock block = ( name != null ) ? this.doc.getDXFBlock( name ) : null;
+
+      if ( ( block != null ) && !referenced.contains( name ) ) {
+        // the nested blocks first
+        List nested = new ArrayList();
+        Iterator e = block.getDXFEntitiesIterator();
+
+        while ( e.hasNext() ) {
+          nested.add( e.next() );
+        }
+
+        referenced.add( name );
+        this.collectReferences( nested, referenced );
+      }
+    }
+  }
+
+  protected String getBlockID( String name ) {
+    String id = ( String ) this.blockIDs.get( name );
+
+    if ( id == null ) {
+      id = "block" + this.blockIDs.size();
+      this.blockIDs.put( name, id );
+    }
+
+    return id;
+  }
+
+  protected void writeLayer( DXFLayer layer, int index ) throws IOException {
+    List types = new ArrayList();
+    Iterator i = layer.getDXFEntityTypeIterator();
+
+    while ( i.hasNext() ) {
+      types.add( i.next() );
+    }
+
+    Collections.sort( types );
+    this.out.write( "<g id=\"layer" );
+    this.out.writeInt( index );
+    this.out.write( '"' );
+    this.out.write( this.getColorStyle( layer.getColor() ) );
+
+    if ( layer.getLineWeight() > 0 ) {
+      this.writeLineWeight( layer.getLineWeight() );
+    }
+
+    this.out.write( "><title>" );
+    this.out.writeText( layer.getName() );
+    this.out.write( "</title>\n" );
+
+    for ( int t = 0; t < types.size(); t++ ) {
+      List entities = layer.getDXFEntities( ( String ) types.get( t ) );
+
+      for ( int e = 0; e < entities.size(); e++ ) {
+        DXFEntity entity = ( DXFEntity ) entities.get( e );
+
+        if ( entity.isModelSpace() ) {
+          this.writeEntity( entity );
+        }
+      }
+    }
+
+    this.closePath();
+    this.out.write( "</g>\n" );
+  }
+
+  protected void writeEntity( DXFEntity entity ) throws IOException {
+    if ( !entity.isVisibile() ) {
+      return;
+    }
+
+    if ( entity instanceof DXFInsert ) {
+      this.writeInsert( ( DXFInsert ) entity );
+    } else if ( entity instanceof DXFDimension ) {
+      DXFDimension dimension = ( DXFDimension ) entity;
+
+      if ( this.doc.getDXFBlock( dimension.getDimensionBlock() ) != null ) {
+        this.closePath();
+        this.writeUse( dimension.getDimensionBlock(),
+          dimension.getTransform( this.transform.setToIdentity() ), entity );
+      }
+    } else if ( entity instanceof DXFText ) {
+      this.closePath();
+      this.writeText( ( DXFText ) entity );
+    } else if ( this.isPlanar( entity ) && ( entity instanceof DXFLine ) ) {
+      DXFLine line = ( DXFLine ) entity;
+      this.startSegments( entity, false );
+      this.moveTo( line.getStartPoint().getX(), line.getStartPoint().getY() );
+      this.lineTo( line.getEndPoint().getX(), line.getEndPoint().getY() );
+    } else if ( this.isPlanar( entity ) && ( entity instanceof DXFArc ) ) {
+      this.writeArc( ( DXFArc ) entity );
+    } else if ( this.isPlanar( entity ) && ( entity instanceof DXFCircle ) ) {
+      DXFCircle circle = ( DXFCircle ) entity;
+      Point c = circle.getCenterPoint();
+      long r = this.quantize( circle.getRadius() );
+      this.startSegments( entity, false );
+      this.moveTo( this.quantize( c.getX() ) + r, this.quantize( c.getY() ) );
+      this.arcTo( r, false, true, this.penX - ( 2 * r ), this.penY );
+      this.arcTo( r, false, true, this.penX + ( 2 * r ), this.penY );
+      this.command( 'z' );
+    } else if ( this.isPlanar( entity ) && ( entity instanceof DXFPolyline ) &&
+      this.isSimplePolyline( ( DXFPolyline ) entity ) ) {
+      this.writePolyline( ( DXFPolyline ) entity );
+    } else {
+      this.buffer.clear();
+
+      if ( DXFGeometryConverter.toPath( entity, this.tolerance, this.buffer ) ) {
+        boolean filled = ( entity instanceof DXFSolid ) ||
+          ( ( entity instanceof DXFHatch ) && ( ( DXFHatch ) entity ).isSolid() );
+        this.startSegments( entity, filled );
+        this.writePathBuffer( this.buffer );
+      }
+    }
+  }
+
+  /**
+   * @return true if the entity lies in the x-y plane of the world
+   *         coordinate system
+   */
+  protected boolean isPlanar( DXFEntity entity ) {
+    DXFExtrusion e = entity.getExtrusion();
+
+    return ( e == null ) ||
+      ( ( Math.abs( e.getX() ) < BULGE_EPSILON ) &&
+      ( Math.abs( e.getY() ) < BULGE_EPSILON ) && ( e.getZ() > 0.0 ) );
+  }
+
+  protected boolean isSimplePolyline( DXFPolyline pline ) {
+    return ( pline.getVertexCount() > 0 ) && !pline.isSplineFitVerticesAdded() &&
+      !pline.isCurveFitVerticesAdded() && !pline.is3DPolygon() &&
+      !pline.is3DPolygonMesh() && !pline.isPolyfaceMesh();
+  }
+
+  protected void writeInsert( DXFInsert insert ) throws IOException {
+    if ( this.doc.getDXFBlock( insert.getBlockID() ) == null ) {
+      return;
+    }
+
+    this.closePath();
+
+    int rows = Math.max( insert.getRows(), 1 );
+    int columns = Math.max( insert.getColumns(), 1 );
+
+    for ( int r = 0; r < rows; r++ ) {
+      for ( int c = 0; c < columns; c++ ) {
+        this.writeUse( insert.getBlockID(),
+          insert.getTransform( r, c, this.transform.setToIdentity() ), insert );
+      }
+    }
+  }
+
+  /**
+   * Writes a use element with the x-y part of the transformation.
+   */
+  protected void writeUse( String block, AffineTransform3D t, DXFEntity entity )
+    throws IOException {
+    t.getMatrix( this.matrix );
+    this.out.write( "<use href=\"#" );
+    this.out.write( this.getBlockID( block ) );
+    this.out.write( '"' );
+
+    if ( !t.isIdentity() ) {
+      double s = Math.pow( 10.0, MATRIX_PRECISION );
+      this.out.write( " transform=\"matrix(" );
+      this.out.writeScaled( Math.round( this.matrix[ 0 ] * s ), MATRIX_PRECISION );
+      this.out.write( ' ' );
+      this.out.writeScaled( Math.round( this.matrix[ 4 ] * s ), MATRIX_PRECISION );
+      this.out.write( ' ' );
+      this.out.writeScaled( Math.round( this.matrix[ 1 ] * s ), MATRIX_PRECISION );
+      this.out.write( ' ' );
+      this.out.writeScaled( Math.round( this.matrix[ 5 ] * s ), MATRIX_PRECISION );
+      this.out.write( ' ' );
+      this.out.writeScaled( this.quantize( this.matrix[ 3 ] ), this.precision );
+      this.out.write( ' ' );
+      this.out.writeScaled( this.quantize( this.matrix[ 7 ] ), this.precision );
+      this.out.write( ")\"" );
+    }
+
+    this.out.write( this.getStyle( entity ) );
+    this.out.write( "/>\n" );
+  }
+
+  protected void writeText( DXFText text ) throws IOException {
+    String content = ( text.getTextDocument() != null )
+      ? text.getTextDocument().getText() : text.getText();
+
+    if ( ( content == null ) || ( content.trim().length() == 0 ) ||
+      !this.isPlanar( text ) ) {
+      return;
+    }
+
+    Point p = text.calculateAlignmentPoint();
+    double height = text.getHeight();
+    this.out.write( "<text transform=\"translate(" );
+    this.out.writeScaled( this.quantize( p.getX() ), this.precision );
+    this.out.write( ' ' );
+    this.out.writeScaled( this.quantize( p.getY() ), this.precision );
+    this.out.write( ')' );
+
+    if ( text.getRotation() != 0.0 ) {
+      this.out.write( " rotate(" );
+      this.out.writeNumber( text.getRotation() );
+      this.out.write( ')' );
+    }
+
+    this.out.write( " scale(1 -1)\" stroke=\"none\" fill=\"currentColor\" font-size=\"" );
+    this.out.writeNumber( height );
+    this.out.write( '"' );
+
+    switch ( text.getAlign() ) {
+      case DXFText.ALIGN_CENTER:
+      case DXFText.ALIGN_MIDDLE:
+        this.out.write( " text-anchor=\"middle\"" );
+
+        break;
+
+      case DXFText.ALIGN_RIGHT:
+        this.out.write( " text-anchor=\"end\"" );
+
+        break;
+    }
+
+    this.out.write( this.getStyle( text ) );
+    this.out.write( '>' );
+
+    if ( content.indexOf( '\n' ) < 0 ) {
+      this.out.writeText( content );
+    } else {
+      StringTokenizer st = new StringTokenizer( content, "\n" );
+      boolean first = true;
+
+      while ( st.hasMoreTokens() ) {
+        this.out.write( "<tspan x=\"0\"" );
+
+        if ( !first ) {
+          this.out.write( " dy=\"" );
+          this.out.writeNumber( height * LINE_HEIGHT );
+          this.out.write( '"' );
+        }
+
+        this.out.write( '>' );
+        this.out.writeText( st.nextToken() );
+        this.out.write( "</tspan>" );
+        first = false;
+      }
+    }
+
+    this.out.write( "</text>\n" );
+  }
+
+  protected void writeArc( DXFArc arc ) throws IOException {
+    Point c = arc.getCenterPoint();
+    double r = arc.getRadius();
+    double start = Math.toRadians( arc.getStartAngle() );
+    double sweep = Math.toRadians( arc.getTotalAngle() );
+    long qr = this.quantize( r );
+    this.startSegments( arc, false );
+    this.moveTo( c.getX() + ( r * Math.cos( start ) ),
+      c.getY() + ( r * Math.sin( start ) ) );
+
+    // SVG arcs up to a half circle are unambiguous
+    int parts = ( sweep > Math.PI ) ? 2 : 1;
+
+    for ( int i = 1; i <= parts; i++ ) {
+      double a = start + ( ( sweep * i ) / parts );
+      this.arcTo( qr, false, true, this.quantize( c.getX() + ( r * Math.cos( a ) ) ),
+        this.quantize( c.getY() + ( r * Math.sin( a ) ) ) );
+    }
+  }
+
+  protected void writePolyline( DXFPolyline pline ) throws IOException {
+    int count = pline.getVertexCount();
+    this.startSegments( pline, false );
+
+    DXFVertex first = pline.getVertex( 0 );
+    DXFVertex v = first;
+    this.moveTo( v.getX(), v.getY() );
+
+    int segments = pline.isClosed() ? count : ( count - 1 );
+
+    for ( int i = 1; i <= segments; i++ ) {
+      DXFVertex next = ( i < count ) ? pline.getVertex( i ) : first;
+      double bulge = v.getBulge();
+
+      if ( Math.abs( bulge ) < BULGE_EPSILON ) {
+        this.lineTo( next.getX(), next.getY() );
+      } else {
+        double dx = next.getX() - v.getX();
+        double dy = next.getY() - v.getY();
+        double chord = Math.sqrt( ( dx * dx ) + ( dy * dy ) );
+        double r = ( chord * ( 1 + ( bulge * bulge ) ) ) / ( 4 * Math.abs( bulge ) );
+        this.arcTo( this.quantize( r ), Math.abs( bulge ) > 1.0, bulge > 0,
+          this.quantize( next.getX() ), this.quantize( next.getY() ) );
+      }
+
+      v = next;
+    }
+
+    if ( pline.isClosed() ) {
+      this.command( 'z' );
+    }
+  }
+
+  protected void writePathBuffer( PathBuffer path ) throws IOException {
+    for ( int part = 0; part < path.getPartCount(); part++ ) {
+      int start = path.getPartStart( part );
+      int end = path.getPartEnd( part );
+      this.moveTo( path.getX( start ), path.getY( start ) );
+
+      if ( ( end - start ) == 1 ) {
+        // a point as dot of the round line cap
+        this.lineTo( path.getX( start ), path.getY( start ) );
+      }
+
+      for ( int i = start + 1; i < end; i++ ) {
+        this.lineTo( path.getX( i ), path.getY( i ) );
+      }
+
+      if ( path.isClosed( part ) ) {
+        this.command( 'z' );
+      }
+    }
+  }
+
+  /**
+   * Opens a new path if the style differs from the open path or the path
+   * is full.
+   */
+  protected void startSegments( DXFEntity entity, boolean filled )
+    throws IOException {
+    String style = this.getStyle( entity );
+
+    if ( this.pathOpen &&
+      ( ( filled != this.pathFilled ) || !style.equals( this.pathStyle ) ||
+      ( this.pathSegments >= this.maxPathSegments ) ) ) {
+      this.closePath();
+    }
+
+    if ( !this.pathOpen ) {
+      this.out.write( filled
+        ? "<path fill=\"currentColor\" fill-rule=\"evenodd\" stroke=\"none\"" : "<path" );
+      this.out.write( style );
+      this.out.write( " d=\"" );
+      this.pathOpen = true;
+      this.pathStyle = style;
+      this.pathFilled = filled;
+      this.pathSegments = 0;
+      this.lastCommand = 0;
+    }
+  }
+
+  protected void closePath() throws IOException {
+    if ( this.pathOpen ) {
+      this.out.write( "\"/>\n" );
+      this.pathOpen = false;
+    }
+  }
+
+  protected long quantize( double v ) { return Math.round( v * this.scale ); }
+
+  protected void moveTo( double x, double y ) throws IOException {
+    this.moveTo( this.quantize( x ), this.quantize( y ) );
+  }
+
+  protected void moveTo( long x, long y ) throws IOException {
+    if ( ( this.lastCommand != 0 ) && ( this.lastCommand != 'z' ) &&
+      ( x == this.penX ) && ( y == this.penY ) ) {
+      // continues the last segment
+      return;
+    }
+
+    this.command( 'M' );
+    this.out.writeScaled( x, this.precision );
+    this.out.write( ' ' );
+    this.out.writeScaled( y, this.precision );
+    this.penX = x;
+    this.penY = y;
+    this.pathSegments++;
+  }
+
+  protected void lineTo( double x, double y ) throws IOException {
+    long qx = this.quantize( x );
+    long qy = this.quantize( y );
+    this.command( 'l' );
+    this.out.writeScaled( qx - this.penX, this.precision );
+    this.out.write( ' ' );
+    this.out.writeScaled( qy - this.penY, this.precision );
+    this.penX = qx;
+    this.penY = qy;
+    this.pathSegments++;
+  }
+
+  protected void arcTo( long r, boolean large, boolean counterClockwise, long x,
+                        long y ) throws IOException {
+    this.command( 'a' );
+    this.out.writeScaled( r, this.precision );
+    this.out.write( ' ' );
+    this.out.writeScaled( r, this.precision );
+    this.out.write( large ? " 0 1 " : " 0 0 " );
+    this.out.write( counterClockwise ? "1 " : "0 " );
+    this.out.writeScaled( x - this.penX, this.precision );
+    this.out.write( ' ' );
+    this.out.writeScaled( y - this.penY, this.precision );
+    this.penX = x;
+    this.penY = y;
+    this.pathSegments++;
+  }
+
+  /**
+   * Writes the command letter or a separator if the command repeats.
+   */
+  protected void command( char c ) throws IOException {
+    if ( c == 'z' ) {
+      this.out.write( c );
+    } else if ( ( c == this.lastCommand ) && ( c != 'M' ) ) {
+      this.out.write( ' ' );
+    } else {
+      this.out.write( c );
+    }
+
+    this.lastCommand = c;
+  }
+
+  /**
+   * @return the attributes for the color and the line weight of the
+   *         entity, which differ from the inherited values
+   */
+  protected String getStyle( DXFEntity entity ) {
+    String color = "";
+    byte[] rgb = entity.getColorRGB();
+
+    if ( rgb != null ) {
+      color = " color=\"rgb(" + ( rgb[ 0 ] & 0xff ) + "," + ( rgb[ 1 ] & 0xff ) +
+        "," + ( rgb[ 2 ] & 0xff ) + ")\"";
+    } else if ( entity.getColor() == COLOR_BYLAYER ) {
+      if ( this.inBlock &&
+        !DXFConstants.DEFAULT_LAYER.equals( entity.getLayerName() ) ) {
+        // the layer group is the one of the insert
+        color = this.getColorStyle( this.doc.getDXFLayer( entity.getLayerName() )
+                                            .getColor() );
+      }
+    } else if ( entity.getColor() != COLOR_BYBLOCK ) {
+      color = this.getColorStyle( entity.getColor() );
+    }
+
+    if ( entity.getLineWeight() > 0 ) {
+      return color + " stroke-width=\"" + ( entity.getLineWeight() / 100.0 ) +
+      "\"";
+    }
+
+    return color;
+  }
+
+  protected String getColorStyle( int color ) {
+    if ( ( color <= 0 ) || ( color >= this.colorStyles.length ) ) {
+      return "";
+    }
+
+    if ( this.colorStyles[ color ] == null ) {
+      this.colorStyles[ color ] = " color=\"rgb(" + DXFColor.getRGBString( color ) +
+        ")\"";
+    }
+
+    return this.colorStyles[ color ];
+  }
+
+  /**
+   * Writes the value with two significant digits.
+   */
+  protected void writeRounded( double v ) throws IOException {
+    int digits = Math.max( 0,
+        Math.min( 1 - ( int ) Math.floor( Math.log10( v ) ), 17 ) );
+    this.out.writeScaled( Math.round( v * Math.pow( 10.0, digits ) ), digits );
+  }
+
+  protected void writeLineWeight( int lineWeight ) throws IOException {
+    this.out.write( " stroke-width=\"" );
+    this.out.writeNumber( lineWeight / 100.0 );
+    this.out.write( '"' );
+  }
+}
@@ -0,0 +1,187 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package org.kabeja.tools;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Hashtable;
+
+/**
+ * Decodes the bytes of a line to a String. A line of ASCII characters is
+ * copied directly, for single-byte codepages (ANSI_125x, DOS) the other
+ * bytes are mapped through a table, which is built once per codepage. Only
+ * lines with non-ASCII characters of a multi-byte encoding are decoded by
+ * the Charset.
+ */
+public abstract class CodePageDecoder {
+  private static Hashtable decoders = new Hashtable();
+  protected Charset charset;
+
+  protected CodePageDecoder( Charset charset ) {
+    this.charset = charset;
+  }
+
+  /**
+   * @param encoding the name of the encoding
+   * @return the decoder for the encoding
+   * @throws UnsupportedEncodingException if the encoding is not supported
+   */
+  public static CodePageDecoder getDecoder( String encoding )
+    throws UnsupportedEncodingException {
+    try {
+      return getDecoder( Charset.forName( encoding ) );
+    } catch ( IllegalArgumentException e ) {
+      throw new UnsupportedEncodingException( encoding );
+    }
+  }
+
+  public static CodePageDecoder getDecoder( Charset charset ) {
+    CodePageDecoder decoder = ( CodePageDecoder ) decoders.get( charset.name() );
+
+    if ( decoder == null ) {
+      char[] table = createTable( charset );
+
+      if ( table != null ) {
+        decoder = new SingleByteDecoder( charset, table );
+      } else {
+        decoder = new MultiByteDecoder( charset );
+      }
+
+      decoders.put( charset.name(), decoder );
+    }
+
+    return decoder;
+  }
+
+  /**
+   * Builds the table of a single-byte charset, which is ASCII compatible.
+   *
+   * @return the table or null if the charset is not a single-byte charset
+   */
+  protected static char[] createTable( Charset charset ) {
+    if ( !charset.canEncode() ) {
+      return null;
+    }
+
+    try {
+      if ( charset.newEncoder().maxBytesPerChar() != 1.0f ) {
+        return null;
+      }
+    } catch ( UnsupportedOperationException e ) {
+      return null;
+    }
+
+    char[] table = new char[ 256 ];
+    byte[] b = new byte[ 1 ];
+
+    for ( int i = 0; i < table.length; i++ ) {
+      b[ 0 ] = ( byte ) i;
+
+      String s = new String( b, charset );
+
+      if ( ( s.length() != 1 ) || ( ( i < 0x80 ) && ( s.charAt( 0 ) != i ) ) ) {
+        return null;
+      }
+
+      table[ i ] = s.charAt( 0 );
+    }
+
+    return table;
+  }
+
+  /**
+   * @return the index of the first non-ASCII byte or end
+   */
+  protected static int findNonASCII( byte[] b, int start, int end ) {
+    while ( ( start < end ) && ( b[ start ] >= 0 ) ) {
+      start++;
+    }
+
+    return start;
+  }
+
+  public String getEncoding() { return this.charset.name(); }
+
+  public Charset getCharset() { return this.charset; }
+
+  /**
+   * @param b      the bytes
+   * @param offset the first byte
+   * @param length the count of bytes
+   * @return the decoded String
+   */
+  public abstract String decode( byte[] b, int offset, int length );
+
+  protected static class SingleByteDecoder extends CodePageDecoder {
+    private char[] table;
+
+    protected SingleByteDecoder( Charset charset, char[] table ) {
+      super( charset );
+      this.table = table;
+    }
+
+    public String decode( byte[] b, int offset, int length ) {
+      int end = offset + length;
+      int i = findNonASCII( b, offset, end );
+
+      if ( i == end ) {
+        return new String( b, offset, length, StandardCharsets.ISO_8859_1 );
+      }
+
+      char[] c = new char[ length ];
+
+      for ( int n = offset; n < i; n++ ) {
+        c[ n - offset ] = ( char ) b[ n ];
+      }
+
+      for ( ; i < end; i++ ) {
+        c[ i - offset ] = this.table[ b[ i ] & 0xff ];
+      }
+
+      return new String( c );
+    }
+  }
+
+  protected static class MultiByteDecoder extends CodePageDecoder {
+    private boolean asciiCompatible;
+
+    protected MultiByteDecoder( Charset charset ) {
+      super( charset );
+
+      // the stateful and 16 bit encodings are not ASCII compatible
+      byte[] ascii = new byte[ 0x80 ];
+
+      for ( int i = 0; i < ascii.length; i++ ) {
+        ascii[ i ] = ( byte ) i;
+      }
+
+      String s = new String( ascii, charset );
+      this.asciiCompatible = s.equals( new String( ascii,
+            StandardCharsets.ISO_8859_1 ) );
+    }
+
+    public String decode( byte[] b, int offset, int length ) {
+      if ( this.asciiCompatible &&
+        ( findNonASCII( b, offset, offset + length ) == ( offset + length ) ) ) {
+        return new String( b, offset, length, StandardCharsets.ISO_8859_1 );
+      }
+
+      return new String( b, offset, length, this.charset );
+    }
+  }
+}
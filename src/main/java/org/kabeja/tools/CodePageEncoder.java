@@ -0,0 +1,257 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package org.kabeja.tools;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.util.Hashtable;
+
+/**
+ * Encodes Strings directly into a byte array. ASCII characters are copied,
+ * UTF-8 is encoded inline and single-byte codepages use a table, which is
+ * built once per codepage from the table of the CodePageDecoder. Characters
+ * of other encodings are encoded by the Charset.
+ * <p>
+ * Characters, which are not available in the codepage, are written as
+ * \U+XXXX like AutoCAD does.
+ * </p>
+ */
+public abstract class CodePageEncoder {
+  public final static int ESCAPE_LENGTH = 7;
+  private static Hashtable encoders = new Hashtable();
+  private static final byte[] HEX = "0123456789ABCDEF".getBytes( StandardCharsets.US_ASCII );
+  protected Charset charset;
+
+  protected CodePageEncoder( Charset charset ) {
+    this.charset = charset;
+  }
+
+  /**
+   * @param encoding the name of the encoding
+   * @return the encoder for the encoding
+   * @throws UnsupportedEncodingException if the encoding is not supported
+   */
+  public static CodePageEncoder getEncoder( String encoding )
+    throws UnsupportedEncodingException {
+    try {
+      return getEncoder( Charset.forName( encoding ) );
+    } catch ( IllegalArgumentException e ) {
+      throw new UnsupportedEncodingException( encoding );
+    }
+  }
+
+  public static CodePageEncoder getEncoder( Charset charset ) {
+    CodePageEncoder encoder = ( CodePageEncoder ) encoders.get( charset.name() );
+
+    if ( encoder == null ) {
+      char[] table = CodePageDecoder.createTable( charset );
+
+      if ( StandardCharsets.UTF_8.equals( charset ) ) {
+        encoder = new UTF8Encoder( charset );
+      } else if ( table != null ) {
+        encoder = new SingleByteEncoder( charset, table );
+      } else {
+        encoder = new MultiByteEncoder( charset );
+      }
+
+      encoders.put( charset.name(), encoder );
+    }
+
+    return encoder;
+  }
+
+  public String getEncoding() { return this.charset.name(); }
+
+  public Charset getCharset() { return this.charset; }
+
+  /**
+   * @return the maximal count of bytes for one char
+   */
+  public abstract int getMaxBytesPerChar();
+
+  /**
+   * Encodes the chars from start to end. The array must have space for
+   * getMaxBytesPerChar() bytes per char.
+   *
+   * @param s     the String
+   * @param start the first char
+   * @param end   the end (exclusive)
+   * @param b     the byte array
+   * @param off   the first byte to write
+   * @return the offset after the last written byte
+   */
+  public abstract int encode( String s, int start, int end, byte[] b, int off );
+
+  /**
+   * @return the index of the first non-ASCII char or end
+   */
+  protected static int copyASCII( String s, int start, int end, byte[] b,
+                                  int off ) {
+    while ( start < end ) {
+      char c = s.charAt( start );
+
+      if ( c >= 0x80 ) {
+        return start;
+      }
+
+      b[ off++ ] = ( byte ) c;
+      start++;
+    }
+
+    return start;
+  }
+
+  protected static int escape( char c, byte[] b, int off ) {
+    b[ off++ ] = '\\';
+    b[ off++ ] = 'U';
+    b[ off++ ] = '+';
+    b[ off++ ] = HEX[ ( c >> 12 ) & 0xf ];
+    b[ off++ ] = HEX[ ( c >> 8 ) & 0xf ];
+    b[ off++ ] = HEX[ ( c >> 4 ) & 0xf ];
+    b[ off++ ] = HEX[ c & 0xf ];
+
+    return off;
+  }
+
+  protected static class UTF8Encoder extends CodePageEncoder {
+    protected UTF8Encoder( Charset charset ) {
+      super( charset );
+    }
+
+    public int getMaxBytesPerChar() { return 3; }
+
+    public int encode( String s, int start, int end, byte[] b, int off ) {
+      int i = copyASCII( s, start, end, b, off );
+      off += ( i - start );
+
+      for ( ; i < end; i++ ) {
+        char c = s.charAt( i );
+
+        if ( c < 0x80 ) {
+          b[ off++ ] = ( byte ) c;
+        } else if ( c < 0x800 ) {
+          b[ off++ ] = ( byte ) ( 0xc0 | ( c >> 6 ) );
+          b[ off++ ] = ( byte ) ( 0x80 | ( c & 0x3f ) );
+        } else if ( Character.isHighSurrogate( c ) && ( ( i + 1 ) < end ) &&
+          Character.isLowSurrogate( s.charAt( i + 1 ) ) ) {
+          int cp = Character.toCodePoint( c, s.charAt( ++i ) );
+          b[ off++ ] = ( byte ) ( 0xf0 | ( cp >> 18 ) );
+          b[ off++ ] = ( byte ) ( 0x80 | ( ( cp >> 12 ) & 0x3f ) );
+          b[ off++ ] = ( byte ) ( 0x80 | ( ( cp >> 6 ) & 0x3f ) );
+          b[ off++ ] = ( byte ) ( 0x80 | ( cp & 0x3f ) );
+        } else if ( Character.isSurrogate( c ) ) {
+          b[ off++ ] = '?';
+        } else {
+          b[ off++ ] = ( byte ) ( 0xe0 | ( c >> 12 ) );
+          b[ off++ ] = ( byte ) ( 0x80 | ( ( c >> 6 ) & 0x3f ) );
+          b[ off++ ] = ( byte ) ( 0x80 | ( c & 0x3f ) );
+        }
+      }
+
+      return off;
+    }
+  }
+
+  protected static class SingleByteEncoder extends CodePageEncoder {
+    private Hashtable table = new Hashtable();
+
+    protected SingleByteEncoder( Charset charset, char[] decodeTable ) {
+      super( charset );
+
+      for ( int i = 0x80; i < decodeTable.length; i++ ) {
+        if ( decodeTable[ i ] != '\uFFFD' ) {
+          this.table.put( Character.valueOf( decodeTable[ i ] ),
+            Byte.valueOf( ( byte ) i ) );
+        }
+      }
+    }
+
+    public int getMaxBytesPerChar() { return ESCAPE_LENGTH; }
+
+    public int encode( String s, int start, int end, byte[] b, int off ) {
+      int i = copyASCII( s, start, end, b, off );
+      off += ( i - start );
+
+      for ( ; i < end; i++ ) {
+        char c = s.charAt( i );
+
+        if ( c < 0x80 ) {
+          b[ off++ ] = ( byte ) c;
+        } else {
+          Byte value = ( Byte ) this.table.get( Character.valueOf( c ) );
+
+          if ( value != null ) {
+            b[ off++ ] = value.byteValue();
+          } else {
+            off = escape( c, b, off );
+          }
+        }
+      }
+
+      return off;
+    }
+  }
+
+  protected static class MultiByteEncoder extends CodePageEncoder {
+    private int maxBytes;
+
+    protected MultiByteEncoder( Charset charset ) {
+      super( charset );
+      this.maxBytes = Math.max( ( int ) Math.ceil(
+            charset.newEncoder().maxBytesPerChar() ), ESCAPE_LENGTH );
+    }
+
+    public int getMaxBytesPerChar() { return this.maxBytes; }
+
+    public int encode( String s, int start, int end, byte[] b, int off ) {
+      int i = copyASCII( s, start, end, b, off );
+      off += ( i - start );
+
+      if ( i == end ) {
+        return off;
+      }
+
+      // the encoders are not thread-safe, non-ASCII text is rare
+      CharsetEncoder encoder = this.charset.newEncoder();
+      CharBuffer in = CharBuffer.wrap( s, i, end );
+      ByteBuffer out = ByteBuffer.wrap( b, off, b.length - off );
+
+      while ( true ) {
+        CoderResult result = encoder.encode( in, out, true );
+
+        if ( result.isUnmappable() || result.isMalformed() ) {
+          for ( int n = 0; n < result.length(); n++ ) {
+            int p = escape( in.get(), b, out.position() );
+            out.position( p );
+          }
+        } else {
+          break;
+        }
+      }
+
+      encoder.flush( out );
+
+      return out.position();
+    }
+  }
+}
@@ -0,0 +1,227 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package org.kabeja.tools;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Formats doubles with the fewest fraction digits, which parse back to the
+ * same double. The value is scaled by a power of ten until it is an integer
+ * below 2^53; as the integer and the power of ten are exact, the decimal
+ * text is the correctly rounded value. Other values (large, tiny or with
+ * all 17 digits) are formatted by Double.toString().
+ */
+public class DoubleFormatter {
+  public final static int MAX_LENGTH = 32;
+  public final static int MAX_FRACTION_DIGITS = 17;
+  private final static double MAX_EXACT = 9007199254740992.0;
+  private final static double[] POW10 = new double[ MAX_FRACTION_DIGITS + 1 ];
+
+  static {
+    POW10[ 0 ] = 1.0;
+
+    for ( int i = 1; i < POW10.length; i++ ) {
+      // exact up to 10^22
+      POW10[ i ] = POW10[ i - 1 ] * 10.0;
+    }
+  }
+
+  public static String toString( double v ) {
+    byte[] b = new byte[ MAX_LENGTH ];
+    int length = format( v, b, 0 );
+
+    return new String( b, 0, length, StandardCharsets.US_ASCII );
+  }
+
+  /**
+   * Writes the ASCII text of the double.
+   *
+   * @param v   the value
+   * @param b   the array with at least MAX_LENGTH bytes from off
+   * @param off the first byte to write
+   * @return the offset after the last written byte
+   */
+  public static int format( double v, byte[] b, int off ) {
+    if ( v == 0.0 ) {
+      if ( Double.doubleToRawLongBits( v ) != 0L ) {
+        b[ off++ ] = '-';
+      }
+
+      b[ off++ ] = '0';
+      b[ off++ ] = '.';
+      b[ off++ ] = '0';
+
+      return off;
+    }
+
+    double a = Math.abs( v );
+
+    if ( a < MAX_EXACT ) {
+      for ( int k = 0; k < POW10.length; k++ ) {
+        double s = a * POW10[ k ];
+
+        if ( s >= MAX_EXACT ) {
+          break;
+        }
+
+        double m = Math.rint( s );
+
+        if ( ( m / POW10[ k ] ) == a ) {
+          if ( v < 0.0 ) {
+            b[ off++ ] = '-';
+          }
+
+          return writeDecimal( ( long ) m, k, b, off );
+        }
+      }
+    }
+
+    // NaN, infinite or not representable with a long
+    String s = Double.toString( v );
+
+    for ( int i = 0; i < s.length(); i++ ) {
+      b[ off++ ] = ( byte ) s.charAt( i );
+    }
+
+    return off;
+  }
+
+  /**
+   * Writes m * 10^-fractionDigits without trailing zeros and without a
+   * point for integers, like it is used for fixed precision coordinates.
+   *
+   * @param m              the scaled value, for example Math.round(v * 1000)
+   * @param fractionDigits the count of fraction digits of m (0 to 17)
+   * @param b              the array with at least MAX_LENGTH bytes from off
+   * @param off            the first byte to write
+   * @return the offset after the last written byte
+   */
+  public static int formatScaled( long m, int fractionDigits, byte[] b, int off ) {
+    if ( m == 0 ) {
+      b[ off++ ] = '0';
+
+      return off;
+    } else if ( m < 0 ) {
+      if ( m == Long.MIN_VALUE ) {
+        return formatLong( m, b, off );
+      }
+
+      b[ off++ ] = '-';
+      m = -m;
+    }
+
+    while ( ( fractionDigits > 0 ) && ( ( m % 10 ) == 0 ) ) {
+      m /= 10;
+      fractionDigits--;
+    }
+
+    if ( fractionDigits == 0 ) {
+      return formatLong( m, b, off );
+    }
+
+    return writeDecimal( m, fractionDigits, b, off );
+  }
+
+  /**
+   * Writes the digits of a long.
+   *
+   * @return the offset after the last written byte
+   */
+  public static int formatLong( long value, byte[] b, int off ) {
+    if ( value < 0 ) {
+      b[ off++ ] = '-';
+
+      if ( value == Long.MIN_VALUE ) {
+        // the only value without a positive counterpart
+        String s = Long.toString( value ).substring( 1 );
+
+        for ( int i = 0; i < s.length(); i++ ) {
+          b[ off++ ] = ( byte ) s.charAt( i );
+        }
+
+        return off;
+      }
+
+      value = -value;
+    }
+
+    int end = off + digitCount( value );
+    int i = end;
+
+    do {
+      b[ --i ] = ( byte ) ( '0' + ( value % 10 ) );
+      value /= 10;
+    } while ( value != 0 );
+
+    return end;
+  }
+
+  /**
+   * Writes m * 10^-fractionDigits with at least one fraction digit.
+   */
+  protected static int writeDecimal( long m, int fractionDigits, byte[] b,
+                                     int off ) {
+    if ( fractionDigits == 0 ) {
+      off = formatLong( m, b, off );
+      b[ off++ ] = '.';
+      b[ off++ ] = '0';
+
+      return off;
+    }
+
+    int digits = digitCount( m );
+
+    if ( digits <= fractionDigits ) {
+      b[ off++ ] = '0';
+      b[ off++ ] = '.';
+
+      for ( int i = digits; i < fractionDigits; i++ ) {
+        b[ off++ ] = '0';
+      }
+
+      return formatLong( m, b, off );
+    }
+
+    // the digits with a gap for the point
+    int end = off + digits + 1;
+    int point = end - fractionDigits - 1;
+    int i = end;
+
+    while ( i > off ) {
+      if ( --i == point ) {
+        b[ i ] = '.';
+      } else {
+        b[ i ] = ( byte ) ( '0' + ( m % 10 ) );
+        m /= 10;
+      }
+    }
+
+    return end;
+  }
+
+  protected static int digitCount( long value ) {
+    int count = 1;
+
+    while ( value >= 10 ) {
+      value /= 10;
+      count++;
+    }
+
+    return count;
+  }
+}
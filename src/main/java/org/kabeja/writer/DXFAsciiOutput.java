@@ -0,0 +1,103 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package org.kabeja.writer;
+
+import org.kabeja.tools.CodePageEncoder;
+import org.kabeja.tools.DoubleFormatter;
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writes ASCII DXF. The group codes are right aligned to three characters
+ * and the lines end with CR LF like in the files of AutoCAD. Numbers are
+ * formatted directly into the buffer.
+ */
+public class DXFAsciiOutput extends DXFOutput {
+  // the group code line and the line ends
+  protected final static int GROUP_LENGTH = 16;
+  protected boolean crlf = true;
+
+  public DXFAsciiOutput( WritableByteChannel channel, CodePageEncoder encoder ) {
+    this( channel, encoder, DEFAULT_BUFFER_SIZE );
+  }
+
+  public DXFAsciiOutput( WritableByteChannel channel, CodePageEncoder encoder,
+                         int bufferSize ) {
+    super( channel, encoder, bufferSize );
+  }
+
+  /**
+   * @param crlf true (the default) for CR LF line ends, false for LF only
+   */
+  public void setCRLF( boolean crlf ) { this.crlf = crlf; }
+
+  public void output( int groupCode, String value ) throws IOException {
+    this.require( GROUP_LENGTH );
+    this.putGroupCode( groupCode );
+
+    if ( value != null ) {
+      this.putString( value );
+    }
+
+    this.require( 2 );
+    this.putLineEnd();
+  }
+
+  public void output( int groupCode, double value ) throws IOException {
+    this.require( GROUP_LENGTH + DoubleFormatter.MAX_LENGTH );
+    this.putGroupCode( groupCode );
+    this.position = DoubleFormatter.format( value, this.buffer, this.position );
+    this.putLineEnd();
+  }
+
+  public void output( int groupCode, int value ) throws IOException {
+    this.require( GROUP_LENGTH + 12 );
+    this.putGroupCode( groupCode );
+
+    if ( ( value >= 0 ) && ( value < 10 ) ) {
+      this.buffer[ this.position++ ] = ( byte ) ( '0' + value );
+    } else {
+      this.position = DoubleFormatter.formatLong( value, this.buffer,
+          this.position );
+    }
+
+    this.putLineEnd();
+  }
+
+  protected void putGroupCode( int groupCode ) {
+    if ( ( groupCode >= 0 ) && ( groupCode < 100 ) ) {
+      this.buffer[ this.position++ ] = ' ';
+
+      if ( groupCode < 10 ) {
+        this.buffer[ this.position++ ] = ' ';
+      }
+    }
+
+    this.position = DoubleFormatter.formatLong( groupCode, this.buffer,
+        this.position );
+    this.putLineEnd();
+  }
+
+  protected void putLineEnd() {
+    if ( this.crlf ) {
+      this.buffer[ this.position++ ] = '\r';
+    }
+
+    this.buffer[ this.position++ ] = '\n';
+  }
+}
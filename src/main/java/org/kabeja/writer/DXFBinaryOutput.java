@@ -0,0 +1,231 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package org.kabeja.writer;
+
+import org.kabeja.tools.CodePageEncoder;
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes binary DXF (R13 and later). After the sentinel each group is the
+ * group code as 2 byte little-endian integer followed by the value in the
+ * binary type of the group code: strings are zero terminated, integers have
+ * 1, 2, 4 or 8 bytes, doubles 8 bytes and binary chunks a length byte.
+ * Values given as text are converted to the type of the group code.
+ */
+public class DXFBinaryOutput extends DXFOutput {
+  public final static String SENTINEL = "AutoCAD Binary DXF\r\n\u001a\u0000";
+  public final static int TYPE_STRING = 0;
+  public final static int TYPE_DOUBLE = 1;
+  public final static int TYPE_INT16 = 2;
+  public final static int TYPE_INT32 = 3;
+  public final static int TYPE_INT64 = 4;
+  public final static int TYPE_BOOLEAN = 5;
+  public final static int TYPE_BINARY = 6;
+
+  public DXFBinaryOutput( WritableByteChannel channel, CodePageEncoder encoder )
+    throws IOException {
+    this( channel, encoder, DEFAULT_BUFFER_SIZE );
+  }
+
+  public DXFBinaryOutput( WritableByteChannel channel, CodePageEncoder encoder,
+                          int bufferSize ) throws IOException {
+    super( channel, encoder, bufferSize );
+
+    byte[] sentinel = SENTINEL.getBytes( StandardCharsets.US_ASCII );
+    System.arraycopy( sentinel, 0, this.buffer, 0, sentinel.length );
+    this.position = sentinel.length;
+  }
+
+  /**
+   * @return the binary type of the values of the group code
+   */
+  public static int getValueType( int groupCode ) {
+    if ( ( ( groupCode >= 10 ) && ( groupCode <= 59 ) ) ||
+      ( ( groupCode >= 110 ) && ( groupCode <= 149 ) ) ||
+      ( ( groupCode >= 210 ) && ( groupCode <= 239 ) ) ||
+      ( ( groupCode >= 460 ) && ( groupCode <= 469 ) ) ||
+      ( ( groupCode >= 1010 ) && ( groupCode <= 1059 ) ) ) {
+      return TYPE_DOUBLE;
+    } else if ( ( ( groupCode >= 60 ) && ( groupCode <= 79 ) ) ||
+      ( ( groupCode >= 170 ) && ( groupCode <= 179 ) ) ||
+      ( ( groupCode >= 270 ) && ( groupCode <= 289 ) ) ||
+      ( ( groupCode >= 370 ) && ( groupCode <= 389 ) ) ||
+      ( ( groupCode >= 400 ) && ( groupCode <= 409 ) ) ||
+      ( ( groupCode >= 1060 ) && ( groupCode <= 1070 ) ) ) {
+      return TYPE_INT16;
+    } else if ( ( ( groupCode >= 90 ) && ( groupCode <= 99 ) ) ||
+      ( ( groupCode >= 420 ) && ( groupCode <= 429 ) ) ||
+      ( ( groupCode >= 440 ) && ( groupCode <= 459 ) ) ||
+      ( groupCode == 1071 ) ) {
+      return TYPE_INT32;
+    } else if ( ( groupCode >= 160 ) && ( groupCode <= 169 ) ) {
+      return TYPE_INT64;
+    } else if ( ( groupCode >= 290 ) && ( groupCode <= 299 ) ) {
+      return TYPE_BOOLEAN;
+    } else if ( ( ( groupCode >= 310 ) && ( groupCode <= 319 ) ) ||
+      ( groupCode == 1004 ) ) {
+      return TYPE_BINARY;
+    }
+
+    return TYPE_STRING;
+  }
+
+  public void output( int groupCode, String value ) throws IOException {
+    if ( value == null ) {
+      value = "";
+    }
+
+    switch ( getValueType( groupCode ) ) {
+      case TYPE_STRING:
+        this.require( 3 );
+        this.putGroupCode( groupCode );
+        this.putString( value );
+        this.require( 1 );
+        this.buffer[ this.position++ ] = 0;
+
+        break;
+
+      case TYPE_DOUBLE:
+        this.output( groupCode, parseDouble( value ) );
+
+        break;
+
+      case TYPE_INT64:
+        this.putLong( groupCode, ( long ) parseDouble( value ) );
+
+        break;
+
+      case TYPE_BINARY:
+        this.putBinary( groupCode, value );
+
+        break;
+
+      default:
+        this.output( groupCode, ( int ) parseDouble( value ) );
+    }
+  }
+
+  public void output( int groupCode, double value ) throws IOException {
+    switch ( getValueType( groupCode ) ) {
+      case TYPE_DOUBLE:
+        this.require( 10 );
+        this.putGroupCode( groupCode );
+        this.putLittleEndian( Double.doubleToRawLongBits( value ), 8 );
+
+        break;
+
+      case TYPE_STRING:
+      case TYPE_BINARY:
+        this.output( groupCode, Double.toString( value ) );
+
+        break;
+
+      case TYPE_INT64:
+        this.putLong( groupCode, ( long ) value );
+
+        break;
+
+      default:
+        this.output( groupCode, ( int ) value );
+    }
+  }
+
+  public void output( int groupCode, int value ) throws IOException {
+    switch ( getValueType( groupCode ) ) {
+      case TYPE_INT16:
+        this.require( 4 );
+        this.putGroupCode( groupCode );
+        this.putLittleEndian( value, 2 );
+
+        break;
+
+      case TYPE_INT32:
+        this.require( 6 );
+        this.putGroupCode( groupCode );
+        this.putLittleEndian( value, 4 );
+
+        break;
+
+      case TYPE_BOOLEAN:
+        this.require( 3 );
+        this.putGroupCode( groupCode );
+        this.buffer[ this.position++ ] = ( byte ) value;
+
+        break;
+
+      case TYPE_INT64:
+        this.putLong( groupCode, value );
+
+        break;
+
+      case TYPE_DOUBLE:
+        this.output( groupCode, ( double ) value );
+
+        break;
+
+      default:
+        this.output( groupCode, Integer.toString( value ) );
+    }
+  }
+
+  protected void putLong( int groupCode, long value ) throws IOException {
+    this.require( 10 );
+    this.putGroupCode( groupCode );
+    this.putLittleEndian( value, 8 );
+  }
+
+  /**
+   * Writes the hex text of a binary chunk as length byte and data.
+   */
+  protected void putBinary( int groupCode, String hex )
+    throws IOException {
+    int length = Math.min( hex.length() / 2, 255 );
+    this.require( 3 + length );
+    this.putGroupCode( groupCode );
+    this.buffer[ this.position++ ] = ( byte ) length;
+
+    for ( int i = 0; i < length; i++ ) {
+      int high = Character.digit( hex.charAt( 2 * i ), 16 );
+      int low = Character.digit( hex.charAt( ( 2 * i ) + 1 ), 16 );
+      this.buffer[ this.position++ ] = ( byte ) ( ( ( high & 0xf ) << 4 ) |
+        ( low & 0xf ) );
+    }
+  }
+
+  protected void putGroupCode( int groupCode ) {
+    this.buffer[ this.position++ ] = ( byte ) groupCode;
+    this.buffer[ this.position++ ] = ( byte ) ( groupCode >> 8 );
+  }
+
+  protected void putLittleEndian( long value, int bytes ) {
+    for ( int i = 0; i < bytes; i++ ) {
+      this.buffer[ this.position++ ] = ( byte ) value;
+      value >>= 8;
+    }
+  }
+
+  protected static double parseDouble( String value ) {
+    try {
+      return Double.parseDouble( value.trim() );
+    } catch ( NumberFormatException e ) {
+      return 0.0;
+    }
+  }
+}
@@ -0,0 +1,141 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package org.kabeja.writer;
+
+import org.kabeja.dxf.helpers.Point;
+import org.kabeja.tools.CodePageEncoder;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writes groups to a channel. The groups are encoded into a buffer, which is
+ * written to the channel when full, so there is no intermediate object per
+ * group.
+ */
+public abstract class DXFOutput {
+  public final static int DEFAULT_BUFFER_SIZE = 262144;
+  protected WritableByteChannel channel;
+  protected CodePageEncoder encoder;
+  protected byte[] buffer;
+  protected ByteBuffer byteBuffer;
+  protected int position = 0;
+  protected long byteCount = 0;
+
+  /**
+   * @param channel    the channel to write to
+   * @param encoder    the encoder for the text values
+   * @param bufferSize the size of the buffer in bytes
+   */
+  protected DXFOutput( WritableByteChannel channel, CodePageEncoder encoder,
+                       int bufferSize ) {
+    this.channel = channel;
+    this.encoder = encoder;
+    this.buffer = new byte[ Math.max( bufferSize, 1024 ) ];
+    this.byteBuffer = ByteBuffer.wrap( this.buffer );
+  }
+
+  public abstract void output( int groupCode, String value )
+    throws IOException;
+
+  public abstract void output( int groupCode, double value )
+    throws IOException;
+
+  public abstract void output( int groupCode, int value )
+    throws IOException;
+
+  public void output( int groupCode, boolean value ) throws IOException {
+    this.output( groupCode, value ? 1 : 0 );
+  }
+
+  /**
+   * Writes the coordinates with the group codes groupCode, groupCode+10 and
+   * groupCode+20.
+   */
+  public void output( int groupCode, Point p ) throws IOException {
+    this.output( groupCode, p.getX() );
+    this.output( groupCode + 10, p.getY() );
+    this.output( groupCode + 20, p.getZ() );
+  }
+
+  public CodePageEncoder getEncoder() { return this.encoder; }
+
+  /**
+   * @return the count of bytes written to the channel and in the buffer
+   */
+  public long getByteCount() { return this.byteCount + this.position; }
+
+  /**
+   * Writes the buffer to the channel.
+   */
+  public void flush() throws IOException {
+    this.byteBuffer.clear();
+    this.byteBuffer.limit( this.position );
+
+    while ( this.byteBuffer.hasRemaining() ) {
+      this.channel.write( this.byteBuffer );
+    }
+
+    this.byteCount += this.position;
+    this.position = 0;
+  }
+
+  /**
+   * Flushes the buffer and closes the channel.
+   */
+  public void close() throws IOException {
+    try {
+      this.flush();
+    } finally {
+      this.channel.close();
+    }
+  }
+
+  /**
+   * Flushes the buffer if there is less space than count bytes.
+   */
+  protected void require( int count ) throws IOException {
+    if ( ( this.position + count ) > this.buffer.length ) {
+      this.flush();
+    }
+  }
+
+  /**
+   * Encodes the String into the buffer, long Strings are written in parts.
+   */
+  protected void putString( String s ) throws IOException {
+    int max = this.encoder.getMaxBytesPerChar();
+    int chunk = ( this.buffer.length / max ) - 1;
+    int start = 0;
+    int length = s.length();
+
+    while ( start < length ) {
+      int end = Math.min( start + chunk, length );
+
+      if ( ( end < length ) && Character.isHighSurrogate( s.charAt( end - 1 ) ) ) {
+        // keep the surrogate pair together
+        end--;
+      }
+
+      this.require( ( end - start ) * max );
+      this.position = this.encoder.encode( s, start, end, this.buffer,
+          this.position );
+      start = end;
+    }
+  }
+}
@@ -0,0 +1,91 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package org.kabeja.writer;
+
+import org.kabeja.parser.DXFParser;
+import org.kabeja.parser.ParseException;
+import org.kabeja.parser.dxf.filter.DXFStreamRewriteFilter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.channels.WritableByteChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Extracts a subset of the entities of a DXF file into a new file without
+ * building a document. The kept parts of the source file are copied byte
+ * for byte.
+ *
+ * @see DXFStreamRewriteFilter for the properties
+ */
+public class DXFRewriter {
+  protected Map properties = new HashMap();
+
+  public void setProperties( Map properties ) { this.properties = properties; }
+
+  /**
+   * Rewrites the source file to the target file. If both are the same
+   * file, the new file is written to a temporary file, which replaces the
+   * source at the end.
+   */
+  public void rewrite( String source, String target ) throws ParseException {
+    try {
+      File targetFile = new File( target );
+      boolean replace = new File( source ).getCanonicalFile()
+                                          .equals( targetFile.getCanonicalFile() );
+      File file = replace
+        ? File.createTempFile( "rewrite", ".dxf",
+          targetFile.getAbsoluteFile().getParentFile() ) : targetFile;
+
+      try {
+        FileOutputStream out = new FileOutputStream( file );
+
+        try {
+          this.rewrite( source, out.getChannel() );
+        } finally {
+          out.close();
+        }
+
+        if ( replace ) {
+          Files.move( file.toPath(), targetFile.toPath(),
+            StandardCopyOption.REPLACE_EXISTING );
+        }
+      } finally {
+        if ( replace ) {
+          file.delete();
+        }
+      }
+    } catch ( IOException e ) {
+      throw new ParseException( e );
+    }
+  }
+
+  public void rewrite( String source, WritableByteChannel out )
+    throws ParseException {
+    // a parser without section handlers only scans the groups
+    DXFParser parser = new DXFParser();
+    DXFStreamRewriteFilter filter = new DXFStreamRewriteFilter( parser, out );
+    filter.setProperties( this.properties );
+    parser.addDXFStreamFilter( filter );
+    parser.parse( source, DXFParser.DEFAULT_ENCODING );
+    filter.finish();
+  }
+}
@@ -0,0 +1,666 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package org.kabeja.writer;
+
+import org.kabeja.dxf.DXFBlock;
+import org.kabeja.dxf.DXFConstants;
+import org.kabeja.dxf.DXFDimensionStyle;
+import org.kabeja.dxf.DXFDocument;
+import org.kabeja.dxf.DXFEntity;
+import org.kabeja.dxf.DXFHeader;
+import org.kabeja.dxf.DXFLayer;
+import org.kabeja.dxf.DXFLineType;
+import org.kabeja.dxf.DXFStyle;
+import org.kabeja.dxf.DXFVariable;
+import org.kabeja.dxf.DXFView;
+import org.kabeja.dxf.DXFViewport;
+import org.kabeja.dxf.helpers.Point;
+import org.kabeja.dxf.objects.DXFDictionary;
+import org.kabeja.dxf.objects.DXFImageDefObject;
+import org.kabeja.dxf.objects.DXFMLineStyle;
+import org.kabeja.dxf.objects.DXFMLineStyleElement;
+import org.kabeja.dxf.objects.DXFObject;
+import org.kabeja.tools.CodePageEncoder;
+import org.kabeja.writer.entities.DXFEntityWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Writes a DXFDocument as ASCII or binary DXF. The sections are streamed from
+ * the model directly into the buffer of a DXFOutput, the entities are
+ * written by the DXFEntityWriter registered for their type. Entities without
+ * a writer are skipped.
+ * <p>
+ * Only the data kept by the model is written: the HEADER variables, the
+ * tables VPORT, LTYPE, LAYER, STYLE, VIEW and DIMSTYLE, the blocks, the
+ * entities and the dictionaries with the IMAGEDEF and MLINESTYLE objects.
+ * </p>
+ */
+public class DXFWriter {
+  public final static int COMMAND_CODE = 0;
+  public final static int NAME_CODE = 2;
+  public final static int HANDLE_CODE = 5;
+  public final static int HEADER_VARIABLE_CODE = 9;
+  public final static int FLAGS_CODE = 70;
+  public final static int SUBCLASS_CODE = 100;
+  public final static String ACADVER_VARIABLE = "$ACADVER";
+  public final static String DEFAULT_ACADVER = "AC1015";
+  public final static String UTF8_ACADVER = "AC1021";
+  public final static String DEFAULT_ENCODING = "windows-1252";
+
+  /**
+   * The order of the layers in the LAYER table and the ENTITIES section,
+   * so the same document gives always the same file.
+   */
+  protected final static Comparator LAYER_NAME_ORDER = new Comparator() {
+    public int compare( Object o1, Object o2 ) {
+      return ( ( DXFLayer ) o1 ).getName().compareTo( ( ( DXFLayer ) o2 ).getName() );
+    }
+  };
+
+  protected Hashtable writers = new Hashtable();
+  protected boolean binary = false;
+  protected String encoding;
+  protected int bufferSize = DXFOutput.DEFAULT_BUFFER_SIZE;
+
+  public void addDXFEntityWriter( DXFEntityWriter writer ) {
+    this.writers.put( writer.getDXFEntityName(), writer );
+  }
+
+  public DXFEntityWriter getDXFEntityWriter( String type ) {
+    return ( DXFEntityWriter ) this.writers.get( type );
+  }
+
+  public boolean isBinary() { return binary; }
+
+  /**
+   * @param binary true to write binary DXF
+   */
+  public void setBinary( boolean binary ) { this.binary = binary; }
+
+  public String getEncoding() { return encoding; }
+
+  /**
+   * Set the encoding of the strings. Without an encoding the encoding of the
+   * parsed file is used, otherwise UTF-8 for AC1021 and later or
+   * windows-1252 for older versions.
+   *
+   * @param encoding
+   */
+  public void setEncoding( String encoding ) { this.encoding = encoding; }
+
+  public int getBufferSize() { return bufferSize; }
+
+  public void setBufferSize( int bufferSize ) { this.bufferSize = bufferSize; }
+
+  public void write( DXFDocument doc, String file ) throws IOException {
+    FileOutputStream out = new FileOutputStream( file );
+
+    try {
+      this.write( doc, out.getChannel() );
+    } finally {
+      out.close();
+    }
+  }
+
+  /**
+   * Writes the document to the stream, the stream is not closed.
+   */
+  public void write( DXFDocument doc, OutputStream out ) throws IOException {
+    this.write( doc, Channels.newChannel( out ) );
+  }
+
+  /**
+   * Writes the document to the channel, the channel is not closed.
+   */
+  public void write( DXFDocument doc, WritableByteChannel channel )
+    throws IOException {
+    CodePageEncoder encoder = CodePageEncoder.getEncoder( this.getEncoding( doc ) );
+    DXFOutput out = this.binary
+      ? ( DXFOutput ) new DXFBinaryOutput( channel, encoder, this.bufferSize )
+      : new DXFAsciiOutput( channel, encoder, this.bufferSize );
+    this.write( doc, out );
+    out.flush();
+  }
+
+  public void write( DXFDocument doc, DXFOutput out ) throws IOException {
+    this.writeHeader( doc, out );
+    this.writeTables( doc, out );
+    this.writeBlocks( doc, out );
+    this.writeEntities( doc, out );
+    this.writeObjects( doc, out );
+    out.output( COMMAND_CODE, "EOF" );
+  }
+
+  protected String getEncoding( DXFDocument doc ) {
+    String docEncoding = doc.getProperty( DXFDocument.PROPERTY_ENCODING );
+
+    if ( ( this.encoding != null ) && ( this.encoding.length() > 0 ) ) {
+      return this.encoding;
+    } else if ( ( docEncoding != null ) && ( docEncoding.length() > 0 ) ) {
+      return docEncoding;
+    } else if ( this.getVersion( doc ).compareTo( UTF8_ACADVER ) >= 0 ) {
+      return StandardCharsets.UTF_8.name();
+    }
+
+    return DEFAULT_ENCODING;
+  }
+
+  protected String getVersion( DXFDocument doc ) {
+    DXFHeader header = doc.getDXFHeader();
+
+    if ( header.hasVariable( ACADVER_VARIABLE ) ) {
+      String version = header.getVariable( ACADVER_VARIABLE ).getValue( 1 );
+
+      if ( version != null ) {
+        return version;
+      }
+    }
+
+    return DEFAULT_ACADVER;
+  }
+
+  protected void startSection( String name, DXFOutput out )
+    throws IOException {
+    out.output( COMMAND_CODE, "SECTION" );
+    out.output( NAME_CODE, name );
+  }
+
+  protected void endSection( DXFOutput out ) throws IOException {
+    out.output( COMMAND_CODE, "ENDSEC" );
+  }
+
+  protected void writeHeader( DXFDocument doc, DXFOutput out )
+    throws IOException {
+    this.startSection( "HEADER", out );
+    out.output( HEADER_VARIABLE_CODE, ACADVER_VARIABLE );
+    out.output( 1, this.getVersion( doc ) );
+
+    List variables = new ArrayList();
+    Iterator i = doc.getDXFHeader().getVarialbeIterator();
+
+    while ( i.hasNext() ) {
+      DXFVariable v = ( DXFVariable ) i.next();
+
+      if ( !ACADVER_VARIABLE.equals( v.getName() ) ) {
+        variables.add( v );
+      }
+    }
+
+    Collections.sort( variables, new Comparator() {
+      public int compare( Object o1, Object o2 ) {
+        return ( ( DXFVariable ) o1 ).getName().compareTo( ( ( DXFVariable ) o2 ).getName() );
+      }
+    } );
+
+    for ( int n = 0; n < variables.size(); n++ ) {
+      DXFVariable v = ( DXFVariable ) variables.get( n );
+      out.output( HEADER_VARIABLE_CODE, v.getName() );
+
+      for ( int c = 0; c < v.getCodeCount(); c++ ) {
+        out.output( v.getCode( c ), v.getValue( v.getCode( c ) ) );
+      }
+    }
+
+    this.endSection( out );
+  }
+
+  protected void writeTables( DXFDocument doc, DXFOutput out )
+    throws IOException {
+    this.startSection( "TABLES", out );
+    this.writeViewportTable( doc, out );
+    this.writeLineTypeTable( doc, out );
+    this.writeLayerTable( doc, out );
+    this.writeStyleTable( doc, out );
+    this.writeViewTable( doc, out );
+    this.writeDimensionStyleTable( doc, out );
+    this.endSection( out );
+  }
+
+  protected void startTable( String name, Iterator entries, DXFOutput out )
+    throws IOException {
+    int count = 0;
+
+    while ( entries.hasNext() ) {
+      entries.next();
+      count++;
+    }
+
+    out.output( COMMAND_CODE, "TABLE" );
+    out.output( NAME_CODE, name );
+    out.output( SUBCLASS_CODE, "AcDbSymbolTable" );
+    out.output( FLAGS_CODE, count );
+  }
+
+  protected void startTableEntry( String type, String subclass, String name,
+                                  int flags, DXFOutput out )
+    throws IOException {
+    out.output( COMMAND_CODE, type );
+    out.output( SUBCLASS_CODE, "AcDbSymbolTableRecord" );
+    out.output( SUBCLASS_CODE, subclass );
+    out.output( NAME_CODE, name );
+    out.output( FLAGS_CODE, flags );
+  }
+
+  protected void endTable( DXFOutput out ) throws IOException {
+    out.output( COMMAND_CODE, "ENDTAB" );
+  }
+
+  protected void writeViewportTable( DXFDocument doc, DXFOutput out )
+    throws IOException {
+    this.startTable( "VPORT", doc.getDXFViewportIterator(), out );
+
+    Iterator i = doc.getDXFViewportIterator();
+
+    while ( i.hasNext() ) {
+      DXFViewport vp = ( DXFViewport ) i.next();
+      this.startTableEntry( "VPORT", "AcDbViewportTableRecord",
+        vp.getViewportID(), 0, out );
+      this.output2D( 10, vp.getLowerLeftCorner(), out );
+      this.output2D( 11, vp.getUpperRightCorner(), out );
+      this.output2D( 12, vp.getCenterPoint(), out );
+      out.output( 40, vp.getHeight() );
+      out.output( 41, vp.getAspectRatio() );
+    }
+
+    this.endTable( out );
+  }
+
+  protected void writeLineTypeTable( DXFDocument doc, DXFOutput out )
+    throws IOException {
+    this.startTable( "LTYPE", doc.getDXFLineTypeIterator(), out );
+
+    Iterator i = doc.getDXFLineTypeIterator();
+
+    while ( i.hasNext() ) {
+      DXFLineType ltype = ( DXFLineType ) i.next();
+      double[] pattern = ( ltype.getPattern() != null ) ? ltype.getPattern() : new double[ 0 ];
+      this.startTableEntry( "LTYPE", "AcDbLinetypeTableRecord", ltype.getName(),
+        0, out );
+      out.output( 3,
+        ( ltype.getDescritpion() != null ) ? ltype.getDescritpion() : "" );
+      out.output( 72, ( ltype.getAlignment() != 0 ) ? ltype.getAlignment() : 65 );
+      out.output( 73, pattern.length );
+      out.output( 40, ltype.getPatternLength() );
+
+      for ( int n = 0; n < pattern.length; n++ ) {
+        out.output( 49, pattern[ n ] );
+        out.output( 74, 0 );
+      }
+    }
+
+    this.endTable( out );
+  }
+
+  protected void writeLayerTable( DXFDocument doc, DXFOutput out )
+    throws IOException {
+    this.startTable( "LAYER", doc.getDXFLayerIterator(), out );
+
+    Iterator i = this.sort( doc.getDXFLayerIterator(), LAYER_NAME_ORDER );
+
+    while ( i.hasNext() ) {
+      DXFLayer layer = ( DXFLayer ) i.next();
+      this.startTableEntry( "LAYER", "AcDbLayerTableRecord", layer.getName(),
+        layer.getFlags(), out );
+      out.output( 62, layer.getColor() );
+      out.output( 6,
+        ( ( layer.getLineType() != null ) && ( layer.getLineType().length() > 0 ) )
+          ? layer.getLineType() : "CONTINUOUS" );
+
+      if ( layer.getLineWeight() != 0 ) {
+        out.output( 370, layer.getLineWeight() );
+      }
+
+      if ( ( layer.getPlotStyle() != null ) && ( layer.getPlotStyle().length() > 0 ) ) {
+        out.output( 390, layer.getPlotStyle() );
+      }
+    }
+
+    this.endTable( out );
+  }
+
+  protected void writeStyleTable( DXFDocument doc, DXFOutput out )
+    throws IOException {
+    this.startTable( "STYLE", doc.getDXFStyleIterator(), out );
+
+    Iterator i = doc.getDXFStyleIterator();
+
+    while ( i.hasNext() ) {
+      DXFStyle style = ( DXFStyle ) i.next();
+      this.startTableEntry( "STYLE", "AcDbTextStyleTableRecord",
+        style.getName(), style.getFlags(), out );
+      out.output( 40, style.getTextHeight() );
+      out.output( 41, style.getWidthFactor() );
+      out.output( 50, style.getObliqueAngle() );
+      out.output( 71, style.getTextGenerationFlag() );
+      out.output( 42, style.getLastHeight() );
+      out.output( 3, ( style.getFontFile() != null ) ? style.getFontFile() : "" );
+      out.output( 4,
+        ( style.getBigFontFile() != null ) ? style.getBigFontFile() : "" );
+    }
+
+    this.endTable( out );
+  }
+
+  protected void writeViewTable( DXFDocument doc, DXFOutput out )
+    throws IOException {
+    this.startTable( "VIEW", doc.getDXFViewIterator(), out );
+
+    Iterator i = doc.getDXFViewIterator();
+
+    while ( i.hasNext() ) {
+      DXFView view = ( DXFView ) i.next();
+      this.startTableEntry( "VIEW", "AcDbViewTableRecord", view.getName(), 0,
+        out );
+      out.output( 40, view.getHeight() );
+      this.output2D( 10, view.getCenterPoint(), out );
+      out.output( 41, view.getWidth() );
+      out.output( 11, view.getViewDirection() );
+      out.output( 12, view.getTarget() );
+      out.output( 42, view.getLensLength() );
+      out.output( 43, view.getFrontClipping() );
+      out.output( 44, view.getBackClipping() );
+      out.output( 50, view.getTwistAngle() );
+      out.output( 281, view.getRenderMode() );
+      out.output( 72, view.isUseUCS() );
+
+      if ( view.isUseUCS() ) {
+        out.output( 110, view.getUcsOrigin() );
+        out.output( 111, view.getUcsXAxis() );
+        out.output( 112, view.getUcsYAxis() );
+        out.output( 79, view.getUcsType() );
+        out.output( 146, view.getUcsElevation() );
+      }
+    }
+
+    this.endTable( out );
+  }
+
+  protected void writeDimensionStyleTable( DXFDocument doc, DXFOutput out )
+    throws IOException {
+    this.startTable( "DIMSTYLE", doc.getDXFDimensionStyleIterator(), out );
+
+    Iterator i = doc.getDXFDimensionStyleIterator();
+
+    while ( i.hasNext() ) {
+      DXFDimensionStyle style = ( DXFDimensionStyle ) i.next();
+      this.startTableEntry( "DIMSTYLE", "AcDbDimStyleTableRecord",
+        style.getName(), style.getFlags(), out );
+
+      // the properties are stored by their group codes
+      List codes = new ArrayList();
+      Iterator names = style.getPropertyNameIterator();
+
+      while ( names.hasNext() ) {
+        String name = ( String ) names.next();
+
+        try {
+          codes.add( Integer.valueOf( name ) );
+        } catch ( NumberFormatException e ) {
+          // not a group code
+        }
+      }
+
+      Collections.sort( codes );
+
+      for ( int n = 0; n < codes.size(); n++ ) {
+        Integer code = ( Integer ) codes.get( n );
+
+        if ( this.isDimensionStyleProperty( code.intValue() ) ) {
+          out.output( code.intValue(), style.getProperty( code.toString() ) );
+        }
+      }
+    }
+
+    this.endTable( out );
+  }
+
+  /**
+   * The table handler keeps all groups of a DIMSTYLE as properties, so the
+   * groups of the table record itself are skipped here.
+   */
+  protected boolean isDimensionStyleProperty( int code ) {
+    switch ( code ) {
+      case NAME_CODE:
+      case HANDLE_CODE:
+      case FLAGS_CODE:
+      case SUBCLASS_CODE:
+      case 102:
+      case 105:
+      case 330:
+      case 360:
+        return false;
+
+      default:
+        return true;
+    }
+  }
+
+  protected void writeBlocks( DXFDocument doc, DXFOutput out )
+    throws IOException {
+    this.startSection( "BLOCKS", out );
+
+    Iterator i = doc.getDXFBlockIterator();
+
+    while ( i.hasNext() ) {
+      DXFBlock block = ( DXFBlock ) i.next();
+      String layer = ( ( block.getLayerID() != null ) &&
+        ( block.getLayerID().length() > 0 ) ) ? block.getLayerID()
+        : DXFConstants.DEFAULT_LAYER;
+      out.output( COMMAND_CODE, "BLOCK" );
+      out.output( SUBCLASS_CODE, "AcDbEntity" );
+      out.output( 8, layer );
+      out.output( SUBCLASS_CODE, "AcDbBlockBegin" );
+      out.output( NAME_CODE, block.getName() );
+      out.output( FLAGS_CODE, 0 );
+      out.output( 10, block.getReferencePoint() );
+      out.output( 3, block.getName() );
+
+      if ( ( block.getDescription() != null ) &&
+        ( block.getDescription().length() > 0 ) ) {
+        out.output( 4, block.getDescription() );
+      }
+
+      Iterator entities = block.getDXFEntitiesIterator();
+
+      while ( entities.hasNext() ) {
+        this.writeEntity( ( DXFEntity ) entities.next(), out );
+      }
+
+      out.output( COMMAND_CODE, "ENDBLK" );
+      out.output( SUBCLASS_CODE, "AcDbEntity" );
+      out.output( 8, layer );
+      out.output( SUBCLASS_CODE, "AcDbBlockEnd" );
+    }
+
+    this.endSection( out );
+  }
+
+  protected void writeEntities( DXFDocument doc, DXFOutput out )
+    throws IOException {
+    this.startSection( "ENTITIES", out );
+
+    Iterator i = this.sort( doc.getDXFLayerIterator(), LAYER_NAME_ORDER );
+
+    while ( i.hasNext() ) {
+      DXFLayer layer = ( DXFLayer ) i.next();
+      Iterator types = this.sort( layer.getDXFEntityTypeIterator(), null );
+
+      while ( types.hasNext() ) {
+        String type = ( String ) types.next();
+
+        if ( this.writers.containsKey( type ) ) {
+          Iterator entities = layer.getDXFEntities( type ).iterator();
+
+          while ( entities.hasNext() ) {
+            this.writeEntity( ( DXFEntity ) entities.next(), out );
+          }
+        }
+      }
+    }
+
+    this.endSection( out );
+  }
+
+  protected Iterator sort( Iterator i, Comparator comp ) {
+    List list = new ArrayList();
+
+    while ( i.hasNext() ) {
+      list.add( i.next() );
+    }
+
+    Collections.sort( list, comp );
+
+    return list.iterator();
+  }
+
+  protected void writeEntity( DXFEntity entity, DXFOutput out )
+    throws IOException {
+    DXFEntityWriter writer = ( DXFEntityWriter ) this.writers.get( entity.getType() );
+
+    if ( writer != null ) {
+      writer.write( entity, out );
+    }
+  }
+
+  protected void writeObjects( DXFDocument doc, DXFOutput out )
+    throws IOException {
+    this.startSection( "OBJECTS", out );
+    this.writeDictionary( doc.getRootDXFDictionary(), out );
+
+    Iterator i = doc.getDXFObjectTypeIterator();
+
+    while ( i.hasNext() ) {
+      Iterator objects = doc.getDXFObjectsByType( ( String ) i.next() ).iterator();
+
+      while ( objects.hasNext() ) {
+        DXFObject obj = ( DXFObject ) objects.next();
+
+        // the parser adds the root dictionary as object too
+        if ( obj != doc.getRootDXFDictionary() ) {
+          this.writeObject( obj, out );
+        }
+      }
+    }
+
+    this.endSection( out );
+  }
+
+  protected void writeDictionary( DXFDictionary dictionary, DXFOutput out )
+    throws IOException {
+    this.startObject( dictionary, out );
+    out.output( SUBCLASS_CODE, "AcDbDictionary" );
+
+    // only the entries of written objects, the others would be dangling
+    Iterator i = dictionary.getDXFObjectIterator();
+
+    while ( i.hasNext() ) {
+      DXFObject obj = ( DXFObject ) i.next();
+
+      if ( this.isWritable( obj ) ) {
+        out.output( 3, dictionary.getNameForDXFObjectID( obj.getID() ) );
+        out.output( 350, obj.getID() );
+      }
+    }
+
+    i = dictionary.getDXFObjectIterator();
+
+    while ( i.hasNext() ) {
+      DXFObject obj = ( DXFObject ) i.next();
+
+      if ( this.isWritable( obj ) ) {
+        this.writeObject( obj, out );
+      }
+    }
+  }
+
+  /**
+   * @return true if writeObject() writes the object
+   */
+  protected boolean isWritable( DXFObject obj ) {
+    return ( obj instanceof DXFDictionary ) || ( obj instanceof DXFImageDefObject ) ||
+    ( obj instanceof DXFMLineStyle );
+  }
+
+  protected void writeObject( DXFObject obj, DXFOutput out )
+    throws IOException {
+    if ( obj instanceof DXFDictionary ) {
+      this.writeDictionary( ( DXFDictionary ) obj, out );
+    } else if ( obj instanceof DXFImageDefObject ) {
+      this.startObject( obj, out );
+      out.output( SUBCLASS_CODE, "AcDbRasterImageDef" );
+      out.output( 1, ( ( DXFImageDefObject ) obj ).getFilename() );
+    } else if ( obj instanceof DXFMLineStyle ) {
+      DXFMLineStyle style = ( DXFMLineStyle ) obj;
+      this.startObject( obj, out );
+      out.output( SUBCLASS_CODE, "AcDbMlineStyle" );
+      out.output( NAME_CODE, style.getName() );
+      out.output( FLAGS_CODE, style.getFlags() );
+      out.output( 3,
+        ( style.getDescrition() != null ) ? style.getDescrition() : "" );
+      out.output( 62, style.getFillColor() );
+      out.output( 51, style.getStartAngle() );
+      out.output( 52, style.getEndAngle() );
+      out.output( 71, style.getDXFMLineStyleLElementCount() );
+
+      for ( int n = 0; n < style.getDXFMLineStyleLElementCount(); n++ ) {
+        DXFMLineStyleElement el = style.getDXFMLineStyleLElement( n );
+        out.output( 49, el.getOffset() );
+        out.output( 62, el.getLineColor() );
+        out.output( 6, ( el.getLineType() != null ) ? el.getLineType() : "BYLAYER" );
+      }
+    }
+
+    // the other objects are not kept completely by the model
+  }
+
+  protected void startObject( DXFObject obj, DXFOutput out )
+    throws IOException {
+    out.output( COMMAND_CODE, obj.getObjectType() );
+
+    if ( ( obj.getID() != null ) && ( obj.getID().length() > 0 ) ) {
+      out.output( HANDLE_CODE, obj.getID() );
+    }
+
+    if ( ( obj.getSoftPointerID() != null ) &&
+      ( obj.getSoftPointerID().length() > 0 ) ) {
+      out.output( 330, obj.getSoftPointerID() );
+    }
+
+    if ( ( obj.getHardOwnerID() != null ) &&
+      ( obj.getHardOwnerID().length() > 0 ) ) {
+      out.output( 360, obj.getHardOwnerID() );
+    }
+  }
+
+  protected void output2D( int code, Point p, DXFOutput out )
+    throws IOException {
+    out.output( code, p.getX() );
+    out.output( code + 10, p.getY() );
+  }
+}
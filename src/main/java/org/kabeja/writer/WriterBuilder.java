@@ -0,0 +1,65 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package org.kabeja.writer;
+
+import org.kabeja.writer.entities.*;
+
+public class WriterBuilder {
+  public static DXFWriter createDefaultWriter() {
+    DXFWriter writer = new DXFWriter();
+    writer.addDXFEntityWriter( new DXFPointWriter() );
+    writer.addDXFEntityWriter( new DXFLineWriter() );
+    writer.addDXFEntityWriter( new DXFCircleWriter() );
+    writer.addDXFEntityWriter( new DXFArcWriter() );
+    writer.addDXFEntityWriter( new DXFPolylineWriter() );
+    writer.addDXFEntityWriter( new DXFLWPolylineWriter() );
+    writer.addDXFEntityWriter( new DXFMTextWriter() );
+    writer.addDXFEntityWriter( new DXFTextWriter() );
+    writer.addDXFEntityWriter( new DXFInsertWriter() );
+    writer.addDXFEntityWriter( new DXFEllipseWriter() );
+    writer.addDXFEntityWriter( new DXFSolidWriter() );
+    writer.addDXFEntityWriter( new DXFTraceWriter() );
+    writer.addDXFEntityWriter( new DXFDimensionWriter() );
+    writer.addDXFEntityWriter( new DXFHatchWriter() );
+    writer.addDXFEntityWriter( new DXFImageWriter() );
+    writer.addDXFEntityWriter( new DXF3DFaceWriter() );
+    writer.addDXFEntityWriter( new DXFRayWriter() );
+    writer.addDXFEntityWriter( new DXFXLineWriter() );
+    writer.addDXFEntityWriter( new DXFRegionWriter() );
+    writer.addDXFEntityWriter( new DXFBodyWriter() );
+    writer.addDXFEntityWriter( new DXF3DSolidWriter() );
+    writer.addDXFEntityWriter( new DXFSplineWriter() );
+    writer.addDXFEntityWriter( new DXFMLineWriter() );
+    writer.addDXFEntityWriter( new DXFLeaderWriter() );
+    writer.addDXFEntityWriter( new DXFToleranceWriter() );
+    writer.addDXFEntityWriter( new DXFViewportWriter() );
+    writer.addDXFEntityWriter( new DXFShapeWriter() );
+
+    return writer;
+  }
+
+  /**
+   * @return a writer for binary DXF
+   */
+  public static DXFWriter createBinaryWriter() {
+    DXFWriter writer = createDefaultWriter();
+    writer.setBinary( true );
+
+    return writer;
+  }
+}
@@ -0,0 +1,120 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package org.kabeja.writer.entities;
+
+import org.kabeja.dxf.DXFConstants;
+import org.kabeja.dxf.DXFEntity;
+import org.kabeja.dxf.DXFExtrusion;
+import org.kabeja.writer.DXFOutput;
+import java.io.IOException;
+
+/**
+ * Writes the entity type and the common properties. Properties with the
+ * default value of the model are omitted.
+ */
+public abstract class AbstractEntityWriter implements DXFEntityWriter {
+  public final static int GROUPCODE_TYPE = 0;
+  public final static int ELEMENT_REFERENCE = 5;
+  public final static int GROUPCODE_START_X = 10;
+  public final static int END_X = 11;
+  public final static int LAYER_NAME = 8;
+  public final static int COLOR_CODE = 62;
+  public final static int FLAGS = 70;
+  public final static int EXTRUSION_X = 210;
+  public final static int EXTRUSION_Y = 220;
+  public final static int EXTRUSION_Z = 230;
+  public final static int VISIBILITY = 60;
+  public final static int LINE_TYPE = 6;
+  public final static int LINE_TYPE_SCALE = 48;
+  public final static int LINE_WEIGHT = 370;
+  public final static int GROUPCODE_THICKNESS = 39;
+  public final static int GROUPCODE_STYLENAME = 3;
+  public final static int GROUPCODE_TEXT = 1;
+  public final static int GROUPCODE_ROTATION_ANGLE = 50;
+  public final static int GROUPCODE_MODELSPACE = 67;
+  public final static int GROUPCODE_SUBCLASS = 100;
+  public final static String SUBCLASS_ENTITY = "AcDbEntity";
+
+  public void write( DXFEntity entity, DXFOutput out ) throws IOException {
+    out.output( GROUPCODE_TYPE, this.getDXFEntityName() );
+    this.writeCommonProperties( entity, out );
+    this.writeProperties( entity, out );
+  }
+
+  /**
+   * Writes the properties of the entity type.
+   */
+  protected abstract void writeProperties( DXFEntity entity, DXFOutput out )
+    throws IOException;
+
+  protected void writeCommonProperties( DXFEntity entity, DXFOutput out )
+    throws IOException {
+    if ( ( entity.getID() != null ) && ( entity.getID().length() > 0 ) ) {
+      out.output( ELEMENT_REFERENCE, entity.getID() );
+    }
+
+    out.output( GROUPCODE_SUBCLASS, SUBCLASS_ENTITY );
+
+    if ( !entity.isModelSpace() ) {
+      out.output( GROUPCODE_MODELSPACE, 1 );
+    }
+
+    String layer = entity.getLayerName();
+    out.output( LAYER_NAME,
+      ( ( layer != null ) && ( layer.length() > 0 ) ) ? layer : DXFConstants.DEFAULT_LAYER );
+
+    if ( ( entity.getLineType() != null ) && ( entity.getLineType().length() > 0 ) ) {
+      out.output( LINE_TYPE, entity.getLineType() );
+    }
+
+    if ( entity.getColor() != 0 ) {
+      out.output( COLOR_CODE, entity.getColor() );
+    }
+
+    if ( entity.getLineWeight() != 0 ) {
+      out.output( LINE_WEIGHT, entity.getLineWeight() );
+    }
+
+    if ( entity.getLinetypeScaleFactor() != 1.0 ) {
+      out.output( LINE_TYPE_SCALE, entity.getLinetypeScaleFactor() );
+    }
+
+    if ( !entity.isVisibile() ) {
+      out.output( VISIBILITY, 1 );
+    }
+
+    if ( entity.getThickness() != 0.0 ) {
+      out.output( GROUPCODE_THICKNESS, entity.getThickness() );
+    }
+
+    DXFExtrusion e = entity.getExtrusion();
+
+    if ( ( e.getX() != 0.0 ) || ( e.getY() != 0.0 ) || ( e.getZ() != 1.0 ) ) {
+      out.output( EXTRUSION_X, e.getX() );
+      out.output( EXTRUSION_Y, e.getY() );
+      out.output( EXTRUSION_Z, e.getZ() );
+    }
+  }
+
+  protected void writeFlags( DXFEntity entity, DXFOutput out )
+    throws IOException {
+    if ( entity.getFlags() != 0 ) {
+      out.output( FLAGS, entity.getFlags() );
+    }
+  }
+}
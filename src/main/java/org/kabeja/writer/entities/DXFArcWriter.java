@@ -0,0 +1,43 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package org.kabeja.writer.entities;
+
+import org.kabeja.dxf.DXFArc;
+import org.kabeja.dxf.DXFConstants;
+import org.kabeja.dxf.DXFEntity;
+import org.kabeja.writer.DXFOutput;
+import java.io.IOException;
+
+public class DXFArcWriter extends AbstractEntityWriter {
+  public final static int RADIUS = 40;
+  public final static int START_ANGLE = 50;
+  public final static int END_ANGLE = 51;
+
+  public String getDXFEntityName() { return DXFConstants.ENTITY_TYPE_ARC; }
+
+  protected void writeProperties( DXFEntity entity, DXFOutput out )
+    throws IOException {
+    DXFArc arc = ( DXFArc ) entity;
+    out.output( GROUPCODE_SUBCLASS, "AcDbCircle" );
+    out.output( GROUPCODE_START_X, arc.getCenterPoint() );
+    out.output( RADIUS, arc.getRadius() );
+    out.output( GROUPCODE_SUBCLASS, "AcDbArc" );
+    out.output( START_ANGLE, arc.getStartAngle() );
+    out.output( END_ANGLE, arc.getEndAngle() );
+  }
+}
@@ -0,0 +1,38 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package org.kabeja.writer.entities;
+
+import org.kabeja.dxf.DXFCircle;
+import org.kabeja.dxf.DXFConstants;
+import org.kabeja.dxf.DXFEntity;
+import org.kabeja.writer.DXFOutput;
+import java.io.IOException;
+
+public class DXFCircleWriter extends AbstractEntityWriter {
+  public final static int RADIUS = 40;
+
+  public String getDXFEntityName() { return DXFConstants.ENTITY_TYPE_CIRCLE; }
+
+  protected void writeProperties( DXFEntity entity, DXFOutput out )
+    throws IOException {
+    DXFCircle circle = ( DXFCircle ) entity;
+    out.output( GROUPCODE_SUBCLASS, "AcDbCircle" );
+    out.output( GROUPCODE_START_X, circle.getCenterPoint() );
+    out.output( RADIUS, circle.getRadius() );
+  }
+}
@@ -0,0 +1,87 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package org.kabeja.writer.entities;
+
+import org.kabeja.dxf.DXFConstants;
+import org.kabeja.dxf.DXFDimension;
+import org.kabeja.dxf.DXFEntity;
+import org.kabeja.writer.DXFOutput;
+import java.io.IOException;
+
+public class DXFDimensionWriter extends AbstractEntityWriter {
+  public final static int GROUPCODE_DIMENSION_BLOCK = 2;
+  public final static int GROUPCODE_DIMENSION_STYLE = 3;
+  public final static int GROUPCODE_DIMENSION_TEXT = 1;
+  public final static int GROUPCODE_TEXT_POINT_X = 11;
+  public final static int GROUPCODE_INSERT_POINT_X = 12;
+  public final static int GROUPCODE_REFERENCE_POINT3_X = 13;
+  public final static int GROUPCODE_REFERENCE_POINT4_X = 14;
+  public final static int GROUPCODE_REFERENCE_POINT5_X = 15;
+  public final static int GROUPCODE_REFERENCE_POINT6_X = 16;
+  public final static int GROUPCODE_LEADINGLINE_LENGTH = 40;
+  public final static int GROUPCODE_DIMENSION_ROTATE = 50;
+  public final static int GROUPCODE_HORIZONTAL_ALIGNMENT = 51;
+  public final static int GROUPCODE_INCLINATION_HELPLINE = 52;
+  public final static int GROUPCODE_TEXT_ROTATION = 53;
+  public final static int GROUPCODE_DIMENSION_TYPE = 70;
+
+  public String getDXFEntityName() { return DXFConstants.ENTITY_TYPE_DIMENSION; }
+
+  protected void writeProperties( DXFEntity entity, DXFOutput out )
+    throws IOException {
+    DXFDimension dim = ( DXFDimension ) entity;
+    out.output( GROUPCODE_SUBCLASS, "AcDbDimension" );
+    out.output( GROUPCODE_DIMENSION_BLOCK, dim.getDimensionBlock() );
+    out.output( GROUPCODE_START_X, dim.getReferencePoint() );
+    out.output( GROUPCODE_TEXT_POINT_X, dim.getTextPoint() );
+    out.output( GROUPCODE_INSERT_POINT_X, dim.getInsertPoint() );
+    out.output( GROUPCODE_DIMENSION_TYPE, dim.getDimensionType() );
+
+    if ( dim.getDimensionText().length() > 0 ) {
+      out.output( GROUPCODE_DIMENSION_TEXT, dim.getDimensionText() );
+    }
+
+    if ( dim.getHorizontalAlign() != 0.0 ) {
+      out.output( GROUPCODE_HORIZONTAL_ALIGNMENT, dim.getHorizontalAlign() );
+    }
+
+    if ( dim.getTextRotation() != 0.0 ) {
+      out.output( GROUPCODE_TEXT_ROTATION, dim.getTextRotation() );
+    }
+
+    out.output( GROUPCODE_DIMENSION_STYLE, dim.getDimensionStyleID() );
+
+    // the subclass specific points, the model does not keep the subclass
+    out.output( GROUPCODE_REFERENCE_POINT3_X, dim.getReferencePoint3() );
+    out.output( GROUPCODE_REFERENCE_POINT4_X, dim.getReferencePoint4() );
+    out.output( GROUPCODE_REFERENCE_POINT5_X, dim.getReferencePoint5() );
+    out.output( GROUPCODE_REFERENCE_POINT6_X, dim.getReferencePoint6() );
+
+    if ( dim.getLeadingLineLength() != 0.0 ) {
+      out.output( GROUPCODE_LEADINGLINE_LENGTH, dim.getLeadingLineLength() );
+    }
+
+    if ( dim.getDimensionRotation() != 0.0 ) {
+      out.output( GROUPCODE_DIMENSION_ROTATE, dim.getDimensionRotation() );
+    }
+
+    if ( dim.getInclinationHelpLine() != 0.0 ) {
+      out.output( GROUPCODE_INCLINATION_HELPLINE, dim.getInclinationHelpLine() );
+    }
+  }
+}
@@ -0,0 +1,43 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package org.kabeja.writer.entities;
+
+import org.kabeja.dxf.DXFConstants;
+import org.kabeja.dxf.DXFEllipse;
+import org.kabeja.dxf.DXFEntity;
+import org.kabeja.writer.DXFOutput;
+import java.io.IOException;
+
+public class DXFEllipseWriter extends AbstractEntityWriter {
+  public final static int RATIO = 40;
+  public final static int START_PARAMETER = 41;
+  public final static int END_PARAMETER = 42;
+
+  public String getDXFEntityName() { return DXFConstants.ENTITY_TYPE_ELLIPSE; }
+
+  protected void writeProperties( DXFEntity entity, DXFOutput out )
+    throws IOException {
+    DXFEllipse ellipse = ( DXFEllipse ) entity;
+    out.output( GROUPCODE_SUBCLASS, "AcDbEllipse" );
+    out.output( GROUPCODE_START_X, ellipse.getCenterPoint() );
+    out.output( END_X, ellipse.getMajorAxisDirection() );
+    out.output( RATIO, ellipse.getRatio() );
+    out.output( START_PARAMETER, ellipse.getStartParameter() );
+    out.output( END_PARAMETER, ellipse.getEndParameter() );
+  }
+}
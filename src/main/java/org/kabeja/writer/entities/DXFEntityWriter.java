@@ -0,0 +1,43 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package org.kabeja.writer.entities;
+
+import org.kabeja.dxf.DXFEntity;
+import org.kabeja.writer.DXFOutput;
+import java.io.IOException;
+
+/**
+ * Writes the groups of an entity type, the counterpart of the
+ * DXFEntityHandler. The writer has no state, so one instance writes all
+ * entities of the type.
+ */
+public interface DXFEntityWriter {
+  /**
+   * @return the DXFEntity name (LINE,POLYLINE,TEXT,...)
+   */
+  public String getDXFEntityName();
+
+  /**
+   * Writes the entity with all following entities (like the vertices of a
+   * POLYLINE).
+   *
+   * @param entity the entity of the type
+   * @param out    the output
+   */
+  public void write( DXFEntity entity, DXFOutput out ) throws IOException;
+}
@@ -0,0 +1,293 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package org.kabeja.writer.entities;
+
+import org.kabeja.dxf.DXFArc;
+import org.kabeja.dxf.DXFConstants;
+import org.kabeja.dxf.DXFEllipse;
+import org.kabeja.dxf.DXFEntity;
+import org.kabeja.dxf.DXFHatch;
+import org.kabeja.dxf.DXFHatchPattern;
+import org.kabeja.dxf.DXFLine;
+import org.kabeja.dxf.DXFPolyline;
+import org.kabeja.dxf.DXFSpline;
+import org.kabeja.dxf.DXFVertex;
+import org.kabeja.dxf.helpers.HatchBoundaryLoop;
+import org.kabeja.dxf.helpers.HatchLineFamily;
+import org.kabeja.dxf.helpers.Point;
+import org.kabeja.dxf.helpers.SplinePoint;
+import org.kabeja.writer.DXFOutput;
+import java.io.IOException;
+import java.util.Iterator;
+
+public class DXFHatchWriter extends AbstractEntityWriter {
+  public final static int GROUPCODE_NAME = 2;
+  public final static int GROUPCODE_ASSOSIATIVITY_FLAG = 71;
+  public final static int GROUPCODE_BOUNDARY_LOOP_COUNT = 91;
+  public final static int GROUPCODE_BOUNDAYY_LOOP_TYPE = 92;
+  public final static int GROUPCODE_BOUNDARY_EDGE_COUNT = 93;
+  public final static int GROUPCODE_BOUNDARY_EDGE_TYPE = 72;
+  public final static int GROUPCODE_BOUNDARY_CLOSED = 73;
+  public final static int GROUPCODE_SOURCE_OBJECT_COUNT = 97;
+  public final static int GROUPCODE_HATCH_STYLE = 75;
+  public final static int GROUPCODE_PATTERN_TYPE = 76;
+  public final static int GROUPCODE_PATTERN_ANGLE = 52;
+  public final static int GROUPCODE_PATTERN_SCALE = 41;
+  public final static int GROUPCODE_HATCH_DOUBLE_FLAG = 77;
+  public final static int GROUPCODE_DEFINITION_LINE_COUNT = 78;
+  public final static int GROUPCODE_PATTERN_LINE_ANGLE = 53;
+  public final static int GROUPCODE_PATTERN_BASE_X = 43;
+  public final static int GROUPCODE_PATTERN_BASE_Y = 44;
+  public final static int GROUPCODE_PATTERN_OFFSET_X = 45;
+  public final static int GROUPCODE_PATTERN_OFFSET_Y = 46;
+  public final static int GROUPCODE_PATTERN_LINE_COUNT = 79;
+  public final static int GROUPCODE_PATTERN_LINE_TYPE_DATA = 49;
+  public final static int GROUPCODE_SEED_POINTS_COUNT = 98;
+  public final static int LOOP_TYPE_EXTERNAL = 1;
+  public final static int LOOP_TYPE_POLYLINE = 2;
+  public final static int LOOP_TYPE_NOT_OUTERMOST = 16;
+  public final static int EDGE_TYPE_LINE = 1;
+  public final static int EDGE_TYPE_ARC = 2;
+  public final static int EDGE_TYPE_ELLIPSE = 3;
+  public final static int EDGE_TYPE_SPLINE = 4;
+
+  public String getDXFEntityName() { return DXFConstants.ENTITY_TYPE_HATCH; }
+
+  protected void writeProperties( DXFEntity entity, DXFOutput out )
+    throws IOException {
+    DXFHatch hatch = ( DXFHatch ) entity;
+    out.output( GROUPCODE_SUBCLASS, "AcDbHatch" );
+    out.output( GROUPCODE_START_X, hatch.getElevationPoint() );
+    out.output( GROUPCODE_NAME, hatch.getName() );
+    out.output( FLAGS, hatch.isSolid() ? 1 : 0 );
+    out.output( GROUPCODE_ASSOSIATIVITY_FLAG, hatch.getAssociativityFlag() );
+
+    int count = 0;
+    Iterator i = hatch.getBoundaryLoops();
+
+    while ( i.hasNext() ) {
+      i.next();
+      count++;
+    }
+
+    out.output( GROUPCODE_BOUNDARY_LOOP_COUNT, count );
+    i = hatch.getBoundaryLoops();
+
+    while ( i.hasNext() ) {
+      this.writeBoundaryLoop( ( HatchBoundaryLoop ) i.next(), out );
+    }
+
+    out.output( GROUPCODE_HATCH_STYLE, hatch.getHatchStyle() );
+    out.output( GROUPCODE_PATTERN_TYPE, hatch.getPatternType() );
+
+    if ( !hatch.isSolid() ) {
+      DXFHatchPattern pattern = null;
+
+      if ( ( hatch.getDXFDocument() != null ) &&
+        ( hatch.getDXFHatchPatternID() != null ) ) {
+        pattern = hatch.getDXFDocument().getDXFHatchPattern( hatch.getDXFHatchPatternID() );
+      }
+
+      out.output( GROUPCODE_PATTERN_ANGLE, hatch.getPatternAngle() );
+      out.output( GROUPCODE_PATTERN_SCALE, hatch.getPatternScale() );
+      out.output( GROUPCODE_HATCH_DOUBLE_FLAG, hatch.isPatternDouble() );
+      out.output( GROUPCODE_DEFINITION_LINE_COUNT,
+        ( pattern != null ) ? pattern.getLineFamilyCount() : 0 );
+
+      if ( pattern != null ) {
+        this.writePattern( pattern, out );
+      }
+    }
+
+    out.output( GROUPCODE_SEED_POINTS_COUNT, 0 );
+  }
+
+  protected void writeBoundaryLoop( HatchBoundaryLoop loop, DXFOutput out )
+    throws IOException {
+    // the parser reads the bit 16 as not outermost, so we keep this here
+    int type = LOOP_TYPE_EXTERNAL;
+
+    if ( !loop.isOutermost() ) {
+      type |= LOOP_TYPE_NOT_OUTERMOST;
+    }
+
+    Iterator i = loop.getBoundaryEdgesIterator();
+    DXFEntity first = i.hasNext() ? ( DXFEntity ) i.next() : null;
+
+    if ( ( loop.getEdgeCount() == 1 ) && first instanceof DXFPolyline ) {
+      out.output( GROUPCODE_BOUNDAYY_LOOP_TYPE, type | LOOP_TYPE_POLYLINE );
+      this.writePolylineBoundary( ( DXFPolyline ) first, out );
+    } else {
+      out.output( GROUPCODE_BOUNDAYY_LOOP_TYPE, type );
+
+      int count = 0;
+      i = loop.getBoundaryEdgesIterator();
+
+      while ( i.hasNext() ) {
+        if ( this.isBoundaryEdge( ( DXFEntity ) i.next() ) ) {
+          count++;
+        }
+      }
+
+      out.output( GROUPCODE_BOUNDARY_EDGE_COUNT, count );
+      i = loop.getBoundaryEdgesIterator();
+
+      while ( i.hasNext() ) {
+        this.writeBoundaryEdge( ( DXFEntity ) i.next(), out );
+      }
+    }
+
+    out.output( GROUPCODE_SOURCE_OBJECT_COUNT, 0 );
+  }
+
+  protected void writePolylineBoundary( DXFPolyline polyline, DXFOutput out )
+    throws IOException {
+    boolean bulge = false;
+    Iterator i = polyline.getVertexIterator();
+
+    while ( i.hasNext() && !bulge ) {
+      bulge = ( ( DXFVertex ) i.next() ).getBulge() != 0.0;
+    }
+
+    out.output( GROUPCODE_BOUNDARY_EDGE_TYPE, bulge );
+
+    // the parser marks the polyline as closed for any 73 group
+    if ( polyline.isClosed() ) {
+      out.output( GROUPCODE_BOUNDARY_CLOSED, true );
+    }
+
+    out.output( GROUPCODE_BOUNDARY_EDGE_COUNT, polyline.getVertexCount() );
+    i = polyline.getVertexIterator();
+
+    while ( i.hasNext() ) {
+      DXFVertex v = ( DXFVertex ) i.next();
+      this.output2D( GROUPCODE_START_X, v.getPoint(), out );
+
+      if ( bulge ) {
+        out.output( 42, v.getBulge() );
+      }
+    }
+  }
+
+  protected boolean isBoundaryEdge( DXFEntity edge ) {
+    return edge instanceof DXFLine || edge instanceof DXFArc ||
+      edge instanceof DXFEllipse || edge instanceof DXFSpline;
+  }
+
+  protected void writeBoundaryEdge( DXFEntity edge, DXFOutput out )
+    throws IOException {
+    if ( edge instanceof DXFLine ) {
+      DXFLine line = ( DXFLine ) edge;
+      out.output( GROUPCODE_BOUNDARY_EDGE_TYPE, EDGE_TYPE_LINE );
+      this.output2D( GROUPCODE_START_X, line.getStartPoint(), out );
+      this.output2D( END_X, line.getEndPoint(), out );
+    } else if ( edge instanceof DXFArc ) {
+      DXFArc arc = ( DXFArc ) edge;
+      out.output( GROUPCODE_BOUNDARY_EDGE_TYPE, EDGE_TYPE_ARC );
+      this.output2D( GROUPCODE_START_X, arc.getCenterPoint(), out );
+      out.output( 40, arc.getRadius() );
+      out.output( 50, arc.getStartAngle() );
+      out.output( 51, arc.getEndAngle() );
+      // the model draws all arcs counterclockwise
+      out.output( 73, true );
+    } else if ( edge instanceof DXFEllipse ) {
+      DXFEllipse ellipse = ( DXFEllipse ) edge;
+      out.output( GROUPCODE_BOUNDARY_EDGE_TYPE, EDGE_TYPE_ELLIPSE );
+      this.output2D( GROUPCODE_START_X, ellipse.getCenterPoint(), out );
+      this.output2D( END_X, ellipse.getMajorAxisDirection(), out );
+      out.output( 40, ellipse.getRatio() );
+      out.output( 50, Math.toDegrees( ellipse.getStartParameter() ) );
+      out.output( 51, Math.toDegrees( ellipse.getEndParameter() ) );
+      out.output( 73, ellipse.isCounterClockwise() );
+    } else if ( edge instanceof DXFSpline ) {
+      this.writeSplineEdge( ( DXFSpline ) edge, out );
+    }
+  }
+
+  protected void writeSplineEdge( DXFSpline spline, DXFOutput out )
+    throws IOException {
+    double[] knots = ( spline.getKnots() != null ) ? spline.getKnots() : new double[ 0 ];
+    double[] weights = ( spline.getWeights() != null ) ? spline.getWeights() : new double[ 0 ];
+    int count = 0;
+    Iterator i = spline.getSplinePointIterator();
+
+    while ( i.hasNext() ) {
+      if ( ( ( SplinePoint ) i.next() ).isControlPoint() ) {
+        count++;
+      }
+    }
+
+    boolean rational = spline.isRational() && ( weights.length == count );
+
+    out.output( GROUPCODE_BOUNDARY_EDGE_TYPE, EDGE_TYPE_SPLINE );
+    out.output( 94, spline.getDegree() );
+    out.output( 73, rational );
+    out.output( 74, spline.isPeriodic() );
+    out.output( 95, knots.length );
+    out.output( 96, count );
+
+    for ( int n = 0; n < knots.length; n++ ) {
+      out.output( 40, knots[ n ] );
+    }
+
+    i = spline.getSplinePointIterator();
+
+    for ( int n = 0; i.hasNext(); ) {
+      SplinePoint p = ( SplinePoint ) i.next();
+
+      if ( p.isControlPoint() ) {
+        this.output2D( GROUPCODE_START_X, p, out );
+
+        if ( rational ) {
+          out.output( 42, weights[ n ] );
+        }
+
+        n++;
+      }
+    }
+  }
+
+  protected void writePattern( DXFHatchPattern pattern, DXFOutput out )
+    throws IOException {
+    Iterator i = pattern.getLineFamilyIterator();
+
+    while ( i.hasNext() ) {
+      HatchLineFamily family = ( HatchLineFamily ) i.next();
+      double[] dashes = ( family.getPattern() != null ) ? family.getPattern() : new double[ 0 ];
+      out.output( GROUPCODE_PATTERN_LINE_ANGLE, family.getRotationAngle() );
+      out.output( GROUPCODE_PATTERN_BASE_X, family.getBaseX() );
+      out.output( GROUPCODE_PATTERN_BASE_Y, family.getBaseY() );
+      out.output( GROUPCODE_PATTERN_OFFSET_X, family.getOffsetX() );
+      out.output( GROUPCODE_PATTERN_OFFSET_Y, family.getOffsetY() );
+      out.output( GROUPCODE_PATTERN_LINE_COUNT, dashes.length );
+
+      for ( int n = 0; n < dashes.length; n++ ) {
+        out.output( GROUPCODE_PATTERN_LINE_TYPE_DATA, dashes[ n ] );
+      }
+    }
+  }
+
+  /**
+   * The boundary data of a hatch is in OCS and has no z coordinate.
+   */
+  protected void output2D( int code, Point p, DXFOutput out )
+    throws IOException {
+    out.output( code, p.getX() );
+    out.output( code + 10, p.getY() );
+  }
+}
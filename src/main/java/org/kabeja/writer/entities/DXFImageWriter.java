@@ -0,0 +1,80 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package org.kabeja.writer.entities;
+
+import org.kabeja.dxf.DXFConstants;
+import org.kabeja.dxf.DXFEntity;
+import org.kabeja.dxf.DXFImage;
+import org.kabeja.dxf.helpers.Point;
+import org.kabeja.writer.DXFOutput;
+import java.io.IOException;
+import java.util.Iterator;
+
+public class DXFImageWriter extends AbstractEntityWriter {
+  public final static int GROUPCODE_IMAGEDEF_HARDREFERENCE = 340;
+  public final static int GROUPCODE_VECTOR_U_X = 11;
+  public final static int GROUPCODE_VECTOR_V_X = 12;
+  public final static int GROUPCODE_IAMGESIZE_U = 13;
+  public final static int GROUPCODE_IAMGESIZE_V = 23;
+  public final static int GROUPCODE_DISPLAY_PROPERTY = 70;
+  public final static int GROUPCODE_BRIGHTNESS = 281;
+  public final static int GROUPCODE_CONTRAST = 282;
+  public final static int GROUPCODE_FADE = 283;
+  public final static int GROUPCODE_NUMBER_CLIP_BOUNDARY = 91;
+  public final static int GROUPCODE_CLIP_BOUNDARY_X = 14;
+  public final static int GROUPCODE_CLIP_BOUNDARY_Y = 24;
+  public final static int GROUPCODE_CLIP_BOUNDARY_TYPE = 71;
+  public final static int GROUPCODE_CLIPPING_STATE = 280;
+
+  // show image and use the clipping boundary
+  public final static int DEFAULT_DISPLAY_PROPERTY = 7;
+
+  public String getDXFEntityName() { return DXFConstants.ENTITY_TYPE_IMAGE; }
+
+  protected void writeProperties( DXFEntity entity, DXFOutput out )
+    throws IOException {
+    DXFImage image = ( DXFImage ) entity;
+    out.output( GROUPCODE_SUBCLASS, "AcDbRasterImage" );
+    out.output( GROUPCODE_START_X, image.getInsertPoint() );
+    out.output( GROUPCODE_VECTOR_U_X, image.getVectorU() );
+    out.output( GROUPCODE_VECTOR_V_X, image.getVectorV() );
+    out.output( GROUPCODE_IAMGESIZE_U, image.getImageSizeAlongU() );
+    out.output( GROUPCODE_IAMGESIZE_V, image.getImageSizeAlongV() );
+    out.output( GROUPCODE_IMAGEDEF_HARDREFERENCE, image.getImageDefObjectID() );
+    out.output( GROUPCODE_DISPLAY_PROPERTY,
+      ( image.getFlags() != 0 ) ? image.getFlags() : DEFAULT_DISPLAY_PROPERTY );
+    out.output( GROUPCODE_CLIPPING_STATE, image.isClipping() );
+    out.output( GROUPCODE_BRIGHTNESS, ( int ) image.getBrightness() );
+    out.output( GROUPCODE_CONTRAST, ( int ) image.getContrast() );
+    out.output( GROUPCODE_FADE, ( int ) image.getFade() );
+
+    if ( image.getClipBoundary().size() > 0 ) {
+      out.output( GROUPCODE_CLIP_BOUNDARY_TYPE,
+        image.isPolygonalClipping() ? 2 : 1 );
+      out.output( GROUPCODE_NUMBER_CLIP_BOUNDARY, image.getClipBoundary().size() );
+
+      Iterator i = image.getClipBoundary().iterator();
+
+      while ( i.hasNext() ) {
+        Point p = ( Point ) i.next();
+        out.output( GROUPCODE_CLIP_BOUNDARY_X, p.getX() );
+        out.output( GROUPCODE_CLIP_BOUNDARY_Y, p.getY() );
+      }
+    }
+  }
+}
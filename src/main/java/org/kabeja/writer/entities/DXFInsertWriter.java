@@ -0,0 +1,75 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package org.kabeja.writer.entities;
+
+import org.kabeja.dxf.DXFConstants;
+import org.kabeja.dxf.DXFEntity;
+import org.kabeja.dxf.DXFInsert;
+import org.kabeja.writer.DXFOutput;
+import java.io.IOException;
+
+public class DXFInsertWriter extends AbstractEntityWriter {
+  public static final int SCALE_X = 41;
+  public static final int SCALE_Y = 42;
+  public static final int SCALE_Z = 43;
+  public static final int ROTATE = 50;
+  public static final int COLUMN_COUNT = 70;
+  public static final int ROW_COUNT = 71;
+  public static final int COLUMN_SPACING = 44;
+  public static final int ROW_SPACING = 45;
+  public static final int BLOCK_NAME = 2;
+
+  public String getDXFEntityName() { return DXFConstants.ENTITY_TYPE_INSERT; }
+
+  protected void writeProperties( DXFEntity entity, DXFOutput out )
+    throws IOException {
+    DXFInsert insert = ( DXFInsert ) entity;
+    out.output( GROUPCODE_SUBCLASS,
+      ( ( insert.getRows() > 1 ) || ( insert.getColumns() > 1 ) )
+      ? "AcDbMInsertBlock" : "AcDbBlockReference" );
+    out.output( BLOCK_NAME, insert.getBlockID() );
+    out.output( GROUPCODE_START_X, insert.getPoint() );
+
+    if ( ( insert.getScaleX() != 1.0 ) || ( insert.getScaleY() != 1.0 ) ||
+      ( insert.getScaleZ() != 1.0 ) ) {
+      out.output( SCALE_X, insert.getScaleX() );
+      out.output( SCALE_Y, insert.getScaleY() );
+      out.output( SCALE_Z, insert.getScaleZ() );
+    }
+
+    if ( insert.getRotate() != 0.0 ) {
+      out.output( ROTATE, insert.getRotate() );
+    }
+
+    if ( insert.getColumns() != 1 ) {
+      out.output( COLUMN_COUNT, insert.getColumns() );
+    }
+
+    if ( insert.getRows() != 1 ) {
+      out.output( ROW_COUNT, insert.getRows() );
+    }
+
+    if ( insert.getColumnSpacing() != 0.0 ) {
+      out.output( COLUMN_SPACING, insert.getColumnSpacing() );
+    }
+
+    if ( insert.getRowSpacing() != 0.0 ) {
+      out.output( ROW_SPACING, insert.getRowSpacing() );
+    }
+  }
+}
@@ -0,0 +1,73 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package org.kabeja.writer.entities;
+
+import org.kabeja.dxf.DXFConstants;
+import org.kabeja.dxf.DXFEntity;
+import org.kabeja.dxf.DXFLWPolyline;
+import org.kabeja.dxf.DXFVertex;
+import org.kabeja.writer.DXFOutput;
+import java.io.IOException;
+import java.util.Iterator;
+
+public class DXFLWPolylineWriter extends AbstractEntityWriter {
+  public static final int VERTEX_COUNT = 90;
+  public static final int VERTEX_BULGE = 42;
+  public static final int START_WIDTH = 40;
+  public static final int END_WIDTH = 41;
+  public static final int CONSTANT_WIDTH = 43;
+  public static final int ELEVATION = 38;
+
+  public String getDXFEntityName() { return DXFConstants.ENTITY_TYPE_LWPOLYLINE; }
+
+  protected void writeProperties( DXFEntity entity, DXFOutput out )
+    throws IOException {
+    DXFLWPolyline lwpolyline = ( DXFLWPolyline ) entity;
+    out.output( GROUPCODE_SUBCLASS, "AcDbPolyline" );
+    out.output( VERTEX_COUNT, lwpolyline.getVertexCount() );
+    out.output( FLAGS, lwpolyline.getFlags() );
+
+    if ( lwpolyline.getContstantWidth() != 0.0 ) {
+      out.output( CONSTANT_WIDTH, lwpolyline.getContstantWidth() );
+    }
+
+    if ( lwpolyline.getElevation() != 0.0 ) {
+      out.output( ELEVATION, lwpolyline.getElevation() );
+    }
+
+    Iterator i = lwpolyline.getVertexIterator();
+
+    while ( i.hasNext() ) {
+      DXFVertex vertex = ( DXFVertex ) i.next();
+      out.output( GROUPCODE_START_X, vertex.getX() );
+      out.output( GROUPCODE_START_X + 10, vertex.getY() );
+
+      if ( vertex.getStartWidth() != 0.0 ) {
+        out.output( START_WIDTH, vertex.getStartWidth() );
+      }
+
+      if ( vertex.getEndWidth() != 0.0 ) {
+        out.output( END_WIDTH, vertex.getEndWidth() );
+      }
+
+      if ( vertex.getBulge() != 0.0 ) {
+        out.output( VERTEX_BULGE, vertex.getBulge() );
+      }
+    }
+  }
+}
@@ -0,0 +1,74 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package org.kabeja.writer.entities;
+
+import org.kabeja.dxf.DXFConstants;
+import org.kabeja.dxf.DXFEntity;
+import org.kabeja.dxf.DXFLeader;
+import org.kabeja.dxf.helpers.Point;
+import org.kabeja.writer.DXFOutput;
+import java.io.IOException;
+import java.util.Iterator;
+
+public class DXFLeaderWriter extends AbstractEntityWriter {
+  public final static int GROUPCODE_ARROW_HEAD_FLAG = 71;
+  public final static int GROUPCODE_LEADER_PATH_TYPE = 72;
+  public final static int GROUPCODE_LEADER_CREATION_FLAG = 73;
+  public final static int GROUPCODE_HOOKLINE_DIRECTION_FLAG = 74;
+  public final static int GROUPCODE_HOOKLINE_FLAG = 75;
+  public final static int GROUPCODE_TEXT_HEIGHT = 40;
+  public final static int GROUPCODE_TEXT_WIDTH = 41;
+  public final static int GROUPCODE_VERTEX_COUNT = 76;
+  public final static int GROUPCODE_TEXT_ENTITY_REFERENCE = 340;
+  public final static int GROUPCODE_HORIZONTAL_DIRECTION_X = 211;
+  public final static int GROUPCODE_OFFSET_LAST_VERTEX_INSERTPOINT_X = 212;
+  public final static int GROUPCODE_OFFSET_LAST_VERTEX_PLACEMENT_POINT_X = 213;
+
+  public String getDXFEntityName() { return DXFConstants.ENTITY_TYPE_LEADER; }
+
+  protected void writeProperties( DXFEntity entity, DXFOutput out )
+    throws IOException {
+    DXFLeader leader = ( DXFLeader ) entity;
+    out.output( GROUPCODE_SUBCLASS, "AcDbLeader" );
+    out.output( GROUPCODE_STYLENAME, leader.getStyleNameID() );
+    out.output( GROUPCODE_ARROW_HEAD_FLAG, leader.isArrowEnabled() );
+    out.output( GROUPCODE_LEADER_PATH_TYPE, leader.getPathType() );
+    out.output( GROUPCODE_LEADER_CREATION_FLAG, leader.getCreationType() );
+    out.output( GROUPCODE_HOOKLINE_DIRECTION_FLAG, leader.getHooklineDirecton() );
+    out.output( GROUPCODE_HOOKLINE_FLAG, leader.isHookline() );
+    out.output( GROUPCODE_TEXT_HEIGHT, leader.getTextHeight() );
+    out.output( GROUPCODE_TEXT_WIDTH, leader.getTextWidth() );
+    out.output( GROUPCODE_VERTEX_COUNT, leader.getCoordinateCount() );
+
+    Iterator i = leader.getCoordinateIterator();
+
+    while ( i.hasNext() ) {
+      out.output( GROUPCODE_START_X, ( Point ) i.next() );
+    }
+
+    out.output( GROUPCODE_HORIZONTAL_DIRECTION_X, leader.getHorizontalDirection() );
+    out.output( GROUPCODE_OFFSET_LAST_VERTEX_INSERTPOINT_X,
+      leader.getLastOffsetInsertion() );
+    out.output( GROUPCODE_OFFSET_LAST_VERTEX_PLACEMENT_POINT_X,
+      leader.getLastOffsetText() );
+
+    if ( leader.getTextID().length() > 0 ) {
+      out.output( GROUPCODE_TEXT_ENTITY_REFERENCE, leader.getTextID() );
+    }
+  }
+}
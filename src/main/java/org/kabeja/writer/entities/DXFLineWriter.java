@@ -0,0 +1,36 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package org.kabeja.writer.entities;
+
+import org.kabeja.dxf.DXFConstants;
+import org.kabeja.dxf.DXFEntity;
+import org.kabeja.dxf.DXFLine;
+import org.kabeja.writer.DXFOutput;
+import java.io.IOException;
+
+public class DXFLineWriter extends AbstractEntityWriter {
+  public String getDXFEntityName() { return DXFConstants.ENTITY_TYPE_LINE; }
+
+  protected void writeProperties( DXFEntity entity, DXFOutput out )
+    throws IOException {
+    DXFLine line = ( DXFLine ) entity;
+    out.output( GROUPCODE_SUBCLASS, "AcDbLine" );
+    out.output( GROUPCODE_START_X, line.getStartPoint() );
+    out.output( END_X, line.getEndPoint() );
+  }
+}
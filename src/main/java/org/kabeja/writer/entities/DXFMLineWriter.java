@@ -0,0 +1,84 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package org.kabeja.writer.entities;
+
+import org.kabeja.dxf.DXFConstants;
+import org.kabeja.dxf.DXFEntity;
+import org.kabeja.dxf.DXFMLine;
+import org.kabeja.dxf.helpers.DXFMLineSegment;
+import org.kabeja.dxf.helpers.DXFMLineSegmentElement;
+import org.kabeja.writer.DXFOutput;
+import java.io.IOException;
+
+public class DXFMLineWriter extends AbstractEntityWriter {
+  public final static int GROUPCODE_MLINE_STYLENAME = 2;
+  public final static int GROUPCODE_MLINE_STYLE_ID = 340;
+  public final static int GROUPCODE_MLINE_SCALE_FACTOR = 40;
+  public final static int GROUPCODE_MLINE_JUSTIFICATION = 70;
+  public final static int GROUPCODE_MLINE_FLAGS = 71;
+  public final static int GROUPCODE_MLINE_NUMBER_OF_VERTICES = 72;
+  public final static int GROUPCODE_MLINE_NUMBER_OF_LINESTYLEELEMENTS = 73;
+  public final static int GROUPCODE_MLINE_VERTEX_X = 11;
+  public final static int GROUPCODE_MLINE_DIRECTION_X = 12;
+  public final static int GROUPCODE_MLINE_MITER_DIRECTION_X = 13;
+  public final static int GROUPCODE_MLINE_ELEMENT_PARAMETER_COUNT = 74;
+  public final static int GROUPCODE_MLINE_ELEMENT_PARAMETER = 41;
+  public final static int GROUPCODE_MLINE_FILL_PARAMETER_COUNT = 75;
+  public final static int GROUPCODE_MLINE_FILL_PARAMETER = 42;
+
+  public String getDXFEntityName() { return DXFConstants.ENTITY_TYPE_MLINE; }
+
+  protected void writeProperties( DXFEntity entity, DXFOutput out )
+    throws IOException {
+    DXFMLine mline = ( DXFMLine ) entity;
+    out.output( GROUPCODE_SUBCLASS, "AcDbMline" );
+    out.output( GROUPCODE_MLINE_STYLENAME, mline.getMLineStyleName() );
+    out.output( GROUPCODE_MLINE_STYLE_ID, mline.getMLineStyleID() );
+    out.output( GROUPCODE_MLINE_SCALE_FACTOR, mline.getScale() );
+    out.output( GROUPCODE_MLINE_JUSTIFICATION, mline.getJustification() );
+    out.output( GROUPCODE_MLINE_FLAGS, mline.getFlags() );
+    out.output( GROUPCODE_MLINE_NUMBER_OF_VERTICES, mline.getDXFMLineSegmentCount() );
+    out.output( GROUPCODE_MLINE_NUMBER_OF_LINESTYLEELEMENTS, mline.getLineCount() );
+    out.output( GROUPCODE_START_X, mline.getStartPoint() );
+
+    for ( int i = 0; i < mline.getDXFMLineSegmentCount(); i++ ) {
+      DXFMLineSegment seg = mline.getDXFMLineSegment( i );
+      out.output( GROUPCODE_MLINE_VERTEX_X, seg.getStartPoint() );
+      out.output( GROUPCODE_MLINE_DIRECTION_X, seg.getDirection() );
+      out.output( GROUPCODE_MLINE_MITER_DIRECTION_X, seg.getMiterDirection() );
+
+      for ( int n = 0; n < seg.getDXFMLineSegmentElementCount(); n++ ) {
+        DXFMLineSegmentElement el = seg.getDXFMLineSegmentElement( n );
+        this.writeParameters( GROUPCODE_MLINE_ELEMENT_PARAMETER_COUNT,
+          GROUPCODE_MLINE_ELEMENT_PARAMETER, el.getLengthParameters(), out );
+        this.writeParameters( GROUPCODE_MLINE_FILL_PARAMETER_COUNT,
+          GROUPCODE_MLINE_FILL_PARAMETER, el.getFillParameters(), out );
+      }
+    }
+  }
+
+  protected void writeParameters( int countCode, int code, double[] values,
+                                  DXFOutput out ) throws IOException {
+    int count = ( values != null ) ? values.length : 0;
+    out.output( countCode, count );
+
+    for ( int i = 0; i < count; i++ ) {
+      out.output( code, values[ i ] );
+    }
+  }
+}
@@ -0,0 +1,106 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package org.kabeja.writer.entities;
+
+import org.kabeja.dxf.DXFConstants;
+import org.kabeja.dxf.DXFEntity;
+import org.kabeja.dxf.DXFMText;
+import org.kabeja.dxf.helpers.Point;
+import org.kabeja.writer.DXFOutput;
+import java.io.IOException;
+
+/**
+ * Writes MTEXT, the text is split in parts of 250 characters (group code 3)
+ * and the last part (group code 1).
+ */
+public class DXFMTextWriter extends AbstractEntityWriter {
+  public final static int TEXT_PART_LENGTH = 250;
+  public static final int TEXT_VALUE = 3;
+  public static final int TEXT_HEIGHT = 40;
+  public static final int TEXT_REF_WIDTH = 41;
+  public static final int TEXT_REF_HEIGHT = 43;
+  public static final int TEXT_DRAWING_DIRECTION_FLAG = 72;
+  public static final int TEXT_ATTACHMENT_POINT = 71;
+  public static final int TEXT_STYLE = 7;
+  public static final int TEXT_OBLIQUEANGLE = 51;
+
+  public String getDXFEntityName() { return DXFConstants.ENTITY_TYPE_MTEXT; }
+
+  protected void writeProperties( DXFEntity entity, DXFOutput out )
+    throws IOException {
+    DXFMText mtext = ( DXFMText ) entity;
+    out.output( GROUPCODE_SUBCLASS, "AcDbMText" );
+    out.output( GROUPCODE_START_X, mtext.getInsertPoint() );
+    out.output( TEXT_HEIGHT, mtext.getHeight() );
+    out.output( TEXT_REF_WIDTH, mtext.getReferenceWidth() );
+
+    if ( mtext.getReferenceHeight() != 0.0 ) {
+      out.output( TEXT_REF_HEIGHT, mtext.getReferenceHeight() );
+    }
+
+    out.output( TEXT_ATTACHMENT_POINT, mtext.getAlignment() );
+
+    int flag = 0;
+
+    if ( mtext.isBackward() ) {
+      flag |= 2;
+    }
+
+    if ( mtext.isUpsideDown() ) {
+      flag |= 4;
+    }
+
+    if ( flag != 0 ) {
+      out.output( TEXT_DRAWING_DIRECTION_FLAG, flag );
+    }
+
+    String text = ( mtext.getText() != null ) ? mtext.getText() : "";
+    int start = 0;
+
+    while ( ( text.length() - start ) > TEXT_PART_LENGTH ) {
+      int end = start + TEXT_PART_LENGTH;
+
+      if ( Character.isHighSurrogate( text.charAt( end - 1 ) ) ) {
+        end--;
+      }
+
+      out.output( TEXT_VALUE, text.substring( start, end ) );
+      start = end;
+    }
+
+    out.output( GROUPCODE_TEXT, text.substring( start ) );
+
+    if ( ( mtext.getTextStyle() != null ) && ( mtext.getTextStyle().length() > 0 ) ) {
+      out.output( TEXT_STYLE, mtext.getTextStyle() );
+    }
+
+    // the x-axis direction replaces the rotation
+    Point direction = mtext.getAlignmentPoint();
+
+    if ( ( direction.getX() != 0.0 ) || ( direction.getY() != 0.0 ) ||
+      ( direction.getZ() != 0.0 ) ) {
+      out.output( END_X, direction );
+    } else if ( mtext.getRotation() != 0.0 ) {
+      out.output( GROUPCODE_ROTATION_ANGLE, mtext.getRotation() );
+    }
+
+    if ( mtext.getObliqueAngle() != 0.0 ) {
+      out.output( TEXT_OBLIQUEANGLE, mtext.getObliqueAngle() );
+    }
+  }
+}
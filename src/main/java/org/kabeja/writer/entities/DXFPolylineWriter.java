@@ -0,0 +1,149 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package org.kabeja.writer.entities;
+
+import org.kabeja.dxf.DXFConstants;
+import org.kabeja.dxf.DXFEntity;
+import org.kabeja.dxf.DXFPolyline;
+import org.kabeja.dxf.DXFVertex;
+import org.kabeja.writer.DXFOutput;
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * Writes the POLYLINE followed by the VERTEX entities and the SEQEND.
+ */
+public class DXFPolylineWriter extends AbstractEntityWriter {
+  public static final String END_SEQUENCE = "SEQEND";
+  public static final int ENTITIES_FOLLOW = 66;
+  public static final int VERTEX_BULGE = 42;
+  public static final int START_WIDTH = 40;
+  public static final int END_WIDTH = 41;
+  public static final int SURFACE_TYPE = 75;
+  public static final int SUREFACE_DENSITY_ROW_COUNT = 73;
+  public static final int SUREFACE_DENSITY_COLUMN_COUNT = 74;
+  public static final int ROW_COUNT = 71;
+  public static final int COLUMN_COUNT = 72;
+
+  public String getDXFEntityName() { return DXFConstants.ENTITY_TYPE_POLYLINE; }
+
+  protected void writeProperties( DXFEntity entity, DXFOutput out )
+    throws IOException {
+    DXFPolyline polyline = ( DXFPolyline ) entity;
+    String subclass = "AcDb2dPolyline";
+    String vertexSubclass = "AcDb2dVertex";
+
+    if ( polyline.isPolyfaceMesh() ) {
+      subclass = "AcDbPolyFaceMesh";
+      vertexSubclass = "AcDbPolyFaceMeshVertex";
+    } else if ( ( polyline.getFlags() & 16 ) == 16 ) {
+      subclass = "AcDbPolygonMesh";
+      vertexSubclass = "AcDbPolygonMeshVertex";
+    } else if ( ( polyline.getFlags() & 8 ) == 8 ) {
+      subclass = "AcDb3dPolyline";
+      vertexSubclass = "AcDb3dPolylineVertex";
+    }
+
+    out.output( GROUPCODE_SUBCLASS, subclass );
+    out.output( ENTITIES_FOLLOW, 1 );
+    out.output( GROUPCODE_START_X, 0.0 );
+    out.output( GROUPCODE_START_X + 10, 0.0 );
+    out.output( GROUPCODE_START_X + 20, 0.0 );
+    this.writeFlags( polyline, out );
+
+    if ( polyline.getStartWidth() != 0.0 ) {
+      out.output( START_WIDTH, polyline.getStartWidth() );
+    }
+
+    if ( polyline.getEndWidth() != 0.0 ) {
+      out.output( END_WIDTH, polyline.getEndWidth() );
+    }
+
+    if ( polyline.getRows() != 0 ) {
+      out.output( ROW_COUNT, polyline.getRows() );
+    }
+
+    if ( polyline.getColumns() != 0 ) {
+      out.output( COLUMN_COUNT, polyline.getColumns() );
+    }
+
+    if ( polyline.getSurefaceDensityRows() != 0 ) {
+      out.output( SUREFACE_DENSITY_ROW_COUNT, polyline.getSurefaceDensityRows() );
+    }
+
+    if ( polyline.getSurefaceDensityColumns() != 0 ) {
+      out.output( SUREFACE_DENSITY_COLUMN_COUNT,
+        polyline.getSurefaceDensityColumns() );
+    }
+
+    if ( polyline.getSurefaceType() != 0 ) {
+      out.output( SURFACE_TYPE, polyline.getSurefaceType() );
+    }
+
+    Iterator i = polyline.getVertexIterator();
+
+    while ( i.hasNext() ) {
+      this.writeVertex( ( DXFVertex ) i.next(), vertexSubclass, out );
+    }
+
+    out.output( GROUPCODE_TYPE, END_SEQUENCE );
+    out.output( GROUPCODE_SUBCLASS, SUBCLASS_ENTITY );
+    out.output( LAYER_NAME,
+      ( polyline.getLayerName().length() > 0 ) ? polyline.getLayerName() : DXFConstants.DEFAULT_LAYER );
+  }
+
+  protected void writeVertex( DXFVertex vertex, String subclass, DXFOutput out )
+    throws IOException {
+    out.output( GROUPCODE_TYPE, DXFConstants.ENTITY_TYPE_VERTEX );
+    this.writeCommonProperties( vertex, out );
+    out.output( GROUPCODE_SUBCLASS, "AcDbVertex" );
+    out.output( GROUPCODE_SUBCLASS, subclass );
+    out.output( GROUPCODE_START_X, vertex.getPoint() );
+
+    if ( vertex.getStartWidth() != 0.0 ) {
+      out.output( START_WIDTH, vertex.getStartWidth() );
+    }
+
+    if ( vertex.getEndWidth() != 0.0 ) {
+      out.output( END_WIDTH, vertex.getEndWidth() );
+    }
+
+    if ( vertex.getBulge() != 0.0 ) {
+      out.output( VERTEX_BULGE, vertex.getBulge() );
+    }
+
+    this.writeFlags( vertex, out );
+
+    // the indices of a face record, negative for invisible edges
+    this.writeIndex( ROW_COUNT, vertex.getPolyFaceMeshVertex0(),
+      vertex.isPolyFaceEdge0Visible(), out );
+    this.writeIndex( COLUMN_COUNT, vertex.getPolyFaceMeshVertex1(),
+      vertex.isPolyFaceEdge1Visible(), out );
+    this.writeIndex( SUREFACE_DENSITY_ROW_COUNT,
+      vertex.getPolyFaceMeshVertex2(), vertex.isPolyFaceEdge2Visible(), out );
+    this.writeIndex( SUREFACE_DENSITY_COLUMN_COUNT,
+      vertex.getPolyFaceMeshVertex3(), vertex.isPolyFaceEdge3Visible(), out );
+  }
+
+  protected void writeIndex( int groupCode, int index, boolean visible,
+                             DXFOutput out ) throws IOException {
+    if ( index != 0 ) {
+      out.output( groupCode, visible ? index : -index );
+    }
+  }
+}
@@ -0,0 +1,70 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package org.kabeja.writer.entities;
+
+import org.kabeja.dxf.DXFConstants;
+import org.kabeja.dxf.DXFEntity;
+import org.kabeja.dxf.DXFRegion;
+import org.kabeja.writer.DXFOutput;
+import java.io.IOException;
+import java.util.Iterator;
+
+public class DXFRegionWriter extends AbstractEntityWriter {
+  public final static int DATA = 1;
+  public final static int APPEND_DATA = 3;
+  public final static int MODELER_FORMAT_VERSION = 70;
+  public final static int MAX_LINE_LENGTH = 255;
+
+  public String getDXFEntityName() { return DXFConstants.ENTITY_TYPE_REGION; }
+
+  protected void writeProperties( DXFEntity entity, DXFOutput out )
+    throws IOException {
+    DXFRegion region = ( DXFRegion ) entity;
+    out.output( GROUPCODE_SUBCLASS, "AcDbModelerGeometry" );
+    out.output( MODELER_FORMAT_VERSION, 1 );
+
+    Iterator i = region.getACISDATA().iterator();
+
+    while ( i.hasNext() ) {
+      String line = this.encodeDATA( ( String ) i.next() );
+      int end = Math.min( line.length(), MAX_LINE_LENGTH );
+      out.output( DATA, line.substring( 0, end ) );
+
+      while ( end < line.length() ) {
+        int start = end;
+        end = Math.min( line.length(), start + MAX_LINE_LENGTH );
+        out.output( APPEND_DATA, line.substring( start, end ) );
+      }
+    }
+  }
+
+  /**
+   * The inverse of the decoding in the DXFRegionHandler.
+   */
+  protected String encodeDATA( String s ) {
+    char[] c = s.toCharArray();
+
+    for ( int i = 0; i < c.length; i++ ) {
+      if ( c[ i ] != ' ' ) {
+        c[ i ] = ( char ) ( 159 - c[ i ] );
+      }
+    }
+
+    return new String( c );
+  }
+}
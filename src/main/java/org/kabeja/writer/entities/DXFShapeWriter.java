@@ -0,0 +1,54 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package org.kabeja.writer.entities;
+
+import org.kabeja.dxf.DXFConstants;
+import org.kabeja.dxf.DXFEntity;
+import org.kabeja.dxf.DXFShape;
+import org.kabeja.writer.DXFOutput;
+import java.io.IOException;
+
+public class DXFShapeWriter extends AbstractEntityWriter {
+  public final static int GROUPCODE_NAME = 2;
+  public final static int GROUPCODE_SIZE = 40;
+  public final static int GROUPCODE_SCALE_X = 41;
+  public final static int GROUPCODE_OBLIQUE_ANGLE = 51;
+
+  public String getDXFEntityName() { return DXFConstants.ENTITY_TYPE_SHAPE; }
+
+  protected void writeProperties( DXFEntity entity, DXFOutput out )
+    throws IOException {
+    DXFShape shape = ( DXFShape ) entity;
+    out.output( GROUPCODE_SUBCLASS, "AcDbShape" );
+    out.output( GROUPCODE_START_X, shape.getInsertPoint() );
+    out.output( GROUPCODE_SIZE, shape.getHeight() );
+    out.output( GROUPCODE_NAME, shape.getName() );
+
+    if ( shape.getRotation() != 0.0 ) {
+      out.output( GROUPCODE_ROTATION_ANGLE, shape.getRotation() );
+    }
+
+    if ( shape.getScaleFactor() != 1.0 ) {
+      out.output( GROUPCODE_SCALE_X, shape.getScaleFactor() );
+    }
+
+    if ( shape.getObliqueAngle() != 0.0 ) {
+      out.output( GROUPCODE_OBLIQUE_ANGLE, shape.getObliqueAngle() );
+    }
+  }
+}
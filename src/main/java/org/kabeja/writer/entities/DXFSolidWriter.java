@@ -0,0 +1,45 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package org.kabeja.writer.entities;
+
+import org.kabeja.dxf.DXFConstants;
+import org.kabeja.dxf.DXFEntity;
+import org.kabeja.dxf.DXFSolid;
+import org.kabeja.writer.DXFOutput;
+import java.io.IOException;
+
+public class DXFSolidWriter extends AbstractEntityWriter {
+  public final static int POINT2_X = 11;
+  public final static int POINT3_X = 12;
+  public final static int POINT4_X = 13;
+
+  public String getDXFEntityName() { return DXFConstants.ENTITY_TYPE_SOLID; }
+
+  protected String getSubclass() { return "AcDbTrace"; }
+
+  protected void writeProperties( DXFEntity entity, DXFOutput out )
+    throws IOException {
+    DXFSolid solid = ( DXFSolid ) entity;
+    out.output( GROUPCODE_SUBCLASS, this.getSubclass() );
+    out.output( GROUPCODE_START_X, solid.getPoint1() );
+    out.output( POINT2_X, solid.getPoint2() );
+    out.output( POINT3_X, solid.getPoint3() );
+    out.output( POINT4_X, solid.getPoint4() );
+    this.writeFlags( entity, out );
+  }
+}
@@ -0,0 +1,129 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package org.kabeja.writer.entities;
+
+import org.kabeja.dxf.DXFConstants;
+import org.kabeja.dxf.DXFEntity;
+import org.kabeja.dxf.DXFSpline;
+import org.kabeja.dxf.helpers.SplinePoint;
+import org.kabeja.writer.DXFOutput;
+import java.io.IOException;
+import java.util.Iterator;
+
+public class DXFSplineWriter extends AbstractEntityWriter {
+  public final static int CONTROL_POINT_X = 10;
+  public final static int FIT_POINT_X = 11;
+  public final static int START_TANGENT_X = 12;
+  public final static int END_TANGENT_X = 13;
+  public final static int FIT_TOLERANCE = 44;
+  public final static int KNOTS = 40;
+  public final static int WEIGHTS = 41;
+  public final static int CONTROLPOINT_TOLERANCE = 42;
+  public final static int KNOT_TOLERANCE = 43;
+  public final static int NUMBER_OF_FIT_POINTS = 74;
+  public final static int NUMBER_OF_CONTROL_POINTS = 73;
+  public final static int NUMBER_OF_NODES = 72;
+  public final static int DEGREE = 71;
+
+  public String getDXFEntityName() { return DXFConstants.ENTITY_TYPE_SPLINE; }
+
+  protected void writeProperties( DXFEntity entity, DXFOutput out )
+    throws IOException {
+    DXFSpline spline = ( DXFSpline ) entity;
+    double[] knots = ( spline.getKnots() != null ) ? spline.getKnots() : new double[ 0 ];
+    double[] weights = ( spline.getWeights() != null ) ? spline.getWeights() : new double[ 0 ];
+    int controlPoints = 0;
+    int fitPoints = 0;
+    Iterator i = spline.getSplinePointIterator();
+
+    while ( i.hasNext() ) {
+      SplinePoint p = ( SplinePoint ) i.next();
+
+      if ( p.isControlPoint() ) {
+        controlPoints++;
+      } else if ( p.isFitPoint() ) {
+        fitPoints++;
+      }
+    }
+
+    out.output( GROUPCODE_SUBCLASS, "AcDbSpline" );
+    out.output( FLAGS, spline.getFlags() );
+    out.output( DEGREE, spline.getDegree() );
+    out.output( NUMBER_OF_NODES, knots.length );
+    out.output( NUMBER_OF_CONTROL_POINTS, controlPoints );
+    out.output( NUMBER_OF_FIT_POINTS, fitPoints );
+
+    if ( spline.getKnotsTolerance() != 0.0 ) {
+      out.output( KNOT_TOLERANCE, spline.getKnotsTolerance() );
+    }
+
+    if ( spline.getControlPointTolerance() != 0.0 ) {
+      out.output( CONTROLPOINT_TOLERANCE, spline.getControlPointTolerance() );
+    }
+
+    if ( spline.getFitTolerance() != 0.0 ) {
+      out.output( FIT_TOLERANCE, spline.getFitTolerance() );
+    }
+
+    this.writeTangents( spline, out );
+
+    for ( int n = 0; n < knots.length; n++ ) {
+      out.output( KNOTS, knots[ n ] );
+    }
+
+    // the weights only if they belong to the control points
+    if ( spline.isRational() && ( weights.length <= controlPoints ) ) {
+      for ( int n = 0; n < weights.length; n++ ) {
+        out.output( WEIGHTS, weights[ n ] );
+      }
+    }
+
+    this.writePoints( spline, true, out );
+    this.writePoints( spline, false, out );
+  }
+
+  protected void writeTangents( DXFSpline spline, DXFOutput out )
+    throws IOException {
+    Iterator i = spline.getSplinePointIterator();
+
+    while ( i.hasNext() ) {
+      SplinePoint p = ( SplinePoint ) i.next();
+
+      if ( p.isStartTangent() ) {
+        out.output( START_TANGENT_X, p );
+      } else if ( p.isEndTangent() ) {
+        out.output( END_TANGENT_X, p );
+      }
+    }
+  }
+
+  protected void writePoints( DXFSpline spline, boolean controlPoints,
+                              DXFOutput out ) throws IOException {
+    Iterator i = spline.getSplinePointIterator();
+
+    while ( i.hasNext() ) {
+      SplinePoint p = ( SplinePoint ) i.next();
+
+      if ( controlPoints && p.isControlPoint() ) {
+        out.output( CONTROL_POINT_X, p );
+      } else if ( !controlPoints && p.isFitPoint() ) {
+        out.output( FIT_POINT_X, p );
+      }
+    }
+  }
+}
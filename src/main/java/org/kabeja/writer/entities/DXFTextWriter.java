@@ -0,0 +1,96 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package org.kabeja.writer.entities;
+
+import org.kabeja.dxf.DXFConstants;
+import org.kabeja.dxf.DXFEntity;
+import org.kabeja.dxf.DXFText;
+import org.kabeja.writer.DXFOutput;
+import java.io.IOException;
+
+public class DXFTextWriter extends AbstractEntityWriter {
+  public static final int TEXT_HEIGHT = 40;
+  public static final int TEXT_SCALEX = 41;
+  public static final int TEXT_GENERATION_FLAG = 71;
+  public static final int TEXT_ALIGN = 72;
+  public static final int TEXT_VALIGN = 73;
+  public static final int TEXT_STYLE = 7;
+  public static final int TEXT_OBLIQUEANGLE = 51;
+
+  public String getDXFEntityName() { return DXFConstants.ENTITY_TYPE_TEXT; }
+
+  protected void writeProperties( DXFEntity entity, DXFOutput out )
+    throws IOException {
+    DXFText text = ( DXFText ) entity;
+    out.output( GROUPCODE_SUBCLASS, "AcDbText" );
+    out.output( GROUPCODE_START_X, text.getInsertPoint() );
+    out.output( TEXT_HEIGHT, text.getHeight() );
+    out.output( GROUPCODE_TEXT, text.getText() );
+
+    if ( text.getRotation() != 0.0 ) {
+      out.output( GROUPCODE_ROTATION_ANGLE, text.getRotation() );
+    }
+
+    if ( text.getScaleX() != 1.0 ) {
+      out.output( TEXT_SCALEX, text.getScaleX() );
+    }
+
+    if ( text.getObliqueAngle() != 0.0 ) {
+      out.output( TEXT_OBLIQUEANGLE, text.getObliqueAngle() );
+    }
+
+    if ( ( text.getTextStyle() != null ) && ( text.getTextStyle().length() > 0 ) ) {
+      out.output( TEXT_STYLE, text.getTextStyle() );
+    }
+
+    this.writeGenerationFlag( text, TEXT_GENERATION_FLAG, out );
+
+    if ( text.getAlign() != 0 ) {
+      out.output( TEXT_ALIGN, text.getAlign() );
+    }
+
+    if ( text.isAlignmentPointSet() ) {
+      out.output( END_X, text.getAlignmentPoint() );
+    }
+
+    out.output( GROUPCODE_SUBCLASS, "AcDbText" );
+
+    if ( text.getValign() != 0 ) {
+      out.output( this.getVerticalAlignCode(), text.getValign() );
+    }
+  }
+
+  protected int getVerticalAlignCode() { return TEXT_VALIGN; }
+
+  protected void writeGenerationFlag( DXFText text, int groupCode, DXFOutput out )
+    throws IOException {
+    int flag = 0;
+
+    if ( text.isBackward() ) {
+      flag |= 2;
+    }
+
+    if ( text.isUpsideDown() ) {
+      flag |= 4;
+    }
+
+    if ( flag != 0 ) {
+      out.output( groupCode, flag );
+    }
+  }
+}
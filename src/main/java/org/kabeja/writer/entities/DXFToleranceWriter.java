@@ -0,0 +1,40 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package org.kabeja.writer.entities;
+
+import org.kabeja.dxf.DXFConstants;
+import org.kabeja.dxf.DXFEntity;
+import org.kabeja.dxf.DXFTolerance;
+import org.kabeja.writer.DXFOutput;
+import java.io.IOException;
+
+public class DXFToleranceWriter extends AbstractEntityWriter {
+  public final static int GROUPCODE_X_AXIS_DIRECTOPN_X = 11;
+
+  public String getDXFEntityName() { return DXFConstants.ENTITY_TYPE_TOLERANCE; }
+
+  protected void writeProperties( DXFEntity entity, DXFOutput out )
+    throws IOException {
+    DXFTolerance tolerance = ( DXFTolerance ) entity;
+    out.output( GROUPCODE_SUBCLASS, "AcDbFcf" );
+    out.output( GROUPCODE_STYLENAME, tolerance.getStyleID() );
+    out.output( GROUPCODE_START_X, tolerance.getInsertionPoint() );
+    out.output( GROUPCODE_TEXT, tolerance.getText() );
+    out.output( GROUPCODE_X_AXIS_DIRECTOPN_X, tolerance.getXaxisDirection() );
+  }
+}
@@ -0,0 +1,107 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package org.kabeja.writer.entities;
+
+import org.kabeja.dxf.DXFConstants;
+import org.kabeja.dxf.DXFEntity;
+import org.kabeja.dxf.DXFViewport;
+import org.kabeja.dxf.helpers.Point;
+import org.kabeja.writer.DXFOutput;
+import java.io.IOException;
+import java.util.Iterator;
+
+public class DXFViewportWriter extends AbstractEntityWriter {
+  public final static int GROUPCODE_HEIGHT = 41;
+  public final static int GROUPCODE_WIDTH = 40;
+  public final static int GROUPCODE_VIEW_DIRECTION_X = 16;
+  public final static int GROUPCODE_VIEW_CENTER_X = 12;
+  public final static int GROUPCODE_VIEW_TARGET_X = 17;
+  public final static int GROUPCODE_SNAP_BASE_POINT_X = 13;
+  public final static int GROUPCODE_SNAP_SPACING_X = 14;
+  public final static int GROUPCODE_GRID_SPACING_X = 15;
+  public final static int GROUPCODE_LENS_LENGTH = 42;
+  public final static int GROUPCODE_FRONT_CLIPPING = 43;
+  public final static int GROUPCODE_BACK_CLIPPING = 44;
+  public final static int GROUPCODE_VIEW_HEIGHT = 45;
+  public final static int GROUPCODE_SNAP_ANGLE = 50;
+  public final static int GROUPCODE_TWIST_ANGLE = 51;
+  public final static int GROUPCODE_RENDER_MODE = 281;
+  public final static int GROUPCODE_UCS_ORIGIN_X = 110;
+  public final static int GROUPCODE_UCS_X_AXIS_X = 111;
+  public final static int GROUPCODE_UCS_Y_AXIS_X = 112;
+  public final static int GROUPCODE_UCS_TYPE = 79;
+  public final static int GROUPCODE_UCS_ELEVATION = 146;
+  public final static int GROUPCODE_CIRCLE_ZOOM_PERCENT = 72;
+  public final static int GROUPCODE_VIEWPORT_ID = 69;
+  public final static int GROUPCODE_VIEWPORT_STATUS = 68;
+  public final static int GROUPCODE_PLOTSTYLE_NAME = 1;
+  public final static int GROUPCODE_FROZEN_LAYER = 341;
+
+  public String getDXFEntityName() { return DXFConstants.ENTITY_TYPE_VIEWPORT; }
+
+  protected void writeProperties( DXFEntity entity, DXFOutput out )
+    throws IOException {
+    DXFViewport viewport = ( DXFViewport ) entity;
+    out.output( GROUPCODE_SUBCLASS, "AcDbViewport" );
+    out.output( GROUPCODE_START_X, viewport.getCenterPoint() );
+    out.output( GROUPCODE_WIDTH, viewport.getWidth() );
+    out.output( GROUPCODE_HEIGHT, viewport.getHeight() );
+    out.output( GROUPCODE_VIEWPORT_STATUS, viewport.getViewportStatus() );
+    out.output( GROUPCODE_VIEWPORT_ID, viewport.getViewportID() );
+    this.output2D( GROUPCODE_VIEW_CENTER_X, viewport.getViewCenterPoint(), out );
+    this.output2D( GROUPCODE_SNAP_BASE_POINT_X, viewport.getSnapBasePoint(), out );
+    this.output2D( GROUPCODE_SNAP_SPACING_X, viewport.getSnapSpacingPoint(), out );
+    this.output2D( GROUPCODE_GRID_SPACING_X, viewport.getGridSpacingPoint(), out );
+    out.output( GROUPCODE_VIEW_DIRECTION_X, viewport.getViewDirectionVector() );
+    out.output( GROUPCODE_VIEW_TARGET_X, viewport.getViewTargetPoint() );
+    out.output( GROUPCODE_LENS_LENGTH, viewport.getLensLength() );
+    out.output( GROUPCODE_FRONT_CLIPPING, viewport.getFrontClippingPlane() );
+    out.output( GROUPCODE_BACK_CLIPPING, viewport.getBackClippingPlane() );
+    out.output( GROUPCODE_VIEW_HEIGHT, viewport.getViewHeight() );
+    out.output( GROUPCODE_SNAP_ANGLE, viewport.getSnapAngle() );
+    out.output( GROUPCODE_TWIST_ANGLE, viewport.getTwistAngle() );
+    out.output( GROUPCODE_CIRCLE_ZOOM_PERCENT, ( int ) viewport.getCircleZoom() );
+
+    Iterator i = viewport.getFrozenLayerIterator();
+
+    while ( i.hasNext() ) {
+      out.output( GROUPCODE_FROZEN_LAYER, ( String ) i.next() );
+    }
+
+    if ( ( viewport.getPlotStyleName() != null ) &&
+      ( viewport.getPlotStyleName().length() > 0 ) ) {
+      out.output( GROUPCODE_PLOTSTYLE_NAME, viewport.getPlotStyleName() );
+    }
+
+    out.output( GROUPCODE_RENDER_MODE, viewport.getRenderMode() );
+
+    if ( viewport.isUseUCS() ) {
+      out.output( GROUPCODE_UCS_ORIGIN_X, viewport.getUcsOrigin() );
+      out.output( GROUPCODE_UCS_X_AXIS_X, viewport.getUcsXAxis() );
+      out.output( GROUPCODE_UCS_Y_AXIS_X, viewport.getUcsYAxis() );
+      out.output( GROUPCODE_UCS_TYPE, viewport.getUcsType() );
+      out.output( GROUPCODE_UCS_ELEVATION, viewport.getUcsElevation() );
+    }
+  }
+
+  protected void output2D( int code, Point p, DXFOutput out )
+    throws IOException {
+    out.output( code, p.getX() );
+    out.output( code + 10, p.getY() );
+  }
+}
@@ -0,0 +1,67 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package org.kabeja.dxf.helpers;
+
+import org.junit.Test;
+import org.kabeja.dxf.DXFDocument;
+import org.kabeja.dxf.DXFEntity;
+import org.kabeja.parser.DXFParser;
+import org.kabeja.parser.Parser;
+import org.kabeja.parser.ParserBuilder;
+import java.io.ByteArrayInputStream;
+import static org.junit.Assert.*;
+
+public class DXFMeasurementServiceTest {
+  protected final static String BLOCK =
+    "0\nSECTION\n2\nBLOCKS\n" +
+    "0\nBLOCK\n8\n0\n2\nB\n70\n0\n10\n0\n20\n0\n30\n0\n3\nB\n" +
+    "0\nLINE\n8\n0\n10\n0\n20\n0\n30\n0\n11\n10\n21\n0\n31\n0\n" +
+    "0\nHATCH\n8\n0\n10\n0\n20\n0\n30\n0\n210\n0\n220\n0\n230\n1\n" +
+    "2\nSOLID\n70\n1\n71\n0\n91\n1\n92\n3\n72\n0\n73\n1\n93\n4\n" +
+    "10\n0\n20\n0\n10\n10\n20\n0\n10\n10\n20\n10\n10\n0\n20\n10\n97\n0\n" +
+    "75\n0\n76\n1\n98\n0\n" +
+    "0\nTEXT\n8\n0\n10\n0\n20\n0\n30\n0\n40\n2\n1\nTEXT\n" +
+    "0\nENDBLK\n8\n0\n0\nENDSEC\n";
+
+  protected static Measurement measureInsert( String scaleY )
+    throws Exception {
+    String dxf = BLOCK + "0\nSECTION\n2\nENTITIES\n" +
+      "0\nINSERT\n8\n0\n2\nB\n10\n0\n20\n0\n30\n0\n41\n1\n42\n" + scaleY +
+      "\n43\n1\n0\nENDSEC\n0\nEOF\n";
+    Parser parser = ParserBuilder.createDefaultParser();
+    parser.parse( new ByteArrayInputStream( dxf.getBytes( "US-ASCII" ) ),
+      DXFParser.DEFAULT_ENCODING );
+
+    DXFDocument doc = parser.getDocument();
+    DXFEntity insert = ( DXFEntity ) doc.getDXFLayer( "0" ).getDXFEntities( "INSERT" )
+                                        .get( 0 );
+
+    return new DXFMeasurementService( 0.01, 1 ).measure( insert );
+  }
+
+  @Test public void testNonUniformScale() throws Exception {
+    Measurement uniform = measureInsert( "1" );
+    Measurement scaled = measureInsert( "1.0001" );
+
+    // only the line has a length, the hatch has an area
+    assertEquals( 10.0, uniform.getLength(), 1.0E-9 );
+    assertEquals( 100.0, uniform.getArea(), 1.0E-9 );
+    assertEquals( uniform.getLength(), scaled.getLength(), 1.0E-6 );
+    assertEquals( 100.01, scaled.getArea(), 1.0E-6 );
+  }
+}
@@ -0,0 +1,108 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package org.kabeja.geo;
+
+import org.junit.Test;
+import org.kabeja.dxf.DXFDocument;
+import org.kabeja.dxf.DXFHatch;
+import org.kabeja.dxf.DXFLayer;
+import org.kabeja.dxf.DXFLine;
+import org.kabeja.math.PathBuffer;
+import org.kabeja.parser.DXFParser;
+import org.kabeja.parser.Parser;
+import org.kabeja.parser.ParserBuilder;
+import java.io.ByteArrayInputStream;
+import static org.junit.Assert.*;
+
+public class GeoFeatureConverterTest {
+  protected static String square( int flags, double min, double max ) {
+    return "92\n" + flags + "\n72\n0\n73\n1\n93\n4\n" + "10\n" + min + "\n20\n" + min +
+    "\n10\n" + max + "\n20\n" + min + "\n10\n" + max + "\n20\n" + max + "\n10\n" + min +
+    "\n20\n" + max + "\n97\n0\n";
+  }
+
+  protected static DXFHatch parseHatch( String loops, int count )
+    throws Exception {
+    String dxf = "0\nSECTION\n2\nENTITIES\n" +
+      "0\nHATCH\n8\n0\n10\n0\n20\n0\n30\n0\n210\n0\n220\n0\n230\n1\n" +
+      "2\nSOLID\n70\n1\n71\n0\n91\n" + count + "\n" + loops + "75\n0\n76\n1\n98\n0\n" +
+      "0\nENDSEC\n0\nEOF\n";
+    Parser parser = ParserBuilder.createDefaultParser();
+    parser.parse( new ByteArrayInputStream( dxf.getBytes( "US-ASCII" ) ),
+      DXFParser.DEFAULT_ENCODING );
+
+    DXFDocument doc = parser.getDocument();
+
+    return ( DXFHatch ) doc.getDXFLayer( "0" ).getDXFEntities( "HATCH" ).get( 0 );
+  }
+
+  @Test public void testHatchWithHole() throws Exception {
+    DXFHatch hatch = parseHatch( square( 3, 0, 10 ) + square( 2, 2, 8 ), 2 );
+    GeoGeometry g = new GeoFeatureConverter().toPolygons( hatch );
+
+    assertEquals( GeoGeometry.TYPE_POLYGON, g.getType() );
+    assertEquals( 1, g.getPolygonCount() );
+
+    // the shell and the hole
+    assertEquals( 2, g.getRingEnd( 0 ) - g.getRingStart( 0 ) );
+  }
+
+  @Test public void testIslandInHole() throws Exception {
+    DXFHatch hatch = parseHatch( square( 3, 0, 10 ) + square( 2, 2, 8 ) +
+        square( 2, 4, 6 ), 3 );
+    GeoGeometry g = new GeoFeatureConverter().toPolygons( hatch );
+
+    assertEquals( GeoGeometry.TYPE_MULTIPOLYGON, g.getType() );
+    assertEquals( 2, g.getPolygonCount() );
+    assertEquals( 2, g.getRingEnd( 0 ) - g.getRingStart( 0 ) );
+    assertEquals( 1, g.getRingEnd( 1 ) - g.getRingStart( 1 ) );
+  }
+
+  @Test public void testRingOrientation() throws Exception {
+    // a clockwise shell and a counterclockwise hole
+    String shell = "92\n3\n72\n0\n73\n1\n93\n4\n10\n0\n20\n0\n10\n0\n20\n10\n" +
+      "10\n10\n20\n10\n10\n10\n20\n0\n97\n0\n";
+    DXFHatch hatch = parseHatch( shell + square( 2, 2, 8 ), 2 );
+    GeoGeometry g = new GeoFeatureConverter().toPolygons( hatch );
+    PathBuffer rings = g.getCoordinates();
+
+    assertTrue( GeoFeatureConverter.getArea( rings, 0 ) > 0.0 );
+    assertTrue( GeoFeatureConverter.getArea( rings, 1 ) < 0.0 );
+    assertEquals( 100.0, GeoFeatureConverter.getArea( rings, 0 ), 1e-9 );
+    assertEquals( -36.0, GeoFeatureConverter.getArea( rings, 1 ), 1e-9 );
+    assertEquals( 5, rings.getPartPointCount( 0 ) );
+    assertEquals( 5, rings.getPartPointCount( 1 ) );
+  }
+
+  @Test public void testColorByLayer() {
+    DXFDocument doc = new DXFDocument();
+    DXFLayer layer = new DXFLayer();
+    layer.setName( "RED" );
+    layer.setColor( 1 );
+    doc.addDXFLayer( layer );
+
+    // an entity without a color has the color 0
+    DXFLine line = new DXFLine();
+    line.setLayerName( "RED" );
+    doc.addDXFEntity( line );
+    assertEquals( "#ff0000", GeoFeatureConverter.getColor( line ) );
+
+    line.setColor( 3 );
+    assertEquals( "#00ff00", GeoFeatureConverter.getColor( line ) );
+  }
+}
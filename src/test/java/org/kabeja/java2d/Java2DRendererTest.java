@@ -0,0 +1,102 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package org.kabeja.java2d;
+
+import org.junit.Test;
+import org.kabeja.dxf.DXFDocument;
+import org.kabeja.parser.DXFParser;
+import org.kabeja.parser.Parser;
+import org.kabeja.parser.ParserBuilder;
+import java.awt.Color;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import static org.junit.Assert.*;
+
+public class Java2DRendererTest {
+  protected final static String SOLID =
+    "10\n0\n20\n0\n11\n10\n21\n0\n12\n0\n22\n10\n13\n10\n23\n10\n";
+  protected final static String DXF =
+    "0\nSECTION\n2\nTABLES\n0\nTABLE\n2\nLAYER\n" +
+    "0\nLAYER\n2\nRED\n70\n0\n62\n1\n6\nCONTINUOUS\n" +
+    "0\nENDTAB\n0\nENDSEC\n" +
+    "0\nSECTION\n2\nBLOCKS\n" +
+    "0\nBLOCK\n8\n0\n2\nB\n70\n0\n10\n0\n20\n0\n30\n0\n3\nB\n" +
+    "0\nSOLID\n8\n0\n" + SOLID +
+    "0\nENDBLK\n8\n0\n" +
+    "0\nENDSEC\n" +
+    "0\nSECTION\n2\nENTITIES\n" +
+    "0\nSOLID\n8\nRED\n" + SOLID +
+    "0\nINSERT\n8\nRED\n2\nB\n10\n20\n20\n0\n30\n0\n" +
+    "0\nENDSEC\n0\nEOF\n";
+
+  // a block with entities on an off, a frozen and the 0 layer
+  protected final static String LAYER_STATE_DXF =
+    "0\nSECTION\n2\nTABLES\n0\nTABLE\n2\nLAYER\n" +
+    "0\nLAYER\n2\nRED\n70\n0\n62\n1\n6\nCONTINUOUS\n" +
+    "0\nLAYER\n2\nOFF\n70\n0\n62\n-3\n6\nCONTINUOUS\n" +
+    "0\nLAYER\n2\nFROZEN\n70\n1\n62\n3\n6\nCONTINUOUS\n" +
+    "0\nENDTAB\n0\nENDSEC\n" +
+    "0\nSECTION\n2\nBLOCKS\n" +
+    "0\nBLOCK\n8\n0\n2\nB\n70\n0\n10\n0\n20\n0\n30\n0\n3\nB\n" +
+    "0\nSOLID\n8\nOFF\n" + solid( 0 ) + "0\nSOLID\n8\nFROZEN\n" + solid( 10 ) +
+    "0\nSOLID\n8\n0\n" + solid( 20 ) +
+    "0\nENDBLK\n8\n0\n" +
+    "0\nENDSEC\n" +
+    "0\nSECTION\n2\nENTITIES\n" +
+    "0\nINSERT\n8\nRED\n2\nB\n10\n0\n20\n0\n30\n0\n" +
+    "0\nENDSEC\n0\nEOF\n";
+
+  protected static String solid( int x ) {
+    return "10\n" + x + "\n20\n0\n11\n" + ( x + 10 ) + "\n21\n0\n12\n" + x +
+    "\n22\n10\n13\n" + ( x + 10 ) + "\n23\n10\n";
+  }
+
+  protected static BufferedImage render( String dxf ) throws Exception {
+    Parser parser = ParserBuilder.createDefaultParser();
+    parser.parse( new ByteArrayInputStream( dxf.getBytes( "US-ASCII" ) ),
+      DXFParser.DEFAULT_ENCODING );
+
+    DXFDocument doc = parser.getDocument();
+    Java2DRenderer renderer = new Java2DRenderer( doc );
+    renderer.setBackground( Color.WHITE );
+
+    return renderer.render( new Rectangle2D.Double( 0, 0, 30, 10 ), 300, 100 );
+  }
+
+  @Test public void testByLayerColor() throws Exception {
+    BufferedImage image = render( DXF );
+
+    // the entity without a color takes the color of the layer
+    assertEquals( Color.RED.getRGB(), image.getRGB( 50, 50 ) );
+
+    // the block entity takes the color of the insert, which is BYLAYER
+    assertEquals( Color.RED.getRGB(), image.getRGB( 250, 50 ) );
+    assertEquals( Color.WHITE.getRGB(), image.getRGB( 150, 50 ) );
+  }
+
+  @Test public void testBlockEntityLayerState() throws Exception {
+    BufferedImage image = render( LAYER_STATE_DXF );
+
+    assertEquals( Color.WHITE.getRGB(), image.getRGB( 50, 50 ) );
+    assertEquals( Color.WHITE.getRGB(), image.getRGB( 150, 50 ) );
+
+    // the entity on layer 0 is shown with the layer of the insert
+    assertEquals( Color.RED.getRGB(), image.getRGB( 250, 50 ) );
+  }
+}
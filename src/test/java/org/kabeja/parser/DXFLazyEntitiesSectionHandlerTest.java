@@ -0,0 +1,106 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package org.kabeja.parser;
+
+import org.junit.Test;
+import org.kabeja.dxf.DXFDocument;
+import org.kabeja.dxf.DXFInsert;
+import org.kabeja.dxf.DXFPolyline;
+import org.kabeja.dxf.helpers.Point;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import static org.junit.Assert.*;
+
+public class DXFLazyEntitiesSectionHandlerTest {
+  protected final static String DXF =
+    "0\nSECTION\n2\nENTITIES\n" +
+    "0\nINSERT\n5\nA1\n8\n0\n66\n1\n2\nB1\n10\n100\n20\n200\n30\n0\n" +
+    "0\nATTRIB\n5\nA2\n8\n0\n10\n555\n20\n666\n30\n0\n40\n2.5\n1\nVALUE\n2\nTAG\n70\n0\n" +
+    "0\nSEQEND\n5\nA3\n8\n0\n" +
+    "0\nPOLYLINE\n5\nA4\n8\n0\n66\n1\n10\n0\n20\n0\n30\n0\n" +
+    "0\nVERTEX\n5\nA5\n8\n0\n10\n1\n20\n2\n30\n0\n" +
+    "0\nVERTEX\n5\nA6\n8\n0\n10\n3\n20\n4\n30\n0\n" +
+    "0\nSEQEND\n5\nA7\n8\n0\n" +
+    "0\nINSERT\n5\nA8\n8\n0\n2\nB2\n10\n7\n20\n8\n30\n0\n" +
+    "0\nENDSEC\n0\nEOF\n";
+
+  @Test public void testAttributedInsert() throws Exception {
+    File file = createFile();
+
+    try {
+      DXFDocument eager = parse( ParserBuilder.createDefaultParser(), file );
+      DXFDocument lazy = parse( ParserBuilder.createLazyParser(), file );
+
+      List expected = eager.getDXFLayer( "0" ).getDXFEntities( "INSERT" );
+      List actual = lazy.getDXFLayer( "0" ).getDXFEntities( "INSERT" );
+      assertEquals( 2, expected.size() );
+      assertEquals( expected.size(), actual.size() );
+
+      for ( int i = 0; i < expected.size(); i++ ) {
+        DXFInsert e = ( DXFInsert ) expected.get( i );
+        DXFInsert a = ( DXFInsert ) actual.get( i );
+        assertEquals( e.getBlockID(), a.getBlockID() );
+        assertEquals( e.getID(), a.getID() );
+        assertPoint( e.getPoint(), a.getPoint() );
+      }
+
+      DXFInsert insert = ( DXFInsert ) actual.get( 0 );
+      assertEquals( "B1", insert.getBlockID() );
+      assertEquals( "A1", insert.getID() );
+      assertPoint( new Point( 100, 200, 0 ), insert.getPoint() );
+
+      // the vertices still belong to the polyline
+      DXFPolyline polyline = ( DXFPolyline ) lazy.getDXFLayer( "0" )
+                                                 .getDXFEntities( "POLYLINE" ).get( 0 );
+      assertEquals( "A4", polyline.getID() );
+      assertEquals( 2, polyline.getVertexCount() );
+      assertEquals( 3.0, polyline.getVertex( 1 ).getX(), 0.0 );
+    } finally {
+      file.delete();
+    }
+  }
+
+  protected static void assertPoint( Point expected, Point actual ) {
+    assertEquals( expected.getX(), actual.getX(), 0.0 );
+    assertEquals( expected.getY(), actual.getY(), 0.0 );
+    assertEquals( expected.getZ(), actual.getZ(), 0.0 );
+  }
+
+  protected static DXFDocument parse( Parser parser, File file )
+    throws ParseException {
+    parser.parse( file.getAbsolutePath(), DXFParser.DEFAULT_ENCODING );
+
+    return parser.getDocument();
+  }
+
+  protected static File createFile() throws IOException {
+    File file = File.createTempFile( "lazy", ".dxf" );
+    OutputStream out = new FileOutputStream( file );
+
+    try {
+      out.write( DXF.getBytes( "US-ASCII" ) );
+    } finally {
+      out.close();
+    }
+
+    return file;
+  }
+}
@@ -0,0 +1,88 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package org.kabeja.parser.dxf.filter;
+
+import org.junit.Test;
+import org.kabeja.parser.DXFValue;
+import org.kabeja.parser.ParseException;
+import org.kabeja.parser.dxf.DXFHandler;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.Assert.*;
+
+public class DXFStreamPreviewFilterTest {
+  /**
+   * Passes the groups through the filter and returns the passed groups
+   * as "code=value".
+   */
+  protected static List filter( String dxf, double resolution )
+    throws ParseException {
+    final List groups = new ArrayList();
+    DXFStreamPreviewFilter filter = new DXFStreamPreviewFilter();
+    filter.setResolution( resolution );
+    filter.setDXFHandler( new DXFHandler() {
+        public void parseGroup( int groupCode, DXFValue value ) {
+          groups.add( groupCode + "=" + value.getValue() );
+        }
+      } );
+
+    String[] lines = dxf.split( "\n" );
+
+    for ( int i = 0; i < lines.length; i += 2 ) {
+      filter.parseGroup( Integer.parseInt( lines[ i ] ), new DXFValue( lines[ i + 1 ] ) );
+    }
+
+    return groups;
+  }
+
+  protected static String lwpolyline( String vertices, int count ) {
+    return "0\nSECTION\n2\nENTITIES\n0\nLWPOLYLINE\n8\n0\n90\n" + count +
+    "\n70\n0\n" + vertices + "0\nENDSEC\n0\nEOF\n";
+  }
+
+  protected static int countGroups( List groups, int code ) {
+    int n = 0;
+
+    for ( int i = 0; i < groups.size(); i++ ) {
+      if ( ( ( String ) groups.get( i ) ).startsWith( code + "=" ) ) {
+        n++;
+      }
+    }
+
+    return n;
+  }
+
+  @Test public void testVertexCount() throws Exception {
+    List groups = filter( lwpolyline( "10\n0\n20\n0\n10\n1\n20\n0\n10\n50\n20\n0\n" +
+          "10\n100\n20\n0\n", 4 ), 10.0 );
+
+    // the vertex closer than the resolution is dropped
+    assertEquals( 3, countGroups( groups, 10 ) );
+    assertTrue( groups.contains( "90=3" ) );
+  }
+
+  @Test public void testBulgedSegment() throws Exception {
+    List groups = filter( lwpolyline( "10\n100\n20\n0\n42\n0.414\n10\n100\n20\n5\n" +
+          "10\n100\n20\n100\n", 3 ), 10.0 );
+
+    // the end of the bulged segment is kept
+    assertEquals( 3, countGroups( groups, 10 ) );
+    assertTrue( groups.contains( "20=5" ) );
+    assertTrue( groups.contains( "90=3" ) );
+  }
+}
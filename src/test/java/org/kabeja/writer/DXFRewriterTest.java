@@ -0,0 +1,125 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package org.kabeja.writer;
+
+import org.junit.Test;
+import org.kabeja.dxf.DXFDocument;
+import org.kabeja.dxf.helpers.Point;
+import org.kabeja.parser.DXFParser;
+import org.kabeja.parser.Parser;
+import org.kabeja.parser.ParserBuilder;
+import org.kabeja.parser.dxf.filter.DXFStreamLayerFilter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import static org.junit.Assert.*;
+
+public class DXFRewriterTest {
+  protected final static String DXF =
+    "0\nSECTION\n2\nHEADER\n" +
+    "9\n$EXTMIN\n10\n-100\n20\n-100\n30\n0\n" +
+    "9\n$EXTMAX\n10\n2000\n20\n2000\n30\n0\n" +
+    "0\nENDSEC\n" +
+    "0\nSECTION\n2\nENTITIES\n" +
+    "0\nHATCH\n8\nA\n10\n0\n20\n0\n30\n0\n210\n0\n220\n0\n230\n1\n" +
+    "2\nSOLID\n70\n1\n71\n0\n91\n1\n92\n3\n72\n0\n73\n1\n93\n4\n" +
+    "10\n1000\n20\n1000\n10\n1010\n20\n1000\n10\n1010\n20\n1010\n10\n1000\n20\n1010\n" +
+    "97\n0\n75\n0\n76\n1\n98\n0\n" +
+    "0\nCIRCLE\n8\nB\n10\n5\n20\n0\n30\n0\n40\n1\n210\n0\n220\n0\n230\n-1\n" +
+    "0\nLINE\n8\nC\n10\n-100\n20\n-100\n30\n0\n11\n0\n21\n0\n31\n0\n" +
+    "0\nENDSEC\n0\nEOF\n";
+
+  protected static File createFile() throws Exception {
+    File file = File.createTempFile( "rewrite", ".dxf" );
+    OutputStream out = new FileOutputStream( file );
+
+    try {
+      out.write( DXF.getBytes( "US-ASCII" ) );
+    } finally {
+      out.close();
+    }
+
+    return file;
+  }
+
+  protected static DXFDocument rewrite( File source, File target, String layers )
+    throws Exception {
+    DXFRewriter rewriter = new DXFRewriter();
+    Map properties = new HashMap();
+    properties.put( DXFStreamLayerFilter.PROPERTY_LAYERS_INCLUDE, layers );
+    rewriter.setProperties( properties );
+    rewriter.rewrite( source.getAbsolutePath(), target.getAbsolutePath() );
+
+    Parser parser = ParserBuilder.createDefaultParser();
+    parser.parse( target.getAbsolutePath(), DXFParser.DEFAULT_ENCODING );
+
+    return parser.getDocument();
+  }
+
+  protected static void assertPoint( double x, double y, Point p ) {
+    assertEquals( x, p.getX(), 1.0E-9 );
+    assertEquals( y, p.getY(), 1.0E-9 );
+  }
+
+  @Test public void testHatchExtent() throws Exception {
+    File source = createFile();
+    File target = File.createTempFile( "rewrite", ".dxf" );
+
+    try {
+      DXFDocument doc = rewrite( source, target, "A" );
+
+      // without the elevation point of the hatch
+      assertPoint( 1000, 1000, doc.getDXFHeader().getExtentMinimum() );
+      assertPoint( 1010, 1010, doc.getDXFHeader().getExtentMaximum() );
+    } finally {
+      source.delete();
+      target.delete();
+    }
+  }
+
+  @Test public void testExtrusion() throws Exception {
+    File source = createFile();
+    File target = File.createTempFile( "rewrite", ".dxf" );
+
+    try {
+      DXFDocument doc = rewrite( source, target, "B" );
+
+      // the x axis of the object coordinate system is mirrored
+      assertPoint( -6, -1, doc.getDXFHeader().getExtentMinimum() );
+      assertPoint( -4, 1, doc.getDXFHeader().getExtentMaximum() );
+    } finally {
+      source.delete();
+      target.delete();
+    }
+  }
+
+  @Test public void testSameFile() throws Exception {
+    File source = createFile();
+
+    try {
+      DXFDocument doc = rewrite( source, source, "C" );
+
+      assertEquals( 1, doc.getDXFLayer( "C" ).getDXFEntities( "LINE" ).size() );
+      assertFalse( doc.containsDXFLayer( "A" ) );
+    } finally {
+      source.delete();
+    }
+  }
+}
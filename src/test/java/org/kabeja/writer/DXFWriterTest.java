@@ -0,0 +1,68 @@
+/*
+   Copyright 2008 Simon Mieth
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package org.kabeja.writer;
+
+import org.junit.Test;
+import org.kabeja.dxf.DXFDocument;
+import org.kabeja.dxf.objects.DXFDictionary;
+import org.kabeja.parser.DXFParser;
+import org.kabeja.parser.Parser;
+import org.kabeja.parser.ParserBuilder;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import static org.junit.Assert.*;
+
+public class DXFWriterTest {
+  // a layout, which is parsed but not written, and a multiline style
+  protected final static String DXF =
+    "0\nSECTION\n2\nOBJECTS\n" +
+    "0\nDICTIONARY\n5\nC\n100\nAcDbDictionary\n" +
+    "3\nACAD_LAYOUT\n350\n1A\n3\nACAD_MLINESTYLE\n350\n1B\n" +
+    "0\nLAYOUT\n5\n1A\n330\nC\n100\nAcDbLayout\n1\nLayout1\n" +
+    "0\nDICTIONARY\n5\n1B\n330\nC\n100\nAcDbDictionary\n3\nSTANDARD\n350\n1C\n" +
+    "0\nMLINESTYLE\n5\n1C\n330\n1B\n100\nAcDbMlineStyle\n2\nSTANDARD\n70\n0\n" +
+    "3\n\n62\n256\n51\n90\n52\n90\n71\n0\n" +
+    "0\nENDSEC\n0\nEOF\n";
+
+  protected static DXFDocument parse( InputStream in ) throws Exception {
+    Parser parser = ParserBuilder.createDefaultParser();
+    parser.parse( in, DXFParser.DEFAULT_ENCODING );
+
+    return parser.getDocument();
+  }
+
+  @Test public void testDictionaryOfWrittenObjects() throws Exception {
+    DXFDocument doc = parse( new ByteArrayInputStream( DXF.getBytes( "US-ASCII" ) ) );
+    assertNotNull( doc.getRootDXFDictionary().getDXFObjectByName( "ACAD_LAYOUT" ) );
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new DXFWriter().write( doc, out );
+
+    DXFDictionary root = parse( new ByteArrayInputStream( out.toByteArray() ) )
+                           .getRootDXFDictionary();
+
+    // the layout is not written, so the dictionary has no entry for it
+    assertFalse( root.hasDXFObjectByID( "1A" ) );
+    assertNull( root.getDXFObjectByName( "ACAD_LAYOUT" ) );
+
+    DXFDictionary styles = ( DXFDictionary ) root.getDXFObjectByName( "ACAD_MLINESTYLE" );
+    assertNotNull( styles );
+    assertNotNull( styles.getDXFObjectByName( "STANDARD" ) );
+  }
+}